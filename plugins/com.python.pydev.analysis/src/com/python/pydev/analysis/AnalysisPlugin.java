@@ -37,6 +37,7 @@ import org.python.pydev.shared_ui.UIConstants;
 
 import com.python.pydev.analysis.additionalinfo.IInfo;
 import com.python.pydev.analysis.additionalinfo.ReferenceSearchesLucene;
+import com.python.pydev.analysis.builder.DependentsReanalysisJob;
 
 /**
  * The main plugin class to be used in the desktop.
@@ -61,6 +62,7 @@ public class AnalysisPlugin extends AbstractUIPlugin {
     @Override
     public void start(BundleContext context) throws Exception {
         super.start(context);
+        DependentsReanalysisJob.register();
 
         // Leaving code around to know when we get to the PyDev perspective in the active window (may be
         // useful in the future).
@@ -115,6 +117,7 @@ public class AnalysisPlugin extends AbstractUIPlugin {
     @Override
     public void stop(BundleContext context) throws Exception {
         super.stop(context);
+        DependentsReanalysisJob.unregister();
         ReferenceSearchesLucene.disposeAll();
         plugin = null;
     }
@@ -112,6 +112,8 @@ public class AnalysisPreferenceInitializer extends AbstractPreferenceInitializer
         //pep8 related.
         node.putBoolean(AnalysisPreferencesPage.USE_PEP8_CONSOLE, AnalysisPreferencesPage.DEFAULT_USE_PEP8_CONSOLE);
         node.putBoolean(AnalysisPreferencesPage.PEP8_USE_SYSTEM, AnalysisPreferencesPage.DEFAULT_PEP8_USE_SYSTEM);
+        node.putInt(AnalysisPreferencesPage.PEP8_INTERPRETERS_POOL_SIZE,
+                AnalysisPreferencesPage.DEFAULT_PEP8_INTERPRETERS_POOL_SIZE);
     }
 
 }
@@ -14,7 +14,7 @@ import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStreamReader;
-import java.io.OutputStreamWriter;
+import java.io.StringReader;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -25,6 +25,7 @@ import java.util.concurrent.CountDownLatch;
 
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
+import org.eclipse.jface.text.IDocument;
 import org.python.pydev.core.FastBufferedReader;
 import org.python.pydev.core.IInterpreterManager;
 import org.python.pydev.core.IModule;
@@ -40,6 +41,7 @@ import org.python.pydev.core.log.Log;
 import org.python.pydev.editor.codecompletion.revisited.PyPublicTreeMap;
 import org.python.pydev.editor.codecompletion.revisited.PythonPathHelper;
 import org.python.pydev.editor.codecompletion.revisited.javaintegration.AbstractJavaClassModule;
+import org.python.pydev.editor.codecompletion.revisited.modules.CompiledModule;
 import org.python.pydev.logging.DebugSettings;
 import org.python.pydev.parser.jython.SimpleNode;
 import org.python.pydev.parser.jython.ast.Name;
@@ -157,6 +159,11 @@ public abstract class AbstractAdditionalDependencyInfo extends AbstractAdditiona
 
     public final Object updateKeysLock = new Object(); // Calls to updateKeysIfNeededAndSave should be synchronized.
 
+    /**
+     * Number of compiled modules which have their info requested to the shell at once when indexing.
+     */
+    private static final int COMPILED_MODULES_PREFETCH_BATCH = 30;
+
     /**
      * If info == null we're dealing with project info (otherwise we're dealing with interpreter info).
      *
@@ -176,6 +183,7 @@ public abstract class AbstractAdditionalDependencyInfo extends AbstractAdditiona
 
         boolean isJython = info != null ? info.getInterpreterType() == IInterpreterManager.INTERPRETER_TYPE_JYTHON
                 : true;
+        boolean reindexSourceModules = isReindexOfSourceModulesRequired();
 
         Iterator<ModulesKey> it = keysFound.values().iterator();
         while (it.hasNext()) {
@@ -191,6 +199,8 @@ public abstract class AbstractAdditionalDependencyInfo extends AbstractAdditiona
                         if (completeIndexKey.lastModified != lastModified) {
                             //Just re-add it if the time changed!
                             newKeys.add(next);
+                        } else if (reindexSourceModules && PythonPathHelper.canAddAstInfoForSourceModule(next)) {
+                            newKeys.add(next);
                         }
                     }
                 }
@@ -227,6 +237,17 @@ public abstract class AbstractAdditionalDependencyInfo extends AbstractAdditiona
 
         // Add last (a module could be removed/added).
         if (hasNew) {
+            // The info for compiled modules is gotten from the shell in batches (one round trip per batch).
+            List<String> compiledNames = new ArrayList<String>();
+            if (info != null && !isJython) {
+                for (ModulesKey newKey : newKeys) {
+                    if (!PythonPathHelper.canAddAstInfoForSourceModule(newKey)) {
+                        compiledNames.add(newKey.name);
+                    }
+                }
+            }
+            int compiledI = 0;
+
             FastStringBuffer buffer = new FastStringBuffer();
             int currI = 0;
             int total = newKeys.size();
@@ -247,6 +268,14 @@ public abstract class AbstractAdditionalDependencyInfo extends AbstractAdditiona
                     }
                 } else {
                     if (info != null) {
+                        if (compiledI < compiledNames.size()) {
+                            if (compiledI % COMPILED_MODULES_PREFETCH_BATCH == 0) {
+                                CompiledModule.prefetchFromServer(compiledNames.subList(compiledI,
+                                        Math.min(compiledI + COMPILED_MODULES_PREFETCH_BATCH, compiledNames.size())),
+                                        info.getModulesManager());
+                            }
+                            compiledI++;
+                        }
                         if (isJython && ignoreFiles.contains(newKey.file)) {
                             continue;
                         }
@@ -272,6 +301,10 @@ public abstract class AbstractAdditionalDependencyInfo extends AbstractAdditiona
             }
         }
 
+        if (reindexSourceModules) {
+            onSourceModulesReindexed();
+        }
+
         if (hasNew || hasRemoved) {
             if (DebugSettings.DEBUG_INTERPRETER_AUTO_UPDATE) {
                 Log.toLogFile(this,
@@ -312,6 +345,21 @@ public abstract class AbstractAdditionalDependencyInfo extends AbstractAdditiona
         addAstInfo(astFactory.createModule(body), newKey, false);
     }
 
+    /**
+     * Subclasses may override to have all the source modules indexed again in updateKeysIfNeededAndSave (even if
+     * they didn't change).
+     */
+    protected boolean isReindexOfSourceModulesRequired() {
+        return false;
+    }
+
+    /**
+     * Called when updateKeysIfNeededAndSave indexed all the source modules again (see:
+     * isReindexOfSourceModulesRequired).
+     */
+    protected void onSourceModulesReindexed() {
+    }
+
     static interface IBufferFiller {
         void fillBuffer(FastStringBuffer buf);
     }
@@ -322,6 +370,15 @@ public abstract class AbstractAdditionalDependencyInfo extends AbstractAdditiona
 
     @Override
     public List<IInfo> addAstInfo(SimpleNode node, ModulesKey key, boolean generateDelta) {
+        return addAstInfo(node, key, generateDelta, null);
+    }
+
+    /**
+     * @param docForImports the contents of the module if available (so that subclasses may get information which
+     * is not in the ast).
+     */
+    protected List<IInfo> addAstInfo(SimpleNode node, ModulesKey key, boolean generateDelta,
+            IDocument docForImports) {
         List<IInfo> addAstInfo = new ArrayList<IInfo>();
         if (node == null || key == null || key.name == null) {
             return addAstInfo;
@@ -337,6 +394,7 @@ public abstract class AbstractAdditionalDependencyInfo extends AbstractAdditiona
                 completeIndex.add(completeIndexKey);
 
             }
+            notifyModulesChanged();
         } catch (Exception e) {
             Log.log(e);
         }
@@ -352,16 +410,23 @@ public abstract class AbstractAdditionalDependencyInfo extends AbstractAdditiona
             completeIndex.remove(new CompleteIndexKey(moduleName));
             super.removeInfoFromModule(moduleName, generateDelta);
         }
+        notifyModulesChanged();
+    }
+
+    /**
+     * Lets the reference searches (if already used) update its index in the background.
+     */
+    private void notifyModulesChanged() {
+        IReferenceSearches searches = this.referenceSearches;
+        if (searches != null) {
+            searches.onModulesChanged();
+        }
     }
 
     @Override
-    protected void saveTo(OutputStreamWriter writer, FastStringBuffer tempBuf, File pathToSave) throws IOException {
+    protected void saveAdditionalInfoTo(FastStringBuffer tempBuf) {
         synchronized (lock) {
             completeIndex.writeTo(tempBuf);
-            writer.write(tempBuf.getInternalCharsArray(), 0, tempBuf.length());
-            tempBuf.clear();
-
-            super.saveTo(writer, tempBuf, pathToSave);
         }
     }
 
@@ -430,6 +495,44 @@ public abstract class AbstractAdditionalDependencyInfo extends AbstractAdditiona
 
     private Object loadContentsFromFile(File file, IPythonNature nature)
             throws FileNotFoundException, IOException, MisconfigurationException {
+        if (TreeBinaryIO.isBinaryFormat(file)) {
+            return loadContentsFromBinaryFile(file, nature);
+        }
+
+        //Text format (written by older versions): load it and save it in the binary format.
+        Object tupWithResults = loadContentsFromTextFile(file, nature);
+        save();
+        return tupWithResults;
+    }
+
+    private Object loadContentsFromBinaryFile(File file, IPythonNature nature)
+            throws IOException, MisconfigurationException {
+        TreeBinaryIO.Contents contents = TreeBinaryIO.read(file, nature);
+
+        DiskCache diskCache = null;
+        FastBufferedReader bufferedReader = new FastBufferedReader(new StringReader(contents.additionalInfo));
+        try {
+            FastStringBuffer line = bufferedReader.readLine();
+            if (line != null && line.startsWith("-- START DISKCACHE")) {
+                if (!line.startsWith("-- START DISKCACHE_" + DiskCache.VERSION)) {
+                    throw new RuntimeException("Disk cache version changed");
+                }
+                diskCache = DiskCache.loadFrom(bufferedReader, new ObjectsPoolMap());
+            }
+        } finally {
+            bufferedReader.close();
+        }
+
+        Tuple<Tuple3<Object, Object, Object>, Object> tupWithResults = new Tuple<Tuple3<Object, Object, Object>, Object>(
+                new Tuple3<Object, Object, Object>(contents.topLevelInitialsToInfo, contents.innerInitialsToInfo,
+                        contents.tokensInfoVersion),
+                diskCache);
+        restoreSavedInfo(tupWithResults);
+        return tupWithResults;
+    }
+
+    private Object loadContentsFromTextFile(File file, IPythonNature nature)
+            throws FileNotFoundException, IOException, MisconfigurationException {
         FileInputStream fileInputStream = new FileInputStream(file);
         try {
             //            Timer timer = new Timer();
@@ -506,7 +609,6 @@ public abstract class AbstractAdditionalDependencyInfo extends AbstractAdditiona
                 Object tupWithResults = IOUtils.readFromFile(file);
                 restoreSavedInfo(tupWithResults);
                 //                timer2.printDiff("IOUtils time");
-                save(); //Save in new format!
                 return tupWithResults;
             }
 
@@ -528,15 +630,7 @@ public abstract class AbstractAdditionalDependencyInfo extends AbstractAdditiona
         completeIndex.add(key);
 
         //current way (saves a list of iinfo)
-        for (Iterator<IInfo> it = data.o2.iterator(); it.hasNext();) {
-            IInfo info = it.next();
-            if (info.getPath() == null || info.getPath().length() == 0) {
-                this.add(info, TOP_LEVEL);
-
-            } else {
-                this.add(info, INNER);
-            }
-        }
+        this.addAll(data.o2);
     }
 
     private CountDownLatch waitForIntegrity = null;
@@ -12,6 +12,7 @@ import java.util.List;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.jface.text.IDocument;
 import org.python.pydev.core.DeltaSaver;
 import org.python.pydev.core.IDeltaProcessor;
 import org.python.pydev.core.IModulesManager;
@@ -50,9 +51,12 @@ public abstract class AbstractAdditionalInfoWithBuild extends AbstractAdditional
     }
 
     /**
-     * This is the maximum number of deltas that can be generated before saving everything in a big chunk and
+     * This is the minimum number of deltas that can be generated before saving everything in a big chunk and
      * clearing the deltas. 50 means that it's something as 25 modules (because usually a module change
      * is composed of a delete and an addition).
+     *
+     * Note that after that, the deltas are only compacted if the journal is big when compared to the
+     * full saved state (see: DeltaSaver.needsCompaction).
      */
     public static final int MAXIMUN_NUMBER_OF_DELTAS = 50;
 
@@ -61,7 +65,13 @@ public abstract class AbstractAdditionalInfoWithBuild extends AbstractAdditional
      */
     private void checkDeltaSize() {
         synchronized (lock) {
-            if (deltaSaver.availableDeltas() > MAXIMUN_NUMBER_OF_DELTAS) {
+            long fullStateBytes = 0;
+            try {
+                fullStateBytes = getPersistingLocation().length();
+            } catch (MisconfigurationException e) {
+                //Ignore (just compact based on the number of deltas).
+            }
+            if (deltaSaver.needsCompaction(MAXIMUN_NUMBER_OF_DELTAS, fullStateBytes)) {
                 this.save();
             }
         }
@@ -84,9 +94,11 @@ public abstract class AbstractAdditionalInfoWithBuild extends AbstractAdditional
     }
 
     @Override
-    public List<IInfo> addAstInfo(SimpleNode node, ModulesKey key, boolean generateDelta) {
-        List<IInfo> addAstInfo = super.addAstInfo(node, key, generateDelta);
-        if (generateDelta && addAstInfo.size() > 0) {
+    protected List<IInfo> addAstInfo(SimpleNode node, ModulesKey key, boolean generateDelta,
+            IDocument docForImports) {
+        List<IInfo> addAstInfo = super.addAstInfo(node, key, generateDelta, docForImports);
+        //Note: added even if there are no infos (the module is still indexed and may have imports).
+        if (generateDelta && node != null && key != null && key.name != null) {
             deltaSaver.addInsertCommand(new Tuple<ModulesKey, List<IInfo>>(key, addAstInfo));
             checkDeltaSize();
         }
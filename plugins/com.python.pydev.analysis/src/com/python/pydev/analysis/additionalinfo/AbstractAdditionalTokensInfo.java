@@ -10,15 +10,17 @@
 package com.python.pydev.analysis.additionalinfo;
 
 import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.ObjectInputStream;
-import java.io.OutputStreamWriter;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -27,6 +29,7 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.SortedMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 
 import org.eclipse.jface.text.IDocument;
 import org.python.pydev.core.FileUtilsFileBuffer;
@@ -37,7 +40,6 @@ import org.python.pydev.core.ModulesKey;
 import org.python.pydev.core.ModulesKeyForZip;
 import org.python.pydev.core.ObjectsInternPool;
 import org.python.pydev.core.log.Log;
-import org.python.pydev.editor.codecompletion.revisited.PyPublicTreeMap;
 import org.python.pydev.logging.DebugSettings;
 import org.python.pydev.parser.fastparser.FastDefinitionsParser;
 import org.python.pydev.parser.jython.SimpleNode;
@@ -80,6 +82,11 @@ import org.python.pydev.shared_core.structure.Tuple3;
  * - the interpreter used changes (the InterpreterInfo should be passed after the change)
  * - some file changes (pydev_builder)
  *
+ * Regarding concurrency: the initials indexes are concurrent maps where each value (the set of infos for the
+ * initials) is never changed after being published (writers synchronize on the lock, create a new set with the
+ * changes and replace the old one), so, readers don't need to get the lock and never block on writers (they may
+ * just not see changes which are still being done).
+ *
  * @author Fabio
  */
 public abstract class AbstractAdditionalTokensInfo {
@@ -111,13 +118,17 @@ public abstract class AbstractAdditionalTokensInfo {
      * It contains only top/level information for a module
      *
      * This map is persisted.
+     *
+     * Note: the sets in the values must not be changed (a new set must be put in the map on a change).
      */
-    protected SortedMap<String, Set<IInfo>> topLevelInitialsToInfo = new PyPublicTreeMap<String, Set<IInfo>>();
+    protected volatile SortedMap<String, Set<IInfo>> topLevelInitialsToInfo = new ConcurrentSkipListMap<String, Set<IInfo>>();
 
     /**
      * indexes so that we can get 'inner information' from classes, such as methods or inner classes from a class
+     *
+     * Note: the sets in the values must not be changed (a new set must be put in the map on a change).
      */
-    protected SortedMap<String, Set<IInfo>> innerInitialsToInfo = new PyPublicTreeMap<String, Set<IInfo>>();
+    protected volatile SortedMap<String, Set<IInfo>> innerInitialsToInfo = new ConcurrentSkipListMap<String, Set<IInfo>>();
 
     /**
      * Should be used before re-creating the info, so that we have enough memory.
@@ -186,36 +197,65 @@ public abstract class AbstractAdditionalTokensInfo {
     }
 
     /**
-     * That's the function actually used to add some info
+     * Adds a single info (note that the initials set is copied on each call, so, when adding many infos -- i.e.: the
+     * infos of a module -- addAll should be used so that each initials set is copied only once).
      *
      * @param info information to be added
      */
     protected void add(IInfo info, int doOn) {
-        synchronized (lock) {
-            String name = info.getName();
-            String initials = getInitials(name);
-            SortedMap<String, Set<IInfo>> initialsToInfo;
-
-            if (doOn == TOP_LEVEL) {
-                if (info.getPath() != null && info.getPath().length() > 0) {
-                    throw new RuntimeException(
-                            "Error: the info being added is added as an 'top level' info, but has path. Info:" + info);
-                }
-                initialsToInfo = topLevelInitialsToInfo;
+        boolean hasPath = info.getPath() != null && info.getPath().length() > 0;
+        if (doOn == TOP_LEVEL) {
+            if (hasPath) {
+                throw new RuntimeException(
+                        "Error: the info being added is added as an 'top level' info, but has path. Info:" + info);
+            }
 
-            } else if (doOn == INNER) {
-                if (info.getPath() == null || info.getPath().length() == 0) {
-                    throw new RuntimeException(
-                            "Error: the info being added is added as an 'inner' info, but does not have a path. Info: "
-                                    + info);
-                }
-                initialsToInfo = innerInitialsToInfo;
+        } else if (doOn == INNER) {
+            if (!hasPath) {
+                throw new RuntimeException(
+                        "Error: the info being added is added as an 'inner' info, but does not have a path. Info: "
+                                + info);
+            }
 
-            } else {
-                throw new RuntimeException("List to add is invalid: " + doOn);
+        } else {
+            throw new RuntimeException("List to add is invalid: " + doOn);
+        }
+        addAll(Collections.singletonList(info));
+    }
+
+    /**
+     * Adds all the passed infos (the ones without a path are added as top level and the others as inner).
+     *
+     * Each initials set is copied only once (so, this should be used when adding the infos of a module).
+     */
+    protected void addAll(Collection<IInfo> infos) {
+        HashMap<String, List<IInfo>> topLevel = new HashMap<String, List<IInfo>>();
+        HashMap<String, List<IInfo>> inner = new HashMap<String, List<IInfo>>();
+        for (IInfo info : infos) {
+            String path = info.getPath();
+            HashMap<String, List<IInfo>> initialsToNewInfo = (path == null || path.length() == 0) ? topLevel : inner;
+            String initials = getInitials(info.getName());
+            List<IInfo> lst = initialsToNewInfo.get(initials);
+            if (lst == null) {
+                lst = new ArrayList<IInfo>(3);
+                initialsToNewInfo.put(initials, lst);
             }
-            Set<IInfo> listForInitials = getAndCreateListForInitials(initials, initialsToInfo);
-            listForInitials.add(info);
+            lst.add(info);
+        }
+
+        synchronized (lock) {
+            addAll(topLevel, topLevelInitialsToInfo);
+            addAll(inner, innerInitialsToInfo);
+        }
+    }
+
+    private void addAll(Map<String, List<IInfo>> initialsToNewInfo, SortedMap<String, Set<IInfo>> initialsToInfo) {
+        for (Entry<String, List<IInfo>> entry : initialsToNewInfo.entrySet()) {
+            String initials = entry.getKey();
+            List<IInfo> newInfo = entry.getValue();
+            Set<IInfo> listForInitials = createListForInitialsCopy(initials, initialsToInfo, newInfo.size());
+            listForInitials.addAll(newInfo);
+            initialsToInfo.put(initials, listForInitials);
         }
     }
 
@@ -233,18 +273,25 @@ public abstract class AbstractAdditionalTokensInfo {
     /**
      * @param initials the initials we are looking for
      * @param initialsToInfo this is the list we should use (top level or inner)
-     * @return the list of tokens with the specified initials (must be exact match)
+     * @param additionalSize the number of items which will be added to the returned set
+     * @return a copy of the set of tokens with the specified initials (must be exact match), which may be changed
+     * and later put back in the initialsToInfo.
      */
-    protected Set<IInfo> getAndCreateListForInitials(String initials, SortedMap<String, Set<IInfo>> initialsToInfo) {
+    protected Set<IInfo> createListForInitialsCopy(String initials, SortedMap<String, Set<IInfo>> initialsToInfo,
+            int additionalSize) {
         Set<IInfo> lInfo = initialsToInfo.get(initials);
         if (lInfo == null) {
-            lInfo = new HashSet<IInfo>();
-            initialsToInfo.put(initials, lInfo);
+            return new HashSet<IInfo>();
         }
-        return lInfo;
+        HashSet<IInfo> copy = new HashSet<IInfo>(Math.max((int) ((lInfo.size() + additionalSize) / .75f) + 1, 16));
+        copy.addAll(lInfo);
+        return copy;
     }
 
-    private IInfo addAssignTargets(ASTEntry entry, String moduleName, int doOn, String path, boolean lastIsMethod) {
+    /**
+     * @return the info for the assign (which still must be added to the indexes) or null if it shouldn't be added.
+     */
+    private IInfo createAssignTargetsInfo(ASTEntry entry, String moduleName, String path, boolean lastIsMethod) {
         String rep = NodeUtils.getFullRepresentationString(entry.node);
         if (lastIsMethod) {
             List<String> parts = StringUtils.dotSplit(rep);
@@ -252,19 +299,17 @@ public abstract class AbstractAdditionalTokensInfo {
                 //at least 2 parts are required
                 if (parts.get(0).equals("self")) {
                     rep = parts.get(1);
-                    //no intern construct (locked in the loop that calls this method)
-                    AttrInfo info = new AttrInfo(ObjectsInternPool.internUnsynched(rep), moduleName,
-                            ObjectsInternPool.internUnsynched(path), false, getNature());
-                    add(info, doOn);
+                    //no intern construct (interned here)
+                    AttrInfo info = new AttrInfo(ObjectsInternPool.intern(rep), moduleName,
+                            ObjectsInternPool.intern(path), false, getNature());
                     return info;
                 }
             }
         } else {
-            //no intern construct (locked in the loop that calls this method)
-            AttrInfo info = new AttrInfo(ObjectsInternPool.internUnsynched(FullRepIterable.getFirstPart(rep)),
+            //no intern construct (interned here)
+            AttrInfo info = new AttrInfo(ObjectsInternPool.intern(FullRepIterable.getFirstPart(rep)),
                     moduleName,
-                    ObjectsInternPool.internUnsynched(path), false, getNature());
-            add(info, doOn);
+                    ObjectsInternPool.intern(path), false, getNature());
             return info;
         }
         return null;
@@ -319,6 +364,15 @@ public abstract class AbstractAdditionalTokensInfo {
             return null;
         }
 
+        return addDefinitionsAstInfo(node, key, generateDelta, charArray, len);
+    }
+
+    /**
+     * Adds the info for an ast which only has the definitions of the module (gotten from the FastDefinitionsParser).
+     * Subclasses may override to get more info from the contents of the module.
+     */
+    protected List<IInfo> addDefinitionsAstInfo(SimpleNode node, ModulesKey key, boolean generateDelta,
+            char[] contents, int len) {
         return addAstInfo(node, key, generateDelta);
     }
 
@@ -343,91 +397,79 @@ public abstract class AbstractAdditionalTokensInfo {
 
                 FastStack<SimpleNode> tempStack = new FastStack<SimpleNode>(10);
 
-                synchronized (this.lock) {
-                    synchronized (ObjectsInternPool.lock) {
-                        key.name = ObjectsInternPool.internUnsynched(key.name);
-
-                        while (entries.hasNext()) {
-                            ASTEntry entry = entries.next();
-                            IInfo infoCreated = null;
+                //Note: the infos are added later on with a single addAll, so that each initials set is
+                //copied only once.
+                key.name = ObjectsInternPool.intern(key.name);
+
+                while (entries.hasNext()) {
+                    ASTEntry entry = entries.next();
+                    IInfo infoCreated = null;
+
+                    if (entry.parent == null) { //we only want those that are in the global scope
+                        if (entry.node instanceof ClassDef) {
+                            //no intern construct (interned here)
+                            ClassInfo info = new ClassInfo(
+                                    ObjectsInternPool.intern(((NameTok) ((ClassDef) entry.node).name).id),
+                                    key.name, null, false, getNature());
+                            infoCreated = info;
+
+                        } else if (entry.node instanceof FunctionDef) {
+                            //no intern construct (interned here)
+                            FuncInfo info2 = new FuncInfo(
+                                    ObjectsInternPool.intern(((NameTok) ((FunctionDef) entry.node).name).id),
+                                    key.name, null, false, getNature());
+                            infoCreated = info2;
+
+                        } else {
+                            //it is an assign
+                            infoCreated = this.createAssignTargetsInfo(entry, key.name, null, false);
+
+                        }
+                    } else {
+                        if (entry.node instanceof ClassDef || entry.node instanceof FunctionDef) {
+                            //ok, it has a parent, so, let's check to see if the path we got only has class definitions
+                            //as the parent (and get that path)
+                            Tuple<String, Boolean> pathToRoot = this.getPathToRoot(entry, false, false,
+                                    tempStack);
+                            if (pathToRoot != null && pathToRoot.o1 != null && pathToRoot.o1.length() > 0) {
+                                //if the root is not valid, it is not only classes in the path (could be a method inside
+                                //a method, or something similar).
 
-                            if (entry.parent == null) { //we only want those that are in the global scope
                                 if (entry.node instanceof ClassDef) {
-                                    //no intern construct (locked in this loop)
                                     ClassInfo info = new ClassInfo(
-                                            ObjectsInternPool
-                                                    .internUnsynched(((NameTok) ((ClassDef) entry.node).name).id),
-                                            key.name, null, false, getNature());
-                                    add(info, TOP_LEVEL);
+                                            ObjectsInternPool.intern(((NameTok) ((ClassDef) entry.node).name).id),
+                                            key.name, ObjectsInternPool.intern(pathToRoot.o1), false,
+                                            getNature());
                                     infoCreated = info;
 
-                                } else if (entry.node instanceof FunctionDef) {
-                                    //no intern construct (locked in this loop)
+                                } else {
+                                    //FunctionDef
                                     FuncInfo info2 = new FuncInfo(
-                                            ObjectsInternPool
-                                                    .internUnsynched(((NameTok) ((FunctionDef) entry.node).name).id),
-                                            key.name, null, false, getNature());
-                                    add(info2, TOP_LEVEL);
+                                            ObjectsInternPool.intern(((NameTok) ((FunctionDef) entry.node).name).id),
+                                            key.name, ObjectsInternPool.intern(pathToRoot.o1), false,
+                                            getNature());
                                     infoCreated = info2;
 
-                                } else {
-                                    //it is an assign
-                                    infoCreated = this.addAssignTargets(entry, key.name, TOP_LEVEL, null, false);
-
-                                }
-                            } else {
-                                if (entry.node instanceof ClassDef || entry.node instanceof FunctionDef) {
-                                    //ok, it has a parent, so, let's check to see if the path we got only has class definitions
-                                    //as the parent (and get that path)
-                                    Tuple<String, Boolean> pathToRoot = this.getPathToRoot(entry, false, false,
-                                            tempStack);
-                                    if (pathToRoot != null && pathToRoot.o1 != null && pathToRoot.o1.length() > 0) {
-                                        //if the root is not valid, it is not only classes in the path (could be a method inside
-                                        //a method, or something similar).
-
-                                        if (entry.node instanceof ClassDef) {
-                                            ClassInfo info = new ClassInfo(
-                                                    ObjectsInternPool
-                                                            .internUnsynched(
-                                                                    ((NameTok) ((ClassDef) entry.node).name).id),
-                                                    key.name, ObjectsInternPool.internUnsynched(pathToRoot.o1), false,
-                                                    getNature());
-                                            add(info, INNER);
-                                            infoCreated = info;
-
-                                        } else {
-                                            //FunctionDef
-                                            FuncInfo info2 = new FuncInfo(
-                                                    ObjectsInternPool
-                                                            .internUnsynched(
-                                                                    ((NameTok) ((FunctionDef) entry.node).name).id),
-                                                    key.name, ObjectsInternPool.internUnsynched(pathToRoot.o1), false,
-                                                    getNature());
-                                            add(info2, INNER);
-                                            infoCreated = info2;
-
-                                        }
-                                    }
-                                } else {
-                                    //it is an assign
-                                    Tuple<String, Boolean> pathToRoot = this.getPathToRoot(entry, true, false,
-                                            tempStack);
-                                    if (pathToRoot != null && pathToRoot.o1 != null && pathToRoot.o1.length() > 0) {
-                                        infoCreated = this.addAssignTargets(entry, key.name, INNER, pathToRoot.o1,
-                                                pathToRoot.o2);
-                                    }
                                 }
                             }
-
-                            if (infoCreated != null) {
-                                createdInfos.add(infoCreated);
+                        } else {
+                            //it is an assign
+                            Tuple<String, Boolean> pathToRoot = this.getPathToRoot(entry, true, false,
+                                    tempStack);
+                            if (pathToRoot != null && pathToRoot.o1 != null && pathToRoot.o1.length() > 0) {
+                                infoCreated = this.createAssignTargetsInfo(entry, key.name, pathToRoot.o1,
+                                        pathToRoot.o2);
                             }
+                        }
+                    }
 
-                        } //end while
+                    if (infoCreated != null) {
+                        createdInfos.add(infoCreated);
+                    }
 
-                    } //end lock ObjectsPool.lock
+                } //end while
 
-                } //end this.lock
+                addAll(createdInfos);
 
             } catch (Exception e) {
                 Log.log(e);
@@ -454,21 +496,19 @@ public abstract class AbstractAdditionalTokensInfo {
      */
     public Set<String> getAllModulesWithTokens() {
         HashSet<String> ret = new HashSet<String>();
-        synchronized (lock) {
-            Set<Entry<String, Set<IInfo>>> entrySet = this.topLevelInitialsToInfo.entrySet();
-            for (Entry<String, Set<IInfo>> entry : entrySet) {
-                Set<IInfo> value = entry.getValue();
-                for (IInfo info : value) {
-                    ret.add(info.getDeclaringModuleName());
-                }
+        Set<Entry<String, Set<IInfo>>> entrySet = this.topLevelInitialsToInfo.entrySet();
+        for (Entry<String, Set<IInfo>> entry : entrySet) {
+            Set<IInfo> value = entry.getValue();
+            for (IInfo info : value) {
+                ret.add(info.getDeclaringModuleName());
             }
+        }
 
-            entrySet = this.innerInitialsToInfo.entrySet();
-            for (Entry<String, Set<IInfo>> entry : entrySet) {
-                Set<IInfo> value = entry.getValue();
-                for (IInfo info : value) {
-                    ret.add(info.getDeclaringModuleName());
-                }
+        entrySet = this.innerInitialsToInfo.entrySet();
+        for (Entry<String, Set<IInfo>> entry : entrySet) {
+            Set<IInfo> value = entry.getValue();
+            for (IInfo info : value) {
+                ret.add(info.getDeclaringModuleName());
             }
         }
         return ret;
@@ -563,19 +603,24 @@ public abstract class AbstractAdditionalTokensInfo {
      * @param initialsToInfo
      */
     private void removeInfoFromMap(String moduleName, SortedMap<String, Set<IInfo>> initialsToInfo) {
-        Iterator<Set<IInfo>> itListOfInfo = initialsToInfo.values().iterator();
-        while (itListOfInfo.hasNext()) {
-
-            Iterator<IInfo> it = itListOfInfo.next().iterator();
-            while (it.hasNext()) {
+        for (Entry<String, Set<IInfo>> entry : initialsToInfo.entrySet()) {
+            Set<IInfo> listForInitials = entry.getValue();
+            Set<IInfo> newListForInitials = null;
 
-                IInfo info = it.next();
+            for (IInfo info : listForInitials) {
                 if (info != null && info.getDeclaringModuleName() != null) {
                     if (info.getDeclaringModuleName().equals(moduleName)) {
-                        it.remove();
+                        if (newListForInitials == null) {
+                            //only copy the set if something has to be removed from it.
+                            newListForInitials = new HashSet<IInfo>(listForInitials);
+                        }
+                        newListForInitials.remove(info);
                     }
                 }
             }
+            if (newListForInitials != null) {
+                initialsToInfo.put(entry.getKey(), newListForInitials);
+            }
         }
     }
 
@@ -586,44 +631,34 @@ public abstract class AbstractAdditionalTokensInfo {
      * @return a list of info, all starting with the given qualifier
      */
     public Collection<IInfo> getTokensStartingWith(String qualifier, int getWhat) {
-        synchronized (lock) {
-            return getWithFilter(qualifier, getWhat, startingWithFilter, true, null);
-        }
+        return getWithFilter(qualifier, getWhat, startingWithFilter, true, null);
     }
 
     public Collection<IInfo> getTokensStartingWith(String qualifier, int getWhat, Collection<IInfo> result) {
-        synchronized (lock) {
-            return getWithFilter(qualifier, getWhat, startingWithFilter, true, result);
-        }
+        return getWithFilter(qualifier, getWhat, startingWithFilter, true, result);
     }
 
     public Collection<IInfo> getTokensEqualTo(String qualifier, int getWhat) {
-        synchronized (lock) {
-            return getWithFilter(qualifier, getWhat, equalsFilter, false, null);
-        }
+        return getWithFilter(qualifier, getWhat, equalsFilter, false, null);
     }
 
     public Collection<IInfo> getTokensEqualTo(String qualifier, int getWhat, Collection<IInfo> result) {
-        synchronized (lock) {
-            return getWithFilter(qualifier, getWhat, equalsFilter, false, result);
-        }
+        return getWithFilter(qualifier, getWhat, equalsFilter, false, result);
     }
 
     protected Collection<IInfo> getWithFilter(String qualifier, int getWhat, Filter filter, boolean useLowerCaseQual,
             Collection<IInfo> result) {
-        synchronized (lock) {
-            if (result == null) {
-                result = new ArrayList<IInfo>();
-            }
+        if (result == null) {
+            result = new ArrayList<IInfo>();
+        }
 
-            if ((getWhat & TOP_LEVEL) != 0) {
-                getWithFilter(qualifier, topLevelInitialsToInfo, result, filter, useLowerCaseQual);
-            }
-            if ((getWhat & INNER) != 0) {
-                getWithFilter(qualifier, innerInitialsToInfo, result, filter, useLowerCaseQual);
-            }
-            return result;
+        if ((getWhat & TOP_LEVEL) != 0) {
+            getWithFilter(qualifier, topLevelInitialsToInfo, result, filter, useLowerCaseQual);
+        }
+        if ((getWhat & INNER) != 0) {
+            getWithFilter(qualifier, innerInitialsToInfo, result, filter, useLowerCaseQual);
         }
+        return result;
     }
 
     /**
@@ -657,24 +692,22 @@ public abstract class AbstractAdditionalTokensInfo {
      * @return all the tokens that are in this info (top level or inner)
      */
     public Collection<IInfo> getAllTokens() {
-        synchronized (lock) {
-            Collection<Set<IInfo>> lInfo = this.topLevelInitialsToInfo.values();
+        Collection<Set<IInfo>> lInfo = this.topLevelInitialsToInfo.values();
 
-            ArrayList<IInfo> toks = new ArrayList<IInfo>();
-            for (Set<IInfo> list : lInfo) {
-                for (IInfo info : list) {
-                    toks.add(info);
-                }
+        ArrayList<IInfo> toks = new ArrayList<IInfo>();
+        for (Set<IInfo> list : lInfo) {
+            for (IInfo info : list) {
+                toks.add(info);
             }
+        }
 
-            lInfo = this.innerInitialsToInfo.values();
-            for (Set<IInfo> list : lInfo) {
-                for (IInfo info : list) {
-                    toks.add(info);
-                }
+        lInfo = this.innerInitialsToInfo.values();
+        for (Set<IInfo> list : lInfo) {
+            for (IInfo info : list) {
+                toks.add(info);
             }
-            return toks;
         }
+        return toks;
     }
 
     /**
@@ -699,23 +732,11 @@ public abstract class AbstractAdditionalTokensInfo {
 
     protected void save(File persistingLocation) {
         try {
-            FileOutputStream stream = new FileOutputStream(persistingLocation);
-            OutputStreamWriter writer = new OutputStreamWriter(stream);
+            OutputStream stream = new BufferedOutputStream(new FileOutputStream(persistingLocation));
             try {
-                FastStringBuffer tempBuf = new FastStringBuffer();
-                tempBuf.append("-- VERSION_");
-                tempBuf.append(AbstractAdditionalTokensInfo.version);
-                tempBuf.append('\n');
-                writer.write(tempBuf.getInternalCharsArray(), 0, tempBuf.length());
-                tempBuf.clear();
-
-                saveTo(writer, tempBuf, persistingLocation);
+                saveTo(stream, persistingLocation);
             } finally {
-                try {
-                    writer.close();
-                } finally {
-                    stream.close();
-                }
+                stream.close();
             }
         } catch (Exception e) {
             Log.log(e);
@@ -734,34 +755,30 @@ public abstract class AbstractAdditionalTokensInfo {
      */
     protected abstract File getPersistingFolder();
 
-    protected void saveTo(OutputStreamWriter writer, FastStringBuffer tempBuf, File pathToSave) throws IOException {
+    /**
+     * Saves the info in the binary format (see: TreeBinaryIO).
+     */
+    protected void saveTo(OutputStream stream, File pathToSave) throws IOException {
         synchronized (lock) {
             if (DEBUG_ADDITIONAL_INFO) {
                 System.out.println("Saving info " + this.getClass().getName() + " to file (size = "
                         + getAllTokens().size() + ") " + pathToSave);
             }
+            FastStringBuffer additionalInfo = new FastStringBuffer();
+            saveAdditionalInfoTo(additionalInfo);
 
-            Map<String, Integer> dictionary = new HashMap<String, Integer>();
-            tempBuf.append("-- START TREE 1\n");
-            TreeIO.dumpTreeToBuffer(this.topLevelInitialsToInfo, tempBuf, dictionary);
-
-            tempBuf.append("-- START TREE 2\n");
-            TreeIO.dumpTreeToBuffer(this.innerInitialsToInfo, tempBuf, dictionary);
-
-            FastStringBuffer buf2 = new FastStringBuffer(50 * (dictionary.size() + 4));
-            TreeIO.dumpDictToBuffer(dictionary, buf2);
-
-            //Write the dictionary before the actual trees.
-            writer.write(buf2.getInternalCharsArray(), 0, buf2.length());
-            buf2 = null;
-
-            //Note: tried LZFFileInputStream from https://github.com/ning/compress
-            //and Snappy from https://github.com/dain/snappy checking to see if by writing less we'd
-            //get a better time but it got a bit slower (gzip was slowest, then snappy and the faster was LZFFileInputStream)
-            writer.write(tempBuf.getInternalCharsArray(), 0, tempBuf.length());
+            TreeBinaryIO.write(stream, AbstractAdditionalTokensInfo.version, additionalInfo.toString(),
+                    this.topLevelInitialsToInfo, this.innerInitialsToInfo);
         }
     }
 
+    /**
+     * Subclasses may override to save additional information along with the trees (which should be restored
+     * when the saved info is loaded).
+     */
+    protected void saveAdditionalInfoTo(FastStringBuffer tempBuf) {
+    }
+
     /**
      * Restores the saved info in the object (if overridden, getInfoToSave should be overridden too)
      * @param o the read object from the file
@@ -780,8 +797,8 @@ public abstract class AbstractAdditionalTokensInfo {
             if (o2 == null) {
                 throw new RuntimeException("Error in I/O (innerInitialsToInfo is null). Rebuilding internal info.");
             }
-            this.topLevelInitialsToInfo = o1;
-            this.innerInitialsToInfo = o2;
+            this.topLevelInitialsToInfo = new ConcurrentSkipListMap<String, Set<IInfo>>(o1);
+            this.innerInitialsToInfo = new ConcurrentSkipListMap<String, Set<IInfo>>(o2);
             if (readFromFile.o3 != null) {
                 //may be null in new format (where that's checked during load time).
                 if (AbstractAdditionalTokensInfo.version != (Integer) readFromFile.o3) {
@@ -793,20 +810,18 @@ public abstract class AbstractAdditionalTokensInfo {
 
     @Override
     public String toString() {
-        synchronized (lock) {
-            FastStringBuffer buffer = new FastStringBuffer();
-            buffer.append("AdditionalInfo{");
-
-            buffer.append("topLevel=[");
-            entrySetToString(buffer, this.topLevelInitialsToInfo.entrySet());
-            buffer.append("]\n");
-            buffer.append("inner=[");
-            entrySetToString(buffer, this.innerInitialsToInfo.entrySet());
-            buffer.append("]");
-
-            buffer.append("}");
-            return buffer.toString();
-        }
+        FastStringBuffer buffer = new FastStringBuffer();
+        buffer.append("AdditionalInfo{");
+
+        buffer.append("topLevel=[");
+        entrySetToString(buffer, this.topLevelInitialsToInfo.entrySet());
+        buffer.append("]\n");
+        buffer.append("inner=[");
+        entrySetToString(buffer, this.innerInitialsToInfo.entrySet());
+        buffer.append("]");
+
+        buffer.append("}");
+        return buffer.toString();
     }
 
     /**
@@ -814,13 +829,11 @@ public abstract class AbstractAdditionalTokensInfo {
      * @param name
      */
     private void entrySetToString(FastStringBuffer buffer, Set<Entry<String, Set<IInfo>>> name) {
-        synchronized (lock) {
-            for (Entry<String, Set<IInfo>> entry : name) {
-                Set<IInfo> value = entry.getValue();
-                for (IInfo info : value) {
-                    buffer.append(info.toString());
-                    buffer.append("\n");
-                }
+        for (Entry<String, Set<IInfo>> entry : name) {
+            Set<IInfo> value = entry.getValue();
+            for (IInfo info : value) {
+                buffer.append(info.toString());
+                buffer.append("\n");
             }
         }
     }
@@ -38,11 +38,10 @@ public abstract class AbstractInfo implements IInfo, Serializable {
     public final IPythonNature nature;
 
     public AbstractInfo(String name, String moduleDeclared, String path, IPythonNature nature) {
-        synchronized (ObjectsInternPool.lock) {
-            this.name = ObjectsInternPool.internUnsynched(name);
-            this.moduleDeclared = ObjectsInternPool.internUnsynched(moduleDeclared);
-            this.path = ObjectsInternPool.internUnsynched(path);
-        }
+        String[] interned = ObjectsInternPool.internAll(name, moduleDeclared, path);
+        this.name = interned[0];
+        this.moduleDeclared = interned[1];
+        this.path = interned[2];
         this.nature = nature;
     }
 
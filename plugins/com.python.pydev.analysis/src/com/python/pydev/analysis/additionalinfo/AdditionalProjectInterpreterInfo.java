@@ -28,6 +28,8 @@ import org.eclipse.core.runtime.NullProgressMonitor;
 import org.eclipse.core.runtime.OperationCanceledException;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.jface.text.Document;
+import org.eclipse.jface.text.IDocument;
 import org.python.pydev.core.FileUtilsFileBuffer;
 import org.python.pydev.core.IModulesManager;
 import org.python.pydev.core.IPythonNature;
@@ -37,14 +39,20 @@ import org.python.pydev.core.ModulesKey;
 import org.python.pydev.core.PythonNatureWithoutProjectException;
 import org.python.pydev.core.log.Log;
 import org.python.pydev.editor.codecompletion.revisited.ProjectModulesManager;
+import org.python.pydev.editor.codecompletion.revisited.PythonPathHelper;
+import org.python.pydev.parser.jython.SimpleNode;
 import org.python.pydev.plugin.PydevPlugin;
 import org.python.pydev.plugin.nature.PythonNature;
 import org.python.pydev.plugin.nature.SystemPythonNature;
+import org.python.pydev.shared_core.callbacks.CallbackWithListeners;
 import org.python.pydev.shared_core.string.StringUtils;
 import org.python.pydev.shared_core.structure.OrderedMap;
 import org.python.pydev.shared_core.structure.Tuple;
+import org.python.pydev.shared_core.structure.Tuple3;
 
 import com.python.pydev.analysis.AnalysisPlugin;
+import com.python.pydev.analysis.additionalinfo.dependencies.PyStructuralChange;
+import com.python.pydev.analysis.additionalinfo.dependencies.ReverseImportsGraph;
 import com.python.pydev.analysis.system_info_builder.InterpreterInfoBuilder;
 
 public class AdditionalProjectInterpreterInfo extends AbstractAdditionalInfoWithBuild {
@@ -67,6 +75,24 @@ public class AdditionalProjectInterpreterInfo extends AbstractAdditionalInfoWith
 
     private final static Object additionalNatureInfoLock = new Object();
 
+    /**
+     * Called with a Tuple3(IPythonNature, PyStructuralChange, Set<String> with the names of the modules which
+     * import the changed module directly or indirectly) whenever the API of a module from a project changes
+     * (only called when the changes are done incrementally -- i.e.: not on a full build).
+     */
+    public static final CallbackWithListeners structuralChanges = new CallbackWithListeners(1);
+
+    /**
+     * Which modules import each module (persisted along with this info -- see: getReverseImportsFile).
+     */
+    private final ReverseImportsGraph reverseImportsGraph = new ReverseImportsGraph();
+
+    /**
+     * Set when the info was loaded but the reverse imports graph wasn't (i.e.: file not there or saved in an older
+     * version), in which case all the source modules are indexed again in updateKeysIfNeededAndSave to rebuild it.
+     */
+    private volatile boolean rebuildReverseImportsGraph;
+
     public IProject getProject() {
         return project;
     }
@@ -128,6 +154,157 @@ public class AdditionalProjectInterpreterInfo extends AbstractAdditionalInfoWith
         return ret;
     }
 
+    @Override
+    public void clearAllInfo() {
+        synchronized (lock) {
+            super.clearAllInfo();
+            reverseImportsGraph.clear();
+            rebuildReverseImportsGraph = false;
+        }
+    }
+
+    @Override
+    protected boolean isReindexOfSourceModulesRequired() {
+        return rebuildReverseImportsGraph;
+    }
+
+    @Override
+    protected void onSourceModulesReindexed() {
+        rebuildReverseImportsGraph = false;
+    }
+
+    /**
+     * The ast only has the definitions, so, the imports for the reverse imports graph are gotten from the contents.
+     */
+    @Override
+    protected List<IInfo> addDefinitionsAstInfo(SimpleNode node, ModulesKey key, boolean generateDelta,
+            char[] contents, int len) {
+        return addAstInfo(node, key, generateDelta, new Document(new String(contents, 0, len)));
+    }
+
+    /**
+     * @param docForImports if given, the imports are gotten from it (otherwise they're gotten from the ast).
+     */
+    @Override
+    protected List<IInfo> addAstInfo(SimpleNode node, ModulesKey key, boolean generateDelta,
+            IDocument docForImports) {
+        if (node == null || key == null || key.name == null) {
+            return super.addAstInfo(node, key, generateDelta, docForImports);
+        }
+        boolean isPackage = key.file != null && PythonPathHelper.isValidInitFile(key.file.getName());
+        Set<String> imports = docForImports != null
+                ? ReverseImportsGraph.getImportedModules(docForImports, key.name, isPackage)
+                : ReverseImportsGraph.getImportedModules(node, key.name, isPackage);
+        synchronized (lock) {
+            List<IInfo> addAstInfo = super.addAstInfo(node, key, generateDelta, docForImports);
+            PyStructuralChange change = reverseImportsGraph.update(key.name, imports, getApi(addAstInfo));
+            if (generateDelta) {
+                notifyStructuralChange(change);
+            }
+            return addAstInfo;
+        }
+    }
+
+    /**
+     * @return the names defined in a module (given the infos created for it).
+     */
+    private static Set<String> getApi(List<IInfo> infos) {
+        Set<String> api = new HashSet<String>(infos.size());
+        for (IInfo info : infos) {
+            String path = info.getPath();
+            api.add(path == null || path.length() == 0 ? info.getName() : path + "." + info.getName());
+        }
+        return api;
+    }
+
+    /**
+     * The deltas only have the infos of the module, so, its imports are gotten from its file to restore its entry
+     * in the reverse imports graph (which is only saved along with the full info).
+     */
+    @Override
+    protected void addInfoToModuleOnRestoreInsertCommand(Tuple<ModulesKey, List<IInfo>> data) {
+        super.addInfoToModuleOnRestoreInsertCommand(data);
+        ModulesKey key = data.o1;
+        Set<String> imports = new HashSet<String>();
+        if (key.file != null && key.file.isFile() && PythonPathHelper.canAddAstInfoForSourceModule(key)) {
+            try {
+                IDocument doc = FileUtilsFileBuffer.getDocFromFile(key.file);
+                if (doc != null) {
+                    imports = ReverseImportsGraph.getImportedModules(doc, key.name,
+                            PythonPathHelper.isValidInitFile(key.file.getName()));
+                }
+            } catch (Exception e) {
+                Log.log(e);
+            }
+        }
+        reverseImportsGraph.update(key.name, imports, getApi(data.o2));
+    }
+
+    @Override
+    public void removeInfoFromModule(String moduleName, boolean generateDelta) {
+        synchronized (lock) {
+            super.removeInfoFromModule(moduleName, generateDelta);
+            PyStructuralChange change = reverseImportsGraph.removeModule(moduleName);
+            if (generateDelta) {
+                notifyStructuralChange(change);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void notifyStructuralChange(PyStructuralChange change) {
+        if (change == null) {
+            return;
+        }
+        IPythonNature nature = getNature();
+        if (nature == null) {
+            return;
+        }
+        Set<String> affected = reverseImportsGraph.getTransitiveImporters(change.getModule());
+        if (affected.size() > 0) {
+            structuralChanges.call(new Tuple3<IPythonNature, PyStructuralChange, Set<String>>(nature, change,
+                    affected));
+        }
+    }
+
+    /**
+     * @return the modules which import the given module directly or indirectly.
+     */
+    public Set<String> getTransitiveImporters(String moduleName) {
+        return reverseImportsGraph.getTransitiveImporters(moduleName);
+    }
+
+    /**
+     * @return the file where the reverse imports graph is saved (along with the file for this info).
+     */
+    protected File getReverseImportsFile(File persistingLocation) {
+        return new File(persistingLocation.getPath() + ".imports");
+    }
+
+    @Override
+    protected void save(File persistingLocation) {
+        super.save(persistingLocation);
+        try {
+            reverseImportsGraph.save(getReverseImportsFile(persistingLocation));
+        } catch (Exception e) {
+            Log.log(e);
+        }
+    }
+
+    @Override
+    protected boolean load() {
+        synchronized (lock) {
+            //Loaded before the contents (which may be saved again when converted from an older format).
+            boolean graphLoaded = reverseImportsGraph.load(getReverseImportsFile(getPersistingLocation()));
+            boolean loaded = super.load();
+            if (loaded) {
+                //If the graph is not available, all the modules are indexed again to rebuild it.
+                rebuildReverseImportsGraph = !graphLoaded;
+            }
+            return loaded;
+        }
+    }
+
     public static List<AbstractAdditionalTokensInfo> getAdditionalInfo(IPythonNature nature)
             throws MisconfigurationException {
         return getAdditionalInfo(nature, true, false);
@@ -418,4 +595,34 @@ public class AdditionalProjectInterpreterInfo extends AbstractAdditionalInfoWith
         return search;
     }
 
+    /**
+     * @param identifier a name (without dots).
+     * @return the modules which have the given name as an identifier in the code (i.e.: not only in comments or
+     * strings). The match is case-sensitive.
+     *
+     * Note: the modules which aren't current in the index are also returned (so, it's a superset of the modules
+     * which have the identifier and it's meant to be used to discard modules before parsing them).
+     */
+    public List<ModulesKey> getModulesWithIdentifier(String identifier, IProgressMonitor monitor)
+            throws OperationCanceledException {
+        if (monitor == null) {
+            monitor = new NullProgressMonitor();
+        }
+        if (identifier == null || identifier.length() == 0) {
+            return new ArrayList<>();
+        }
+        for (int i = 0; i < identifier.length(); i++) {
+            if (!Character.isJavaIdentifierPart(identifier.charAt(i))) {
+                throw new RuntimeException(StringUtils.format(
+                        "Identifier: %s is not a valid identifier to search for.", identifier));
+            }
+        }
+
+        OrderedMap<String, Set<String>> fieldNameToValues = new OrderedMap<>();
+        Set<String> values = new HashSet<>();
+        values.add(identifier);
+        fieldNameToValues.put(IReferenceSearches.FIELD_IDENTIFIERS, values);
+        return getReferenceSearches().search(project, fieldNameToValues, monitor);
+    }
+
 }
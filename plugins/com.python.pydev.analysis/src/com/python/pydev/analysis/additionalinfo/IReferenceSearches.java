@@ -14,13 +14,28 @@ public interface IReferenceSearches {
 
     void dispose();
 
+    /**
+     * Called when modules are added, changed or removed (so that the information used in the searches can be
+     * updated in the background).
+     */
+    void onModulesChanged();
+
     // These are the indexed fields we use.
     public static String FIELD_MODULES_KEY_IO = "modules_key";
     public static String FIELD_MODULE_NAME = "module_name";
     public static String FIELD_MODIFIED_TIME = IFields.MODIFIED_TIME;
     public static String FIELD_CONTENTS = IFields.GENERAL_CONTENTS;
+    // The identifiers in the code (not in comments/strings) -- case-sensitive and not analyzed.
+    public static String FIELD_IDENTIFIERS = "identifiers";
 
     List<ModulesKey> search(IProject project, OrderedMap<String, Set<String>> fieldNameToValues,
             IProgressMonitor monitor) throws OperationCanceledException;
 
+    /**
+     * @return the number of modules which were not current in the index in the last search done in the current
+     * thread (those are returned as candidates regardless of matching the search, so, a search done while the
+     * index is being updated may return more modules than needed).
+     */
+    int getLastSearchStaleModules();
+
 }
@@ -107,18 +107,20 @@ public class InfoStrFactory {
 
         HashMap<Integer, String> map = new HashMap<Integer, String>();
         map.put(0, null);
-        synchronized (ObjectsInternPool.lock) {
-            while (linesIt.hasNext()) {
-                String line = linesIt.next().trim();
-                int i = StringUtils.rFind(line, '=');
-                if (i > 0) {
-                    String token = line.substring(0, i);
-                    String value = line.substring(i + 1);
-
-                    map.put(Integer.parseInt(value), ObjectsInternPool.internUnsynched(token));
-                }
+        List<Integer> values = new ArrayList<Integer>();
+        List<String> tokens = new ArrayList<String>();
+        while (linesIt.hasNext()) {
+            String line = linesIt.next().trim();
+            int i = StringUtils.rFind(line, '=');
+            if (i > 0) {
+                tokens.add(line.substring(0, i));
+                values.add(Integer.parseInt(line.substring(i + 1)));
             }
         }
+        ObjectsInternPool.internAll(tokens);
+        for (int i = 0; i < tokens.size(); i++) {
+            map.put(values.get(i), tokens.get(i));
+        }
 
         ArrayList<IInfo> ret = new ArrayList<IInfo>();
 
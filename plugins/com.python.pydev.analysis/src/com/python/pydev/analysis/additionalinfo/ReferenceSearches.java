@@ -172,6 +172,16 @@ public class ReferenceSearches implements IReferenceSearches {
 
     }
 
+    @Override
+    public void onModulesChanged() {
+        // Intentionally a no-op: this implementation has no index (the contents are read on each search).
+    }
+
+    @Override
+    public int getLastSearchStaleModules() {
+        return 0; // The contents are always current (read on each search).
+    }
+
     private void fill(FastStringBuffer bufFileContents, InputStream stream) throws IOException {
         for (int i = 0; i < 5; i++) {
             try {
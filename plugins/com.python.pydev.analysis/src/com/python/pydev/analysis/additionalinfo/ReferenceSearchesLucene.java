@@ -12,6 +12,8 @@ import java.io.FileReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
 import java.lang.ref.WeakReference;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
@@ -27,18 +29,26 @@ import java.util.zip.ZipFile;
 
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.IJobChangeEvent;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.core.runtime.jobs.JobChangeAdapter;
 import org.python.pydev.core.ModulesKey;
 import org.python.pydev.core.ModulesKeyForZip;
 import org.python.pydev.core.cache.CompleteIndexKey;
 import org.python.pydev.core.cache.DiskCache;
+import org.python.pydev.core.docutils.ParsingUtils;
 import org.python.pydev.core.log.Log;
 import org.python.pydev.editor.codecompletion.revisited.javaintegration.ModulesKeyForJava;
 import org.python.pydev.plugin.nature.PythonNature;
 import org.python.pydev.shared_core.index.IndexApi;
 import org.python.pydev.shared_core.index.IndexApi.DocumentInfo;
 import org.python.pydev.shared_core.index.IndexApi.IDocumentsVisitor;
+import org.python.pydev.shared_core.io.FileUtils;
 import org.python.pydev.shared_core.string.FastStringBuffer;
+import org.python.pydev.shared_core.string.StringMatcher;
 import org.python.pydev.shared_core.structure.OrderedMap;
 import org.python.pydev.shared_core.utils.Timer;
 import org.python.pydev.shared_ui.utils.AsynchronousProgressMonitorWrapper;
@@ -69,24 +79,119 @@ public class ReferenceSearchesLucene implements IReferenceSearches {
     }
 
     private static final boolean DEBUG = false;
+
+    /**
+     * Note: the name changes when the fields indexed change (so that the modules are indexed again).
+     */
+    private static final String INDEX_DIR_NAME = "lc2";
+    private static final String OLD_INDEX_DIR_NAME = "lc";
+
+    /**
+     * Time to wait for new changes before updating the index in the background.
+     */
+    private static final long UPDATE_DELAY_MILLIS = 1000;
+
+    /**
+     * Interval to check whether a search waiting for the index to be created was canceled.
+     */
+    private static final long WAIT_CHECK_CANCEL_MILLIS = 100;
+
     private WeakReference<AbstractAdditionalDependencyInfo> abstractAdditionalDependencyInfo;
-    private IndexApi indexApi;
+    private volatile IndexApi indexApi;
+
+    private final Object updateLock = new Object();
+
+    /**
+     * Projects whose pythonpath changed and must be synchronized before the next update (guarded by updateLock).
+     */
+    private final Set<IProject> projectsToSync = new HashSet<>();
+
+    /**
+     * The modules in the index and the modified time with which they were indexed (guarded by updateLock).
+     * It's only available after the first update finishes (null until then).
+     */
+    private Map<ModulesKey, Long> indexedModules;
+
+    /**
+     * Guarded by updateLock.
+     */
+    private boolean disposed;
+
+    /**
+     * The number of stale modules in the last search done in each thread (see: getLastSearchStaleModules).
+     */
+    private final ThreadLocal<Integer> lastSearchStaleModules = new ThreadLocal<>();
+
+    /*default*/final Job updateJob = new Job("Updating index for references search") {
+
+        @Override
+        protected IStatus run(IProgressMonitor monitor) {
+            try {
+                updateIndex(monitor);
+            } catch (OperationCanceledException e) {
+                //Ok, it'll be resumed on the next schedule.
+            } catch (Exception e) {
+                Log.log(e);
+            }
+            return Status.OK_STATUS;
+        }
+    };
 
     public ReferenceSearchesLucene(AbstractAdditionalDependencyInfo abstractAdditionalDependencyInfo) {
         this.abstractAdditionalDependencyInfo = new WeakReference<>(abstractAdditionalDependencyInfo);
+        updateJob.setSystem(true);
+        updateJob.setPriority(Job.DECORATE);
+        updateJob.addJobChangeListener(new JobChangeAdapter() {
+
+            @Override
+            public void done(IJobChangeEvent event) {
+                // Wake up the searches waiting for the index to be created.
+                synchronized (updateLock) {
+                    updateLock.notifyAll();
+                }
+            }
+        });
     }
 
     @Override
     public void dispose() {
+        synchronized (updateLock) {
+            disposed = true;
+            updateJob.cancel();
+            indexedModules = null;
+            updateLock.notifyAll();
+        }
         if (indexApi != null) {
             indexApi = null;
         }
     }
 
     @Override
-    public synchronized List<ModulesKey> search(IProject project,
+    public void onModulesChanged() {
+        scheduleUpdate(UPDATE_DELAY_MILLIS);
+    }
+
+    private void scheduleUpdate(long delay) {
+        synchronized (updateLock) {
+            if (disposed) {
+                return;
+            }
+            // Note: if it's currently running it'll run again after finishing.
+            updateJob.schedule(delay);
+        }
+    }
+
+    @Override
+    public int getLastSearchStaleModules() {
+        Integer stale = lastSearchStaleModules.get();
+        return stale != null ? stale : 0;
+    }
+
+    @Override
+    public List<ModulesKey> search(IProject project,
             final OrderedMap<String, Set<String>> fieldNameToValues, IProgressMonitor monitor)
                     throws OperationCanceledException {
+        lastSearchStaleModules.set(0);
         try {
             if (!(monitor instanceof AsynchronousProgressMonitorWrapper)) {
                 monitor = new AsynchronousProgressMonitorWrapper(monitor);
@@ -99,7 +204,12 @@ public class ReferenceSearchesLucene implements IReferenceSearches {
 
     private final Map<IProject, Long> projectToLastMtime = new HashMap<>();
 
-    private synchronized List<ModulesKey> internalSearch(IProject project,
+    /**
+     * Searches the index as it is now (it's kept updated in the background -- the modules which are not current
+     * in the index are returned as candidates, so, the caller must still check the contents of the returned
+     * modules).
+     */
+    private List<ModulesKey> internalSearch(IProject project,
             final OrderedMap<String, Set<String>> fieldNameToValues, IProgressMonitor monitor)
                     throws OperationCanceledException {
 
@@ -110,59 +220,252 @@ public class ReferenceSearchesLucene implements IReferenceSearches {
             return ret;
         }
 
-        // Make sure that its information is synchronized.
         AbstractAdditionalDependencyInfo abstractAdditionalDependencyInfo = this.abstractAdditionalDependencyInfo.get();
         if (abstractAdditionalDependencyInfo == null) {
             Log.log("AbstractAdditionalDependencyInfo already collected!");
             return ret;
         }
 
-        Long lastMtime = projectToLastMtime.get(project);
-        if (lastMtime == null) {
-            lastMtime = 0L;
-        }
+        // If the pythonpath changed, its information is synchronized in the background.
         long currMtime = nature.getMtime();
-        if (lastMtime != currMtime) {
-            projectToLastMtime.put(project, currMtime);
-            Timer timer = null;
-            if (DEBUG) {
-                System.out.println("Curr mtime: " + currMtime + " last time: " + lastMtime);
-                System.out.println("Start sync: " + project);
-                timer = new Timer();
+        synchronized (updateLock) {
+            Long lastMtime = projectToLastMtime.get(project);
+            if (lastMtime == null) {
+                lastMtime = 0L;
             }
-            new InterpreterInfoBuilder().syncInfoToPythonPath(monitor, nature);
-            if (DEBUG) {
-                timer.printDiff("Sync time");
+            if (lastMtime != currMtime) {
+                if (DEBUG) {
+                    System.out.println("Curr mtime: " + currMtime + " last time: " + lastMtime);
+                }
+                projectToLastMtime.put(project, currMtime);
+                projectsToSync.add(project);
+                scheduleUpdate(0);
             }
         }
 
-        boolean mustCommitChange = false;
+        return searchIndex(abstractAdditionalDependencyInfo, fieldNameToValues, monitor);
+    }
+
+    /**
+     * Searches the index of the given info (the part of the search which doesn't depend on the project).
+     */
+    /*default*/List<ModulesKey> searchIndex(AbstractAdditionalDependencyInfo abstractAdditionalDependencyInfo,
+            final OrderedMap<String, Set<String>> fieldNameToValues, IProgressMonitor monitor)
+                    throws OperationCanceledException {
+        final List<ModulesKey> ret = new ArrayList<ModulesKey>();
+        lastSearchStaleModules.set(0);
 
         final String name = "Search modules with token in: " + abstractAdditionalDependencyInfo.getUIRepresentation();
-        monitor.beginTask(name, 7);
+        monitor.beginTask(name, 3);
         monitor.setTaskName(name);
 
-        DiskCache completeIndex = abstractAdditionalDependencyInfo.completeIndex;
+        final IndexApi indexApi = getIndexApi(abstractAdditionalDependencyInfo.completeIndex);
+        if (indexApi == null) {
+            return ret;
+        }
 
-        // Note: we should be able to deal with entries already deleted!
-        boolean applyAllDeletes = false;
+        // Wait for the integrity check before getting the keys!
+        abstractAdditionalDependencyInfo.waitForIntegrityCheck();
+        final Map<CompleteIndexKey, CompleteIndexKey> currentKeys = abstractAdditionalDependencyInfo.completeIndex
+                .keys();
+
+        List<ModulesKey> staleModules = getStaleModules(currentKeys);
+        if (staleModules == null) {
+            // The index wasn't created yet: wait for the background update.
+            monitor.setTaskName(name + " (creating index)");
+            waitForIndexCreation(monitor);
+            staleModules = getStaleModules(currentKeys);
+            if (staleModules == null) {
+                staleModules = new ArrayList<>(0);
+            }
+            monitor.setTaskName(name);
+        }
+        if (staleModules.size() > 0) {
+            // Don't wait for it (the stale modules are returned as candidates), just make sure it's updated soon.
+            scheduleUpdate(0);
+        }
+        lastSearchStaleModules.set(staleModules.size());
+        if (DEBUG) {
+            System.out.println("Modules not current in the index: " + staleModules.size());
+        }
+        incrementAndCheckProgress("Index available", monitor);
 
+        try {
+            if (DEBUG) {
+                System.out.println("Searching: " + fieldNameToValues);
+            }
+            IDocumentsVisitor visitor = new IDocumentsVisitor() {
+
+                @Override
+                public void visit(DocumentInfo documentInfo) {
+                    try {
+                        String modKey = documentInfo.get(FIELD_MODULES_KEY_IO);
+                        String modTime = documentInfo.get(FIELD_MODIFIED_TIME);
+                        if (modKey != null && modTime != null) {
+                            ModulesKey fromIO = ModulesKey.fromIO(modKey);
+                            CompleteIndexKey existing = currentKeys.get(new CompleteIndexKey(fromIO));
+                            // Deal with deleted entries still hanging around.
+                            if (existing != null && existing.lastModified == Long.parseLong(modTime)) {
+                                // Ok, we have a match!
+                                ret.add(existing.key);
+                            }
+                        }
+                    } catch (Exception e) {
+                        Log.log(e);
+                    }
+                }
+            };
+            indexApi.searchWildcard(fieldNameToValues, true, visitor, null, FIELD_MODULES_KEY_IO,
+                    FIELD_MODIFIED_TIME);
+        } catch (Exception e) {
+            Log.log(e);
+        }
+        incrementAndCheckProgress("Searched index", monitor);
+
+        // The modules not current in the index are candidates (if they match the module name).
+        Set<String> moduleNames = fieldNameToValues.get(FIELD_MODULE_NAME);
+        for (ModulesKey modulesKey : staleModules) {
+            if (moduleNames == null || matchesAny(modulesKey.name, moduleNames)) {
+                ret.add(modulesKey);
+            }
+        }
+        incrementAndCheckProgress("Added modules not current in the index", monitor);
+        return ret;
+    }
+
+    /**
+     * @return whether the given module name matches any of the given patterns (with the same semantics used
+     * when searching the FIELD_MODULE_NAME in the index).
+     */
+    /*default*/static boolean matchesAny(String moduleName, Set<String> patterns) {
+        for (String pattern : patterns) {
+            if (new StringMatcher(pattern, false, false).match(moduleName)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the modules which should be in the index but weren't indexed yet (or were indexed with a different
+     * modified time) or null if the index wasn't updated yet.
+     */
+    private List<ModulesKey> getStaleModules(Map<CompleteIndexKey, CompleteIndexKey> currentKeys) {
+        synchronized (updateLock) {
+            if (indexedModules == null) {
+                return null;
+            }
+            List<ModulesKey> stale = new ArrayList<>();
+            for (CompleteIndexKey current : currentKeys.values()) {
+                ModulesKey modulesKey = current.key;
+                if (!isIndexable(modulesKey)) {
+                    continue;
+                }
+                Long indexedTime = indexedModules.get(modulesKey);
+                if (indexedTime == null || indexedTime != current.lastModified) {
+                    stale.add(modulesKey);
+                }
+            }
+            return stale;
+        }
+    }
+
+    /**
+     * Waits until the index is created in the background (or the update finishes without creating it).
+     */
+    private void waitForIndexCreation(IProgressMonitor monitor) throws OperationCanceledException {
+        scheduleUpdate(0);
+        synchronized (updateLock) {
+            // Note: the job is notified when it finishes and we only wake up periodically to check for cancellation.
+            while (!disposed && indexedModules == null && updateJob.getState() != Job.NONE) {
+                if (monitor.isCanceled()) {
+                    throw new OperationCanceledException();
+                }
+                try {
+                    updateLock.wait(WAIT_CHECK_CANCEL_MILLIS);
+                } catch (InterruptedException e) {
+                    //ignore
+                }
+            }
+        }
+    }
+
+    private IndexApi getIndexApi(DiskCache completeIndex) {
+        IndexApi indexApi = this.indexApi;
         if (indexApi == null) {
             String folderToPersist = completeIndex.getFolderToPersist();
             synchronized (lock) {
-                File indexDir = new File(folderToPersist, "lc");
+                File indexDir = new File(folderToPersist, INDEX_DIR_NAME);
                 indexApi = indexDirToApi.get(indexDir);
                 if (indexApi == null) {
                     try {
-                        indexApi = new IndexApi(indexDir, applyAllDeletes);
+                        File oldIndexDir = new File(folderToPersist, OLD_INDEX_DIR_NAME);
+                        if (oldIndexDir.exists()) {
+                            // Created before the identifiers were indexed: it's not used anymore.
+                            FileUtils.deleteDirectoryTree(oldIndexDir);
+                        }
+                        indexApi = new IndexApi(indexDir, true);
                         indexDirToApi.put(indexDir, indexApi);
                     } catch (Exception e) {
                         Log.log(e);
-                        return ret;
+                        return null;
                     }
                 }
+                this.indexApi = indexApi;
             }
         }
+        return indexApi;
+    }
+
+    private static boolean isIndexable(ModulesKey modulesKey) {
+        if (modulesKey == null || modulesKey instanceof ModulesKeyForJava || modulesKey.file == null) {
+            //ignore this one (we can't do anything with it).
+            return false;
+        }
+        if (modulesKey instanceof ModulesKeyForZip) {
+            // Ignore folders in zips (happens for jython folders which may not have an __init__.py)
+            return ((ModulesKeyForZip) modulesKey).isFile;
+        }
+        return true;
+    }
+
+    /**
+     * Synchronizes the pythonpath of the projects which changed and brings the index up to date with the modules
+     * currently available (called in the background job).
+     */
+    private void updateIndex(IProgressMonitor monitor) throws OperationCanceledException {
+        Set<IProject> toSync;
+        synchronized (updateLock) {
+            toSync = new HashSet<>(projectsToSync);
+            projectsToSync.clear();
+        }
+        for (IProject project : toSync) {
+            PythonNature nature = PythonNature.getPythonNature(project);
+            if (nature != null) {
+                Timer timer = null;
+                if (DEBUG) {
+                    System.out.println("Start sync: " + project);
+                    timer = new Timer();
+                }
+                new InterpreterInfoBuilder().syncInfoToPythonPath(monitor, nature);
+                if (DEBUG) {
+                    timer.printDiff("Sync time");
+                }
+            }
+        }
+
+        AbstractAdditionalDependencyInfo abstractAdditionalDependencyInfo = this.abstractAdditionalDependencyInfo.get();
+        if (abstractAdditionalDependencyInfo == null) {
+            return;
+        }
+        DiskCache completeIndex = abstractAdditionalDependencyInfo.completeIndex;
+        IndexApi indexApi = getIndexApi(completeIndex);
+        if (indexApi == null) {
+            return;
+        }
+
+        monitor.beginTask("Updating index for: " + abstractAdditionalDependencyInfo.getUIRepresentation(), 5);
+        boolean mustCommitChange = false;
 
         synchronized (indexApi.getLock()) {
             final Map<ModulesKey, CompleteIndexKey> indexMap = new HashMap<>(); // Key to CompleteIndexKey (has modified time).
@@ -233,19 +536,10 @@ public class ReferenceSearchesLucene implements IReferenceSearches {
                 CompleteIndexKey completeIndexKey = currentEntry.getValue();
                 if (!indexMap.containsKey(completeIndexKey.key)) {
                     ModulesKey modulesKey = completeIndexKey.key;
-                    if (modulesKey instanceof ModulesKeyForJava || modulesKey.file == null
-                            || !modulesKey.file.isFile()) {
-                        //ignore this one (we can't do anything with it).
+                    if (!isIndexable(modulesKey) || !modulesKey.file.isFile()) {
                         continue;
                     }
 
-                    if (modulesKey instanceof ModulesKeyForZip) {
-                        ModulesKeyForZip modulesKeyForZip = (ModulesKeyForZip) modulesKey;
-                        if (!modulesKeyForZip.isFile) {
-                            continue; // Ignore folders in zips (happens for jython folders which may not have an __init__.py)
-                        }
-                    }
-
                     add(modulesToAdd, zipModulesToAdd, completeIndexKey);
                 }
             }
@@ -257,11 +551,12 @@ public class ReferenceSearchesLucene implements IReferenceSearches {
 
             FastStringBuffer tempBuf = new FastStringBuffer();
             for (Iterator<CompleteIndexKey> it = docsToRemove.iterator(); it.hasNext();) {
-                it.next().key.toIO(tempBuf.clear());
+                CompleteIndexKey removed = it.next();
+                removed.key.toIO(tempBuf.clear());
                 lstToRemove.add(tempBuf.toString());
+                indexMap.remove(removed.key);
             }
 
-            incrementAndCheckProgress("Removing outdated entries", monitor);
             if (lstToRemove.size() > 0) {
                 fieldToValuesToRemove.put(FIELD_MODULES_KEY_IO, lstToRemove);
                 try {
@@ -285,18 +580,22 @@ public class ReferenceSearchesLucene implements IReferenceSearches {
                             System.out.println("Indexing: " + f);
                         }
                         try (BufferedReader reader = new BufferedReader(new FileReader(f));) {
-                            indexApi.index(createFieldsToIndex(key, tempBuf), reader, FIELD_CONTENTS);
+                            indexModule(indexApi, key, reader, tempBuf);
+                            indexMap.put(key.key, key);
                         } catch (Exception e) {
                             Log.log(e);
                         }
                     }
+                    if (monitor.isCanceled()) {
+                        break;
+                    }
                 }
             }
 
             Set<Entry<File, Set<CompleteIndexKey>>> entrySet = zipModulesToAdd.entrySet();
             for (Entry<File, Set<CompleteIndexKey>> entry : entrySet) {
                 File f = entry.getKey();
-                if (f.exists()) {
+                if (f.exists() && !monitor.isCanceled()) {
                     try (ZipFile zipFile = new ZipFile(f, ZipFile.OPEN_READ);) {
                         Set<CompleteIndexKey> value = entry.getValue();
                         for (CompleteIndexKey completeIndexKey2 : value) {
@@ -308,7 +607,8 @@ public class ReferenceSearchesLucene implements IReferenceSearches {
                                 if (DEBUG) {
                                     System.out.println("Indexing: " + completeIndexKey2);
                                 }
-                                indexApi.index(createFieldsToIndex(completeIndexKey2, tempBuf), reader, FIELD_CONTENTS);
+                                indexModule(indexApi, completeIndexKey2, reader, tempBuf);
+                                indexMap.put(completeIndexKey2.key, completeIndexKey2);
                             }
                         }
                     } catch (Exception e) {
@@ -317,7 +617,6 @@ public class ReferenceSearchesLucene implements IReferenceSearches {
                 }
             }
 
-            incrementAndCheckProgress("Committing result", monitor);
             if (mustCommitChange) {
                 if (DEBUG) {
                     System.out.println("Commit result");
@@ -329,41 +628,18 @@ public class ReferenceSearchesLucene implements IReferenceSearches {
                 }
             }
 
-            // Ok, things should be in-place at this point... let's actually do the search now
-            incrementAndCheckProgress("Searching index", monitor);
-
-            try {
-                if (DEBUG) {
-                    System.out.println("Searching: " + fieldNameToValues);
+            // Even if canceled, what's in the index is current (the remainder is added on the next update).
+            Map<ModulesKey, Long> indexed = new HashMap<>(indexMap.size());
+            for (CompleteIndexKey key : indexMap.values()) {
+                indexed.put(key.key, key.lastModified);
+            }
+            synchronized (updateLock) {
+                if (!disposed) {
+                    indexedModules = indexed;
                 }
-                visitor = new IDocumentsVisitor() {
-
-                    @Override
-                    public void visit(DocumentInfo documentInfo) {
-                        try {
-                            String modKey = documentInfo.get(FIELD_MODULES_KEY_IO);
-                            String modTime = documentInfo.get(FIELD_MODIFIED_TIME);
-                            if (modKey != null && modTime != null) {
-                                ModulesKey fromIO = ModulesKey.fromIO(modKey);
-                                CompleteIndexKey existing = currentKeys.get(new CompleteIndexKey(fromIO));
-                                // Deal with deleted entries still hanging around.
-                                if (existing != null && existing.lastModified == Long.parseLong(modTime)) {
-                                    // Ok, we have a match!
-                                    ret.add(existing.key);
-                                }
-                            }
-                        } catch (Exception e) {
-                            Log.log(e);
-                        }
-                    }
-                };
-                indexApi.searchWildcard(fieldNameToValues, applyAllDeletes, visitor, null, FIELD_MODULES_KEY_IO,
-                        FIELD_MODIFIED_TIME);
-            } catch (Exception e) {
-                Log.log(e);
             }
+            incrementAndCheckProgress("Committed result", monitor);
         }
-        return ret;
     }
 
     private void incrementAndCheckProgress(String msg, IProgressMonitor monitor) throws OperationCanceledException {
@@ -374,6 +650,25 @@ public class ReferenceSearchesLucene implements IReferenceSearches {
         }
     }
 
+    /**
+     * Indexes the contents of the module along with the identifiers in its code (used to discard the modules where
+     * a name only appears in comments or strings without having to parse them -- see: FIELD_IDENTIFIERS).
+     */
+    private void indexModule(IndexApi indexApi, CompleteIndexKey key, Reader reader, FastStringBuffer buf)
+            throws IOException {
+        FastStringBuffer contents = new FastStringBuffer();
+        char[] chars = new char[8192];
+        int read;
+        while ((read = reader.read(chars)) != -1) {
+            contents.append(chars, 0, read);
+        }
+        String str = contents.toString();
+        Map<String, Collection<String>> multiValuedFieldsToIndex = new HashMap<>();
+        multiValuedFieldsToIndex.put(FIELD_IDENTIFIERS, ParsingUtils.getIdentifiersInCode(str));
+        indexApi.index(createFieldsToIndex(key, buf), multiValuedFieldsToIndex, new StringReader(str),
+                FIELD_CONTENTS);
+    }
+
     public Map<String, String> createFieldsToIndex(CompleteIndexKey key, FastStringBuffer buf) {
         key.key.toIO(buf.clear());
         Map<String, String> fieldsToIndex = new HashMap<>();
@@ -0,0 +1,433 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package com.python.pydev.analysis.additionalinfo;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.python.pydev.core.IPythonNature;
+import org.python.pydev.core.log.Log;
+
+/**
+ * Binary format for the initials->IInfo trees (the text format is still read by TreeIO for migration).
+ *
+ * The file is written as:
+ *
+ * int: MAGIC
+ * int: FORMAT_VERSION
+ * int: version of the tokens info
+ * block: additional info (utf-8 text provided by subclasses, i.e.: the disk cache)
+ * block: string table (int: count, int[count]: offsets, then each string as varint len + utf-8 bytes)
+ * block: tree 1 (top level)
+ * block: tree 2 (inner)
+ *
+ * Where a block is an int with the size followed by the bytes and each tree is:
+ *
+ * int: number of initials
+ * (int: string id of initials, int: offset of the infos, int: number of infos) for each initials
+ * infos: varint: string id of the name, varint: (string id of the module << 3 | type), varint: string id of path + 1
+ * (or 0 if there's no path).
+ *
+ * All the offsets are fixed-size, so, the contents don't need to be parsed to be accessed (i.e.: it's
+ * memory-mappable). When loading, only the initials are read upfront: the infos for each initials (and the strings
+ * they reference) are only decoded when they're first accessed.
+ */
+public class TreeBinaryIO {
+
+    /**
+     * "PDTI" (can't be confused with the text format which starts with "-- VERSION_").
+     */
+    public static final int MAGIC = 0x50445449;
+
+    public static final int FORMAT_VERSION = 1;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /**
+     * The contents read from a file written in the binary format.
+     */
+    public static final class Contents {
+
+        public final int tokensInfoVersion;
+        public final String additionalInfo;
+        public final SortedMap<String, Set<IInfo>> topLevelInitialsToInfo;
+        public final SortedMap<String, Set<IInfo>> innerInitialsToInfo;
+
+        private Contents(int tokensInfoVersion, String additionalInfo,
+                SortedMap<String, Set<IInfo>> topLevelInitialsToInfo,
+                SortedMap<String, Set<IInfo>> innerInitialsToInfo) {
+            this.tokensInfoVersion = tokensInfoVersion;
+            this.additionalInfo = additionalInfo;
+            this.topLevelInitialsToInfo = topLevelInitialsToInfo;
+            this.innerInitialsToInfo = innerInitialsToInfo;
+        }
+    }
+
+    /**
+     * @return whether the given file was written in the binary format.
+     */
+    public static boolean isBinaryFormat(File file) throws IOException {
+        DataInputStream stream = new DataInputStream(new FileInputStream(file));
+        try {
+            return file.length() >= 4 && stream.readInt() == MAGIC;
+        } finally {
+            stream.close();
+        }
+    }
+
+    // Writing ---------------------------------------------------------------------------------------------------------
+
+    /**
+     * Keeps the strings written (each string is written only once and is referenced by its id).
+     */
+    private static final class StringTable {
+
+        private final Map<String, Integer> strToId = new HashMap<String, Integer>();
+        private final ArrayList<String> strings = new ArrayList<String>();
+
+        private int getId(String s) {
+            Integer id = strToId.get(s);
+            if (id == null) {
+                id = strings.size();
+                strToId.put(s, id);
+                strings.add(s);
+            }
+            return id;
+        }
+
+        private byte[] toBytes() throws IOException {
+            ByteArrayOutputStream data = new ByteArrayOutputStream(strings.size() * 16);
+            int size = strings.size();
+            int[] offsets = new int[size];
+            for (int i = 0; i < size; i++) {
+                offsets[i] = data.size();
+                byte[] bytes = strings.get(i).getBytes(UTF_8);
+                writeVarInt(data, bytes.length);
+                data.write(bytes);
+            }
+
+            ByteArrayOutputStream ret = new ByteArrayOutputStream(data.size() + (size * 4) + 4);
+            DataOutputStream out = new DataOutputStream(ret);
+            out.writeInt(size);
+            for (int i = 0; i < size; i++) {
+                out.writeInt(offsets[i]);
+            }
+            data.writeTo(out);
+            out.flush();
+            return ret.toByteArray();
+        }
+    }
+
+    public static void write(OutputStream stream, int tokensInfoVersion, String additionalInfo,
+            SortedMap<String, Set<IInfo>> topLevelInitialsToInfo, SortedMap<String, Set<IInfo>> innerInitialsToInfo)
+            throws IOException {
+        StringTable stringTable = new StringTable();
+        byte[] tree1 = treeToBytes(topLevelInitialsToInfo, stringTable);
+        byte[] tree2 = treeToBytes(innerInitialsToInfo, stringTable);
+
+        DataOutputStream out = new DataOutputStream(stream);
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeInt(tokensInfoVersion);
+        writeBlock(out, additionalInfo.getBytes(UTF_8));
+        writeBlock(out, stringTable.toBytes());
+        writeBlock(out, tree1);
+        writeBlock(out, tree2);
+        out.flush();
+    }
+
+    private static void writeBlock(DataOutputStream out, byte[] bytes) throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static byte[] treeToBytes(SortedMap<String, Set<IInfo>> tree, StringTable stringTable)
+            throws IOException {
+        ByteArrayOutputStream infos = new ByteArrayOutputStream(tree.size() * 32);
+
+        ByteArrayOutputStream directoryBytes = new ByteArrayOutputStream((tree.size() * 12) + 4);
+        DataOutputStream directory = new DataOutputStream(directoryBytes);
+
+        //Note: the size is written at the end (the tree may be concurrently changed while we iterate it).
+        int size = 0;
+        for (Entry<String, Set<IInfo>> entry : tree.entrySet()) {
+            int offset = infos.size();
+            int count = 0;
+            for (IInfo info : entry.getValue()) {
+                writeVarInt(infos, stringTable.getId(info.getName()));
+                writeVarInt(infos, (stringTable.getId(info.getDeclaringModuleName()) << 3) | info.getType());
+                String path = info.getPath();
+                writeVarInt(infos, path == null ? 0 : stringTable.getId(path) + 1);
+                count++;
+            }
+            directory.writeInt(stringTable.getId(entry.getKey()));
+            directory.writeInt(offset);
+            directory.writeInt(count);
+            size++;
+        }
+        directory.flush();
+
+        ByteArrayOutputStream ret = new ByteArrayOutputStream(4 + directoryBytes.size() + infos.size());
+        DataOutputStream out = new DataOutputStream(ret);
+        out.writeInt(size);
+        directoryBytes.writeTo(out);
+        infos.writeTo(out);
+        out.flush();
+        return ret.toByteArray();
+    }
+
+    private static void writeVarInt(OutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    // Reading ---------------------------------------------------------------------------------------------------------
+
+    /**
+     * Holds the bytes read and provides random access to its contents.
+     */
+    private static final class LoadedData {
+
+        private final byte[] bytes;
+        private final IPythonNature nature;
+
+        private final int stringsCount;
+        private final int stringOffsetsStart;
+        private final int stringDataStart;
+
+        /**
+         * Cache for the strings already decoded (so that the same instance is always used for a given id).
+         *
+         * Note: racy access is Ok (Strings are immutable and at worse we'd decode the same string twice).
+         */
+        private final String[] decodedStrings;
+
+        private LoadedData(byte[] bytes, int stringTableStart, IPythonNature nature) {
+            this.bytes = bytes;
+            this.nature = nature;
+            this.stringsCount = readInt(stringTableStart);
+            this.stringOffsetsStart = stringTableStart + 4;
+            this.stringDataStart = stringOffsetsStart + (stringsCount * 4);
+            this.decodedStrings = new String[stringsCount];
+        }
+
+        private int readInt(int pos) {
+            return ((bytes[pos] & 0xFF) << 24) | ((bytes[pos + 1] & 0xFF) << 16) | ((bytes[pos + 2] & 0xFF) << 8)
+                    | (bytes[pos + 3] & 0xFF);
+        }
+
+        private String getString(int id) {
+            String ret = decodedStrings[id];
+            if (ret == null) {
+                int[] pos = new int[] { stringDataStart + readInt(stringOffsetsStart + (id * 4)) };
+                int len = readVarInt(bytes, pos);
+                ret = new String(bytes, pos[0], len, UTF_8);
+                decodedStrings[id] = ret;
+            }
+            return ret;
+        }
+
+        private Set<IInfo> decodeInfos(int offset, int count) {
+            HashSet<IInfo> set = new HashSet<IInfo>(count);
+            int[] pos = new int[] { offset };
+            for (int i = 0; i < count; i++) {
+                String infoName = getString(readVarInt(bytes, pos));
+                int moduleAndType = readVarInt(bytes, pos);
+                String moduleDeclared = getString(moduleAndType >>> 3);
+                int type = moduleAndType & 0x07;
+                int pathId = readVarInt(bytes, pos);
+                String path = pathId == 0 ? null : getString(pathId - 1);
+
+                switch (type) {
+                    case IInfo.CLASS_WITH_IMPORT_TYPE:
+                        set.add(new ClassInfo(infoName, moduleDeclared, path, false, nature));
+                        break;
+                    case IInfo.METHOD_WITH_IMPORT_TYPE:
+                        set.add(new FuncInfo(infoName, moduleDeclared, path, false, nature));
+                        break;
+                    case IInfo.ATTRIBUTE_WITH_IMPORT_TYPE:
+                        set.add(new AttrInfo(infoName, moduleDeclared, path, false, nature));
+                        break;
+                    case IInfo.NAME_WITH_IMPORT_TYPE:
+                        set.add(new NameInfo(infoName, moduleDeclared, path, false, nature));
+                        break;
+                    case IInfo.MOD_IMPORT_TYPE:
+                        set.add(new ModInfo(infoName, false, nature));
+                        break;
+                    default:
+                        Log.log("Unexpected type: " + type);
+                }
+            }
+            return set;
+        }
+    }
+
+    /**
+     * A set whose contents are only decoded when first requested (it's not changed afterwards).
+     */
+    private static final class LazyInfoSet extends AbstractSet<IInfo> {
+
+        private LoadedData data;
+        private final int offset;
+        private final int size;
+        private volatile Set<IInfo> decoded;
+
+        private LazyInfoSet(LoadedData data, int offset, int size) {
+            this.data = data;
+            this.offset = offset;
+            this.size = size;
+        }
+
+        private Set<IInfo> getDecoded() {
+            Set<IInfo> ret = decoded;
+            if (ret == null) {
+                synchronized (this) {
+                    ret = decoded;
+                    if (ret == null) {
+                        ret = Collections.unmodifiableSet(data.decodeInfos(offset, size));
+                        data = null; //no longer needed
+                        decoded = ret;
+                    }
+                }
+            }
+            return ret;
+        }
+
+        @Override
+        public Iterator<IInfo> iterator() {
+            return getDecoded().iterator();
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return getDecoded().contains(o);
+        }
+    }
+
+    public static Contents read(File file, IPythonNature nature) throws IOException {
+        long length = file.length();
+        if (length > Integer.MAX_VALUE) {
+            throw new IOException("File too big: " + file);
+        }
+        byte[] bytes = new byte[(int) length];
+        InputStream stream = new FileInputStream(file);
+        try {
+            DataInputStream in = new DataInputStream(stream);
+            in.readFully(bytes);
+        } finally {
+            stream.close();
+        }
+        return read(bytes, nature);
+    }
+
+    public static Contents read(byte[] bytes, IPythonNature nature) throws IOException {
+        if (bytes.length < 12) {
+            throw new IOException("Unexpected size: " + bytes.length);
+        }
+        DataInputStream header = new DataInputStream(new ByteArrayInputStream(bytes, 0, 12));
+        if (header.readInt() != MAGIC) {
+            throw new IOException("File is not in the expected binary format.");
+        }
+        int formatVersion = header.readInt();
+        if (formatVersion != FORMAT_VERSION) {
+            throw new IOException("Expected binary format version to be: " + FORMAT_VERSION + ". Found: "
+                    + formatVersion);
+        }
+        int tokensInfoVersion = header.readInt();
+        int pos = 12;
+
+        //additional info
+        int len = readBlockLen(bytes, pos);
+        String additionalInfo = new String(bytes, pos + 4, len, UTF_8);
+        pos += 4 + len;
+
+        //string table
+        len = readBlockLen(bytes, pos);
+        LoadedData data = new LoadedData(bytes, pos + 4, nature);
+        pos += 4 + len;
+
+        len = readBlockLen(bytes, pos);
+        SortedMap<String, Set<IInfo>> tree1 = readTree(data, pos + 4);
+        pos += 4 + len;
+
+        len = readBlockLen(bytes, pos);
+        SortedMap<String, Set<IInfo>> tree2 = readTree(data, pos + 4);
+
+        return new Contents(tokensInfoVersion, additionalInfo, tree1, tree2);
+    }
+
+    private static int readBlockLen(byte[] bytes, int pos) throws IOException {
+        if (pos + 4 > bytes.length) {
+            throw new IOException("Unexpected end of data.");
+        }
+        int len = ((bytes[pos] & 0xFF) << 24) | ((bytes[pos + 1] & 0xFF) << 16) | ((bytes[pos + 2] & 0xFF) << 8)
+                | (bytes[pos + 3] & 0xFF);
+        if (len < 0 || pos + 4 + len > bytes.length) {
+            throw new IOException("Unexpected block size: " + len);
+        }
+        return len;
+    }
+
+    private static SortedMap<String, Set<IInfo>> readTree(LoadedData data, int treeStart) {
+        TreeMap<String, Set<IInfo>> tree = new TreeMap<String, Set<IInfo>>();
+        int size = data.readInt(treeStart);
+        int directoryStart = treeStart + 4;
+        int infosStart = directoryStart + (size * 12);
+        for (int i = 0; i < size; i++) {
+            int entryPos = directoryStart + (i * 12);
+            String initials = data.getString(data.readInt(entryPos));
+            int offset = data.readInt(entryPos + 4);
+            int count = data.readInt(entryPos + 8);
+            tree.put(initials, new LazyInfoSet(data, infosStart + offset, count));
+        }
+        return tree;
+    }
+
+    /**
+     * @param pos in/out: the position to read from (updated to the position after the varint).
+     */
+    private static int readVarInt(byte[] bytes, int[] pos) {
+        int p = pos[0];
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = bytes[p++];
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        pos[0] = p;
+        return value;
+    }
+}
@@ -0,0 +1,400 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package com.python.pydev.analysis.additionalinfo.dependencies;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.eclipse.jface.text.IDocument;
+import org.python.pydev.core.docutils.ImportHandle;
+import org.python.pydev.core.docutils.ImportHandle.ImportHandleInfo;
+import org.python.pydev.core.docutils.PyImportsHandling;
+import org.python.pydev.core.log.Log;
+import org.python.pydev.parser.jython.SimpleNode;
+import org.python.pydev.parser.jython.ast.Import;
+import org.python.pydev.parser.jython.ast.ImportFrom;
+import org.python.pydev.parser.jython.ast.NameTok;
+import org.python.pydev.parser.jython.ast.aliasType;
+import org.python.pydev.parser.visitors.scope.ASTEntry;
+import org.python.pydev.parser.visitors.scope.EasyASTIteratorVisitor;
+import org.python.pydev.shared_core.io.FileUtils;
+import org.python.pydev.shared_core.string.FastStringBuffer;
+import org.python.pydev.shared_core.string.StringUtils;
+
+/**
+ * Keeps which modules import each module (maintained incrementally as the modules are indexed) along with the
+ * public API (names defined) of each module.
+ *
+ * It's used to know which modules must be re-analyzed when the API of some module changes (see: PyStructuralChange).
+ *
+ * Note that the imports are kept as written in the code (relative imports are made absolute), so, the
+ * importers of a module which doesn't exist (yet) are also known.
+ */
+public class ReverseImportsGraph {
+
+    private static final String VERSION = "reverse_imports_v2";
+
+    private final Object lock = new Object();
+
+    /**
+     * module -> modules it imports
+     */
+    private final Map<String, Set<String>> moduleToImports = new HashMap<String, Set<String>>();
+
+    /**
+     * module -> modules which import it
+     */
+    private final Map<String, Set<String>> moduleToImporters = new HashMap<String, Set<String>>();
+
+    /**
+     * module -> names defined in the module (top level and inner, such as Class.method)
+     */
+    private final Map<String, Set<String>> moduleToApi = new HashMap<String, Set<String>>();
+
+    /**
+     * Updates the information on the given module.
+     *
+     * @param imports the modules imported by the module (see: getImportedModules).
+     * @param api the names defined in the module.
+     *
+     * @return the structural change or null if the API of the module didn't change (or if it's a new module
+     * which no other module imports).
+     */
+    public PyStructuralChange update(String module, Collection<String> imports, Collection<String> api) {
+        synchronized (lock) {
+            setImports(module, new HashSet<String>(imports));
+
+            Set<String> newApi = new HashSet<String>(api);
+            Set<String> oldApi = moduleToApi.put(module, newApi);
+            if (oldApi == null) {
+                if (!hasImporters(module)) {
+                    return null;
+                }
+                PyStructuralChange change = new PyStructuralChange();
+                change.setModule(module);
+                change.addToken(module);
+                return change;
+            }
+            if (oldApi.equals(newApi)) {
+                return null;
+            }
+            PyStructuralChange change = new PyStructuralChange();
+            change.setModule(module);
+            for (String s : newApi) {
+                if (!oldApi.contains(s)) {
+                    change.addToken(s);
+                }
+            }
+            for (String s : oldApi) {
+                if (!newApi.contains(s)) {
+                    change.addRemovedToken(s);
+                }
+            }
+            return change;
+        }
+    }
+
+    /**
+     * Removes the information on the given module (the modules which import it are still kept).
+     *
+     * @return the structural change or null if the module was not known or no other module imports it.
+     */
+    public PyStructuralChange removeModule(String module) {
+        synchronized (lock) {
+            setImports(module, null);
+            if (moduleToApi.remove(module) == null || !hasImporters(module)) {
+                return null;
+            }
+            PyStructuralChange change = new PyStructuralChange();
+            change.setModule(module);
+            change.addRemovedToken(module);
+            return change;
+        }
+    }
+
+    private void setImports(String module, Set<String> imports) {
+        Set<String> oldImports = imports != null ? moduleToImports.put(module, imports) : moduleToImports
+                .remove(module);
+        if (oldImports != null) {
+            for (String imported : oldImports) {
+                if (imports != null && imports.contains(imported)) {
+                    continue;
+                }
+                Set<String> importers = moduleToImporters.get(imported);
+                if (importers != null) {
+                    importers.remove(module);
+                    if (importers.size() == 0) {
+                        moduleToImporters.remove(imported);
+                    }
+                }
+            }
+        }
+        if (imports != null) {
+            for (String imported : imports) {
+                Set<String> importers = moduleToImporters.get(imported);
+                if (importers == null) {
+                    importers = new HashSet<String>(4);
+                    moduleToImporters.put(imported, importers);
+                }
+                importers.add(module);
+            }
+        }
+    }
+
+    private boolean hasImporters(String module) {
+        Set<String> importers = moduleToImporters.get(module);
+        return importers != null && importers.size() > 0;
+    }
+
+    /**
+     * @return the modules which import the given module directly.
+     */
+    public Set<String> getImporters(String module) {
+        synchronized (lock) {
+            Set<String> importers = moduleToImporters.get(module);
+            if (importers == null) {
+                return new HashSet<String>();
+            }
+            return new HashSet<String>(importers);
+        }
+    }
+
+    /**
+     * @return the modules which import the given module directly or indirectly (the module itself is not
+     * included).
+     */
+    public Set<String> getTransitiveImporters(String module) {
+        synchronized (lock) {
+            Set<String> found = new TreeSet<String>();
+            List<String> toVisit = new ArrayList<String>();
+            toVisit.add(module);
+            while (toVisit.size() > 0) {
+                String current = toVisit.remove(toVisit.size() - 1);
+                Set<String> importers = moduleToImporters.get(current);
+                if (importers == null) {
+                    continue;
+                }
+                for (String importer : importers) {
+                    if (!importer.equals(module) && found.add(importer)) {
+                        toVisit.add(importer);
+                    }
+                }
+            }
+            return found;
+        }
+    }
+
+    public void clear() {
+        synchronized (lock) {
+            moduleToImports.clear();
+            moduleToImporters.clear();
+            moduleToApi.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (lock) {
+            return moduleToApi.size();
+        }
+    }
+
+    /**
+     * Saves the graph to the given file (one line for each module with its imports and API).
+     */
+    public void save(File file) {
+        FastStringBuffer buf = new FastStringBuffer(moduleToApi.size() * 80);
+        synchronized (lock) {
+            buf.append(VERSION).append('\n');
+            for (Map.Entry<String, Set<String>> entry : moduleToApi.entrySet()) {
+                String module = entry.getKey();
+                buf.append(module).append('\t');
+                appendJoined(buf, moduleToImports.get(module));
+                buf.append('\t');
+                appendJoined(buf, entry.getValue());
+                buf.append('\n');
+            }
+        }
+        FileUtils.writeStrToFile(buf.toString(), file);
+    }
+
+    private static void appendJoined(FastStringBuffer buf, Set<String> strings) {
+        if (strings == null) {
+            return;
+        }
+        boolean first = true;
+        for (String s : strings) {
+            if (!first) {
+                buf.append(',');
+            }
+            first = false;
+            buf.append(s);
+        }
+    }
+
+    /**
+     * Loads the graph from the given file (the current contents are discarded).
+     *
+     * @return whether it was properly loaded.
+     */
+    public boolean load(File file) {
+        synchronized (lock) {
+            clear();
+            if (!file.isFile()) {
+                return false;
+            }
+            try {
+                String contents = FileUtils.getFileContents(file);
+                List<String> lines = StringUtils.splitInLines(contents, false);
+                if (lines.size() == 0 || !lines.get(0).equals(VERSION)) {
+                    return false;
+                }
+                for (Iterator<String> it = lines.listIterator(1); it.hasNext();) {
+                    List<String> parts = StringUtils.splitKeepEmpty(it.next(), '\t');
+                    if (parts.size() != 3) {
+                        continue;
+                    }
+                    update(parts.get(0), StringUtils.split(parts.get(1), ','),
+                            StringUtils.split(parts.get(2), ','));
+                }
+                return true;
+            } catch (Exception e) {
+                Log.log("Error loading: " + file, e);
+                clear();
+                return false;
+            }
+        }
+    }
+
+    /**
+     * @param moduleName the name of the module which has the given ast.
+     * @param isPackage whether the module is the __init__ of a package.
+     *
+     * @return the modules imported in the given ast (i.e.: for 'import a.b' it returns 'a' and 'a.b' and for
+     * 'from a import b' it returns 'a' and 'a.b' -- as 'b' may be a module or a token in 'a').
+     */
+    public static Set<String> getImportedModules(SimpleNode ast, String moduleName, boolean isPackage) {
+        Set<String> imported = new HashSet<String>();
+        if (ast == null) {
+            return imported;
+        }
+        EasyASTIteratorVisitor visitor = EasyASTIteratorVisitor.create(ast);
+        for (Iterator<ASTEntry> it = visitor.getIterator(Import.class, ImportFrom.class); it.hasNext();) {
+            SimpleNode node = it.next().node;
+            if (node instanceof Import) {
+                for (aliasType alias : ((Import) node).names) {
+                    addWithParents(imported, ((NameTok) alias.name).id);
+                }
+
+            } else if (node instanceof ImportFrom) {
+                ImportFrom importFrom = (ImportFrom) node;
+                List<String> names = new ArrayList<String>(importFrom.names.length);
+                for (aliasType alias : importFrom.names) {
+                    names.add(((NameTok) alias.name).id);
+                }
+                addImportFrom(imported, importFrom.module != null ? ((NameTok) importFrom.module).id : "",
+                        importFrom.level, names, moduleName, isPackage);
+            }
+        }
+        imported.remove(moduleName);
+        return imported;
+    }
+
+    /**
+     * Same as getImportedModules(SimpleNode, String, boolean), but gets the imports from the contents of the module
+     * (used when the module is indexed without a full parse -- in which case the ast has only the definitions).
+     */
+    public static Set<String> getImportedModules(IDocument doc, String moduleName, boolean isPackage) {
+        Set<String> imported = new HashSet<String>();
+        for (ImportHandle importHandle : new PyImportsHandling(doc, false, true)) {
+            for (ImportHandleInfo info : importHandle.getImportInfo()) {
+                List<String> names = new ArrayList<String>(info.getImportedStr().size());
+                for (String importedStr : info.getImportedStr()) {
+                    //Remove the 'as' part (i.e.: 'mod as m').
+                    List<String> parts = StringUtils.splitAndRemoveEmptyTrimmed(importedStr, ' ');
+                    if (parts.size() > 0) {
+                        names.add(parts.get(0));
+                    }
+                }
+                String from = info.getFromImportStrWithoutUnwantedChars();
+                if (from == null) {
+                    for (String name : names) {
+                        addWithParents(imported, name);
+                    }
+                } else {
+                    int level = 0;
+                    while (level < from.length() && from.charAt(level) == '.') {
+                        level++;
+                    }
+                    addImportFrom(imported, from.substring(level), level, names, moduleName, isPackage);
+                }
+            }
+        }
+        imported.remove(moduleName);
+        return imported;
+    }
+
+    private static void addImportFrom(Set<String> imported, String base, int level, List<String> names,
+            String moduleName, boolean isPackage) {
+        if (level > 0) {
+            base = makeAbsolute(base, level, moduleName, isPackage);
+            if (base == null) {
+                return;
+            }
+        }
+        if (base.length() > 0) {
+            addWithParents(imported, base);
+        }
+        for (String name : names) {
+            if (name.equals("*")) {
+                continue;
+            }
+            imported.add(base.length() > 0 ? base + "." + name : name);
+        }
+    }
+
+    private static void addWithParents(Set<String> imported, String name) {
+        int i = name.indexOf('.');
+        while (i != -1) {
+            imported.add(name.substring(0, i));
+            i = name.indexOf('.', i + 1);
+        }
+        imported.add(name);
+    }
+
+    /**
+     * @return the absolute name for a relative import or null if it can't be made absolute.
+     */
+    private static String makeAbsolute(String relative, int level, String moduleName, boolean isPackage) {
+        List<String> parts = StringUtils.split(moduleName, '.');
+        int toRemove = isPackage ? level - 1 : level;
+        if (toRemove > parts.size()) {
+            return null;
+        }
+        FastStringBuffer buf = new FastStringBuffer();
+        for (int i = 0; i < parts.size() - toRemove; i++) {
+            if (buf.length() > 0) {
+                buf.append('.');
+            }
+            buf.append(parts.get(i));
+        }
+        if (relative.length() > 0) {
+            if (buf.length() > 0) {
+                buf.append('.');
+            }
+            buf.append(relative);
+        }
+        return buf.toString();
+    }
+}
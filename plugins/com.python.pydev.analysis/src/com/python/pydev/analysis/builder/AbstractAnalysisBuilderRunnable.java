@@ -103,6 +103,29 @@ public abstract class AbstractAnalysisBuilderRunnable implements IAnalysisBuilde
         return moduleName;
     }
 
+    @Override
+    public KeyForAnalysisRunnable getKey() {
+        return key;
+    }
+
+    @Override
+    public boolean isAnalysisStopped() {
+        return internalCancelMonitor.isCanceled();
+    }
+
+    @Override
+    public void discardNotStarted() {
+        stopAnalysis();
+        try {
+            AnalysisBuilderRunnableFactory.removeFromThreads(key, this);
+        } catch (Throwable e) {
+            Log.log(e);
+        } finally {
+            runFinished = true;
+        }
+        dispose();
+    }
+
     @Override
     public String getAnalysisCauseStr() {
         String analysisCauseStr;
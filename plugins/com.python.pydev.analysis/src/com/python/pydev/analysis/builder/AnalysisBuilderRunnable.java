@@ -35,6 +35,7 @@ import org.python.pydev.editor.codecompletion.revisited.modules.SourceModule;
 import org.python.pydev.editor.correctionassist.CheckAnalysisErrors;
 import org.python.pydev.logging.DebugSettings;
 import org.python.pydev.shared_core.callbacks.ICallback;
+import org.python.pydev.shared_core.callbacks.ICallback0;
 import org.python.pydev.shared_ui.utils.PyMarkerUtils;
 import org.python.pydev.shared_ui.utils.PyMarkerUtils.MarkerInfo;
 
@@ -310,60 +311,30 @@ public class AnalysisBuilderRunnable extends AbstractAnalysisBuilderRunnable {
                 }
             }
 
-            checkStop();
-            pyLintVisitor.join();
-
             checkStop();
             if (r != null) {
-                List<MarkerInfo> markersFromPyLint = pyLintVisitor.getMarkers();
-                if (markersFromPyLint != null && markersFromPyLint.size() > 0) {
-
-                    Map<Integer, List<MarkerInfo>> lineToMarkerInfo = new HashMap<>();
-                    if (markersFromCodeAnalysis != null) {
-                        for (MarkerInfo codeAnalysisMarkerInfo : markersFromCodeAnalysis) {
-                            List<MarkerInfo> list = lineToMarkerInfo.get(codeAnalysisMarkerInfo.lineStart);
-                            if (list == null) {
-                                list = new ArrayList<>(2);
-                                lineToMarkerInfo.put(codeAnalysisMarkerInfo.lineStart, list);
-                            }
-                            list.add(codeAnalysisMarkerInfo);
-                        }
-                    }
-
-                    // I.e.: if the error is already generated in the PyDev code-analysis, skip the same error on PyLint
-                    // (there's no real point in putting an error twice).
-                    for (Iterator<MarkerInfo> pyLintMarkerInfoIterator = markersFromPyLint
-                            .iterator(); pyLintMarkerInfoIterator
-                                    .hasNext();) {
-                        MarkerInfo pyLintMarkerInfo = pyLintMarkerInfoIterator.next();
-                        List<MarkerInfo> codeAnalysisMarkers = lineToMarkerInfo.get(pyLintMarkerInfo.lineStart);
-                        if (codeAnalysisMarkers != null && codeAnalysisMarkers.size() > 0) {
-                            for (MarkerInfo codeAnalysisMarker : codeAnalysisMarkers) {
-                                if (codeAnalysisMarker.severity < IMarker.SEVERITY_INFO) {
-                                    // Don't consider if it shouldn't be shown.
-                                    continue;
-                                }
-                                Map<String, Object> additionalInfo = codeAnalysisMarker.additionalInfo;
-                                if (additionalInfo != null) {
-                                    Object analysisType = additionalInfo.get(AnalysisRunner.PYDEV_ANALYSIS_TYPE);
-                                    if (analysisType != null && analysisType instanceof Integer) {
-                                        String pyLintMessageId = CheckAnalysisErrors
-                                                .getPyLintMessageIdForPyDevAnalysisType((int) analysisType);
-                                        if (pyLintMessageId != null
-                                                && pyLintMessageId.equals(pyLintMarkerInfo.additionalInfo
-                                                        .get(IMiscConstants.PYLINT_MESSAGE_ID))) {
-                                            pyLintMarkerInfoIterator.remove();
-                                            break; // Stop the for (we've already removed it).
-                                        }
-                                    }
-                                }
+                if (isFullBuild) {
+                    // On a full build we don't wait for PyLint (so that the resources can be analyzed in batches
+                    // by PyLint while the build goes on): the markers are set when it finishes.
+                    final IPyLintVisitor visitor = pyLintVisitor;
+                    final List<MarkerInfo> codeAnalysisMarkers = markersFromCodeAnalysis;
+                    final long modificationStamp = getResourceModificationStamp();
+                    visitor.onFinished(new ICallback0<Object>() {
+
+                        @Override
+                        public Object call() {
+                            if (!internalCancelMonitor.isCanceled()
+                                    && r.getModificationStamp() == modificationStamp) {
+                                setPyLintMarkers(r, visitor, codeAnalysisMarkers);
                             }
+                            return null;
                         }
-                    }
-                    PyMarkerUtils.replaceMarkers(markersFromPyLint, resource, IMiscConstants.PYLINT_PROBLEM_MARKER,
-                            true, this.internalCancelMonitor);
+                    });
                 } else {
-                    pyLintVisitor.deleteMarkers();
+                    pyLintVisitor.join();
+
+                    checkStop();
+                    setPyLintMarkers(r, pyLintVisitor, markersFromCodeAnalysis);
                 }
             }
 
@@ -388,6 +359,67 @@ public class AnalysisBuilderRunnable extends AbstractAnalysisBuilderRunnable {
         }
     }
 
+    /**
+     * Sets the markers found by PyLint (skipping the ones which were already reported in the code analysis).
+     * If PyLint failed for the resource, its current markers are kept.
+     */
+    private void setPyLintMarkers(IResource r, IPyLintVisitor visitor,
+            List<MarkerInfo> markersFromCodeAnalysis) {
+        if (visitor.hasFailed()) {
+            return;
+        }
+        List<MarkerInfo> markersFromPyLint = visitor.getMarkers();
+        if (markersFromPyLint != null && markersFromPyLint.size() > 0) {
+
+            Map<Integer, List<MarkerInfo>> lineToMarkerInfo = new HashMap<>();
+            if (markersFromCodeAnalysis != null) {
+                for (MarkerInfo codeAnalysisMarkerInfo : markersFromCodeAnalysis) {
+                    List<MarkerInfo> list = lineToMarkerInfo.get(codeAnalysisMarkerInfo.lineStart);
+                    if (list == null) {
+                        list = new ArrayList<>(2);
+                        lineToMarkerInfo.put(codeAnalysisMarkerInfo.lineStart, list);
+                    }
+                    list.add(codeAnalysisMarkerInfo);
+                }
+            }
+
+            // I.e.: if the error is already generated in the PyDev code-analysis, skip the same error on PyLint
+            // (there's no real point in putting an error twice).
+            for (Iterator<MarkerInfo> pyLintMarkerInfoIterator = markersFromPyLint
+                    .iterator(); pyLintMarkerInfoIterator
+                            .hasNext();) {
+                MarkerInfo pyLintMarkerInfo = pyLintMarkerInfoIterator.next();
+                List<MarkerInfo> codeAnalysisMarkers = lineToMarkerInfo.get(pyLintMarkerInfo.lineStart);
+                if (codeAnalysisMarkers != null && codeAnalysisMarkers.size() > 0) {
+                    for (MarkerInfo codeAnalysisMarker : codeAnalysisMarkers) {
+                        if (codeAnalysisMarker.severity < IMarker.SEVERITY_INFO) {
+                            // Don't consider if it shouldn't be shown.
+                            continue;
+                        }
+                        Map<String, Object> additionalInfo = codeAnalysisMarker.additionalInfo;
+                        if (additionalInfo != null) {
+                            Object analysisType = additionalInfo.get(AnalysisRunner.PYDEV_ANALYSIS_TYPE);
+                            if (analysisType != null && analysisType instanceof Integer) {
+                                String pyLintMessageId = CheckAnalysisErrors
+                                        .getPyLintMessageIdForPyDevAnalysisType((int) analysisType);
+                                if (pyLintMessageId != null
+                                        && pyLintMessageId.equals(pyLintMarkerInfo.additionalInfo
+                                                .get(IMiscConstants.PYLINT_MESSAGE_ID))) {
+                                    pyLintMarkerInfoIterator.remove();
+                                    break; // Stop the for (we've already removed it).
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+            PyMarkerUtils.replaceMarkers(markersFromPyLint, r, IMiscConstants.PYLINT_PROBLEM_MARKER,
+                    true, this.internalCancelMonitor);
+        } else {
+            visitor.deleteMarkers();
+        }
+    }
+
     /**
      * @return false if there's no modification among the current version of the file and the last version analyzed.
      */
@@ -19,7 +19,6 @@ import org.python.pydev.builder.PyDevBuilderVisitor;
 import org.python.pydev.core.IModule;
 import org.python.pydev.core.IPythonNature;
 import org.python.pydev.core.MisconfigurationException;
-import org.python.pydev.core.concurrency.RunnableAsJobsPoolThread;
 import org.python.pydev.core.log.Log;
 import org.python.pydev.editor.codecompletion.revisited.PyCodeCompletionVisitor;
 import org.python.pydev.editor.codecompletion.revisited.modules.SourceModule;
@@ -191,7 +190,8 @@ public class AnalysisBuilderVisitor extends PyDevBuilderVisitor {
 
     /**
      * Depending on whether we're in a full build or delta build, this method will run the runnable directly
-     * or schedule it as a job.
+     * or schedule it in the AnalysisScheduler (requests from the parser -- i.e.: the editor being edited -- have
+     * priority over the ones from the builder).
      * @param forceAnalyzeInThisThread 
      */
     private void execRunnable(final String moduleName, final IAnalysisBuilderRunnable runnable,
@@ -199,7 +199,8 @@ public class AnalysisBuilderVisitor extends PyDevBuilderVisitor {
         if (isFullBuild() || forceAnalyzeInThisThread) {
             runnable.run();
         } else {
-            RunnableAsJobsPoolThread.getSingleton().scheduleToRun(runnable, "PyDev: Code Analysis:" + moduleName);
+            AnalysisScheduler.getSingleton().schedule(runnable, "PyDev: Code Analysis:" + moduleName,
+                    runnable.getAnalysisCause() == IAnalysisBuilderRunnable.ANALYSIS_CAUSE_PARSER);
         }
     }
 
@@ -244,6 +245,15 @@ public class AnalysisBuilderVisitor extends PyDevBuilderVisitor {
         }
     }
 
+    /**
+     * The analysis runnables are already run concurrently by the AnalysisScheduler (and the additional info
+     * synchronizes its changes), so, a full build may also run them in parallel.
+     */
+    @Override
+    public PyDevBuilderVisitor createParallelVisitor() {
+        return new AnalysisBuilderVisitor();
+    }
+
     @Override
     public void visitingWillStart(IProgressMonitor monitor, boolean isFullBuild, IPythonNature nature) {
         if (isFullBuild) {
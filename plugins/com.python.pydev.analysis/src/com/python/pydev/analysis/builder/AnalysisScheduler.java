@@ -0,0 +1,335 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package com.python.pydev.analysis.builder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.python.pydev.core.concurrency.IRunnableWithMonitor;
+import org.python.pydev.core.concurrency.RunnableAsJobsPoolThread;
+import org.python.pydev.core.log.Log;
+import org.python.pydev.logging.DebugSettings;
+
+/**
+ * Schedules the analysis runnables which are not run in the builder thread.
+ *
+ * - Requests are debounced per module: a request only starts after some time without new requests for the same
+ * key (a newer request replaces the pending one, which is discarded without being run).
+ *
+ * - Requests with priority (i.e.: from the editor being edited) are started before the others.
+ *
+ * - Only one analysis runs for a given key at a time and at most maxConcurrent analyses run at the same time.
+ *
+ * The actual run is done in the RunnableAsJobsPoolThread (so, pushStopThreads() still pauses the analysis).
+ */
+public class AnalysisScheduler {
+
+    /**
+     * Time to wait for new requests for the same module before starting an analysis.
+     */
+    public static final long DEBOUNCE_MILLIS = 150;
+
+    /*default*/static final class ScheduledAnalysis {
+
+        /*default*/final IAnalysisBuilderRunnable runnable;
+        /*default*/final String name;
+        /*default*/final boolean priority;
+        /*default*/final long dueTime;
+        private final long order;
+
+        private ScheduledAnalysis(IAnalysisBuilderRunnable runnable, String name, boolean priority, long dueTime,
+                long order) {
+            this.runnable = runnable;
+            this.name = name;
+            this.priority = priority;
+            this.dueTime = dueTime;
+            this.order = order;
+        }
+    }
+
+    /**
+     * Priority first, then the ones which were requested first.
+     */
+    private static final Comparator<ScheduledAnalysis> DISPATCH_ORDER = new Comparator<ScheduledAnalysis>() {
+
+        @Override
+        public int compare(ScheduledAnalysis o1, ScheduledAnalysis o2) {
+            if (o1.priority != o2.priority) {
+                return o1.priority ? -1 : 1;
+            }
+            return Long.compare(o1.order, o2.order);
+        }
+    };
+
+    private final int maxConcurrent;
+    private final long debounceMillis;
+
+    private final Object lock = new Object();
+
+    /**
+     * Guarded by lock.
+     */
+    private final Map<KeyForAnalysisRunnable, ScheduledAnalysis> pending = new HashMap<KeyForAnalysisRunnable, ScheduledAnalysis>();
+
+    /**
+     * Guarded by lock.
+     */
+    private final Set<KeyForAnalysisRunnable> running = new HashSet<KeyForAnalysisRunnable>();
+
+    /**
+     * Guarded by lock.
+     */
+    private long nextOrder;
+
+    /**
+     * Guarded by lock.
+     */
+    private Thread dispatcher;
+
+    private final AtomicLong scheduledCount = new AtomicLong();
+    private final AtomicLong startedCount = new AtomicLong();
+    private final AtomicLong cancelledCount = new AtomicLong();
+    private final AtomicLong completedCount = new AtomicLong();
+
+    /**
+     * @param maxConcurrent the maximum number of analyses running at the same time.
+     * @param debounceMillis the time to wait for new requests for the same module before starting an analysis.
+     */
+    public AnalysisScheduler(int maxConcurrent, long debounceMillis) {
+        this.maxConcurrent = Math.max(1, maxConcurrent);
+        this.debounceMillis = debounceMillis;
+    }
+
+    /**
+     * Schedules the given runnable to be run (replacing a pending request for the same module).
+     *
+     * @param priority if true, the analysis is started before the ones without priority.
+     */
+    public void schedule(IAnalysisBuilderRunnable runnable, String name, boolean priority) {
+        synchronized (lock) {
+            scheduleAt(runnable, name, priority, System.currentTimeMillis());
+            if (dispatcher == null) {
+                dispatcher = new Thread("PyDev: Analysis Scheduler") {
+                    @Override
+                    public void run() {
+                        dispatchForever();
+                    }
+                };
+                dispatcher.setDaemon(true);
+                dispatcher.start();
+            }
+            lock.notifyAll();
+        }
+    }
+
+    /*default*/void scheduleAt(IAnalysisBuilderRunnable runnable, String name, boolean priority, long now) {
+        synchronized (lock) {
+            scheduledCount.incrementAndGet();
+            KeyForAnalysisRunnable key = runnable.getKey();
+            ScheduledAnalysis old = pending.get(key);
+            if (old != null) {
+                //Superseded before starting: it'll never run.
+                priority = priority || old.priority;
+                cancelledCount.incrementAndGet();
+                if (DebugSettings.DEBUG_ANALYSIS_REQUESTS) {
+                    Log.toLogFile(this, "Discarding pending analysis (superseded): " + old.name);
+                }
+                old.runnable.discardNotStarted();
+            }
+            pending.put(key, new ScheduledAnalysis(runnable, name, priority, now + debounceMillis, nextOrder++));
+        }
+    }
+
+    /**
+     * @return the analyses which may be started now (they're already considered as running).
+     */
+    /*default*/List<ScheduledAnalysis> takeReady(long now) {
+        synchronized (lock) {
+            if (running.size() >= maxConcurrent || pending.size() == 0) {
+                return Collections.emptyList();
+            }
+            List<ScheduledAnalysis> ready = new ArrayList<ScheduledAnalysis>();
+            for (ScheduledAnalysis scheduled : pending.values()) {
+                if (scheduled.dueTime <= now && !running.contains(scheduled.runnable.getKey())) {
+                    ready.add(scheduled);
+                }
+            }
+            if (ready.size() == 0) {
+                return ready;
+            }
+            Collections.sort(ready, DISPATCH_ORDER);
+            int available = maxConcurrent - running.size();
+            if (ready.size() > available) {
+                ready = new ArrayList<ScheduledAnalysis>(ready.subList(0, available));
+            }
+            for (ScheduledAnalysis scheduled : ready) {
+                KeyForAnalysisRunnable key = scheduled.runnable.getKey();
+                pending.remove(key);
+                running.add(key);
+                startedCount.incrementAndGet();
+            }
+            return ready;
+        }
+    }
+
+    /**
+     * @return the time to wait until some pending analysis is due (0 means that it should wait until notified).
+     */
+    /*default*/long getMillisToNextDue(long now) {
+        synchronized (lock) {
+            long next = Long.MAX_VALUE;
+            for (ScheduledAnalysis scheduled : pending.values()) {
+                if (scheduled.dueTime > now && scheduled.dueTime < next) {
+                    next = scheduled.dueTime;
+                }
+            }
+            return next == Long.MAX_VALUE ? 0 : next - now;
+        }
+    }
+
+    /*default*/void onFinished(ScheduledAnalysis scheduled) {
+        if (scheduled.runnable.isAnalysisStopped()) {
+            cancelledCount.incrementAndGet();
+        } else {
+            completedCount.incrementAndGet();
+        }
+        synchronized (lock) {
+            running.remove(scheduled.runnable.getKey());
+            lock.notifyAll();
+        }
+    }
+
+    private void dispatchForever() {
+        while (true) {
+            List<ScheduledAnalysis> ready;
+            synchronized (lock) {
+                long now = System.currentTimeMillis();
+                ready = takeReady(now);
+                if (ready.size() == 0) {
+                    try {
+                        lock.wait(getMillisToNextDue(now));
+                    } catch (InterruptedException e) {
+                        //ignore
+                    }
+                    continue;
+                }
+            }
+            for (ScheduledAnalysis scheduled : ready) {
+                execute(scheduled);
+            }
+        }
+    }
+
+    private void execute(final ScheduledAnalysis scheduled) {
+        IRunnableWithMonitor runnable = new IRunnableWithMonitor() {
+
+            @Override
+            public void setMonitor(IProgressMonitor monitor) {
+                scheduled.runnable.setMonitor(monitor);
+            }
+
+            @Override
+            public void run() {
+                try {
+                    scheduled.runnable.run();
+                } finally {
+                    onFinished(scheduled);
+                }
+            }
+        };
+        try {
+            RunnableAsJobsPoolThread.getSingleton().scheduleToRun(runnable, scheduled.name);
+        } catch (RuntimeException e) {
+            Log.log(e);
+            onFinished(scheduled);
+        }
+    }
+
+    public int getMaxConcurrent() {
+        return maxConcurrent;
+    }
+
+    /**
+     * @return the number of analyses requested.
+     */
+    public long getScheduledCount() {
+        return scheduledCount.get();
+    }
+
+    /**
+     * @return the number of analyses which were started.
+     */
+    public long getStartedCount() {
+        return startedCount.get();
+    }
+
+    /**
+     * @return the number of analyses which were discarded before starting or stopped while running.
+     */
+    public long getCancelledCount() {
+        return cancelledCount.get();
+    }
+
+    /**
+     * @return the number of analyses which ran until the end.
+     */
+    public long getCompletedCount() {
+        return completedCount.get();
+    }
+
+    /**
+     * @return the number of analyses waiting to be started.
+     */
+    public int getPendingCount() {
+        synchronized (lock) {
+            return pending.size();
+        }
+    }
+
+    /**
+     * @return the number of analyses currently running.
+     */
+    public int getRunningCount() {
+        synchronized (lock) {
+            return running.size();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "AnalysisScheduler[scheduled: " + getScheduledCount() + ", started: " + getStartedCount()
+                + ", cancelled: " + getCancelledCount() + ", completed: " + getCompletedCount() + ", pending: "
+                + getPendingCount() + ", running: " + getRunningCount() + "]";
+    }
+
+    private static AnalysisScheduler singleton;
+
+    /**
+     * @return the scheduler used for the analysis requested by the builder and the parser (the maximum number
+     * of analyses running at the same time is based on the number of available processors, leaving one
+     * for the UI).
+     */
+    public synchronized static AnalysisScheduler getSingleton() {
+        if (singleton == null) {
+            int maxConcurrent = 2;
+            try {
+                maxConcurrent = Runtime.getRuntime().availableProcessors() - 1;
+            } catch (Throwable e) {
+            }
+            singleton = new AnalysisScheduler(maxConcurrent, DEBOUNCE_MILLIS);
+        }
+        return singleton;
+    }
+}
@@ -0,0 +1,159 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package com.python.pydev.analysis.builder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Path;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.python.pydev.builder.PyDevBuilderPrefPage;
+import org.python.pydev.core.ICodeCompletionASTManager;
+import org.python.pydev.core.IModulesManager;
+import org.python.pydev.core.IPythonNature;
+import org.python.pydev.core.ModulesKey;
+import org.python.pydev.core.log.Log;
+import org.python.pydev.editorinput.PySourceLocatorBase;
+import org.python.pydev.logging.DebugSettings;
+import org.python.pydev.plugin.nature.PythonNature;
+import org.python.pydev.shared_core.callbacks.ICallbackListener;
+import org.python.pydev.shared_core.structure.Tuple3;
+
+import com.python.pydev.analysis.actions.ForceCodeAnalysisOnTree;
+import com.python.pydev.analysis.additionalinfo.AdditionalProjectInterpreterInfo;
+import com.python.pydev.analysis.additionalinfo.dependencies.PyStructuralChange;
+
+/**
+ * Re-analyzes the modules which import (directly or indirectly) a module whose API changed (so that the errors
+ * in those modules don't become stale).
+ *
+ * The requests are collected for a while and then the affected modules are scheduled in the AnalysisScheduler.
+ */
+public class DependentsReanalysisJob extends Job {
+
+    private static final long DELAY_MILLIS = 500;
+
+    private static final Object lock = new Object();
+
+    private static DependentsReanalysisJob singleton;
+
+    /**
+     * Guarded by lock.
+     */
+    private final Map<IPythonNature, Set<String>> natureToModules = new HashMap<IPythonNature, Set<String>>();
+
+    private DependentsReanalysisJob() {
+        super("Re-analyzing modules affected by changes");
+        setSystem(true);
+        setPriority(Job.BUILD);
+    }
+
+    private static final ICallbackListener<Object> listener = new ICallbackListener<Object>() {
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Object call(Object obj) {
+            Tuple3<IPythonNature, PyStructuralChange, Set<String>> tup = (Tuple3<IPythonNature, PyStructuralChange, Set<String>>) obj;
+            if (PyDevBuilderPrefPage.getAnalyzeOnlyActiveEditor()) {
+                return null; //The modules not opened in an editor are not analyzed.
+            }
+            if (DebugSettings.DEBUG_ANALYSIS_REQUESTS) {
+                Log.toLogFile(DependentsReanalysisJob.class, "Structural change in: " + tup.o2.getModule()
+                        + " tokens: " + tup.o2.getChangedTokens() + " affects: " + tup.o3);
+            }
+            schedule(tup.o1, tup.o3);
+            return null;
+        }
+    };
+
+    /**
+     * Starts listening to the structural changes.
+     */
+    public static void register() {
+        AdditionalProjectInterpreterInfo.structuralChanges.registerListener(listener);
+    }
+
+    public static void unregister() {
+        AdditionalProjectInterpreterInfo.structuralChanges.unregisterListener(listener);
+    }
+
+    /**
+     * Schedules the given modules to be re-analyzed.
+     */
+    public static void schedule(IPythonNature nature, Set<String> modules) {
+        synchronized (lock) {
+            if (singleton == null) {
+                singleton = new DependentsReanalysisJob();
+            }
+            Set<String> set = singleton.natureToModules.get(nature);
+            if (set == null) {
+                set = new HashSet<String>();
+                singleton.natureToModules.put(nature, set);
+            }
+            set.addAll(modules);
+            singleton.schedule(DELAY_MILLIS);
+        }
+    }
+
+    @Override
+    protected IStatus run(IProgressMonitor monitor) {
+        Map<IPythonNature, Set<String>> toAnalyze;
+        synchronized (lock) {
+            toAnalyze = new HashMap<IPythonNature, Set<String>>(natureToModules);
+            natureToModules.clear();
+        }
+        for (Map.Entry<IPythonNature, Set<String>> entry : toAnalyze.entrySet()) {
+            if (monitor.isCanceled()) {
+                break;
+            }
+            IPythonNature nature = entry.getKey();
+            IProject project = nature.getProject();
+            if (!(nature instanceof PythonNature) || project == null || !project.isOpen()) {
+                continue;
+            }
+            ICodeCompletionASTManager astManager = nature.getAstManager();
+            if (astManager == null) {
+                continue;
+            }
+            //Just the file is needed (so, the module itself isn't created).
+            IModulesManager modulesManager = astManager.getModulesManager();
+            List<IFile> files = new ArrayList<IFile>();
+            PySourceLocatorBase locator = new PySourceLocatorBase();
+            for (String moduleName : entry.getValue()) {
+                try {
+                    ModulesKey key = modulesManager.getModulesKey(moduleName);
+                    if (key == null) {
+                        continue;
+                    }
+                    File file = key.file;
+                    if (file == null) {
+                        continue;
+                    }
+                    IFile iFile = locator.getFileForLocation(Path.fromOSString(file.getAbsolutePath()), project);
+                    if (iFile != null) {
+                        files.add(iFile);
+                    }
+                } catch (Exception e) {
+                    Log.log(e);
+                }
+            }
+            ForceCodeAnalysisOnTree.forceCodeAnalysisOnFiles((PythonNature) nature, monitor, files,
+                    new HashSet<IFile>());
+        }
+        return Status.OK_STATUS;
+    }
+}
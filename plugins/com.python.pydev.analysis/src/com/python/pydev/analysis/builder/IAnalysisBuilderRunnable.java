@@ -48,4 +48,20 @@ public interface IAnalysisBuilderRunnable extends IRunnableWithMonitor {
     long getDocumentTime();
 
     long getResourceModificationStamp();
+
+    /**
+     * @return the key identifying the module/cause being analyzed.
+     */
+    KeyForAnalysisRunnable getKey();
+
+    /**
+     * @return whether a stop was requested for this analysis.
+     */
+    boolean isAnalysisStopped();
+
+    /**
+     * Called when this runnable was superseded by a new one for the same key before it started running (so,
+     * it'll never be run and must be marked as finished).
+     */
+    void discardNotStarted();
 }
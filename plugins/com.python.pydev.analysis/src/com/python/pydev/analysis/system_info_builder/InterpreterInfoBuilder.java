@@ -12,6 +12,7 @@
 ******************************************************************************/
 package com.python.pydev.analysis.system_info_builder;
 
+import java.io.File;
 import java.util.List;
 
 import org.eclipse.core.runtime.IProgressMonitor;
@@ -27,6 +28,7 @@ import org.python.pydev.core.log.Log;
 import org.python.pydev.editor.codecompletion.revisited.ModulesFoundStructure;
 import org.python.pydev.editor.codecompletion.revisited.ModulesManager;
 import org.python.pydev.editor.codecompletion.revisited.PyPublicTreeMap;
+import org.python.pydev.editor.codecompletion.revisited.PythonPathFingerprints;
 import org.python.pydev.editor.codecompletion.revisited.PythonPathHelper;
 import org.python.pydev.editor.codecompletion.revisited.SystemModulesManager;
 import org.python.pydev.logging.DebugSettings;
@@ -44,6 +46,8 @@ import com.python.pydev.analysis.additionalinfo.AdditionalSystemInterpreterInfo;
  */
 public class InterpreterInfoBuilder implements IInterpreterInfoBuilder {
 
+    private static final String FINGERPRINTS_FILE_NAME = "v1_pythonpath_fingerprints";
+
     public BuilderResult syncInfoToPythonPath(IProgressMonitor monitor, IPythonNature nature) {
         ICodeCompletionASTManager astManager = nature.getAstManager();
         if (astManager == null) {
@@ -83,7 +87,68 @@ public class InterpreterInfoBuilder implements IInterpreterInfoBuilder {
             return BuilderResult.OK;
         }
 
-        return this.syncInfoToPythonPath(monitor, pythonPathHelper, additionalInfo, modulesManager, info);
+        if (monitor == null) {
+            monitor = new NullProgressMonitor();
+        }
+        File fingerprintsFile = getFingerprintsFile(info);
+        if (fingerprintsFile == null) {
+            return this.syncInfoToPythonPath(monitor, pythonPathHelper, additionalInfo, modulesManager, info);
+        }
+        PythonPathFingerprints fingerprints = PythonPathFingerprints.load(fingerprintsFile);
+        String[] builtins = info.getBuiltins();
+        PythonPathFingerprints.Changes changes = null;
+        if (fingerprints != null) {
+            changes = fingerprints.update(info.libs, builtins, monitor);
+        } else {
+            //Note: computed before traversing the pythonpath (so, if something changes during the sync,
+            //the fingerprint will be different in the next check).
+            fingerprints = PythonPathFingerprints.compute(info.libs, builtins, monitor);
+        }
+        if (monitor.isCanceled()) {
+            return BuilderResult.ABORTED;
+        }
+
+        BuilderResult ret;
+        if (changes != null && changes.isEmpty()) {
+            //Nothing changed in the pythonpath since the last sync (no need to traverse it again).
+            if (DebugSettings.DEBUG_INTERPRETER_AUTO_UPDATE) {
+                Log.toLogFile(this, "Skipping sync (fingerprints did not change): " + info.getNameForUI());
+            }
+            if (fingerprints.isDirty()) {
+                fingerprints.save(fingerprintsFile);
+            }
+            return BuilderResult.OK;
+
+        } else if (changes != null && !changes.isFullScanRequired()) {
+            //Only find the modules again in the folders which changed.
+            if (DebugSettings.DEBUG_INTERPRETER_AUTO_UPDATE) {
+                Log.toLogFile(this, "Incremental sync: " + info.getNameForUI());
+            }
+            ret = checkEarlyReturn(monitor, info);
+            if (ret == BuilderResult.OK) {
+                PyPublicTreeMap<ModulesKey, ModulesKey> keysFound = changes.buildKeys(
+                        modulesManager.getOnlyDirectModules(), monitor);
+                ret = checkEarlyReturn(monitor, info);
+                if (ret == BuilderResult.OK) {
+                    ret = updateKeys(monitor, keysFound, additionalInfo, modulesManager, info);
+                }
+            }
+
+        } else {
+            ret = this.syncInfoToPythonPath(monitor, pythonPathHelper, additionalInfo, modulesManager, info);
+        }
+        if (ret == BuilderResult.OK && !monitor.isCanceled()) {
+            fingerprints.save(fingerprintsFile);
+        }
+        return ret;
+    }
+
+    private static File getFingerprintsFile(InterpreterInfo info) {
+        File ioDirectory = info.getIoDirectory();
+        if (ioDirectory == null) {
+            return null;
+        }
+        return new File(ioDirectory, FINGERPRINTS_FILE_NAME);
     }
 
     public BuilderResult syncInfoToPythonPath(IProgressMonitor monitor, PythonPathHelper pythonPathHelper,
@@ -108,16 +173,24 @@ public class InterpreterInfoBuilder implements IInterpreterInfoBuilder {
         PyPublicTreeMap<ModulesKey, ModulesKey> keysFound = ModulesManager.buildKeysFromModulesFound(monitor,
                 modulesFound);
 
+        ret = checkEarlyReturn(monitor, info);
+        if (ret != BuilderResult.OK) {
+            return ret;
+        }
+        return updateKeys(monitor, keysFound, additionalInfo, modulesManager, info);
+    }
+
+    /**
+     * Updates the modules manager and the additional info with the keys found in the pythonpath.
+     */
+    private BuilderResult updateKeys(IProgressMonitor monitor, PyPublicTreeMap<ModulesKey, ModulesKey> keysFound,
+            AbstractAdditionalDependencyInfo additionalInfo, IModulesManager modulesManager, InterpreterInfo info) {
         if (DebugSettings.DEBUG_INTERPRETER_AUTO_UPDATE) {
             Log.toLogFile(
                     this,
                     StringUtils.format("Found: %s modules",
                             keysFound.size()));
         }
-        ret = checkEarlyReturn(monitor, info);
-        if (ret != BuilderResult.OK) {
-            return ret;
-        }
 
         try {
             if (info != null) {
@@ -13,6 +13,7 @@ import org.eclipse.core.resources.IMarker;
 import org.eclipse.core.runtime.IAdaptable;
 import org.eclipse.jface.preference.BooleanFieldEditor;
 import org.eclipse.jface.preference.IPreferenceStore;
+import org.eclipse.jface.preference.IntegerFieldEditor;
 import org.eclipse.jface.preference.StringFieldEditor;
 import org.eclipse.swt.SWT;
 import org.eclipse.swt.events.SelectionEvent;
@@ -43,6 +44,8 @@ public class AnalysisPreferencesPage extends ScopedFieldEditorPreferencePage imp
     public static final String PEP8_COMMAND_LINE = "PEP8_IGNORE_WARNINGS";
     public static final String PEP8_USE_SYSTEM = "PEP8_USE_SYSTEM";
     public static final boolean DEFAULT_PEP8_USE_SYSTEM = false;
+    public static final String PEP8_INTERPRETERS_POOL_SIZE = "PEP8_INTERPRETERS_POOL_SIZE";
+    public static final int DEFAULT_PEP8_INTERPRETERS_POOL_SIZE = 2;
 
     //Disabled because we're running in a thread now.
     public static final boolean SHOW_IN_PEP8_FEATURE_ENABLED = false;
@@ -165,6 +168,15 @@ public class AnalysisPreferencesPage extends ScopedFieldEditorPreferencePage imp
             }
         });
 
+        addField(new IntegerFieldEditor(PEP8_INTERPRETERS_POOL_SIZE,
+                "Max number of internal Jython interpreters kept for the analysis", p) {
+            @Override
+            protected void doFillIntoGrid(Composite parent, int numColumns) {
+                super.doFillIntoGrid(parent, 4);
+                adjustForNumColumns(4);
+            }
+        });
+
         addField(new LinkFieldEditor(PEP8_COMMAND_LINE,
                 "Additional command line arguments (i.e.: --ignore=E5,W391). See <a>pycodestyle docs</a> for details.",
                 p,
@@ -240,4 +252,8 @@ public class AnalysisPreferencesPage extends ScopedFieldEditorPreferencePage imp
     public static boolean useSystemInterpreter(IAdaptable projectAdaptable) {
         return PyAnalysisScopedPreferences.getBoolean(PEP8_USE_SYSTEM, projectAdaptable);
     }
+
+    public static int getPep8InterpretersPoolSize(IAdaptable projectAdaptable) {
+        return PyAnalysisScopedPreferences.getInt(PEP8_INTERPRETERS_POOL_SIZE, projectAdaptable, 1);
+    }
 }
@@ -0,0 +1,213 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package org.python.pydev.builder.pep8;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.python.pydev.core.log.Log;
+import org.python.pydev.jython.IPythonInterpreter;
+import org.python.pydev.shared_core.callbacks.ICallback0;
+import org.python.pydev.shared_core.string.FastStringBuffer;
+
+/**
+ * Keeps a pool of (warmed) Jython interpreters to be used to run pycodestyle (creating an interpreter and
+ * importing pycodestyle in it is much more expensive than the analysis itself).
+ *
+ * An interpreter is checked out for a single analysis at a time (so, it's never used concurrently) and must be
+ * checked in afterwards (or discarded if its state may be broken).
+ */
+public final class Pep8InterpreterPool {
+
+    private static final boolean DEBUG = false;
+
+    private final ICallback0<IPythonInterpreter> factory;
+
+    private final Object lock = new Object();
+
+    /**
+     * Guarded by lock.
+     */
+    private final List<IPythonInterpreter> idle = new ArrayList<IPythonInterpreter>();
+    private int created;
+
+    private final AtomicLong interpretersCreated = new AtomicLong();
+    private final AtomicLong nanosCreatingInterpreters = new AtomicLong();
+    private final AtomicLong checkouts = new AtomicLong();
+    private final AtomicLong nanosWaitingCheckout = new AtomicLong();
+    private final AtomicLong analyses = new AtomicLong();
+    private final AtomicLong nanosAnalyzing = new AtomicLong();
+
+    /**
+     * @param factory creates a new (warmed) interpreter (may return null if it wasn't possible to create it).
+     */
+    /*default*/ Pep8InterpreterPool(ICallback0<IPythonInterpreter> factory) {
+        this.factory = factory;
+    }
+
+    /**
+     * Gets an interpreter from the pool (creating a new one if there's no idle interpreter and the pool still
+     * didn't reach the max size or waiting for an interpreter to be checked in otherwise).
+     *
+     * @return the interpreter or null if it wasn't possible to create it.
+     */
+    public IPythonInterpreter checkout(int maxSize) {
+        long initial = System.nanoTime();
+        checkouts.incrementAndGet();
+        synchronized (lock) {
+            while (idle.size() == 0 && created >= maxSize) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    Log.log(e);
+                    return null;
+                }
+            }
+            if (idle.size() > 0) {
+                nanosWaitingCheckout.addAndGet(System.nanoTime() - initial);
+                return idle.remove(idle.size() - 1);
+            }
+            created++; //reserve it (created outside of the lock).
+        }
+
+        IPythonInterpreter interpreter = null;
+        try {
+            interpreter = factory.call();
+        } catch (Throwable e) {
+            Log.log(e);
+        }
+        long nanos = System.nanoTime() - initial;
+        if (interpreter == null) {
+            synchronized (lock) {
+                created--;
+                lock.notifyAll();
+            }
+        } else {
+            interpretersCreated.incrementAndGet();
+            nanosCreatingInterpreters.addAndGet(nanos);
+        }
+        nanosWaitingCheckout.addAndGet(nanos);
+        if (DEBUG) {
+            System.out.println("Created pycodestyle interpreter in: " + (nanos / 1000000) + " millis.");
+        }
+        return interpreter;
+    }
+
+    /**
+     * Gives back an interpreter gotten from {@link #checkout(int)} to the pool.
+     */
+    public void checkin(IPythonInterpreter interpreter, int maxSize) {
+        synchronized (lock) {
+            if (created > maxSize) {
+                //the pool size was decreased in the meanwhile
+                created--;
+            } else {
+                idle.add(interpreter);
+                interpreter = null;
+            }
+            lock.notifyAll();
+        }
+        if (interpreter != null) {
+            cleanup(interpreter);
+        }
+    }
+
+    /**
+     * Removes an interpreter gotten from {@link #checkout(int)} from the pool (used when its state may be broken).
+     */
+    public void discard(IPythonInterpreter interpreter) {
+        synchronized (lock) {
+            created--;
+            lock.notifyAll();
+        }
+        cleanup(interpreter);
+    }
+
+    private static void cleanup(IPythonInterpreter interpreter) {
+        try {
+            interpreter.cleanup();
+        } catch (Throwable e) {
+            Log.log(e);
+        }
+    }
+
+    /**
+     * Used to keep the metrics on the time spent on the analysis with the interpreters of this pool.
+     */
+    public void onAnalysisFinished(long nanos) {
+        analyses.incrementAndGet();
+        nanosAnalyzing.addAndGet(nanos);
+    }
+
+    public int getCreated() {
+        synchronized (lock) {
+            return created;
+        }
+    }
+
+    public int getIdle() {
+        synchronized (lock) {
+            return idle.size();
+        }
+    }
+
+    public long getInterpretersCreated() {
+        return interpretersCreated.get();
+    }
+
+    public long getCheckouts() {
+        return checkouts.get();
+    }
+
+    public long getAnalyses() {
+        return analyses.get();
+    }
+
+    /**
+     * @return the average time (in millis) to get an interpreter (including the ones created).
+     */
+    public double getAverageCheckoutMillis() {
+        return average(nanosWaitingCheckout.get(), checkouts.get());
+    }
+
+    /**
+     * @return the average time (in millis) to create a new interpreter.
+     */
+    public double getAverageCreationMillis() {
+        return average(nanosCreatingInterpreters.get(), interpretersCreated.get());
+    }
+
+    /**
+     * @return the average time (in millis) of each analysis.
+     */
+    public double getAverageAnalysisMillis() {
+        return average(nanosAnalyzing.get(), analyses.get());
+    }
+
+    private static double average(long nanos, long count) {
+        if (count == 0) {
+            return 0;
+        }
+        return (nanos / 1000000.0) / count;
+    }
+
+    @Override
+    public String toString() {
+        FastStringBuffer buf = new FastStringBuffer("Pep8InterpreterPool[", 200);
+        synchronized (lock) {
+            buf.append("created=").append(created).append(", idle=").append(idle.size());
+        }
+        return buf.append(", checkouts=").append(getCheckouts())
+                .append(", avgCheckoutMillis=").append(getAverageCheckoutMillis())
+                .append(", interpretersCreated=").append(getInterpretersCreated())
+                .append(", avgCreationMillis=").append(getAverageCreationMillis())
+                .append(", analyses=").append(getAnalyses())
+                .append(", avgAnalysisMillis=").append(getAverageAnalysisMillis())
+                .append("]").toString();
+    }
+}
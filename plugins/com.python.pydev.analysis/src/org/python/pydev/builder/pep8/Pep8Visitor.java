@@ -16,6 +16,7 @@ import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.jface.text.BadLocationException;
 import org.eclipse.jface.text.IDocument;
 import org.python.core.Py;
+import org.python.core.PyList;
 import org.python.core.PyObject;
 import org.python.pydev.core.docutils.PySelection;
 import org.python.pydev.core.log.Log;
@@ -25,7 +26,7 @@ import org.python.pydev.editor.correctionassist.CheckAnalysisErrors;
 import org.python.pydev.jython.IPythonInterpreter;
 import org.python.pydev.jython.JythonPlugin;
 import org.python.pydev.plugin.JythonModules;
-import org.python.pydev.shared_core.string.FastStringBuffer;
+import org.python.pydev.shared_core.callbacks.ICallback0;
 import org.python.pydev.shared_core.string.StringUtils;
 
 import com.python.pydev.analysis.IAnalysisPreferences;
@@ -39,51 +40,81 @@ import com.python.pydev.analysis.ui.AnalysisPreferencesPage;
  */
 public class Pep8Visitor {
 
-    private static final String EXECUTE_PEP8 = "import sys\n"
-            + "argv = ['pycodestyle.py', r'%s'%s]\n"
-            + "sys.argv=argv\n"
-            //It always accesses sys.argv[0] in process_options, so, it must be set.
-            + "\n"
-            + "\n"
-            + "pep8style = pycodestyle.StyleGuide(parse_argv=True, config_file=False)\n"
-            + "\n"
-            + "checker = pycodestyle.Checker(options=pep8style.options, filename='%s', lines=lines)\n"
+    /**
+     * Executed once when an interpreter is created for the pool (afterwards, only run_pep8 is called).
+     *
+     * Note: the StyleGuide is created with parse_argv=False and the arguments are passed directly (so, sys.argv
+     * doesn't need to be changed for each analysis).
+     */
+    private static final String DEFINE_PEP8 = ""
+            + "class ReportError:\n"
             + "\n"
-            + "if ReportError is None: #Only redefine if it wasn't defined already\n"
-            + "    class ReportError:\n"
+            + "    def __init__(self, checker, pep8style, visitor):\n"
+            + "        self.checker = checker\n"
+            + "        self.pep8style = pep8style\n"
+            + "        self.visitor = visitor\n"
+            + "        self.original = checker.report_error\n"
+            + "        checker.report_error = self\n"
+            + "        if not self.pep8style.excluded(self.checker.filename):\n"
+            + "            checker.check_all()\n"
+            + "        #Clear references\n"
+            + "        self.original = None\n"
+            + "        self.checker = None\n"
+            + "        self.pep8style = None\n"
+            + "        self.visitor = None\n"
+            + "        checker.report_error = None\n"
+            + "    \n"
+            + "    def __call__(self, line_number, offset, text, check):\n"
+            + "        code = text[:4]\n"
+            + "        if self.pep8style.options.ignore_code(code):\n"
+            + "            return\n"
+            + "        self.visitor.reportError(line_number, offset, text, check)\n"
+            + "        return self.original(line_number, offset, text, check)\n"
             + "\n"
-            + "        def __init__(self, checker, pep8style, visitor):\n"
-            + "            self.checker = checker\n"
-            + "            self.pep8style = pep8style\n"
-            + "            self.visitor = visitor\n"
-            + "            self.original = checker.report_error\n"
-            + "            checker.report_error = self\n"
-            + "            if not self.pep8style.excluded(self.checker.filename):\n"
-            + "                checker.check_all()\n"
-            + "            #Clear references\n"
-            + "            self.original = None\n"
-            + "            self.checker = None\n"
-            + "            self.pep8style = None\n"
-            + "            self.visitor = None\n"
-            + "            checker.report_error = None\n"
-            + "        \n"
-            + "        def __call__(self, line_number, offset, text, check):\n"
-            + "            code = text[:4]\n"
-            + "            if self.pep8style.options.ignore_code(code):\n"
-            + "                return\n"
-            + "            self.visitor.reportError(line_number, offset, text, check)\n"
-            + "            return self.original(line_number, offset, text, check)\n"
+            + "def run_pep8(arglist, filename, lines, visitor):\n"
+            + "    pep8style = pycodestyle.StyleGuide(paths=arglist, parse_argv=False, config_file=False)\n"
+            + "    checker = pycodestyle.Checker(options=pep8style.options, filename=filename, lines=lines)\n"
+            + "    ReportError(checker, pep8style, visitor)\n"
             + "\n"
-            + "ReportError(checker, pep8style, visitor)\n"
-            + "checker = None #Release checker\n"
-            + "pep8style = None #Release pep8style\n"
             + "";
 
+    /**
+     * Executed for each analysis (with the variables set in the interpreter). Note that it's exec'ed instead of
+     * calling the function directly so that the interpreter state (i.e.: sys.stdout) is properly used.
+     */
+    private static final String EXECUTE_PEP8 = "run_pep8(arglist, filename, lines, visitor)\n";
+
+    private static final Pep8InterpreterPool[] pools = new Pep8InterpreterPool[] {
+            createPool(false), createPool(true) };
+
+    private static Pep8InterpreterPool createPool(final boolean useConsole) {
+        return new Pep8InterpreterPool(new ICallback0<IPythonInterpreter>() {
+
+            @Override
+            public IPythonInterpreter call() {
+                IPythonInterpreter interpreter = JythonPlugin.newPythonInterpreter(useConsole, false);
+                PyObject pep8Module = JythonModules.getPep8Module(interpreter);
+                if (pep8Module == null) {
+                    interpreter.cleanup();
+                    return null;
+                }
+                interpreter.set("pycodestyle", pep8Module);
+                interpreter.exec(DEFINE_PEP8);
+                return interpreter;
+            }
+        });
+    }
+
+    /**
+     * @return the pool with the interpreters used to run pycodestyle (mostly for getting its metrics).
+     */
+    public static Pep8InterpreterPool getInterpreterPool(boolean useConsole) {
+        return pools[useConsole ? 1 : 0];
+    }
+
     private final List<IMessage> messages = new ArrayList<IMessage>();
     private IAnalysisPreferences prefs;
     private IDocument document;
-    private volatile static PyObject reportError;
-    private static final Object lock = new Object();
     private String messageToIgnore;
 
     public List<IMessage> getMessages(SourceModule module, IDocument document, IProgressMonitor monitor,
@@ -127,38 +158,44 @@ public class Pep8Visitor {
             }
 
             String[] pep8CommandLine = AnalysisPreferencesPage.getPep8CommandLine(projectAdaptable);
-            FastStringBuffer args = new FastStringBuffer(pep8CommandLine.length * 20);
+            String file = StringUtils.replaceAllSlashes(module.getFile().getAbsolutePath());
+            PyList arglist = new PyList();
+            arglist.append(Py.newStringOrUnicode(file));
             for (String string : pep8CommandLine) {
-                args.append(',').append("r'").append(string).append('\'');
+                arglist.append(Py.newStringOrUnicode(string));
             }
 
-            //It's important that the interpreter is created in the Thread and not outside the thread (otherwise
-            //it may be that the output ends up being shared, which is not what we want.)
+            //Note: the interpreter must not be shared among threads (so, it's checked out from the pool and
+            //only given back after the analysis is finished).
             boolean useConsole = AnalysisPreferencesPage.useConsole(projectAdaptable);
-            IPythonInterpreter interpreter = JythonPlugin.newPythonInterpreter(useConsole, false);
-            String file = StringUtils.replaceAllSlashes(module.getFile().getAbsolutePath());
-            interpreter.set("visitor", this);
-
-            List<String> splitInLines = StringUtils.splitInLines(document.get());
-            interpreter.set("lines", splitInLines);
-            PyObject tempReportError = reportError;
-            if (tempReportError != null) {
-                interpreter.set("ReportError", tempReportError);
-            } else {
-                interpreter.set("ReportError", Py.None);
+            int poolSize = AnalysisPreferencesPage.getPep8InterpretersPoolSize(projectAdaptable);
+            Pep8InterpreterPool pool = getInterpreterPool(useConsole);
+            IPythonInterpreter interpreter = pool.checkout(poolSize);
+            if (interpreter == null) {
+                Log.log("Unable to create interpreter with pycodestyle module.");
+                return messages;
             }
-            PyObject pep8Module = JythonModules.getPep8Module(interpreter);
-            interpreter.set("pycodestyle", pep8Module);
-
-            String formatted = StringUtils.format(EXECUTE_PEP8, file,
-                    args.toString(),
-                    file);
-            interpreter.exec(formatted);
-            if (reportError == null) {
-                synchronized (lock) {
-                    if (reportError == null) {
-                        reportError = interpreter.get("ReportError");
-                    }
+            long initial = System.nanoTime();
+            boolean ok = false;
+            try {
+                interpreter.set("arglist", arglist);
+                interpreter.set("filename", file);
+                interpreter.set("lines", StringUtils.splitInLines(document.get()));
+                interpreter.set("visitor", this);
+                interpreter.exec(EXECUTE_PEP8);
+
+                //Reset the state so that nothing is kept alive by the pooled interpreter.
+                interpreter.set("arglist", Py.None);
+                interpreter.set("filename", Py.None);
+                interpreter.set("lines", Py.None);
+                interpreter.set("visitor", Py.None);
+                ok = true;
+            } finally {
+                pool.onAnalysisFinished(System.nanoTime() - initial);
+                if (ok) {
+                    pool.checkin(interpreter, poolSize);
+                } else {
+                    pool.discard(interpreter);
                 }
             }
 
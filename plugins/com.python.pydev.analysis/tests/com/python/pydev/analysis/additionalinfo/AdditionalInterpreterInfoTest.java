@@ -13,9 +13,12 @@ import java.io.File;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.SortedMap;
 
 import org.eclipse.core.runtime.NullProgressMonitor;
 import org.eclipse.jface.text.Document;
@@ -23,6 +26,7 @@ import org.python.pydev.core.DeltaSaver;
 import org.python.pydev.core.IInterpreterManager;
 import org.python.pydev.core.MisconfigurationException;
 import org.python.pydev.core.ModulesKey;
+import org.python.pydev.editor.codecompletion.revisited.PyPublicTreeMap;
 import org.python.pydev.editor.codecompletion.revisited.modules.AbstractModule;
 import org.python.pydev.editor.codecompletion.revisited.modules.SourceModule;
 import org.python.pydev.parser.jython.ast.ClassDef;
@@ -42,6 +46,11 @@ public class AdditionalInterpreterInfoTest extends AdditionalInfoTestsBase {
     private AdditionalProjectInterpreterInfo info;
     private File baseDir;
 
+    /**
+     * initials -> number of times that the set for the initials was copied.
+     */
+    private final Map<String, Integer> initialsCopies = new HashMap<String, Integer>();
+
     public static void main(String[] args) {
         try {
             AdditionalInterpreterInfoTest test = new AdditionalInterpreterInfoTest();
@@ -86,6 +95,14 @@ public class AdditionalInterpreterInfoTest extends AdditionalInfoTestsBase {
                 return null;
             }
 
+            @Override
+            protected Set<IInfo> createListForInitialsCopy(String initials,
+                    SortedMap<String, Set<IInfo>> initialsToInfo, int additionalSize) {
+                Integer copies = initialsCopies.get(initials);
+                initialsCopies.put(initials, copies == null ? 1 : copies + 1);
+                return super.createListForInitialsCopy(initials, initialsToInfo, additionalSize);
+            }
+
         };
 
         baseDir = FileUtils.getTempFileAt(new File("."), "data_temp_additional_info_test");
@@ -211,6 +228,20 @@ public class AdditionalInterpreterInfoTest extends AdditionalInfoTestsBase {
 
     }
 
+    public void testAddAstInfoCopiesEachInitialsOnce() throws MisconfigurationException {
+        StringBuilder doc = new StringBuilder("class Test:\n");
+        for (int i = 0; i < 50; i++) {
+            doc.append("    def method").append(i).append("(self):\n        pass\n");
+        }
+        SourceModule module = AbstractModule.createModuleFromDoc("test", null, new Document(doc.toString()),
+                nature, true);
+        info.addAstInfo(module.getAst(), module.getModulesKey(), false);
+
+        assertEquals(50, info.getTokensStartingWith("method", AbstractAdditionalTokensInfo.INNER).size());
+        assertEquals(Integer.valueOf(1), initialsCopies.get("met"));
+        assertEquals(Integer.valueOf(1), initialsCopies.get("tes"));
+    }
+
     public void testAddAttrs() throws MisconfigurationException {
         String doc = "GLOBAL_ATTR = 1\n" +
                 "GLOBAL2.IGNORE_THIS = 2\n" +
@@ -287,6 +318,73 @@ public class AdditionalInterpreterInfoTest extends AdditionalInfoTestsBase {
 
     }
 
+    public void testReadsDuringConcurrentRebuild() throws Exception {
+        final int numberOfModules = 200;
+        final int infosPerModule = 50;
+        final List<IInfo> mod0Infos = new ArrayList<IInfo>();
+        for (int j = 0; j < infosPerModule; j++) {
+            mod0Infos.add(new FuncInfo("method" + j, "mod0", null, null));
+        }
+        info.addAll(mod0Infos);
+
+        final Throwable[] writerError = new Throwable[1];
+        final boolean[] finished = new boolean[1];
+        Thread writer = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    //Simulates a rebuild: all the modules but mod0 are removed and added back again.
+                    for (int iteration = 0; iteration < 5; iteration++) {
+                        for (int i = 1; i < numberOfModules; i++) {
+                            String modName = "mod" + i;
+                            info.removeInfoFromModule(modName, false);
+                            List<IInfo> infos = new ArrayList<IInfo>();
+                            for (int j = 0; j < infosPerModule; j++) {
+                                infos.add(new FuncInfo("method" + j, modName, null, null));
+                                infos.add(new AttrInfo("attr" + j, modName, "Cls" + j, null));
+                            }
+                            info.addAll(infos);
+                        }
+                    }
+                } catch (Throwable e) {
+                    writerError[0] = e;
+                } finally {
+                    synchronized (finished) {
+                        finished[0] = true;
+                    }
+                }
+            }
+        };
+
+        writer.start();
+        int reads = 0;
+        while (true) {
+            synchronized (finished) {
+                if (finished[0]) {
+                    break;
+                }
+            }
+            Collection<IInfo> found = info.getTokensStartingWith("method1",
+                    AbstractAdditionalTokensInfo.TOP_LEVEL | AbstractAdditionalTokensInfo.INNER);
+            reads++;
+
+            //mod0 is never removed, so, its 11 entries (method1, method10...method19) must always be there.
+            int foundInMod0 = 0;
+            for (IInfo i : found) {
+                if (i.getDeclaringModuleName().equals("mod0")) {
+                    foundInMod0++;
+                }
+            }
+            assertEquals(11, foundInMod0);
+        }
+        writer.join();
+        assertNull(writerError[0]);
+        assertTrue(reads > 0);
+
+        assertEquals(11 * numberOfModules,
+                info.getTokensStartingWith("method1", AbstractAdditionalTokensInfo.TOP_LEVEL).size());
+    }
+
     // Not working with lucene searches (test must be fixed).
     //
     //    public void testCompleteIndex() throws Exception {
@@ -401,6 +499,106 @@ public class AdditionalInterpreterInfoTest extends AdditionalInfoTestsBase {
 
     }
 
+    /**
+     * @return an info which is persisted in the baseDir.
+     */
+    private AdditionalProjectInterpreterInfo createPersistedInfo() throws MisconfigurationException {
+        final File persistingFolder = new File(baseDir, "persisted");
+        persistingFolder.mkdirs();
+        return new AdditionalProjectInterpreterInfo(new ProjectStub2("empty")) {
+
+            @Override
+            protected File getPersistingLocation() {
+                return new File(persistingFolder, "info.pydevinfo");
+            }
+
+            @Override
+            protected File getPersistingFolder() {
+                return persistingFolder;
+            }
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    public void testReverseImportsGraphRebuiltWhenNotLoaded() throws Exception {
+        File mod1 = new File(baseDir, "mod1.py");
+        FileUtils.writeStrToFile("import mod2\n", mod1);
+        File mod2 = new File(baseDir, "mod2.py");
+        FileUtils.writeStrToFile("def func(): pass\n", mod2);
+        PyPublicTreeMap<ModulesKey, ModulesKey> keys = new PyPublicTreeMap<ModulesKey, ModulesKey>();
+        for (ModulesKey key : new ModulesKey[] { new ModulesKey("mod1", mod1), new ModulesKey("mod2", mod2) }) {
+            keys.put(key, key);
+        }
+
+        AdditionalProjectInterpreterInfo info1 = createPersistedInfo();
+        info1.updateKeysIfNeededAndSave(keys, null, new NullProgressMonitor());
+        assertEquals(new HashSet<String>(Arrays.asList("mod1")), info1.getTransitiveImporters("mod2"));
+
+        final List<ModulesKey> added = new ArrayList<>();
+        ICallbackListener listener = new ICallbackListener() {
+
+            @Override
+            public Object call(Object obj) {
+                added.addAll((List<ModulesKey>) ((Tuple) obj).o1);
+                return null;
+            }
+        };
+        AbstractAdditionalDependencyInfo.modulesAddedAndRemoved.registerListener(listener);
+        try {
+            //Graph loaded: nothing to index again.
+            AdditionalProjectInterpreterInfo info2 = createPersistedInfo();
+            assertTrue(info2.load());
+            info2.updateKeysIfNeededAndSave(keys, null, new NullProgressMonitor());
+            assertEquals(0, added.size());
+            assertEquals(new HashSet<String>(Arrays.asList("mod1")), info2.getTransitiveImporters("mod2"));
+
+            //Graph not available: all the modules are indexed again to rebuild it.
+            assertTrue(info2.getReverseImportsFile(info2.getPersistingLocation()).delete());
+            AdditionalProjectInterpreterInfo info3 = createPersistedInfo();
+            assertTrue(info3.load());
+            assertEquals(0, info3.getTransitiveImporters("mod2").size());
+            info3.updateKeysIfNeededAndSave(keys, null, new NullProgressMonitor());
+            assertEquals(2, added.size());
+            assertEquals(new HashSet<String>(Arrays.asList("mod1")), info3.getTransitiveImporters("mod2"));
+
+            //Rebuilt only once.
+            added.clear();
+            info3.updateKeysIfNeededAndSave(keys, null, new NullProgressMonitor());
+            assertEquals(0, added.size());
+        } finally {
+            AbstractAdditionalDependencyInfo.modulesAddedAndRemoved.unregisterListener(listener);
+        }
+    }
+
+    public void testReverseImportsGraphRestoredFromDeltas() throws Exception {
+        File mod1 = new File(baseDir, "mod1.py");
+        FileUtils.writeStrToFile("import mod2\n", mod1);
+        File mod2 = new File(baseDir, "mod2.py");
+        FileUtils.writeStrToFile("def func(): pass\n", mod2);
+        PyPublicTreeMap<ModulesKey, ModulesKey> keys = new PyPublicTreeMap<ModulesKey, ModulesKey>();
+        for (ModulesKey key : new ModulesKey[] { new ModulesKey("mod1", mod1), new ModulesKey("mod2", mod2) }) {
+            keys.put(key, key);
+        }
+
+        AdditionalProjectInterpreterInfo info1 = createPersistedInfo();
+        info1.updateKeysIfNeededAndSave(keys, null, new NullProgressMonitor());
+
+        //Changes after the full save are only recorded in the deltas.
+        File mod3 = new File(baseDir, "mod3.py");
+        FileUtils.writeStrToFile("import mod2\n", mod3);
+        info1.addAstInfo(new ModulesKey("mod3", mod3), true);
+        FileUtils.writeStrToFile("import mod3\n", mod1);
+        info1.removeInfoFromModule("mod1", true);
+        info1.addAstInfo(new ModulesKey("mod1", mod1), true);
+        assertEquals(new HashSet<String>(Arrays.asList("mod1", "mod3")), info1.getTransitiveImporters("mod2"));
+        assertTrue(info1.deltaSaver.availableDeltas() > 0);
+
+        AdditionalProjectInterpreterInfo info2 = createPersistedInfo();
+        assertTrue(info2.load());
+        assertEquals(new HashSet<String>(Arrays.asList("mod1")), info2.getTransitiveImporters("mod3"));
+        assertEquals(new HashSet<String>(Arrays.asList("mod1", "mod3")), info2.getTransitiveImporters("mod2"));
+    }
+
     private void checkItertoolsToken(AbstractAdditionalDependencyInfo additionalSystemInfo, boolean expect) {
         Collection<IInfo> tokensStartingWith;
         tokensStartingWith = additionalSystemInfo.getTokensStartingWith("izip_longest",
@@ -0,0 +1,158 @@
+/**
+ * Copyright (c) 2015 by Brainwy Software Ltda. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package com.python.pydev.analysis.additionalinfo;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.python.pydev.core.ModulesKey;
+import org.python.pydev.editor.codecompletion.revisited.PyPublicTreeMap;
+import org.python.pydev.plugin.nature.ProjectStub2;
+import org.python.pydev.shared_core.io.FileUtils;
+import org.python.pydev.shared_core.string.StringUtils;
+import org.python.pydev.shared_core.structure.OrderedMap;
+
+import junit.framework.TestCase;
+
+public class ReferenceSearchesLuceneTest extends TestCase {
+
+    private File baseDir;
+    private AdditionalProjectInterpreterInfo info;
+    private ReferenceSearchesLucene searches;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        baseDir = FileUtils.getTempFileAt(new File("."), "data_temp_reference_searches_test");
+        if (baseDir.exists()) {
+            FileUtils.deleteDirectoryTree(baseDir);
+        }
+        final File persistingFolder = new File(baseDir, "persisted");
+        persistingFolder.mkdirs();
+        info = new AdditionalProjectInterpreterInfo(new ProjectStub2("empty")) {
+
+            @Override
+            protected File getPersistingLocation() {
+                return new File(persistingFolder, "info.pydevinfo");
+            }
+
+            @Override
+            protected File getPersistingFolder() {
+                return persistingFolder;
+            }
+        };
+        // Note: not gotten from the info so that the changes in the modules don't schedule updates.
+        searches = new ReferenceSearchesLucene(info);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        searches.dispose();
+        ReferenceSearchesLucene.disposeAll();
+        if (baseDir.exists()) {
+            FileUtils.deleteDirectoryTree(baseDir);
+        }
+        super.tearDown();
+    }
+
+    private static Set<String> set(String... strings) {
+        return new HashSet<String>(Arrays.asList(strings));
+    }
+
+    private File writeModule(String name, String contents, long lastModified) {
+        File file = new File(baseDir, name + ".py");
+        FileUtils.writeStrToFile(contents, file);
+        assertTrue(file.setLastModified(lastModified));
+        return file;
+    }
+
+    private void updateModules(File... files) {
+        PyPublicTreeMap<ModulesKey, ModulesKey> keys = new PyPublicTreeMap<ModulesKey, ModulesKey>();
+        for (File file : files) {
+            ModulesKey key = new ModulesKey(StringUtils.stripExtension(file.getName()), file);
+            keys.put(key, key);
+        }
+        info.updateKeysIfNeededAndSave(keys, null, new NullProgressMonitor());
+    }
+
+    private Set<String> searchIdentifier(String identifier) {
+        OrderedMap<String, Set<String>> fieldNameToValues = new OrderedMap<>();
+        fieldNameToValues.put(IReferenceSearches.FIELD_IDENTIFIERS, set(identifier));
+        List<ModulesKey> found = searches.searchIndex(info, fieldNameToValues, new NullProgressMonitor());
+        Set<String> ret = new HashSet<String>();
+        for (ModulesKey key : found) {
+            ret.add(key.name);
+        }
+        return ret;
+    }
+
+    public void testSearchWithIndexUpdatedInBackground() throws Exception {
+        long time = System.currentTimeMillis() - 60000;
+        File mod1 = writeModule("mod1", "def func(): pass\n", time);
+        File mod2 = writeModule("mod2", "# func\nx = 1\n", time);
+        updateModules(mod1, mod2);
+
+        // The first search waits for the index to be created.
+        assertEquals(set("mod1"), searchIdentifier("func"));
+        assertEquals(0, searches.getLastSearchStaleModules());
+
+        // Changed module: returned as a candidate (even without matching) until the index is updated.
+        writeModule("mod2", "x = 2\n", time + 10000);
+        updateModules(mod1, mod2);
+        assertEquals(set("mod1", "mod2"), searchIdentifier("func"));
+        assertEquals(1, searches.getLastSearchStaleModules());
+        assertEquals(set("mod2"), searchIdentifier("x"));
+
+        // The search scheduled the update: after it finishes the index is current again.
+        searches.updateJob.join();
+        assertEquals(set("mod1"), searchIdentifier("func"));
+        assertEquals(0, searches.getLastSearchStaleModules());
+
+        writeModule("mod2", "func()\n", time + 20000);
+        updateModules(mod1, mod2);
+        searches.onModulesChanged();
+        searches.updateJob.join();
+        assertEquals(set("mod1", "mod2"), searchIdentifier("func"));
+        assertEquals(0, searches.getLastSearchStaleModules());
+    }
+
+    public void testLastSearchStaleModulesIsPerThread() throws Exception {
+        long time = System.currentTimeMillis() - 60000;
+        File mod1 = writeModule("mod1", "def func(): pass\n", time);
+        updateModules(mod1);
+        searchIdentifier("func");
+
+        writeModule("mod1", "def func(): pass\n\n", time + 10000);
+        updateModules(mod1);
+        searchIdentifier("func");
+        assertEquals(1, searches.getLastSearchStaleModules());
+
+        final int[] inOtherThread = new int[] { -1 };
+        Thread thread = new Thread() {
+            @Override
+            public void run() {
+                inOtherThread[0] = searches.getLastSearchStaleModules();
+            }
+        };
+        thread.start();
+        thread.join();
+        assertEquals(0, inOtherThread[0]);
+    }
+
+    public void testStaleCandidatesMatchModuleNames() throws Exception {
+        assertTrue(ReferenceSearchesLucene.matchesAny("pack.mod", set("pack.mod")));
+        assertTrue(ReferenceSearchesLucene.matchesAny("pack.mod", set("other", "pack.*")));
+        assertTrue(ReferenceSearchesLucene.matchesAny("pack.mod", set("pack.m?d")));
+        assertFalse(ReferenceSearchesLucene.matchesAny("pack.mod", set("pack")));
+        assertFalse(ReferenceSearchesLucene.matchesAny("pack.mod", set("Pack.*")));
+        assertFalse(ReferenceSearchesLucene.matchesAny("pack.mod", set("*.other")));
+    }
+}
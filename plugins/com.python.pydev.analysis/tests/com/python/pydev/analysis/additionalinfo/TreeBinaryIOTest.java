@@ -0,0 +1,73 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package com.python.pydev.analysis.additionalinfo;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import junit.framework.TestCase;
+
+public class TreeBinaryIOTest extends TestCase {
+
+    private void add(SortedMap<String, Set<IInfo>> tree, String initials, IInfo info) {
+        Set<IInfo> set = tree.get(initials);
+        if (set == null) {
+            set = new HashSet<IInfo>();
+            tree.put(initials, set);
+        }
+        set.add(info);
+    }
+
+    public void testWriteAndRead() throws Exception {
+        SortedMap<String, Set<IInfo>> topLevel = new TreeMap<String, Set<IInfo>>();
+        add(topLevel, "cla", new ClassInfo("Class1", "mod1", null, null));
+        add(topLevel, "cla", new ClassInfo("Class2", "mod1", null, null));
+        add(topLevel, "fun", new FuncInfo("func", "pack.mod2", null, null));
+        add(topLevel, "\u00e7\u00e3o", new AttrInfo("\u00e7\u00e3o", "pack.mod2", null, null));
+        add(topLevel, "mod", new ModInfo("mod1", null));
+
+        SortedMap<String, Set<IInfo>> inner = new TreeMap<String, Set<IInfo>>();
+        add(inner, "met", new FuncInfo("method", "mod1", "Class1", null));
+        add(inner, "att", new AttrInfo("attr", "mod1", "Class1.method", null));
+        add(inner, "nam", new NameInfo("name", "mod1", "Class2", null));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        TreeBinaryIO.write(out, 4, "-- START DISKCACHE_2\nfolder\n-- END DISKCACHE\n", topLevel, inner);
+
+        TreeBinaryIO.Contents contents = TreeBinaryIO.read(out.toByteArray(), null);
+        assertEquals(4, contents.tokensInfoVersion);
+        assertEquals("-- START DISKCACHE_2\nfolder\n-- END DISKCACHE\n", contents.additionalInfo);
+
+        assertEquals(topLevel.keySet(), contents.topLevelInitialsToInfo.keySet());
+        assertEquals(inner.keySet(), contents.innerInitialsToInfo.keySet());
+
+        //Size is available without decoding the contents.
+        assertEquals(2, contents.topLevelInitialsToInfo.get("cla").size());
+
+        assertEquals(topLevel, contents.topLevelInitialsToInfo);
+        assertEquals(inner, contents.innerInitialsToInfo);
+
+        IInfo attr = contents.innerInitialsToInfo.get("att").iterator().next();
+        assertEquals("attr", attr.getName());
+        assertEquals("mod1", attr.getDeclaringModuleName());
+        assertEquals("Class1.method", attr.getPath());
+        assertEquals(IInfo.ATTRIBUTE_WITH_IMPORT_TYPE, attr.getType());
+    }
+
+    public void testReadInvalid() throws Exception {
+        try {
+            TreeBinaryIO.read("-- VERSION_4\n-- START TREE 1\n".getBytes("UTF-8"), null);
+            fail("Expected error reading text format as binary.");
+        } catch (IOException e) {
+            //expected
+        }
+    }
+}
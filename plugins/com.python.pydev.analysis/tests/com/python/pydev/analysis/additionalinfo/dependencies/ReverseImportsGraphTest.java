@@ -0,0 +1,126 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package com.python.pydev.analysis.additionalinfo.dependencies;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.eclipse.jface.text.Document;
+import org.python.pydev.core.IGrammarVersionProvider;
+import org.python.pydev.parser.PyParser;
+import org.python.pydev.parser.PyParser.ParserInfo;
+import org.python.pydev.parser.jython.SimpleNode;
+
+import junit.framework.TestCase;
+
+public class ReverseImportsGraphTest extends TestCase {
+
+    private static Set<String> set(String... strings) {
+        return new HashSet<String>(Arrays.asList(strings));
+    }
+
+    private static SimpleNode parse(String contents) {
+        return (SimpleNode) PyParser.reparseDocument(new ParserInfo(new Document(contents),
+                IGrammarVersionProvider.LATEST_GRAMMAR_VERSION, null)).ast;
+    }
+
+    public void testGetImportedModules() throws Exception {
+        SimpleNode ast = parse(""
+                + "import os.path\n"
+                + "from pack1 import mod1, mod2 as m\n"
+                + "from . import sibling\n"
+                + "from ..other import *\n"
+                + "def m1():\n"
+                + "    import inner\n"
+                + "");
+        assertEquals(set("os", "os.path", "pack1", "pack1.mod1", "pack1.mod2", "root", "root.pack",
+                "root.pack.sibling", "root.other", "inner"),
+                ReverseImportsGraph.getImportedModules(ast, "root.pack.mod", false));
+
+        //In the __init__ the relative import is based on the package itself (and the module itself isn't added).
+        assertEquals(set("os", "os.path", "pack1", "pack1.mod1", "pack1.mod2", "root", "root.pack.sibling",
+                "root.other", "inner"), ReverseImportsGraph.getImportedModules(ast, "root.pack", true));
+    }
+
+    public void testGetImportedModulesFromDocument() throws Exception {
+        Document doc = new Document(""
+                + "import os.path\n"
+                + "from pack1 import (mod1,\n"
+                + "    mod2 as m)\n"
+                + "from . import sibling\n"
+                + "from ..other import *\n"
+                + "def m1():\n"
+                + "    import inner\n"
+                + "");
+        assertEquals(set("os", "os.path", "pack1", "pack1.mod1", "pack1.mod2", "root", "root.pack",
+                "root.pack.sibling", "root.other", "inner"),
+                ReverseImportsGraph.getImportedModules(doc, "root.pack.mod", false));
+        assertEquals(ReverseImportsGraph.getImportedModules(parse(doc.get()), "root.pack", true),
+                ReverseImportsGraph.getImportedModules(doc, "root.pack", true));
+    }
+
+    public void testStructuralChanges() throws Exception {
+        ReverseImportsGraph graph = new ReverseImportsGraph();
+        assertNull(graph.update("a", set(), set("A", "A.m1")));
+        assertNull(graph.update("b", set("a"), set("B")));
+        assertNull(graph.update("c", set("b"), set("C")));
+        assertNull(graph.update("d", set(), set("D")));
+
+        //Same API: no change.
+        assertNull(graph.update("a", set(), set("A", "A.m1")));
+
+        PyStructuralChange change = graph.update("a", set(), set("A", "A.m2"));
+        assertEquals("a", change.getModule());
+        assertEquals(set("A.m1", "A.m2"), change.getChangedTokens());
+        assertEquals(set("b", "c"), graph.getTransitiveImporters("a"));
+        assertEquals(set("b"), graph.getImporters("a"));
+
+        //b no longer imports a.
+        graph.update("b", set("d"), set("B"));
+        assertEquals(set(), graph.getTransitiveImporters("a"));
+        assertEquals(set("b", "c"), graph.getTransitiveImporters("d"));
+
+        //A new module which was already imported is a change (its importers must be re-analyzed).
+        graph.update("c", set("b", "new_mod"), set("C"));
+        change = graph.update("new_mod", set(), set("X"));
+        assertEquals(set("new_mod"), change.getChangedTokens());
+
+        change = graph.removeModule("new_mod");
+        assertEquals(set("new_mod"), change.getChangedTokens());
+        assertNull(graph.removeModule("a"));
+    }
+
+    public void testCycles() throws Exception {
+        ReverseImportsGraph graph = new ReverseImportsGraph();
+        graph.update("a", set("b"), set("A"));
+        graph.update("b", set("a"), set("B"));
+        assertEquals(set("b"), graph.getTransitiveImporters("a"));
+    }
+
+    public void testSaveAndLoad() throws Exception {
+        ReverseImportsGraph graph = new ReverseImportsGraph();
+        graph.update("a", set(), set("A", "A.m1"));
+        graph.update("b", set("a", "os"), set("B"));
+
+        File file = File.createTempFile("reverse_imports", ".txt");
+        try {
+            graph.save(file);
+
+            ReverseImportsGraph loaded = new ReverseImportsGraph();
+            assertTrue(loaded.load(file));
+            assertEquals(2, loaded.size());
+            assertEquals(set("b"), loaded.getImporters("a"));
+            assertEquals(set("b"), loaded.getImporters("os"));
+            assertNull(loaded.update("a", set(), set("A", "A.m1")));
+            assertNotNull(loaded.update("a", set(), set("A")));
+        } finally {
+            file.delete();
+        }
+    }
+}
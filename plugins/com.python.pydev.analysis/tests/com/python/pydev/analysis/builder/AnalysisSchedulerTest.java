@@ -0,0 +1,105 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package com.python.pydev.analysis.builder;
+
+import java.util.List;
+
+import com.python.pydev.analysis.builder.AnalysisScheduler.ScheduledAnalysis;
+
+import junit.framework.TestCase;
+
+public class AnalysisSchedulerTest extends TestCase {
+
+    private static class AnalysisRunnableStub extends AbstractAnalysisBuilderRunnable {
+
+        private int analyzed;
+
+        public AnalysisRunnableStub(String moduleName, int analysisCause) {
+            super(false, moduleName, false, analysisCause, null, null, 0, new KeyForAnalysisRunnable("project",
+                    moduleName, analysisCause), 0);
+        }
+
+        @Override
+        protected void doAnalysis() {
+            analyzed++;
+        }
+    }
+
+    public void testDebounceReplacesPending() throws Exception {
+        AnalysisScheduler scheduler = new AnalysisScheduler(2, 100);
+        AnalysisRunnableStub r1 = new AnalysisRunnableStub("mod1", IAnalysisBuilderRunnable.ANALYSIS_CAUSE_PARSER);
+        AnalysisRunnableStub r2 = new AnalysisRunnableStub("mod1", IAnalysisBuilderRunnable.ANALYSIS_CAUSE_PARSER);
+
+        scheduler.scheduleAt(r1, "r1", false, 1000);
+        assertEquals(0, scheduler.takeReady(1050).size());
+
+        scheduler.scheduleAt(r2, "r2", false, 1050);
+        assertTrue(r1.getRunFinished());
+        assertTrue(r1.isAnalysisStopped());
+        assertEquals(0, r1.analyzed);
+        assertEquals(1, scheduler.getCancelledCount());
+
+        //The debounce restarted with the new request.
+        assertEquals(0, scheduler.takeReady(1120).size());
+        assertEquals(30, scheduler.getMillisToNextDue(1120));
+
+        List<ScheduledAnalysis> ready = scheduler.takeReady(1150);
+        assertEquals(1, ready.size());
+        assertSame(r2, ready.get(0).runnable);
+        assertEquals(1, scheduler.getStartedCount());
+        assertEquals(0, scheduler.getPendingCount());
+
+        ready.get(0).runnable.run();
+        scheduler.onFinished(ready.get(0));
+        assertEquals(1, r2.analyzed);
+        assertEquals(1, scheduler.getCompletedCount());
+        assertEquals(0, scheduler.getRunningCount());
+        assertEquals(2, scheduler.getScheduledCount());
+    }
+
+    public void testPriorityAndConcurrencyLimit() throws Exception {
+        AnalysisScheduler scheduler = new AnalysisScheduler(1, 0);
+        AnalysisRunnableStub builder = new AnalysisRunnableStub("mod1", IAnalysisBuilderRunnable.ANALYSIS_CAUSE_BUILDER);
+        AnalysisRunnableStub editor = new AnalysisRunnableStub("mod2", IAnalysisBuilderRunnable.ANALYSIS_CAUSE_PARSER);
+
+        scheduler.scheduleAt(builder, "builder", false, 0);
+        scheduler.scheduleAt(editor, "editor", true, 0);
+
+        List<ScheduledAnalysis> ready = scheduler.takeReady(0);
+        assertEquals(1, ready.size());
+        assertSame(editor, ready.get(0).runnable);
+
+        //Only 1 at a time.
+        assertEquals(0, scheduler.takeReady(0).size());
+        scheduler.onFinished(ready.get(0));
+
+        ready = scheduler.takeReady(0);
+        assertEquals(1, ready.size());
+        assertSame(builder, ready.get(0).runnable);
+    }
+
+    public void testSameKeyDoesNotRunConcurrently() throws Exception {
+        AnalysisScheduler scheduler = new AnalysisScheduler(4, 0);
+        AnalysisRunnableStub r1 = new AnalysisRunnableStub("mod1", IAnalysisBuilderRunnable.ANALYSIS_CAUSE_PARSER);
+        AnalysisRunnableStub r2 = new AnalysisRunnableStub("mod1", IAnalysisBuilderRunnable.ANALYSIS_CAUSE_PARSER);
+
+        scheduler.scheduleAt(r1, "r1", true, 0);
+        List<ScheduledAnalysis> ready = scheduler.takeReady(0);
+        assertEquals(1, ready.size());
+
+        //r1 is running: r2 must wait for it to finish.
+        r1.stopAnalysis();
+        scheduler.scheduleAt(r2, "r2", true, 0);
+        assertEquals(0, scheduler.takeReady(0).size());
+
+        scheduler.onFinished(ready.get(0));
+        assertEquals(1, scheduler.getCancelledCount());
+        ready = scheduler.takeReady(0);
+        assertEquals(1, ready.size());
+        assertSame(r2, ready.get(0).runnable);
+    }
+}
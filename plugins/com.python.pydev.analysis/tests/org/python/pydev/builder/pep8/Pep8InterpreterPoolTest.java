@@ -0,0 +1,120 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package org.python.pydev.builder.pep8;
+
+import java.io.OutputStream;
+import java.io.Writer;
+
+import org.python.core.PyObject;
+import org.python.pydev.jython.IPythonInterpreter;
+import org.python.pydev.shared_core.callbacks.ICallback0;
+
+import junit.framework.TestCase;
+
+public class Pep8InterpreterPoolTest extends TestCase {
+
+    private static class StubInterpreter implements IPythonInterpreter {
+
+        private boolean cleaned;
+
+        @Override
+        public void set(String key, Object value) {
+        }
+
+        @Override
+        public void exec(String exec) {
+        }
+
+        @Override
+        public PyObject get(String varName) {
+            return null;
+        }
+
+        @Override
+        public void cleanup() {
+            cleaned = true;
+        }
+
+        @Override
+        public void setOut(OutputStream output) {
+        }
+
+        @Override
+        public void setOut(Writer output) {
+        }
+
+        @Override
+        public void setErr(OutputStream output) {
+        }
+    }
+
+    private Pep8InterpreterPool pool;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        pool = new Pep8InterpreterPool(new ICallback0<IPythonInterpreter>() {
+
+            @Override
+            public IPythonInterpreter call() {
+                return new StubInterpreter();
+            }
+        });
+    }
+
+    public void testReuse() throws Exception {
+        IPythonInterpreter i1 = pool.checkout(2);
+        pool.checkin(i1, 2);
+        IPythonInterpreter i2 = pool.checkout(2);
+        assertSame(i1, i2);
+        IPythonInterpreter i3 = pool.checkout(2);
+        assertNotSame(i1, i3);
+        pool.checkin(i2, 2);
+        pool.checkin(i3, 2);
+
+        assertEquals(2, pool.getCreated());
+        assertEquals(2, pool.getIdle());
+        assertEquals(2, pool.getInterpretersCreated());
+        assertEquals(3, pool.getCheckouts());
+    }
+
+    public void testDiscardAndShrink() throws Exception {
+        StubInterpreter i1 = (StubInterpreter) pool.checkout(2);
+        StubInterpreter i2 = (StubInterpreter) pool.checkout(2);
+        pool.discard(i1);
+        assertTrue(i1.cleaned);
+        assertEquals(1, pool.getCreated());
+
+        //Pool size decreased: it's not kept.
+        StubInterpreter i3 = (StubInterpreter) pool.checkout(2);
+        pool.checkin(i3, 1);
+        assertTrue(i3.cleaned);
+        pool.checkin(i2, 1);
+        assertFalse(i2.cleaned);
+        assertEquals(1, pool.getCreated());
+        assertEquals(1, pool.getIdle());
+    }
+
+    public void testWaitsWhenFull() throws Exception {
+        final IPythonInterpreter i1 = pool.checkout(1);
+        Thread t = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    sleep(100);
+                } catch (InterruptedException e) {
+                }
+                pool.checkin(i1, 1);
+            }
+        };
+        t.start();
+        IPythonInterpreter i2 = pool.checkout(1);
+        assertSame(i1, i2);
+        assertEquals(1, pool.getInterpretersCreated());
+        t.join();
+    }
+}
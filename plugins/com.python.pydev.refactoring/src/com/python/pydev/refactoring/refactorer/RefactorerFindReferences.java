@@ -111,6 +111,7 @@ public class RefactorerFindReferences {
                 }
 
                 //long initial = System.currentTimeMillis();
+                int modulesNotCurrentInIndex = 0;
                 request.getMonitor().beginTask("Find possible references", infoAndNature.size());
                 request.getMonitor().setTaskName("Find possible references");
                 try {
@@ -122,6 +123,7 @@ public class RefactorerFindReferences {
                                 AdditionalProjectInterpreterInfo info = (AdditionalProjectInterpreterInfo) tuple.o1;
                                 List<ModulesKey> modulesWithToken = info.getModulesWithToken(
                                         initialName, sub);
+                                modulesNotCurrentInIndex += info.getReferenceSearches().getLastSearchStaleModules();
 
                                 if (sub.isCanceled()) {
                                     break;
@@ -135,6 +137,7 @@ public class RefactorerFindReferences {
                 } finally {
                     request.getMonitor().done();
                 }
+                request.setAdditionalInfo(RefactoringRequest.MODULES_NOT_CURRENT_IN_INDEX, modulesNotCurrentInIndex);
                 //System.out.println("Total: " + ((System.currentTimeMillis() - initial) / 1000.));
             } catch (MisconfigurationException e) {
                 throw new RuntimeException(e);
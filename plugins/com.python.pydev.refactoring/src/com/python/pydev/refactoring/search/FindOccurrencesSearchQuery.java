@@ -146,6 +146,18 @@ public class FindOccurrencesSearchQuery extends AbstractPythonSearchQuery {
 
     @Override
     public String getResultLabel(int nMatches) {
+        String label = getMatchesLabel(nMatches);
+        int notCurrentInIndex = (Integer) req.getAdditionalInfo(RefactoringRequest.MODULES_NOT_CURRENT_IN_INDEX,
+                0);
+        if (notCurrentInIndex > 0) {
+            // The search is still right, but may be slower while the index isn't current.
+            label += StringUtils.format(" (index being updated: %s modules checked without it)",
+                    notCurrentInIndex);
+        }
+        return label;
+    }
+
+    private String getMatchesLabel(int nMatches) {
         String searchString = getSearchString();
         if (searchString.length() > 0) {
             // text search
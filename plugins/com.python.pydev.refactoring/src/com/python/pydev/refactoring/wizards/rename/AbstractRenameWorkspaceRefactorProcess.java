@@ -10,15 +10,25 @@
  */
 package com.python.pydev.refactoring.wizards.rename;
 
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.eclipse.core.runtime.OperationCanceledException;
-import org.eclipse.core.runtime.SubProgressMonitor;
+import org.eclipse.core.runtime.SubMonitor;
 import org.eclipse.ltk.core.refactoring.RefactoringStatus;
 import org.python.pydev.core.IModule;
 import org.python.pydev.core.IProjectModulesManager;
 import org.python.pydev.core.IPythonNature;
+import org.python.pydev.core.MisconfigurationException;
 import org.python.pydev.core.ModulesKey;
+import org.python.pydev.core.docutils.PyStringUtils;
+import org.python.pydev.core.log.Log;
 import org.python.pydev.editor.codecompletion.revisited.modules.SourceModule;
 import org.python.pydev.editor.codecompletion.revisited.visitors.Definition;
 import org.python.pydev.editor.refactoring.RefactoringRequest;
@@ -27,6 +37,8 @@ import org.python.pydev.plugin.nature.PythonNature;
 import org.python.pydev.shared_core.string.StringUtils;
 import org.python.pydev.shared_core.structure.Tuple;
 
+import com.python.pydev.analysis.additionalinfo.AbstractAdditionalDependencyInfo;
+import com.python.pydev.analysis.additionalinfo.AdditionalProjectInterpreterInfo;
 import com.python.pydev.refactoring.actions.PyFindAllOccurrences;
 
 /**
@@ -41,6 +53,22 @@ public abstract class AbstractRenameWorkspaceRefactorProcess extends AbstractRen
 
     public static final boolean DEBUG_FILTERED_MODULES = false || PyFindAllOccurrences.DEBUG_FIND_REFERENCES;
 
+    /**
+     * Prints the time to query the index, parse the modules and match the references in the modules.
+     */
+    public static final boolean DEBUG_TIMINGS = false || PyFindAllOccurrences.DEBUG_FIND_REFERENCES;
+
+    /**
+     * The maximum number of modules whose references are analyzed at the same time.
+     */
+    private static final int MAX_PARALLEL_ANALYSIS = Math.max(2, Runtime.getRuntime().availableProcessors());
+
+    /**
+     * The pool where the references are analyzed (shared by all the renames: its threads are only created when
+     * needed and finish after being idle for some time).
+     */
+    private static final ForkJoinPool ANALYSIS_POOL = new ForkJoinPool(MAX_PARALLEL_ANALYSIS);
+
     /**
      * May be used by subclasses
      */
@@ -116,10 +144,10 @@ public abstract class AbstractRenameWorkspaceRefactorProcess extends AbstractRen
      */
     @Override
     protected void findReferencesToRenameOnWorkspace(RefactoringRequest request, RefactoringStatus status) {
-        request.getMonitor().beginTask("Find references on workspace", 100);
+        SubMonitor subMonitor = SubMonitor.convert(request.getMonitor(), "Find references on workspace", 100);
         try {
             try {
-                request.pushMonitor(new SubProgressMonitor(request.getMonitor(), 20));
+                request.pushMonitor(subMonitor.newChild(20));
                 findReferencesToRenameOnLocalScope(request, status);
             } finally {
                 request.popMonitor().done();
@@ -130,7 +158,7 @@ public abstract class AbstractRenameWorkspaceRefactorProcess extends AbstractRen
             boolean onlyInLocalScope = (Boolean) request.getAdditionalInfo(
                     RefactoringRequest.FIND_REFERENCES_ONLY_IN_LOCAL_SCOPE, false);
             if (!onlyInLocalScope && !status.hasFatalError()) {
-                request.pushMonitor(new SubProgressMonitor(request.getMonitor(), 80));
+                request.pushMonitor(subMonitor.newChild(80));
                 try {
                     doCheckInitialOnWorkspace(status, request);
                 } finally {
@@ -142,6 +170,168 @@ public abstract class AbstractRenameWorkspaceRefactorProcess extends AbstractRen
         }
     }
 
+    /**
+     * The analysis of the references in a single module (run in parallel with the analysis of other modules).
+     */
+    private final class ModuleReferencesAnalysis {
+
+        private final ModulesKey key;
+        private final PythonNature nature;
+
+        /**
+         * Status for this analysis only (merged in the main status afterwards, as RefactoringStatus is not
+         * thread-safe).
+         */
+        private final RefactoringStatus status = new RefactoringStatus();
+        private List<ASTEntry> entryOccurrences;
+
+        /**
+         * Set if the analysis failed (re-thrown after all the analyses finish).
+         */
+        private RuntimeException failure;
+
+        private ModuleReferencesAnalysis(ModulesKey key, PythonNature nature) {
+            this.key = key;
+            this.nature = nature;
+        }
+
+        /**
+         * Note: doesn't throw exceptions (so that the action running it only finishes when all the analyses
+         * finish). If cancelled, the analyses not started yet return right away.
+         */
+        private void analyze(RefactoringRequest request, AtomicLong parseNanos, AtomicLong matchNanos,
+                AtomicInteger analyzed, int total) {
+            try {
+                if (!request.getMonitor().isCanceled()) {
+                    doAnalyze(request, parseNanos, matchNanos, analyzed, total);
+                }
+            } catch (OperationCanceledException e) {
+                //that's ok (checked after all the analyses finish)
+            } catch (RuntimeException e) {
+                failure = e;
+            }
+        }
+
+        private void doAnalyze(RefactoringRequest request, AtomicLong parseNanos, AtomicLong matchNanos,
+                AtomicInteger analyzed, int total) {
+            String modName = key.name;
+            long initial = System.nanoTime();
+            IProjectModulesManager modulesManager = (IProjectModulesManager) nature.getAstManager()
+                    .getModulesManager();
+            IModule module = modulesManager.getModuleInDirectManager(modName, nature, false);
+            if (module instanceof SourceModule) {
+                SourceModule sourceModule = (SourceModule) module;
+                boolean hasAst = sourceModule.getAst() != null;
+                long parsed = System.nanoTime();
+                parseNanos.addAndGet(parsed - initial);
+
+                if (!hasAst) {
+                    status.addWarning("Unable to get AST for: " + modName);
+                } else {
+                    request.checkCancelled();
+                    entryOccurrences = getOccurrencesInOtherModule(status, request, request.initialName,
+                            sourceModule, nature);
+                    matchNanos.addAndGet(System.nanoTime() - parsed);
+                }
+            } else {
+                parseNanos.addAndGet(System.nanoTime() - initial);
+            }
+            request.communicateWork(StringUtils.format("Analyzing %s (%s of %s)", modName,
+                    analyzed.incrementAndGet(), total));
+        }
+    }
+
+    /**
+     * Analyzes the modules in [start, end) (forking while there's more than one module to analyze).
+     */
+    private static final class AnalyzeReferencesAction extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final List<ModuleReferencesAnalysis> analyses;
+        private final int start;
+        private final int end;
+        private final RefactoringRequest request;
+        private final AtomicLong parseNanos;
+        private final AtomicLong matchNanos;
+        private final AtomicInteger analyzed;
+
+        private AnalyzeReferencesAction(List<ModuleReferencesAnalysis> analyses, int start, int end,
+                RefactoringRequest request, AtomicLong parseNanos, AtomicLong matchNanos, AtomicInteger analyzed) {
+            this.analyses = analyses;
+            this.start = start;
+            this.end = end;
+            this.request = request;
+            this.parseNanos = parseNanos;
+            this.matchNanos = matchNanos;
+            this.analyzed = analyzed;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start == 1) {
+                analyses.get(start).analyze(request, parseNanos, matchNanos, analyzed, analyses.size());
+                return;
+            }
+            int middle = (start + end) >>> 1;
+            invokeAll(new AnalyzeReferencesAction(analyses, start, middle, request, parseNanos, matchNanos,
+                    analyzed), new AnalyzeReferencesAction(analyses, middle, end, request, parseNanos,
+                            matchNanos, analyzed));
+        }
+    }
+
+    /**
+     * @return true if references are only found in modules where the name appears as an identifier in the code
+     * (i.e.: occurrences in comments and strings are only added when there's also an occurrence in the code). In
+     * this case, the candidate modules which only have the name in comments or strings are discarded before
+     * being parsed.
+     */
+    protected boolean getReferencesRequireIdentifierInCode() {
+        return true;
+    }
+
+    /**
+     * @return the references found in the modules which have the initial name as an identifier in the code (the
+     * passed references are not changed as they may be cached in the request).
+     */
+    private List<Tuple<List<ModulesKey>, IPythonNature>> filterByIdentifierInCode(RefactoringRequest request,
+            List<Tuple<List<ModulesKey>, IPythonNature>> references) {
+        String initialName = request.initialName;
+        if (!getReferencesRequireIdentifierInCode() || initialName == null
+                || !PyStringUtils.isPythonIdentifier(initialName)) {
+            return references;
+        }
+        for (int i = 0; i < initialName.length(); i++) {
+            if (!Character.isJavaIdentifierPart(initialName.charAt(i))) {
+                return references; // Not tokenized as a single identifier in the index.
+            }
+        }
+        List<Tuple<List<ModulesKey>, IPythonNature>> ret = new ArrayList<Tuple<List<ModulesKey>, IPythonNature>>(
+                references.size());
+        for (Tuple<List<ModulesKey>, IPythonNature> tuple : references) {
+            List<ModulesKey> filtered = tuple.o1;
+            try {
+                AbstractAdditionalDependencyInfo info = AdditionalProjectInterpreterInfo
+                        .getAdditionalInfoForProject(tuple.o2);
+                if (info instanceof AdditionalProjectInterpreterInfo) {
+                    Set<ModulesKey> withIdentifier = new HashSet<ModulesKey>(
+                            ((AdditionalProjectInterpreterInfo) info).getModulesWithIdentifier(initialName,
+                                    request.getMonitor()));
+                    filtered = new ArrayList<ModulesKey>(tuple.o1.size());
+                    for (ModulesKey key : tuple.o1) {
+                        if (withIdentifier.contains(key)) {
+                            filtered.add(key);
+                        }
+                    }
+                }
+            } catch (MisconfigurationException e) {
+                Log.log(e);
+            }
+            ret.add(new Tuple<List<ModulesKey>, IPythonNature>(filtered, tuple.o2));
+        }
+        return ret;
+    }
+
     /**
      * This method is made to be used in the checkInitialOnWorkspace implementation.
      *
@@ -150,81 +340,108 @@ public abstract class AbstractRenameWorkspaceRefactorProcess extends AbstractRen
      * call getOccurrencesInOtherModule, and will add those occurrences to
      * the map with the file pointing to the entries.
      *
+     * The modules where the name doesn't appear in the code are discarded before being parsed (see:
+     * getReferencesRequireIdentifierInCode).
+     *
+     * The modules are analyzed in parallel (at most MAX_PARALLEL_ANALYSIS at a time) and the results are
+     * merged in the order in which the modules were found. If cancelled, only the analyses already running are
+     * waited for.
+     *
      * @param status used to add some error status to the refactoring
      * @param request the request used for the refactoring
      */
     protected void doCheckInitialOnWorkspace(RefactoringStatus status, RefactoringRequest request) {
         try {
-            request.getMonitor().beginTask("Check references on workspace", 100);
+            SubMonitor subMonitor = SubMonitor.convert(request.getMonitor(), "Check references on workspace", 100);
 
             List<Tuple<List<ModulesKey>, IPythonNature>> references;
 
+            long initial = System.nanoTime();
             try {
-                request.pushMonitor(new SubProgressMonitor(request.getMonitor(), 90));
+                request.pushMonitor(subMonitor.newChild(90));
                 references = findFilesWithPossibleReferences(request);
                 if (request.getMonitor().isCanceled()) {
                     return;
                 }
+                references = filterByIdentifierInCode(request, references);
+                if (request.getMonitor().isCanceled()) {
+                    return;
+                }
             } finally {
                 request.popMonitor().done();
             }
+            int notCurrentInIndex = (Integer) request.getAdditionalInfo(
+                    RefactoringRequest.MODULES_NOT_CURRENT_IN_INDEX, 0);
+            if (notCurrentInIndex > 0) {
+                status.addInfo(StringUtils.format(
+                        "The references index is still being updated (%s modules not indexed yet were checked "
+                                + "without it).", notCurrentInIndex));
+            }
+            long indexQueryNanos = System.nanoTime() - initial;
 
-            int total = references.size();
+            List<PythonNature> naturesWithRequests = new ArrayList<PythonNature>();
+            List<ModuleReferencesAnalysis> analyses = new ArrayList<ModuleReferencesAnalysis>();
+            AtomicLong parseNanos = new AtomicLong();
+            AtomicLong matchNanos = new AtomicLong();
             try {
-                request.pushMonitor(new SubProgressMonitor(request.getMonitor(), 10));
-                request.getMonitor().beginTask("Analyzing references found", total);
-                int i = 0;
                 for (Tuple<List<ModulesKey>, IPythonNature> file : references) {
-                    i++;
-                    request.communicateWork(StringUtils.format(
-                            "Analyzing %s (%s of %s)", file.o2.getProject(), i,
-                            total));
                     PythonNature nature = (PythonNature) file.o2;
                     if (nature != null) {
                         if (!nature.startRequests()) {
                             continue;
                         }
-                        try {
-                            for (ModulesKey key : file.o1) {
-                                IProjectModulesManager modulesManager = (IProjectModulesManager) nature.getAstManager()
-                                        .getModulesManager();
-
-                                request.checkCancelled();
-                                String modName = key.name;
-
-                                if (modName != null) {
-                                    if (!request.moduleName.equals(modName)) {
-                                        //we've already checked the module from the request...
-
-                                        request.checkCancelled();
-                                        IModule module = modulesManager
-                                                .getModuleInDirectManager(modName, nature, false);
-
-                                        if (module instanceof SourceModule) {
-
-                                            SourceModule sourceModule = (SourceModule) module;
-                                            if (sourceModule.getAst() == null) {
-                                                status.addWarning("Unable to get AST for: " + modName);
-                                                continue;
-                                            }
-                                            request.checkCancelled();
-                                            List<ASTEntry> entryOccurrences = getOccurrencesInOtherModule(status,
-                                                    request, request.initialName, (SourceModule) module, nature);
-
-                                            if (entryOccurrences.size() > 0) {
-                                                addOccurrences(entryOccurrences, key.file, modName);
-                                            }
-                                        }
-                                    }
-                                }
+                        naturesWithRequests.add(nature);
+                        for (ModulesKey key : file.o1) {
+                            //we've already checked the module from the request...
+                            if (key.name != null && !request.moduleName.equals(key.name)) {
+                                analyses.add(new ModuleReferencesAnalysis(key, nature));
                             }
-                        } finally {
-                            nature.endRequests();
                         }
                     }
                 }
+
+                int total = analyses.size();
+                request.pushMonitor(subMonitor.newChild(10));
+                try {
+                    request.getMonitor().beginTask("Analyzing references found", total);
+                    AtomicInteger analyzed = new AtomicInteger();
+                    if (total == 1) {
+                        analyses.get(0).analyze(request, parseNanos, matchNanos, analyzed, total);
+
+                    } else if (total > 1) {
+                        ANALYSIS_POOL.invoke(new AnalyzeReferencesAction(analyses, 0, total, request, parseNanos,
+                                matchNanos, analyzed));
+                    }
+                    request.checkCancelled();
+                } finally {
+                    request.popMonitor().done();
+                }
             } finally {
-                request.popMonitor().done();
+                for (PythonNature nature : naturesWithRequests) {
+                    nature.endRequests();
+                }
+            }
+
+            //merge in the order the modules were found (so that the result doesn't depend on the scheduling).
+            for (ModuleReferencesAnalysis analysis : analyses) {
+                if (analysis.failure != null) {
+                    throw analysis.failure;
+                }
+            }
+            for (ModuleReferencesAnalysis analysis : analyses) {
+                status.merge(analysis.status);
+                List<ASTEntry> entryOccurrences = analysis.entryOccurrences;
+                if (entryOccurrences != null && entryOccurrences.size() > 0) {
+                    addOccurrences(entryOccurrences, analysis.key.file, analysis.key.name);
+                }
+            }
+
+            if (DEBUG_TIMINGS) {
+                System.out.println(StringUtils.format(
+                        "Find references on workspace: %s modules. Index query: %sms, parse: %sms, match: %sms "
+                                + "(parse and match summed for all threads).",
+                        analyses.size(), indexQueryNanos / 1000000, parseNanos.get() / 1000000,
+                        matchNanos.get() / 1000000));
             }
         } catch (OperationCanceledException e) {
             //that's ok
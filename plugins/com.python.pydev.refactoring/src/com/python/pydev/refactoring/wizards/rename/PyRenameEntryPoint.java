@@ -270,6 +270,9 @@ public class PyRenameEntryPoint extends RenameProcessor {
                     status.addFatalError(e.getMessage());
                     return status;
                 }
+                if (request.getMonitor().isCanceled()) {
+                    return status; // The references found are not complete.
+                }
 
                 TextEditCreation textEditCreation = new TextEditCreation(request.initialName, request.inputName,
                         request.getModule().getName(), request.getDoc(), processes, status,
@@ -211,6 +211,14 @@ public class PyRenameImportProcess extends AbstractRenameWorkspaceRefactorProces
         return entryOccurrences;
     }
 
+    /**
+     * The comments and strings are always searched (even if there's no occurrence in the code).
+     */
+    @Override
+    protected boolean getReferencesRequireIdentifierInCode() {
+        return false;
+    }
+
     private Collection<ASTEntry> convertToUseInitialName(String string, List<ASTEntry> commentOccurrences) {
         ArrayList<ASTEntry> lst = new ArrayList<>(commentOccurrences.size());
         for (ASTEntry astEntry : commentOccurrences) {
@@ -14,9 +14,17 @@ import java.io.File;
 import java.util.HashSet;
 import java.util.Map;
 
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.jface.text.Document;
+import org.python.pydev.core.IModule;
+import org.python.pydev.core.IProjectModulesManager;
+import org.python.pydev.core.docutils.PySelection;
+import org.python.pydev.editor.refactoring.RefactoringRequest;
 import org.python.pydev.parser.visitors.scope.ASTEntry;
+import org.python.pydev.shared_core.io.FileUtils;
 import org.python.pydev.shared_core.structure.Tuple;
 
+import com.python.pydev.refactoring.wizards.rename.PyRenameEntryPoint;
 import com.python.pydev.refactoring.wizards.rename.PyRenameFunctionProcess;
 
 /**
@@ -232,4 +240,41 @@ public class RenameFunctionRefactoringTest extends RefactoringRenameTestBase {
         checkProcessors();
     }
 
+
+    public void testRenameParallelAnalysisIsDeterministic() throws Exception {
+        // The modules with references are analyzed in parallel: the result must not depend on the scheduling.
+        String expected = asStr(getReferencesForRenameSimple("reflib.renamefunction.renfoo", 0, 8));
+        assertTrue(expected, expected.indexOf("reflib.renameclass.accessdup") != -1);
+        for (int i = 0; i < 10; i++) {
+            assertEquals(expected, asStr(getReferencesForRenameSimple("reflib.renamefunction.renfoo", 0, 8)));
+        }
+    }
+
+    public void testRenameCancelledDuringParallelAnalysis() throws Exception {
+        IProjectModulesManager modulesManager = (IProjectModulesManager) natureRefactoring.getAstManager()
+                .getModulesManager();
+        IModule module = modulesManager.getModuleInDirectManager("reflib.renamefunction.renfoo", natureRefactoring,
+                true);
+        Document doc = new Document(FileUtils.getFileContents(module.getFile()));
+        RefactoringRequest request = new RefactoringRequest(null, new PySelection(doc, 0, 8), natureRefactoring);
+        request.setAdditionalInfo(RefactoringRequest.FIND_REFERENCES_ONLY_IN_LOCAL_SCOPE, false);
+        request.moduleName = "reflib.renamefunction.renfoo";
+        request.inputName = "new_name";
+        request.fillInitialNameAndOffset();
+
+        // Cancelled as soon as the first module is analyzed.
+        NullProgressMonitor monitor = new NullProgressMonitor() {
+            @Override
+            public void setTaskName(String name) {
+                if (name.startsWith("Analyzing ")) {
+                    setCanceled(true);
+                }
+            }
+        };
+        PyRenameEntryPoint processor = new PyRenameEntryPoint(request);
+        processor.checkInitialConditions(monitor);
+        processor.checkFinalConditions(monitor, null);
+        assertTrue(monitor.isCanceled());
+        assertEquals(0, processor.getOccurrencesInOtherFiles().size());
+    }
 }
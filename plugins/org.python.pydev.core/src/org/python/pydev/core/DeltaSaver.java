@@ -9,7 +9,16 @@
  */
 package org.python.pydev.core;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
@@ -32,6 +41,9 @@ import org.python.pydev.shared_core.string.FastStringBuffer;
  * This object is supposed to be used by another that knows what is the data being added and how to restore that data.
  * Also, the order in which the deltas are generated is important.
  * 
+ * The deltas are appended to a single journal file (each entry is an int with the size in bytes followed by the
+ * utf-8 contents). Deltas saved by older versions (one file per delta) are still restored.
+ * 
  * @author Fabio
  */
 public class DeltaSaver<X> {
@@ -143,9 +155,14 @@ public class DeltaSaver<X> {
     private final Object commandsLock = new Object();
 
     /**
-     * Used to keep track of a number to use to save the command
+     * File where the deltas are appended.
+     */
+    private final File journalFile;
+
+    /**
+     * Number of valid bytes in the journal.
      */
-    private int nCommands;
+    private long journalBytes;
 
     /**
      * This is the method that should read the data in the delta from a file...
@@ -166,6 +183,7 @@ public class DeltaSaver<X> {
             ICallback<String, X> toFileMethod) {
         this.dirToSaveDeltas = dirToSaveDeltas;
         this.suffix = "." + extension;
+        this.journalFile = new File(dirToSaveDeltas, extension + ".journal");
         this.commands = new ArrayList<DeltaCommand>();
         this.readFromFileMethod = readFromFileMethod;
         this.toFileMethod = toFileMethod;
@@ -204,12 +222,58 @@ public class DeltaSaver<X> {
                     Log.log(e);
                 }
             }
+            loadJournal();
         }
 
     }
 
     /**
-     * @return a list of files with all the deltas in the dir we are acting upon
+     * Restores the commands from the journal. If the last entry was only partially written (i.e.: the process was
+     * killed while writing it), the journal is truncated to the last complete entry.
+     */
+    private void loadJournal() {
+        journalBytes = 0;
+        if (!journalFile.isFile()) {
+            return;
+        }
+        long totalBytes = journalFile.length();
+        long validBytes = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(journalFile)))) {
+            while (validBytes + 4 <= totalBytes) {
+                int len = in.readInt();
+                if (len < 0 || validBytes + 4 + len > totalBytes) {
+                    break;
+                }
+                byte[] bytes = new byte[len];
+                in.readFully(bytes);
+                validBytes += 4 + len;
+                try {
+                    @SuppressWarnings("unchecked")
+                    DeltaCommand cmd = createCommand(new String(bytes, StandardCharsets.UTF_8), readFromFileMethod);
+                    if (cmd != null && cmd.data != null) {
+                        addRestoredCommand(cmd);
+                    }
+                } catch (Exception e) {
+                    //the format has changed (no real problem here... just skip the entry)
+                }
+            }
+        } catch (IOException e) {
+            Log.log(e);
+        }
+
+        if (validBytes < totalBytes) {
+            try (RandomAccessFile raf = new RandomAccessFile(journalFile, "rw")) {
+                raf.setLength(validBytes);
+            } catch (IOException e) {
+                Log.log(e);
+            }
+        }
+        journalBytes = validBytes;
+    }
+
+    /**
+     * @return a list of files with all the deltas in the dir we are acting upon (only the ones saved in the
+     * old format: one file per delta).
      */
     private ArrayList<File> findDeltas() {
         ArrayList<File> deltasFound = new ArrayList<File>();
@@ -246,21 +310,28 @@ public class DeltaSaver<X> {
     }
 
     /**
-     * Adds some command (adds to list and to the disk)
+     * Adds some command (adds to list and appends it to the journal in the disk)
      * 
      * @param command the command to be added
      */
     public void addCommand(final DeltaCommand command) {
         synchronized (this.commandsLock) {
-            final File file = new File(this.dirToSaveDeltas, nCommands + suffix);
-            nCommands++;
             String write = toFileMethod.call(command.data);
             if (write == null) {
                 Log.log("Null returned to write from data: " + command.data);
             } else {
                 FastStringBuffer buf = new FastStringBuffer(command.getCommandFileDesc(), write.length());
                 buf.append(write);
-                FileUtils.writeStrToFile(buf.toString(), file);
+                byte[] bytes = buf.toString().getBytes(StandardCharsets.UTF_8);
+                try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(
+                        journalFile, true)))) {
+                    out.writeInt(bytes.length);
+                    out.write(bytes);
+                } catch (IOException e) {
+                    Log.log(e);
+                    return;
+                }
+                journalBytes += 4 + bytes.length;
                 this.commands.add(command);
             }
         }
@@ -276,7 +347,32 @@ public class DeltaSaver<X> {
     }
 
     /**
-     * Clears all deltas in the disk (and in memory... also restarts numbering the deltas)
+     * @return the number of bytes currently in the journal.
+     */
+    public long getJournalBytes() {
+        synchronized (this.commandsLock) {
+            return journalBytes;
+        }
+    }
+
+    /**
+     * Checks whether the deltas should be compacted (i.e.: the full state saved and the deltas cleared).
+     * 
+     * Saving after each delta is cheap (only the delta is appended), so, we only ask for a compaction when
+     * there are more than minDeltas and replaying the journal on a restore would take a considerable time
+     * when compared to loading the full state (more than half its size).
+     * 
+     * @param minDeltas the minimum number of deltas before compacting.
+     * @param fullStateBytes the size of the full state in the disk (0 if unknown).
+     */
+    public boolean needsCompaction(int minDeltas, long fullStateBytes) {
+        synchronized (this.commandsLock) {
+            return this.commands.size() > minDeltas && journalBytes > fullStateBytes / 2;
+        }
+    }
+
+    /**
+     * Clears all deltas in the disk (and in memory)
      */
     public void clearAll() {
         synchronized (this.commandsLock) {
@@ -288,8 +384,15 @@ public class DeltaSaver<X> {
                     Log.log(e);
                 }
             }
+            if (journalFile.exists()) {
+                try {
+                    journalFile.delete();
+                } catch (Exception e) {
+                    Log.log(e);
+                }
+            }
             this.commands.clear();
-            nCommands = 0;
+            journalBytes = 0;
         }
     }
 
@@ -339,16 +442,7 @@ public class DeltaSaver<X> {
             String fileContents = FileUtils.getFileContents(astOutputFile);
             DeltaSaver.DeltaCommand o = null;
             try {
-                if (fileContents.startsWith("UPD")) {
-                    o = new DeltaSaver.DeltaUpdateCommand(readFromFileMethod.call(fileContents.substring(3)));
-
-                } else if (fileContents.startsWith("DEL")) {
-                    o = new DeltaSaver.DeltaDeleteCommand(readFromFileMethod.call(fileContents.substring(3)));
-
-                } else if (fileContents.startsWith("INS")) {
-                    o = new DeltaSaver.DeltaInsertCommand(readFromFileMethod.call(fileContents.substring(3)));
-
-                }
+                o = createCommand(fileContents, readFromFileMethod);
             } catch (Exception e) {
                 //the format has changed (no real problem here... just erase the file)
                 deletFile = true;
@@ -366,4 +460,22 @@ public class DeltaSaver<X> {
         }
     }
 
+    /**
+     * Creates a command from its representation in the disk (3 letters for the command followed by the data).
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    private DeltaSaver.DeltaCommand createCommand(String contents, ICallback<X, String> readFromFileMethod) {
+        if (contents.startsWith("UPD")) {
+            return new DeltaSaver.DeltaUpdateCommand(readFromFileMethod.call(contents.substring(3)));
+
+        } else if (contents.startsWith("DEL")) {
+            return new DeltaSaver.DeltaDeleteCommand(readFromFileMethod.call(contents.substring(3)));
+
+        } else if (contents.startsWith("INS")) {
+            return new DeltaSaver.DeltaInsertCommand(readFromFileMethod.call(contents.substring(3)));
+
+        }
+        return null;
+    }
+
 }
@@ -20,8 +20,8 @@ import org.python.pydev.shared_core.structure.Tuple;
 
 public interface IModulesManager {
     /**
-     * This is the maximun number of deltas that can be generated before saving everything in a big chunck and
-     * clearing the deltas
+     * This is the minimum number of deltas that can be generated before saving everything in a big chunck and
+     * clearing the deltas (after that, it's only done if the deltas are big when compared to the saved state).
      */
     public static final int MAXIMUN_NUMBER_OF_DELTAS = 100;
 
@@ -181,6 +181,12 @@ public interface IModulesManager {
 
     public abstract boolean hasModule(ModulesKey key);
 
+    /**
+     * @return the key of the module with the given name in this modules manager (dependencies are not considered)
+     * or null if it's not available.
+     */
+    public abstract ModulesKey getModulesKey(String moduleName);
+
     /**
      * I.e.: don't forget to close returned closeable (prefer to use in try block)
      */
@@ -45,4 +45,10 @@ public interface ISystemModulesManager extends IModulesManager {
     public abstract IInterpreterManager getInterpreterManager();
 
     public abstract File getCompiledModuleCacheFile(String name);
+
+    /**
+     * @return a stamp identifying the interpreter for which the compiled modules cache files are created (when it
+     * changes, the existing cache files are no longer valid).
+     */
+    public abstract String getCompiledModuleCacheStamp();
 }
\ No newline at end of file
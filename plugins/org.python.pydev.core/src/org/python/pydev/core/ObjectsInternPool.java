@@ -11,7 +11,7 @@ package org.python.pydev.core;
 
 import java.lang.ref.WeakReference;
 import java.util.HashMap;
-import java.util.Map;
+import java.util.List;
 import java.util.WeakHashMap;
 
 /**
@@ -21,6 +21,9 @@ import java.util.WeakHashMap;
  * so, it should be safe to assume that it will be available for garbage collecting once
  * no other place has a reference to the same string.
  * 
+ * The pool is split in stripes (each with its own lock) so that threads interning different strings
+ * don't contend on a single lock.
+ * 
  * Still, use this with care...
  */
 public final class ObjectsInternPool {
@@ -28,9 +31,57 @@ public final class ObjectsInternPool {
     private ObjectsInternPool() {
     }
 
-    private static final Map<String, WeakReference<String>> weakHashMap = new WeakHashMap<String, WeakReference<String>>();
+    /**
+     * Must be a power of 2.
+     */
+    private static final int STRIPES = 64;
+
+    private static final class Stripe {
+
+        private final WeakHashMap<String, WeakReference<String>> weakHashMap = new WeakHashMap<String, WeakReference<String>>();
+
+        /**
+         * Must be called with the lock of this stripe held.
+         */
+        private String intern(String o) {
+            WeakReference<String> w = weakHashMap.get(o);
+            if (w != null) {
+                final String ret = w.get();
+                if (ret != null) {
+                    return ret;
+                }
+                //garbage collected just in time hum?
+            }
+            //Yes, the String constructor will do things properly, so, if a big string is actually backed up by the one
+            //passed, it'll create a new array only with the parts we want.
+            o = new String(o);
+            //garbage collected or still not there...
+            weakHashMap.put(o, new WeakReference<String>(o));
+            return o;
+        }
+    }
+
+    private static final Stripe[] stripes = new Stripe[STRIPES];
+
+    static {
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    /**
+     * @deprecated the pool is now synchronized internally (per stripe), so, there's no need to synchronize
+     * on this lock anymore (kept only for backward compatibility).
+     */
+    @Deprecated
     public static final Object lock = new Object();
 
+    private static int getStripeIndex(String o) {
+        int h = o.hashCode();
+        h ^= (h >>> 16);
+        return h & (STRIPES - 1);
+    }
+
     /**
      * This is a way to intern a String in the regular heap (instead of the String.intern which uses the perm-gen).
      */
@@ -38,62 +89,90 @@ public final class ObjectsInternPool {
         if (o == null) {
             return null;
         }
-        synchronized (lock) {
-            WeakReference<String> w = (WeakReference<String>) weakHashMap.get(o);
-            if (w == null) {
-                //Yes, the String constructor will do things properly, so, if a big string is actually backed up by the one
-                //passed, it'll create a new array only with the parts we want.
-                o = new String(o);
-                //garbage collected or still not there...
-                weakHashMap.put(o, new WeakReference<String>(o));
-                return o;
-
-            } else {
-                final String ret = w.get();
-                if (ret == null && o != null) {
-                    //garbage collected just in time hum?
-                    o = new String(o);
-                    weakHashMap.put(o, new WeakReference<String>(o));
-                    return o;
-
-                } else {
-                    return ret;
-                }
-            }
+        Stripe stripe = stripes[getStripeIndex(o)];
+        synchronized (stripe) {
+            return stripe.intern(o);
         }
     }
 
     /**
-     * Same thing as intern, but the client is responsible for synchronizing on the lock object of this class!
+     * Same thing as intern (kept for backward compatibility: it's no longer needed to synchronize on the
+     * lock object of this class before calling it).
      * 
-     * Note that this should be done on a fast process where many objects will be added (but only on fast processes
-     * that want to avoid synchronizing at each step).
+     * When many strings should be interned at once, prefer using internAll.
      */
     public static String internUnsynched(String o) {
-        if (o == null) {
-            return null;
-        }
-        WeakReference<String> w = (WeakReference<String>) weakHashMap.get(o);
-        if (w == null) {
-            //Yes, the String constructor will do things properly, so, if a big string is actually backed up by the one
-            //passed, it'll create a new array only with the parts we want.
-            o = new String(o);
-            //garbage collected or still not there...
-            weakHashMap.put(o, new WeakReference<String>(o));
-            return o;
+        return intern(o);
+    }
 
-        } else {
-            final String ret = w.get();
-            if (ret == null && o != null) {
-                //garbage collected just in time hum?
-                o = new String(o);
-                weakHashMap.put(o, new WeakReference<String>(o));
-                return o;
+    /**
+     * Interns all the passed strings in-place (null entries are kept as null).
+     * 
+     * The strings are grouped by stripe so that the lock of each stripe is only acquired once.
+     * 
+     * @return the same array passed (with its contents interned).
+     */
+    public static String[] internAll(String... strings) {
+        int len = strings.length;
+        if (len == 0) {
+            return strings;
+        }
+        if (len == 1) {
+            strings[0] = intern(strings[0]);
+            return strings;
+        }
 
+        //counting sort on the stripe index
+        int[] stripeOf = new int[len];
+        int[] starts = new int[STRIPES + 1];
+        for (int i = 0; i < len; i++) {
+            String s = strings[i];
+            if (s == null) {
+                stripeOf[i] = -1;
             } else {
-                return ret;
+                int stripeIndex = getStripeIndex(s);
+                stripeOf[i] = stripeIndex;
+                starts[stripeIndex + 1]++;
+            }
+        }
+        for (int i = 0; i < STRIPES; i++) {
+            starts[i + 1] += starts[i];
+        }
+        int[] order = new int[starts[STRIPES]];
+        int[] next = new int[STRIPES];
+        System.arraycopy(starts, 0, next, 0, STRIPES);
+        for (int i = 0; i < len; i++) {
+            int stripeIndex = stripeOf[i];
+            if (stripeIndex >= 0) {
+                order[next[stripeIndex]++] = i;
+            }
+        }
+
+        for (int stripeIndex = 0; stripeIndex < STRIPES; stripeIndex++) {
+            int start = starts[stripeIndex];
+            int end = starts[stripeIndex + 1];
+            if (start == end) {
+                continue;
+            }
+            Stripe stripe = stripes[stripeIndex];
+            synchronized (stripe) {
+                for (int j = start; j < end; j++) {
+                    int i = order[j];
+                    strings[i] = stripe.intern(strings[i]);
+                }
             }
         }
+        return strings;
+    }
+
+    /**
+     * Interns all the strings in the passed list in-place (see: internAll(String...)).
+     */
+    public static void internAll(List<String> strings) {
+        String[] array = internAll(strings.toArray(new String[strings.size()]));
+        for (int i = 0; i < array.length; i++) {
+            strings.set(i, array[i]);
+        }
     }
 
     /**
@@ -9,7 +9,9 @@
  */
 package org.python.pydev.core.docutils;
 
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.Set;
 
 import org.eclipse.jface.text.BadLocationException;
 import org.eclipse.jface.text.IDocument;
@@ -877,6 +879,83 @@ public abstract class ParsingUtils extends BaseParsingUtils implements IPythonPa
         }
     }
 
+    /**
+     * @return the identifiers which appear in the code (names in comments and literals are not added -- but
+     * the names in f-strings are, as those may be expressions).
+     *
+     * Note: keywords and string prefixes are also returned (this is meant to be a fast pre-filter to know
+     * whether some name may be referenced in the code, not a proper tokenizer).
+     */
+    public static Set<String> getIdentifiersInCode(String contents) {
+        Set<String> identifiers = new HashSet<String>();
+        ParsingUtils parsingUtils = create(contents, false);
+        int len = contents.length();
+        for (int i = 0; i < len; i++) {
+            char ch = contents.charAt(i);
+            if (ch == '#') {
+                i = parsingUtils.eatComments(null, i);
+
+            } else if (ch == '\'' || ch == '"') {
+                int end;
+                try {
+                    end = parsingUtils.getLiteralEnd(i, ch);
+                } catch (SyntaxErrorException e) {
+                    end = len; // Not thrown as throwSyntaxError == false.
+                }
+                if (isFStringStart(contents, i)) {
+                    addIdentifiers(contents, i + 1, Math.min(end, len), identifiers);
+                }
+                i = end;
+
+            } else if (Character.isJavaIdentifierStart(ch) || Character.isDigit(ch)) {
+                i = addIdentifier(contents, i, len, identifiers);
+            }
+        }
+        return identifiers;
+    }
+
+    /**
+     * @param i the position of the quote which starts a literal.
+     * @return whether the literal has an 'f' in its prefix.
+     */
+    private static boolean isFStringStart(String contents, int i) {
+        for (int j = i - 1; j >= 0 && j >= i - 2; j--) {
+            char c = contents.charAt(j);
+            if (c == 'f' || c == 'F') {
+                return true;
+            }
+            if (c != 'r' && c != 'R' && c != 'b' && c != 'B') {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    private static void addIdentifiers(String contents, int start, int end, Set<String> identifiers) {
+        for (int i = start; i < end; i++) {
+            char ch = contents.charAt(i);
+            if (Character.isJavaIdentifierStart(ch) || Character.isDigit(ch)) {
+                i = addIdentifier(contents, i, end, identifiers);
+            }
+        }
+    }
+
+    /**
+     * Adds the identifier starting at the given position (numbers are skipped).
+     *
+     * @return the position of the last char of the identifier.
+     */
+    private static int addIdentifier(String contents, int i, int end, Set<String> identifiers) {
+        int j = i + 1;
+        while (j < end && Character.isJavaIdentifierPart(contents.charAt(j))) {
+            j++;
+        }
+        if (!Character.isDigit(contents.charAt(i))) {
+            identifiers.add(contents.substring(i, j));
+        }
+        return j - 1;
+    }
+
     public static Iterator<String> getNoLiteralsOrCommentsIterator(IDocument doc) {
         return new PyDocIterator(doc);
     }
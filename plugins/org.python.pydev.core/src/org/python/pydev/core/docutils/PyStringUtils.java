@@ -11,6 +11,7 @@ package org.python.pydev.core.docutils;
 
 import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
@@ -251,35 +252,36 @@ public final class PyStringUtils {
      * Empty strings are also never added.
      */
     public static void splitWithIntern(String string, char toSplit, Collection<String> addTo) {
-        synchronized (ObjectsInternPool.lock) {
-            int len = string.length();
+        ArrayList<String> parts = new ArrayList<String>();
+        int len = string.length();
 
-            int last = 0;
+        int last = 0;
 
-            char c = 0;
+        char c = 0;
 
-            for (int i = 0; i < len; i++) {
-                c = string.charAt(i);
-                if (c == toSplit) {
-                    if (last != i) {
-                        addTo.add(ObjectsInternPool.internUnsynched(string.substring(last, i)));
-                    }
-                    while (c == toSplit && i < len - 1) {
-                        i++;
-                        c = string.charAt(i);
-                    }
-                    last = i;
+        for (int i = 0; i < len; i++) {
+            c = string.charAt(i);
+            if (c == toSplit) {
+                if (last != i) {
+                    parts.add(string.substring(last, i));
                 }
+                while (c == toSplit && i < len - 1) {
+                    i++;
+                    c = string.charAt(i);
+                }
+                last = i;
             }
-            if (c != toSplit) {
-                if (last == 0 && len > 0) {
-                    addTo.add(ObjectsInternPool.internUnsynched(string)); //it is equal to the original (no char to split)
+        }
+        if (c != toSplit) {
+            if (last == 0 && len > 0) {
+                parts.add(string); //it is equal to the original (no char to split)
 
-                } else if (last < len) {
-                    addTo.add(ObjectsInternPool.internUnsynched(string.substring(last, len)));
-                }
+            } else if (last < len) {
+                parts.add(string.substring(last, len));
             }
         }
+        ObjectsInternPool.internAll(parts);
+        addTo.addAll(parts);
     }
 
     /**
@@ -10,10 +10,12 @@
 package org.python.pydev.core;
 
 import java.io.File;
+import java.io.FileOutputStream;
 import java.util.ArrayList;
 import java.util.List;
 
 import org.python.pydev.shared_core.callbacks.ICallback;
+import org.python.pydev.shared_core.io.FileUtils;
 
 import junit.framework.TestCase;
 
@@ -122,6 +124,60 @@ public class DeltaSaverTest extends TestCase {
         restorer.processDeltas(new InsertDeltaProcessor());
     }
 
+    public void testRestoreWithPartialEntry() throws Exception {
+        DeltaSaver<String> saver = new DeltaSaver<String>(new File("."), "deltatest", getCallBackStr(), getToFileStr());
+        saver.addInsertCommand("ins1");
+        saver.addInsertCommand("ins2");
+        long journalBytes = saver.getJournalBytes();
+
+        //simulate a process killed while writing an entry
+        File journal = new File(".", "deltatest.journal");
+        try (FileOutputStream out = new FileOutputStream(journal, true)) {
+            out.write(new byte[] { 0, 0, 0, 20, 'I', 'N' });
+        }
+
+        DeltaSaver<String> restorer = new DeltaSaver<String>(new File("."), "deltatest", getCallBackStr(),
+                getToFileStr());
+        assertEquals(2, restorer.availableDeltas());
+        assertEquals(journalBytes, restorer.getJournalBytes());
+        assertEquals(journalBytes, journal.length());
+
+        restorer.addDeleteCommand("ins1");
+        restorer = new DeltaSaver<String>(new File("."), "deltatest", getCallBackStr(), getToFileStr());
+        DeltaProcessor deltaProcessor = new DeltaProcessor();
+        restorer.processDeltas(deltaProcessor);
+        assertEquals(3, deltaProcessor.processed);
+        assertEquals("ins2", deltaProcessor.state.get(0));
+        assertFalse(journal.exists());
+    }
+
+    public void testRestoreOldFormat() throws Exception {
+        FileUtils.writeStrToFile("INSold1", new File(".", "0.deltatest"));
+        FileUtils.writeStrToFile("INSold2", new File(".", "1.deltatest"));
+
+        DeltaSaver<String> saver = new DeltaSaver<String>(new File("."), "deltatest", getCallBackStr(), getToFileStr());
+        saver.addDeleteCommand("old1");
+
+        DeltaSaver<String> restorer = new DeltaSaver<String>(new File("."), "deltatest", getCallBackStr(),
+                getToFileStr());
+        DeltaProcessor deltaProcessor = new DeltaProcessor();
+        restorer.processDeltas(deltaProcessor);
+        assertEquals(3, deltaProcessor.processed);
+        assertEquals(1, deltaProcessor.state.size());
+        assertEquals("old2", deltaProcessor.state.get(0));
+    }
+
+    public void testNeedsCompaction() throws Exception {
+        DeltaSaver<String> saver = new DeltaSaver<String>(new File("."), "deltatest", getCallBackStr(), getToFileStr());
+        for (int i = 0; i < 10; i++) {
+            saver.addInsertCommand("ins" + i);
+        }
+        assertFalse(saver.needsCompaction(10, 0));
+        assertTrue(saver.needsCompaction(5, 0));
+        assertFalse(saver.needsCompaction(5, 1024 * 1024));
+        assertTrue(saver.needsCompaction(5, saver.getJournalBytes()));
+    }
+
     private ICallback<String, Integer> getToFile() {
         return new ICallback<String, Integer>() {
 
@@ -0,0 +1,116 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package org.python.pydev.core;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Compares the throughput of the ObjectsInternPool with the previous implementation (a single
+ * WeakHashMap guarded by a single lock) with 1, 4 and 16 threads.
+ *
+ * Run it as a java application (it's not a test case).
+ */
+public class ObjectsInternPoolBenchmark {
+
+    private static final int DISTINCT_STRINGS = 20000;
+    private static final int OPERATIONS_PER_THREAD = 2000000;
+
+    private static interface IInterner {
+        String intern(String o);
+    }
+
+    /**
+     * The previous implementation (single lock).
+     */
+    private static final class SingleLockInterner implements IInterner {
+
+        private final Map<String, WeakReference<String>> weakHashMap = new WeakHashMap<String, WeakReference<String>>();
+        private final Object lock = new Object();
+
+        @Override
+        public String intern(String o) {
+            synchronized (lock) {
+                WeakReference<String> w = weakHashMap.get(o);
+                if (w != null) {
+                    String ret = w.get();
+                    if (ret != null) {
+                        return ret;
+                    }
+                }
+                o = new String(o);
+                weakHashMap.put(o, new WeakReference<String>(o));
+                return o;
+            }
+        }
+    }
+
+    private static final class StripedInterner implements IInterner {
+
+        @Override
+        public String intern(String o) {
+            return ObjectsInternPool.intern(o);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        String[] strings = new String[DISTINCT_STRINGS];
+        for (int i = 0; i < strings.length; i++) {
+            strings[i] = "token_" + i;
+        }
+
+        int[] threadCounts = new int[] { 1, 4, 16 };
+        for (int round = 0; round < 2; round++) { //the first round is the warmup
+            for (int threads : threadCounts) {
+                long singleLock = run(new SingleLockInterner(), strings, threads);
+                long striped = run(new StripedInterner(), strings, threads);
+                if (round > 0) {
+                    System.out.println(threads + " thread(s): single lock: " + singleLock + " ops/ms, striped: "
+                            + striped + " ops/ms");
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the number of operations per millisecond.
+     */
+    private static long run(final IInterner interner, final String[] strings, int threads) throws Exception {
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch finish = new CountDownLatch(threads);
+        final String[] keepAlive = new String[threads];
+        for (int t = 0; t < threads; t++) {
+            final int threadIndex = t;
+            Thread thread = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        String last = null;
+                        int len = strings.length;
+                        for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                            last = interner.intern(strings[(i * 31 + threadIndex) % len]);
+                        }
+                        keepAlive[threadIndex] = last;
+                    } catch (InterruptedException e) {
+                        throw new RuntimeException(e);
+                    } finally {
+                        finish.countDown();
+                    }
+                }
+            };
+            thread.start();
+        }
+        long initial = System.nanoTime();
+        start.countDown();
+        finish.await();
+        long millis = Math.max(1, (System.nanoTime() - initial) / 1000000);
+        return ((long) OPERATIONS_PER_THREAD * threads) / millis;
+    }
+}
@@ -6,6 +6,10 @@
  */
 package org.python.pydev.core;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 import junit.framework.TestCase;
 
 /**
@@ -34,4 +38,28 @@ public class ObjectsPoolTest extends TestCase {
         //        }
         //        t.printDiff();
     }
+
+    public void testInternAll() throws Exception {
+        String foo = ObjectsInternPool.intern(new String("foo"));
+        String[] strings = new String[] { new String("foo"), null, new String("bar"), new String("foo") };
+        assertSame(strings, ObjectsInternPool.internAll(strings));
+        assertSame(foo, strings[0]);
+        assertNull(strings[1]);
+        assertSame(ObjectsInternPool.intern(new String("bar")), strings[2]);
+        assertSame(foo, strings[3]);
+
+        List<String> lst = new ArrayList<String>(Arrays.asList(new String("bar"), new String("foo")));
+        ObjectsInternPool.internAll(lst);
+        assertSame(strings[2], lst.get(0));
+        assertSame(foo, lst.get(1));
+    }
+
+    public void testInternCopiesBackingSubstring() throws Exception {
+        String big = "a.b.some_long_name_to_be_interned_in_the_pool";
+        String sub = big.substring(4);
+        String interned = ObjectsInternPool.intern(sub);
+        assertEquals(sub, interned);
+        assertNotSame(sub, interned);
+        assertSame(interned, ObjectsInternPool.intern(new String(sub)));
+    }
 }
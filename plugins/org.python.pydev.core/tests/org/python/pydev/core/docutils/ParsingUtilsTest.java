@@ -10,6 +10,7 @@
 package org.python.pydev.core.docutils;
 
 import java.util.Iterator;
+import java.util.Set;
 
 import org.eclipse.jface.text.Document;
 import org.python.pydev.shared_core.string.FastStringBuffer;
@@ -668,4 +669,28 @@ public class ParsingUtilsTest extends TestCase {
         assertEquals("", ParsingUtils.removeCalls("()"));
         assertEquals("bb", ParsingUtils.removeCalls("bb()"));
     }
+
+    public void testGetIdentifiersInCode() {
+        String s = ""
+                + "import os.path #comment_name\n"
+                + "class Foo(object):\n"
+                + "    '''doc_name'''\n"
+                + "    def m1(self, a=\"str_name\", b=10, c=0x1F):\n"
+                + "        return f'{fstr_name} text' + r'raw_name' + b'bytes_name'\n"
+                + "";
+        Set<String> identifiers = ParsingUtils.getIdentifiersInCode(s);
+        assertTrue(identifiers.contains("os"));
+        assertTrue(identifiers.contains("path"));
+        assertTrue(identifiers.contains("Foo"));
+        assertTrue(identifiers.contains("m1"));
+        assertTrue(identifiers.contains("self"));
+        assertTrue(identifiers.contains("fstr_name"));
+        assertFalse(identifiers.contains("comment_name"));
+        assertFalse(identifiers.contains("doc_name"));
+        assertFalse(identifiers.contains("str_name"));
+        assertFalse(identifiers.contains("raw_name"));
+        assertFalse(identifiers.contains("bytes_name"));
+        assertFalse(identifiers.contains("foo")); //case-sensitive
+        assertFalse(identifiers.contains("x1F"));
+    }
 }
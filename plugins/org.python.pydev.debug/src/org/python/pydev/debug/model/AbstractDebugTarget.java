@@ -110,9 +110,26 @@ public abstract class AbstractDebugTarget extends AbstractDebugTargetWithTransmi
 
     private PyRunToLineTarget runToLineTarget;
 
+    /**
+     * Set when pydevd answers that it doesn't know how to get the variables of a container in pages (in which
+     * case the variables are always fetched at once, without asking for pages again -- see: PyVariableCollection).
+     */
+    private volatile boolean variablePagesNotSupported;
+
     public AbstractDebugTarget() {
     }
 
+    /**
+     * @return false if pydevd already answered that it doesn't support CMD_GET_VARIABLE_PAGE.
+     */
+    public boolean isVariablePagesSupported() {
+        return !variablePagesNotSupported;
+    }
+
+    public void setVariablePagesNotSupported() {
+        this.variablePagesNotSupported = true;
+    }
+
     @Override
     public abstract boolean canTerminate();
 
@@ -68,6 +68,27 @@ public class ContainerOfVariables {
         return this.variables;
     }
 
+    /**
+     * Uses the given variables (which were already fetched by the parent) instead of fetching them again
+     * (only if new variables were requested, otherwise, the current variables are kept).
+     */
+    public IVariable[] setFetchedVariables(PyVariable[] vars) {
+        if (onAskGetNewVars) {
+            synchronized (lock) {
+                if (onAskGetNewVars) {
+                    gettingInitialVariables = true;
+                    try {
+                        setVariables(variablesLoader.onVariablesFetched(vars));
+                        onAskGetNewVars = false;
+                    } finally {
+                        gettingInitialVariables = false;
+                    }
+                }
+            }
+        }
+        return this.variables;
+    }
+
     public void forceGetNewVariables() {
         this.onAskGetNewVars = true;
         IVariablesContainerParent p = this.parent.get();
@@ -10,25 +10,82 @@
  */
 package org.python.pydev.debug.model;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IStatus;
+import org.eclipse.debug.core.DebugEvent;
 import org.eclipse.debug.core.DebugException;
+import org.eclipse.debug.core.model.IIndexedValue;
 import org.eclipse.debug.core.model.IVariable;
 import org.python.pydev.debug.core.PydevDebugPlugin;
+import org.python.pydev.debug.model.XMLUtils.VariablesPage;
 import org.python.pydev.debug.model.remote.AbstractDebuggerCommand;
 import org.python.pydev.debug.model.remote.GetVariableCommand;
+import org.python.pydev.debug.model.remote.GetVariablePageCommand;
+import org.python.pydev.debug.model.remote.ICommandResponseListener;
+import org.python.pydev.shared_core.log.Log;
 
 /**
  * PyVariableCollection represents container variables.
  * 
  * It knows how to fetch its contents over the network.
  * 
+ * As an IIndexedValue, the variables view asks for its size and then only for the variables of the
+ * partitions which are expanded, so, only those pages are fetched (see: GetVariablePageCommand). If pydevd
+ * doesn't support getting pages, all the variables are fetched at once (as done for the frame) and the debug
+ * target remembers it (so, pages aren't requested again in the session).
  */
 public class PyVariableCollection extends PyVariable
-        implements IVariableLocator, IVariablesContainerParent {
+        implements IVariableLocator, IVariablesContainerParent, IIndexedValue {
+
+    /**
+     * The number of variables fetched at once (the variables view creates partitions of 100 items).
+     */
+    public static final int PAGE_SIZE = 100;
+
+    /**
+     * Time to wait for a page (if it arrives later, a change event is fired so that the view asks for it again
+     * and until then, the container is shown as empty).
+     */
+    public static final long PAGE_TIMEOUT_MILLIS = 1500;
+
+    private static final int TOTAL_UNKNOWN = -2;
+    private static final int PAGES_NOT_SUPPORTED = -1;
 
     private final ContainerOfVariables variableContainer = new ContainerOfVariables(this, false);
 
+    private final Object pagesLock = new Object();
+
+    /**
+     * page index -> variables in the page. Guarded by pagesLock.
+     */
+    private final Map<Integer, PyVariable[]> pages = new HashMap<Integer, PyVariable[]>();
+
+    /**
+     * The pages requested which didn't arrive yet (so that they're not requested again). Guarded by pagesLock.
+     */
+    private final Set<Integer> pendingPages = new HashSet<Integer>();
+
+    /**
+     * The number of variables in the container (or TOTAL_UNKNOWN/PAGES_NOT_SUPPORTED). Guarded by pagesLock.
+     */
+    private int total = TOTAL_UNKNOWN;
+
+    /**
+     * Incremented when new variables are requested (so that pages requested before are discarded).
+     * Guarded by pagesLock.
+     */
+    private int pagesGeneration = 0;
+
     /**
      * Defines whether object is variable or watchExpression
      */
@@ -71,9 +128,204 @@ public class PyVariableCollection extends PyVariable
 
     @Override
     public IVariable[] getVariables() throws DebugException {
+        if (getTotal() == TOTAL_UNKNOWN) {
+            // The first page is still pending: a change event is fired when it arrives.
+            return new IVariable[0];
+        }
+        PyVariable[] firstPage = getFirstPageIfComplete();
+        if (firstPage != null) {
+            // All the variables came in the first page (requested to get the size): no need to ask again.
+            return this.variableContainer.setFetchedVariables(firstPage);
+        }
         return this.variableContainer.getVariables();
     }
 
+    private PyVariable[] getFirstPageIfComplete() {
+        synchronized (pagesLock) {
+            if (total >= 0 && total <= PAGE_SIZE) {
+                return pages.get(0);
+            }
+            return null;
+        }
+    }
+
+    @Override
+    public int getSize() throws DebugException {
+        int currentTotal = getTotal();
+        if (currentTotal == PAGES_NOT_SUPPORTED) {
+            return getVariables().length;
+        }
+        if (currentTotal == TOTAL_UNKNOWN) {
+            // The first page is still pending: a change event is fired when it arrives.
+            return 0;
+        }
+        return currentTotal;
+    }
+
+    @Override
+    public int getInitialOffset() {
+        return 0;
+    }
+
+    @Override
+    public IVariable getVariable(int offset) throws DebugException {
+        IVariable[] variables = getVariables(offset, 1);
+        if (variables.length == 0) {
+            throw new DebugException(PydevDebugPlugin.makeStatus(IStatus.ERROR, "Unable to get variable at: "
+                    + offset, null));
+        }
+        return variables[0];
+    }
+
+    @Override
+    public IVariable[] getVariables(int offset, int length) throws DebugException {
+        int currentTotal = getTotal();
+        if (currentTotal == TOTAL_UNKNOWN) {
+            // The first page is still pending: a change event is fired when it arrives.
+            return new IVariable[0];
+        }
+        if (currentTotal == PAGES_NOT_SUPPORTED) {
+            IVariable[] variables = getVariables();
+            int end = Math.min(offset + length, variables.length);
+            if (offset < 0 || offset >= end) {
+                return new IVariable[0];
+            }
+            IVariable[] ret = new IVariable[end - offset];
+            System.arraycopy(variables, offset, ret, 0, ret.length);
+            return ret;
+        }
+
+        int end = Math.min(offset + length, currentTotal);
+        if (offset < 0 || offset >= end) {
+            return new IVariable[0];
+        }
+        List<IVariable> ret = new ArrayList<IVariable>(end - offset);
+        for (int pageIndex = offset / PAGE_SIZE; pageIndex <= (end - 1) / PAGE_SIZE; pageIndex++) {
+            PyVariable[] page = getPage(pageIndex);
+            if (page == null) {
+                break; // Not available (a change event is fired if it arrives later on).
+            }
+            int pageStart = pageIndex * PAGE_SIZE;
+            int to = Math.min(end, pageStart + page.length);
+            for (int i = Math.max(offset, pageStart); i < to; i++) {
+                ret.add(page[i - pageStart]);
+            }
+        }
+        return ret.toArray(new IVariable[ret.size()]);
+    }
+
+    /**
+     * @return the number of variables in the container, PAGES_NOT_SUPPORTED (in which case all the variables
+     * should be fetched at once) or TOTAL_UNKNOWN (if the first page didn't arrive yet).
+     */
+    private int getTotal() {
+        synchronized (pagesLock) {
+            if (total != TOTAL_UNKNOWN) {
+                return total;
+            }
+        }
+        getPage(0);
+        synchronized (pagesLock) {
+            return total;
+        }
+    }
+
+    /**
+     * @return the variables in the given page (fetching it if needed) or null if it's not available.
+     */
+    private PyVariable[] getPage(final int pageIndex) {
+        final int generation;
+        synchronized (pagesLock) {
+            PyVariable[] page = pages.get(pageIndex);
+            if (page != null || total == PAGES_NOT_SUPPORTED || pendingPages.contains(pageIndex)) {
+                return page;
+            }
+            generation = pagesGeneration;
+        }
+        AbstractDebugTarget target = getTarget();
+        if (target == null) {
+            return null;
+        }
+        if (!target.isVariablePagesSupported()) {
+            // Already known for this debug session: don't ask for pages again.
+            synchronized (pagesLock) {
+                if (generation == pagesGeneration) {
+                    total = PAGES_NOT_SUPPORTED;
+                }
+            }
+            return null;
+        }
+        synchronized (pagesLock) {
+            if (generation != pagesGeneration || !pendingPages.add(pageIndex)) {
+                return pages.get(pageIndex);
+            }
+        }
+        final CountDownLatch received = new CountDownLatch(1);
+        final AtomicBoolean waiting = new AtomicBoolean(true);
+        GetVariablePageCommand cmd = new GetVariablePageCommand(target, getPyDBLocation(), pageIndex * PAGE_SIZE,
+                PAGE_SIZE);
+        cmd.setCompletionListener(new ICommandResponseListener() {
+
+            @Override
+            public void commandComplete(AbstractDebuggerCommand cmd) {
+                try {
+                    boolean changed = onPageReceived((GetVariablePageCommand) cmd, pageIndex, generation);
+                    if (changed && !waiting.get()) {
+                        // Arrived after we stopped waiting: the view must ask for it again.
+                        AbstractDebugTarget target = getTarget();
+                        if (target != null) {
+                            target.fireEvent(new DebugEvent(PyVariableCollection.this, DebugEvent.CHANGE,
+                                    DebugEvent.CONTENT));
+                        }
+                    }
+                } finally {
+                    received.countDown();
+                }
+            }
+        });
+        target.postCommand(cmd);
+        try {
+            received.await(PAGE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Log.log(e);
+        }
+        waiting.set(false);
+
+        synchronized (pagesLock) {
+            return pages.get(pageIndex);
+        }
+    }
+
+    /**
+     * @return whether the page was added (or pages were found not to be supported).
+     */
+    private boolean onPageReceived(GetVariablePageCommand cmd, int pageIndex, int generation) {
+        VariablesPage page = null;
+        try {
+            page = XMLUtils.XMLToVariablesPage(target, this, cmd.getResponse());
+        } catch (CoreException e) {
+            // Expected if pydevd doesn't support pages (it answers with an error for unknown commands).
+            if (cmd.isCommandNotSupported()) {
+                target.setVariablePagesNotSupported();
+            }
+        }
+        synchronized (pagesLock) {
+            if (generation != pagesGeneration) {
+                return false;
+            }
+            pendingPages.remove(pageIndex);
+            if (page == null || page.total < 0) {
+                total = PAGES_NOT_SUPPORTED;
+                pages.clear();
+                pendingPages.clear();
+                return true;
+            }
+            total = page.total;
+            pages.put(pageIndex, page.vars);
+            return true;
+        }
+    }
+
     @Override
     public GetVariableCommand getVariableCommand(AbstractDebugTarget dbg) {
         return new GetVariableCommand(dbg, getPyDBLocation());
@@ -81,6 +333,12 @@ public class PyVariableCollection extends PyVariable
 
     @Override
     public void forceGetNewVariables() {
+        synchronized (pagesLock) {
+            pagesGeneration++;
+            pages.clear();
+            pendingPages.clear();
+            total = TOTAL_UNKNOWN;
+        }
         this.variableContainer.forceGetNewVariables();
     }
 
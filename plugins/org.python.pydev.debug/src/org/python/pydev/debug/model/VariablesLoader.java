@@ -51,6 +51,16 @@ public class VariablesLoader implements ICommandResponseListener {
         return waitForCommand();
     }
 
+    /**
+     * Used when the variables were already fetched by other means (they're still checked against the
+     * previous variables to keep the tree state and mark the modified ones).
+     */
+    public PyVariable[] onVariablesFetched(PyVariable[] vars) {
+        oldVariables = currentVariables;
+        currentVariables = this.verifyVariablesModified(vars, oldVariables);
+        return currentVariables;
+    }
+
     private PyVariable[] waitForCommand() {
         try {
             // VariablesView does not deal well with children changing asynchronously.
@@ -391,6 +391,68 @@ public class XMLUtils {
         }
     }
 
+    /**
+     * Processes CMD_GET_VARIABLE_PAGE return
+     */
+    static class XMLToVariablesPageInfo extends XMLToVariableInfo {
+        public int offset = 0;
+        public int total = -1;
+
+        public XMLToVariablesPageInfo(AbstractDebugTarget target, IVariableLocator locator) {
+            super(target, locator);
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes)
+                throws SAXException {
+            // <page offset="0" total="5000"/>
+            if (qName.equals("page")) {
+                try {
+                    offset = Integer.parseInt(attributes.getValue("offset"));
+                    total = Integer.parseInt(attributes.getValue("total"));
+                } catch (NumberFormatException e) {
+                    throw new SAXException("Unexpected page: offset=" + attributes.getValue("offset") + " total="
+                            + attributes.getValue("total"), e);
+                }
+            } else {
+                super.startElement(uri, localName, qName, attributes);
+            }
+        }
+    }
+
+    public static class VariablesPage {
+
+        public final PyVariable[] vars;
+        public final int offset;
+
+        /**
+         * -1 if the response had no page information (i.e.: all the variables were returned).
+         */
+        public final int total;
+
+        public VariablesPage(PyVariable[] vars, int offset, int total) {
+            this.vars = vars;
+            this.offset = offset;
+            this.total = total;
+        }
+    }
+
+    public static VariablesPage XMLToVariablesPage(AbstractDebugTarget target, IVariableLocator locator,
+            String payload) throws CoreException {
+        try {
+            SAXParser parser = getSAXParser();
+            XMLToVariablesPageInfo info = new XMLToVariablesPageInfo(target, locator);
+            parser.parse(new ByteArrayInputStream(payload.getBytes()), info);
+            return new VariablesPage(info.vars.toArray(new PyVariable[info.vars.size()]), info.offset, info.total);
+        } catch (CoreException e) {
+            throw e;
+        } catch (SAXException e) {
+            throw new CoreException(PydevDebugPlugin.makeStatus(IStatus.ERROR, "Unexpected XML error", e));
+        } catch (IOException e) {
+            throw new CoreException(PydevDebugPlugin.makeStatus(IStatus.ERROR, "Unexpected XML error", e));
+        }
+    }
+
     // Processing referrers --------------------------------------------------------------------------------------------
 
     /**
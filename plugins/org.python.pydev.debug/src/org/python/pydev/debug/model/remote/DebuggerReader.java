@@ -19,6 +19,7 @@ import org.python.pydev.core.log.Log;
 import org.python.pydev.debug.core.PydevDebugPlugin;
 import org.python.pydev.debug.model.AbstractDebugTarget;
 import org.python.pydev.debug.model.AbstractDebugTargetWithTransmission;
+import org.python.pydev.shared_core.string.FastStringBuffer;
 
 
 /**
@@ -40,11 +41,6 @@ public class DebuggerReader implements Runnable {
      */
     private volatile boolean done = false;
 
-    /**
-     * Lock object for sleeping.
-     */
-    private Object lock = new Object();
-
     /**
      * commands waiting for response. Their keys are the sequence ids
      */
@@ -125,7 +121,7 @@ public class DebuggerReader implements Runnable {
 
     /**
      * keep reading until we finish (that should happen when an exception is thrown, or if it is set as
-     * done from outside)
+     * done from outside). Reading the line blocks until some contents are available.
      * 
      * @see java.lang.Runnable#run()
      */
@@ -140,9 +136,6 @@ public class DebuggerReader implements Runnable {
                 if (cmdLine != null && cmdLine.trim().length() > 0) {
                     processCommand(cmdLine);
                 }
-                synchronized (lock) {
-                    Thread.sleep(50);
-                }
             } catch (Exception e1) {
                 done = true;
                 //that's ok, it means that the client finished
@@ -169,7 +162,7 @@ public class DebuggerReader implements Runnable {
      * @throws IOException
      */
     private String readLine() throws IOException {
-        StringBuffer contents = new StringBuffer();
+        FastStringBuffer contents = new FastStringBuffer();
         int i;
         while ((i = in.read()) != -1) {
             char c = (char) i;
@@ -12,12 +12,17 @@ import java.net.Socket;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
 
 import org.python.pydev.core.log.Log;
+import org.python.pydev.shared_core.string.FastStringBuffer;
 
 /**
  * Writer writes debugger commands to the network. Use postCommand to put new
  * ones in queue.
+ *
+ * The writer thread blocks until a command is posted (so, it's written right away) and all the commands
+ * available at that point are sent in a single write.
  */
 public class DebuggerWriter implements Runnable {
 
@@ -27,9 +32,9 @@ public class DebuggerWriter implements Runnable {
     private Socket socket;
 
     /**
-     * a list of RemoteDebuggerCommands
+     * a queue of RemoteDebuggerCommands
      */
-    private List<AbstractDebuggerCommand> cmdQueue = new ArrayList<AbstractDebuggerCommand>();
+    private final LinkedBlockingQueue<AbstractDebuggerCommand> cmdQueue = new LinkedBlockingQueue<AbstractDebuggerCommand>();
 
     private OutputStreamWriter out;
 
@@ -39,9 +44,9 @@ public class DebuggerWriter implements Runnable {
     private volatile boolean done = false;
 
     /**
-     * Lock object for sleeping.
+     * The thread running this writer (interrupted when we're done so that it doesn't stay waiting for commands).
      */
-    private Object lock = new Object();
+    private volatile Thread writerThread;
 
     public DebuggerWriter(Socket s) throws IOException {
         socket = s;
@@ -52,13 +57,15 @@ public class DebuggerWriter implements Runnable {
      * Add command for processing
      */
     public void postCommand(AbstractDebuggerCommand cmd) {
-        synchronized (cmdQueue) {
-            cmdQueue.add(cmd);
-        }
+        cmdQueue.add(cmd);
     }
 
     public void done() {
         this.done = true;
+        Thread t = writerThread;
+        if (t != null) {
+            t.interrupt();
+        }
     }
 
     /**
@@ -66,42 +73,48 @@ public class DebuggerWriter implements Runnable {
      */
     @Override
     public void run() {
-        while (!done) {
-            AbstractDebuggerCommand cmd = null;
-            synchronized (cmdQueue) {
-                if (cmdQueue.size() > 0) {
-                    cmd = cmdQueue.remove(0);
-                }
-            }
-            try {
-                if (cmd != null) {
-                    String outgoing;
-                    try {
-                        outgoing = cmd.getOutgoing();
-                        if (outgoing == null) {
+        writerThread = Thread.currentThread();
+        List<AbstractDebuggerCommand> cmds = new ArrayList<AbstractDebuggerCommand>();
+        FastStringBuffer buf = new FastStringBuffer(1024);
+        try {
+            while (!done) {
+                try {
+                    cmds.add(cmdQueue.take());
+                    cmdQueue.drainTo(cmds);
+
+                    buf.clear();
+                    for (AbstractDebuggerCommand cmd : cmds) {
+                        String outgoing;
+                        try {
+                            outgoing = cmd.getOutgoing();
+                            if (outgoing == null) {
+                                continue;
+                            }
+                        } catch (Throwable e) {
+                            Log.log(e);
                             continue;
                         }
-                    } catch (Throwable e) {
-                        Log.log(e);
-                        continue;
-                    }
 
-                    cmd.aboutToSend();
-                    out.write(outgoing);
-                    out.write("\n");
-                    out.flush();
+                        cmd.aboutToSend();
+                        buf.append(outgoing).append('\n');
+                    }
+                    if (buf.length() > 0) {
+                        out.write(buf.getInternalCharsArray(), 0, buf.length());
+                        out.flush();
+                    }
+                } catch (InterruptedException | IOException e) {
+                    done = true;
+                } catch (Throwable e1) {
+                    Log.log(e1); //Unexpected error (but not done).
+                } finally {
+                    cmds.clear();
                 }
-                synchronized (lock) {
-                    Thread.sleep(100);
+                if ((socket == null) || !socket.isConnected()) {
+                    done = true;
                 }
-            } catch (InterruptedException | IOException e) {
-                done = true;
-            } catch (Throwable e1) {
-                Log.log(e1); //Unexpected error (but not done).
-            }
-            if ((socket == null) || !socket.isConnected()) {
-                done = true;
             }
+        } finally {
+            writerThread = null;
         }
     }
 }
@@ -0,0 +1,64 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package org.python.pydev.debug.model.remote;
+
+import org.python.pydev.debug.model.AbstractDebugTarget;
+import org.python.pydev.shared_core.string.FastStringBuffer;
+
+/**
+ * Gets only a page of the variables of a container (so that big containers don't have to be fully
+ * transferred/created to show only the part which is visible).
+ *
+ * The payload is: offset\tlimit\tlocator
+ *
+ * The response is the same one from CMD_GET_VARIABLE with an additional element with the total number of
+ * variables in the container:
+ *
+ * <xml><page offset="0" total="5000"/><var .../><var .../></xml>
+ *
+ * Note: a pydevd which doesn't know about this command answers it with an error (and a response without the
+ * page element means that all the variables were returned), so, the caller must fall back to
+ * the GetVariableCommand in those cases.
+ */
+public class GetVariablePageCommand extends GetVariableCommand {
+
+    private final int offset;
+    private final int limit;
+
+    public GetVariablePageCommand(AbstractDebugTarget debugger, String locator, int offset, int limit) {
+        super(debugger, locator);
+        this.offset = offset;
+        this.limit = limit;
+    }
+
+    @Override
+    public String getOutgoing() {
+        FastStringBuffer buf = new FastStringBuffer(locator.length() + 20);
+        buf.append(offset).append('\t').append(limit).append('\t').append(locator);
+        return makeCommand(getCommandId(), sequence, buf.toString());
+    }
+
+    @Override
+    protected int getCommandId() {
+        return CMD_GET_VARIABLE_PAGE;
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * @return whether pydevd answered that it doesn't know this command (i.e.: a version without pages).
+     */
+    public boolean isCommandNotSupported() {
+        return isError && payload != null && payload.indexOf("unexpected command") != -1;
+    }
+}
@@ -27,7 +27,7 @@ public class InformationPresenterWithLineTracker extends AbstractTooltipInformat
         //name of the test.
 
         //(the first line is: TestName Status: status Time: time\n\n)
-        //See: org.python.pydev.debug.pyunit.PyUnitView.notifyTest(PyUnitTestResult, boolean)
+        //See: org.python.pydev.debug.pyunit.PyUnitView.fillItem(TreeItem, int)
         int firstSpace = hoverInfo.indexOf(' ');
         if (firstSpace > 0) {
             StyleRangeWithCustomData range = new StyleRangeWithCustomData();
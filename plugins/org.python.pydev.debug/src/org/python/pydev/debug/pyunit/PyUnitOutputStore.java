@@ -0,0 +1,183 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package org.python.pydev.debug.pyunit;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.python.pydev.core.log.Log;
+
+/**
+ * Keeps the outputs of the tests (captured output and error contents) in a temporary file so that they don't need
+ * to be kept in memory (they're only read back when needed -- i.e.: to show the output of a selected test).
+ *
+ * If it's not possible to create the temporary file, the contents are kept in memory.
+ */
+/*default*/final class PyUnitOutputStore {
+
+    /**
+     * Handle returned for an empty string (which is never written).
+     */
+    public static final long EMPTY = -1;
+
+    /**
+     * The temporary files which weren't disposed yet (removed in a single shutdown hook instead of registering
+     * each file with File.deleteOnExit(), which would keep an entry per file until the VM finishes).
+     */
+    private static final Set<File> liveFiles = new HashSet<File>();
+    private static boolean shutdownHookRegistered;
+
+    private static void registerLiveFile(File file) {
+        synchronized (liveFiles) {
+            liveFiles.add(file);
+            if (!shutdownHookRegistered) {
+                shutdownHookRegistered = true;
+                Thread hook = new Thread() {
+                    @Override
+                    public void run() {
+                        synchronized (liveFiles) {
+                            for (File f : liveFiles) {
+                                f.delete();
+                            }
+                            liveFiles.clear();
+                        }
+                    }
+                };
+                hook.setName("PyDev: Delete PyUnit outputs");
+                Runtime.getRuntime().addShutdownHook(hook);
+            }
+        }
+    }
+
+    private static void unregisterLiveFile(File file) {
+        synchronized (liveFiles) {
+            liveFiles.remove(file);
+        }
+    }
+
+    private final Object lock = new Object();
+
+    private File file;
+    private RandomAccessFile randomAccessFile;
+    private long size;
+
+    /**
+     * Only used if it wasn't possible to create the temporary file.
+     */
+    private List<String> inMemory;
+
+    private boolean disposed;
+
+    /**
+     * @return a handle to get the contents later on.
+     */
+    public long append(String contents) {
+        if (contents == null || contents.length() == 0) {
+            return EMPTY;
+        }
+        synchronized (lock) {
+            if (disposed) {
+                return EMPTY;
+            }
+            if (randomAccessFile == null && inMemory == null) {
+                try {
+                    file = File.createTempFile("pyunit_output", ".bin");
+                    registerLiveFile(file);
+                    randomAccessFile = new RandomAccessFile(file, "rw");
+                } catch (IOException e) {
+                    Log.log("Unable to create file to store the pyunit output (keeping it in memory).", e);
+                    inMemory = new ArrayList<String>();
+                }
+            }
+            if (inMemory != null) {
+                inMemory.add(contents);
+                return inMemory.size() - 1;
+            }
+
+            byte[] bytes = contents.getBytes(StandardCharsets.UTF_8);
+            long handle = size;
+            try {
+                randomAccessFile.seek(handle);
+                randomAccessFile.writeInt(bytes.length);
+                randomAccessFile.write(bytes);
+            } catch (IOException e) {
+                Log.log(e);
+                return EMPTY;
+            }
+            size += 4 + bytes.length;
+            return handle;
+        }
+    }
+
+    /**
+     * @return the contents for a handle gotten from append.
+     */
+    public String get(long handle) {
+        if (handle == EMPTY) {
+            return "";
+        }
+        synchronized (lock) {
+            if (disposed) {
+                return "";
+            }
+            if (inMemory != null) {
+                return inMemory.get((int) handle);
+            }
+            try {
+                randomAccessFile.seek(handle);
+                int len = randomAccessFile.readInt();
+                byte[] bytes = new byte[len];
+                randomAccessFile.readFully(bytes);
+                return new String(bytes, StandardCharsets.UTF_8);
+            } catch (IOException e) {
+                Log.log(e);
+                return "";
+            }
+        }
+    }
+
+    /**
+     * @return the temporary file where the contents are written (null if still not created or disposed).
+     */
+    /*default*/ File getFile() {
+        synchronized (lock) {
+            return file;
+        }
+    }
+
+    /**
+     * Releases the temporary file (afterwards, all the contents are returned as empty).
+     */
+    public void dispose() {
+        synchronized (lock) {
+            if (disposed) {
+                return;
+            }
+            disposed = true;
+            inMemory = null;
+            if (randomAccessFile != null) {
+                try {
+                    randomAccessFile.close();
+                } catch (IOException e) {
+                    //Ignore
+                }
+                randomAccessFile = null;
+            }
+            if (file != null) {
+                file.delete();
+                unregisterLiveFile(file);
+                file = null;
+            }
+        }
+    }
+}
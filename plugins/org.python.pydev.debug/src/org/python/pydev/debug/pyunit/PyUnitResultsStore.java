@@ -0,0 +1,225 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package org.python.pydev.debug.pyunit;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact (columnar) storage for the results of a test run.
+ *
+ * The status and location are kept as indexes in a table of unique strings, the time as a double (unless it
+ * can't be restored to the same string) and the outputs are kept in a PyUnitOutputStore (so, the only string
+ * kept for each result is the test name).
+ *
+ * PyUnitTestResult instances are created on demand (see: getResult(int)).
+ */
+public final class PyUnitResultsStore {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final Object lock = new Object();
+
+    private int size;
+    private int[] statuses = new int[INITIAL_CAPACITY];
+    private int[] locations = new int[INITIAL_CAPACITY];
+    private String[] tests = new String[INITIAL_CAPACITY];
+    private double[] times = new double[INITIAL_CAPACITY];
+    private long[] capturedOutputs = new long[INITIAL_CAPACITY];
+    private long[] errorContents = new long[INITIAL_CAPACITY];
+
+    /**
+     * Times which couldn't be kept as a double.
+     */
+    private final Map<Integer, String> timesAsStr = new HashMap<Integer, String>();
+
+    private final List<String> stringsTable = new ArrayList<String>();
+    private final Map<String, Integer> stringToIndex = new HashMap<String, Integer>();
+
+    private final PyUnitOutputStore outputStore = new PyUnitOutputStore();
+
+    /**
+     * @return the index of the added result.
+     */
+    public int add(String status, String location, String test, String capturedOutput, String errorContents,
+            String time) {
+        //Write the outputs outside of the lock.
+        long capturedOutputHandle = outputStore.append(capturedOutput);
+        long errorContentsHandle = outputStore.append(errorContents);
+
+        synchronized (lock) {
+            if (size == tests.length) {
+                int newLen = size * 2;
+                statuses = Arrays.copyOf(statuses, newLen);
+                locations = Arrays.copyOf(locations, newLen);
+                tests = Arrays.copyOf(tests, newLen);
+                times = Arrays.copyOf(times, newLen);
+                capturedOutputs = Arrays.copyOf(capturedOutputs, newLen);
+                this.errorContents = Arrays.copyOf(this.errorContents, newLen);
+            }
+            int i = size;
+            statuses[i] = getStringIndex(status);
+            locations[i] = getStringIndex(location);
+            tests[i] = test;
+            times[i] = parseTime(time);
+            if (Double.isNaN(times[i])) {
+                timesAsStr.put(i, time);
+            }
+            capturedOutputs[i] = capturedOutputHandle;
+            this.errorContents[i] = errorContentsHandle;
+            size++;
+            return i;
+        }
+    }
+
+    private int getStringIndex(String s) {
+        Integer i = stringToIndex.get(s);
+        if (i == null) {
+            i = stringsTable.size();
+            stringsTable.add(s);
+            stringToIndex.put(s, i);
+        }
+        return i;
+    }
+
+    /**
+     * @return the time as a double or NaN if it can't be restored to the same string.
+     */
+    private static double parseTime(String time) {
+        try {
+            double d = Double.parseDouble(time);
+            if (formatTime(d).equals(time)) {
+                return d;
+            }
+        } catch (NumberFormatException e) {
+            //Ignore
+        }
+        return Double.NaN;
+    }
+
+    private static String formatTime(double d) {
+        String s = Double.toString(d);
+        if (s.indexOf('E') != -1) {
+            return BigDecimal.valueOf(d).stripTrailingZeros().toPlainString();
+        }
+        return s;
+    }
+
+    public int size() {
+        synchronized (lock) {
+            return size;
+        }
+    }
+
+    public String getStatus(int i) {
+        synchronized (lock) {
+            checkIndex(i);
+            return stringsTable.get(statuses[i]);
+        }
+    }
+
+    public String getLocation(int i) {
+        synchronized (lock) {
+            checkIndex(i);
+            return stringsTable.get(locations[i]);
+        }
+    }
+
+    public String getTest(int i) {
+        synchronized (lock) {
+            checkIndex(i);
+            return tests[i];
+        }
+    }
+
+    public String getTime(int i) {
+        synchronized (lock) {
+            checkIndex(i);
+            double d = times[i];
+            if (Double.isNaN(d)) {
+                return timesAsStr.get(i);
+            }
+            return formatTime(d);
+        }
+    }
+
+    /**
+     * @return the time as a double (NaN if it's not available as a number).
+     */
+    public double getTimeAsDouble(int i) {
+        synchronized (lock) {
+            checkIndex(i);
+            return times[i];
+        }
+    }
+
+    public String getCapturedOutput(int i) {
+        long handle;
+        synchronized (lock) {
+            checkIndex(i);
+            handle = capturedOutputs[i];
+        }
+        return outputStore.get(handle);
+    }
+
+    public String getErrorContents(int i) {
+        long handle;
+        synchronized (lock) {
+            checkIndex(i);
+            handle = errorContents[i];
+        }
+        return outputStore.get(handle);
+    }
+
+    /**
+     * @return whether the status for the given result is a failure or error (i.e.: not ok nor skipped).
+     */
+    public boolean isFailureOrError(int i) {
+        String status = getStatus(i);
+        return !PyUnitTestResult.isOk(status) && !PyUnitTestResult.isSkip(status);
+    }
+
+    private void checkIndex(int i) {
+        if (i < 0 || i >= size) {
+            throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + size);
+        }
+    }
+
+    /**
+     * @return a new PyUnitTestResult with the information of the given index (the outputs are only read when
+     * requested).
+     */
+    public PyUnitTestResult getResult(PyUnitTestRun testRun, int i) {
+        String status;
+        String location;
+        String test;
+        String time;
+        synchronized (lock) {
+            checkIndex(i);
+            status = stringsTable.get(statuses[i]);
+            location = stringsTable.get(locations[i]);
+            test = tests[i];
+            time = getTime(i);
+        }
+        return new PyUnitTestResult(testRun, i, status, location, test, time);
+    }
+
+    /*default*/ PyUnitOutputStore getOutputStore() {
+        return outputStore;
+    }
+
+    /**
+     * Releases the resources used to keep the outputs.
+     */
+    public void dispose() {
+        outputStore.dispose();
+    }
+}
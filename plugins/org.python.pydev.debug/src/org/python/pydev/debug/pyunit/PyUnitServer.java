@@ -25,8 +25,10 @@ import org.eclipse.debug.core.ILaunchManager;
 import org.eclipse.debug.core.ILaunchesListener2;
 import org.python.pydev.core.log.Log;
 import org.python.pydev.debug.ui.launching.PythonRunnerConfig;
+import org.python.pydev.shared_core.callbacks.ICallback;
 import org.python.pydev.shared_core.net.SocketUtil;
 import org.python.pydev.shared_core.string.StringUtils;
+import org.python.pydev.shared_core.structure.Tuple;
 
 public class PyUnitServer implements IPyUnitServer {
 
@@ -40,6 +42,17 @@ public class PyUnitServer implements IPyUnitServer {
      */
     protected int port;
 
+    /**
+     * Server used to get information on the tests running through a streaming channel (preferred over the
+     * xml-rpc server, which is still available for clients which don't support it).
+     */
+    protected PyUnitStreamServer streamServer;
+
+    /**
+     * The port to be used to communicate with the python server through the streaming channel.
+     */
+    protected int streamPort;
+
     /**
      * The configuration used to do the launch.
      */
@@ -145,6 +158,40 @@ public class PyUnitServer implements IPyUnitServer {
 
     };
 
+    /**
+     * Handles the events received in the streaming channel (the same dispatches from xml-rpc are used).
+     */
+    private final ICallback<Object, Tuple<String, String[]>> streamHandler =
+            new ICallback<Object, Tuple<String, String[]>>() {
+
+        @Override
+        public Object call(final Tuple<String, String[]> event) {
+            Dispatch actual = dispatch.get(event.o1);
+            if (actual != null) {
+                actual.handle(new IRequest() {
+
+                    @Override
+                    public int getParameterCount() {
+                        return event.o2.length;
+                    }
+
+                    @Override
+                    public Object getParameter(int i) {
+                        return event.o2[i];
+                    }
+
+                    @Override
+                    public String getMethodName() {
+                        return event.o1;
+                    }
+                });
+            } else {
+                Log.log("Unhandled notification: " + event.o1);
+            }
+            return null;
+        }
+    };
+
     private final HashMap<String, Dispatch> dispatch = new HashMap<String, Dispatch>();
 
     private void initializeDispatches() {
@@ -329,6 +376,8 @@ public class PyUnitServer implements IPyUnitServer {
         });
 
         this.webServer.start();
+        this.streamServer = new PyUnitStreamServer(streamHandler);
+        this.streamPort = this.streamServer.getPort();
 
         ILaunchManager launchManager = DebugPlugin.getDefault().getLaunchManager();
         launchManager.addLaunchListener(this.launchListener);
@@ -353,6 +402,13 @@ public class PyUnitServer implements IPyUnitServer {
         return port;
     }
 
+    /**
+     * @return the port being used to communicate with the python side through the streaming channel.
+     */
+    public int getStreamPort() {
+        return streamPort;
+    }
+
     /**
      * Disposes of the pyunit server. When the launch is terminated or removed from the launch manager, it's
      * automatically disposed.
@@ -376,6 +432,12 @@ public class PyUnitServer implements IPyUnitServer {
                 this.webServer = null;
             }
 
+            if (this.streamServer != null) {
+                //Note: done before notifying the listeners (it waits for the pending notifications to be read).
+                this.streamServer.dispose();
+                this.streamServer = null;
+            }
+
             for (IPyUnitServerListener listener : this.listeners) {
                 listener.notifyDispose();
             }
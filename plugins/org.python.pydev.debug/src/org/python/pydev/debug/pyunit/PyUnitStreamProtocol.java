@@ -0,0 +1,139 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package org.python.pydev.debug.pyunit;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.python.pydev.shared_core.structure.Tuple;
+
+/**
+ * Format of the streaming channel used by the python test runner to notify the results
+ * (see: _pydev_runfiles/pydev_runfiles_xml_rpc.py: _StreamServer).
+ *
+ * When connected, the client sends the version (int) and afterwards only frames:
+ *
+ * frame: int (size of the payload in bytes) + payload
+ * payload: int (number of events) + events
+ * event: string (method name) + int (number of parameters) + parameters (strings)
+ * string: int (size in bytes) + utf-8 bytes
+ *
+ * All the ints are 4 bytes big endian. The method names and parameters are the same ones used in the xml-rpc
+ * notifications (i.e.: notifyTest, notifyStartTest, notifyTestsCollected, notifyTestRunFinished).
+ */
+public final class PyUnitStreamProtocol {
+
+    public static final int VERSION = 1;
+
+    /**
+     * Just a sanity check (so that we don't try to allocate some huge buffer if something goes wrong).
+     */
+    public static final int MAX_FRAME_SIZE = 256 * 1024 * 1024;
+
+    private PyUnitStreamProtocol() {
+    }
+
+    /**
+     * Writes the given events (method name, parameters) as a single frame.
+     */
+    public static void writeFrame(DataOutputStream out, List<Tuple<String, String[]>> events) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(events.size() * 128 + 4);
+        DataOutputStream payload = new DataOutputStream(bytes);
+        payload.writeInt(events.size());
+        for (Tuple<String, String[]> event : events) {
+            writeString(payload, event.o1);
+            String[] params = event.o2;
+            payload.writeInt(params.length);
+            for (String param : params) {
+                writeString(payload, param);
+            }
+        }
+        payload.flush();
+        out.writeInt(bytes.size());
+        bytes.writeTo(out);
+        out.flush();
+    }
+
+    /**
+     * @return the events in the next frame or null if the stream finished (before a new frame was started).
+     */
+    public static List<Tuple<String, String[]>> readFrame(DataInputStream in) throws IOException {
+        int size;
+        try {
+            size = in.readInt();
+        } catch (EOFException e) {
+            return null;
+        }
+        if (size < 4 || size > MAX_FRAME_SIZE) {
+            throw new IOException("Invalid frame size: " + size);
+        }
+        byte[] bytes = new byte[size];
+        in.readFully(bytes);
+
+        Reader reader = new Reader(bytes);
+        int eventsLen = reader.readInt();
+        List<Tuple<String, String[]>> events = new ArrayList<Tuple<String, String[]>>(eventsLen);
+        for (int i = 0; i < eventsLen; i++) {
+            String method = reader.readString();
+            int paramsLen = reader.readInt();
+            String[] params = new String[paramsLen];
+            for (int j = 0; j < paramsLen; j++) {
+                params[j] = reader.readString();
+            }
+            events.add(new Tuple<String, String[]>(method, params));
+        }
+        return events;
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Reads the contents of a frame (already fully in memory).
+     */
+    private static final class Reader {
+
+        private final byte[] bytes;
+        private int pos;
+
+        private Reader(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        private int readInt() throws IOException {
+            if (pos + 4 > bytes.length) {
+                throw new IOException("Unexpected end of frame.");
+            }
+            int ret = ((bytes[pos] & 0xFF) << 24) | ((bytes[pos + 1] & 0xFF) << 16)
+                    | ((bytes[pos + 2] & 0xFF) << 8) | (bytes[pos + 3] & 0xFF);
+            pos += 4;
+            if (ret < 0) {
+                throw new IOException("Invalid length in frame: " + ret);
+            }
+            return ret;
+        }
+
+        private String readString() throws IOException {
+            int len = readInt();
+            if (pos + len > bytes.length) {
+                throw new IOException("Unexpected end of frame.");
+            }
+            String ret = new String(bytes, pos, len, StandardCharsets.UTF_8);
+            pos += len;
+            return ret;
+        }
+    }
+}
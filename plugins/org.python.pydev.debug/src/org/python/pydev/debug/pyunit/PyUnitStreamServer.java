@@ -0,0 +1,166 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package org.python.pydev.debug.pyunit;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.python.pydev.core.log.Log;
+import org.python.pydev.shared_core.callbacks.ICallback;
+import org.python.pydev.shared_core.net.SocketUtil;
+import org.python.pydev.shared_core.structure.Tuple;
+
+/**
+ * Receives the notifications of the python test runner through a streaming channel (see PyUnitStreamProtocol).
+ *
+ * Contrary to the xml-rpc server, the runner doesn't wait for any reply (so, it's never blocked while the
+ * notifications are being handled). Each connection (i.e.: there may be one for each pytest-xdist node) is
+ * handled in its own thread and its events are passed to the handler in the order they were received.
+ */
+public final class PyUnitStreamServer {
+
+    private final ServerSocket serverSocket;
+
+    private final ICallback<Object, Tuple<String, String[]>> handler;
+
+    private final List<Socket> connections = new ArrayList<Socket>();
+
+    private volatile boolean disposed = false;
+
+    private static final long DISPOSE_TIMEOUT_MILLIS = 2000;
+
+    /**
+     * @param handler receives each event (method name, parameters).
+     */
+    public PyUnitStreamServer(ICallback<Object, Tuple<String, String[]>> handler) throws IOException {
+        this.handler = handler;
+        this.serverSocket = SocketUtil.createLocalServerSocket();
+
+        Thread acceptThread = new Thread() {
+            @Override
+            public void run() {
+                while (!disposed) {
+                    Socket socket;
+                    try {
+                        socket = serverSocket.accept();
+                    } catch (IOException e) {
+                        if (!disposed) {
+                            Log.log(e);
+                        }
+                        return;
+                    }
+                    startReading(socket);
+                }
+            }
+        };
+        acceptThread.setName("PyUnitStreamServer: accept (port: " + getPort() + ")");
+        acceptThread.setDaemon(true);
+        acceptThread.start();
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    private void startReading(final Socket socket) {
+        synchronized (connections) {
+            if (disposed) {
+                close(socket);
+                return;
+            }
+            connections.add(socket);
+        }
+        Thread readThread = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream(),
+                            64 * 1024));
+                    int version = in.readInt();
+                    if (version != PyUnitStreamProtocol.VERSION) {
+                        Log.log("Unexpected version in pyunit stream: " + version);
+                        return;
+                    }
+                    while (true) {
+                        List<Tuple<String, String[]>> events = PyUnitStreamProtocol.readFrame(in);
+                        if (events == null) {
+                            return;
+                        }
+                        for (Tuple<String, String[]> event : events) {
+                            try {
+                                handler.call(event);
+                            } catch (Throwable e) {
+                                //Never stop reading because of some error here.
+                                Log.log(e);
+                            }
+                        }
+                    }
+                } catch (IOException e) {
+                    if (!disposed) {
+                        Log.log(e);
+                    }
+                } finally {
+                    synchronized (connections) {
+                        connections.remove(socket);
+                        connections.notifyAll();
+                    }
+                    close(socket);
+                }
+            }
+        };
+        readThread.setName("PyUnitStreamServer: read (port: " + getPort() + ")");
+        readThread.setDaemon(true);
+        readThread.start();
+    }
+
+    /**
+     * Stops accepting new connections. As the process is usually already finished at this point, the current
+     * connections are given some time to be read until their end (so that the last notifications aren't lost)
+     * and are closed afterwards.
+     */
+    public void dispose() {
+        if (disposed) {
+            return;
+        }
+        disposed = true;
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            //Ignore
+        }
+        List<Socket> sockets;
+        synchronized (connections) {
+            long timeout = System.currentTimeMillis() + DISPOSE_TIMEOUT_MILLIS;
+            long wait;
+            while (connections.size() > 0 && (wait = timeout - System.currentTimeMillis()) > 0) {
+                try {
+                    connections.wait(wait);
+                } catch (InterruptedException e) {
+                    break;
+                }
+            }
+            sockets = new ArrayList<Socket>(connections);
+            connections.clear();
+        }
+        for (Socket socket : sockets) {
+            close(socket);
+        }
+    }
+
+    private static void close(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            //Ignore
+        }
+    }
+}
@@ -36,16 +36,31 @@ public class PyUnitTestResult {
     public final String status;
     public final String location;
     public final String test;
-    public final String capturedOutput;
-    public final String errorContents;
     public final String time;
     private WeakReference<PyUnitTestRun> testRun;
 
-    public final String STATUS_OK = "ok";
-    public final String STATUS_OK_SKIPPED = "ok (skipped)";
-    public final String STATUS_SKIP = "skip";
-    public final String STATUS_FAIL = "fail";
-    public final String STATUS_ERROR = "error";
+    /**
+     * The outputs are only kept here while the result wasn't added to the test run (afterwards, they're
+     * null and are gotten from the PyUnitResultsStore of the test run when requested).
+     *
+     * @deprecated use {@link #getCapturedOutput()} and {@link #getErrorContents()} (these fields are null for
+     * results gotten from the test run).
+     */
+    @Deprecated
+    public final String capturedOutput;
+    @Deprecated
+    public final String errorContents;
+
+    /**
+     * The index of this result in the PyUnitResultsStore (-1 if it was not added to the store).
+     */
+    private final int storeIndex;
+
+    public static final String STATUS_OK = "ok";
+    public static final String STATUS_OK_SKIPPED = "ok (skipped)";
+    public static final String STATUS_SKIP = "skip";
+    public static final String STATUS_FAIL = "fail";
+    public static final String STATUS_ERROR = "error";
     public final String index;
 
     public PyUnitTestResult(PyUnitTestRun testRun, String status, String location, String test, String capturedOutput,
@@ -66,18 +81,66 @@ public class PyUnitTestResult {
         this.errorContents = errorContents;
         this.time = time;
         this.index = testRun.getNextTestIndex();
+        this.storeIndex = -1;
+    }
+
+    /**
+     * Constructor for a result which is already in the PyUnitResultsStore of the test run.
+     */
+    /*default*/ PyUnitTestResult(PyUnitTestRun testRun, int storeIndex, String status, String location, String test,
+            String time) {
+        this.testRun = new WeakReference<PyUnitTestRun>(testRun);
+        this.status = status;
+        this.location = location;
+        this.test = test;
+        this.capturedOutput = null;
+        this.errorContents = null;
+        this.time = time;
+        this.index = Integer.toString(storeIndex + 1);
+        this.storeIndex = storeIndex;
     }
 
     public PyUnitTestRun getTestRun() {
         return this.testRun.get();
     }
 
+    /**
+     * @return the index of this result in the PyUnitResultsStore of the test run (-1 if it's not there).
+     */
+    public int getStoreIndex() {
+        return storeIndex;
+    }
+
+    public String getCapturedOutput() {
+        if (capturedOutput != null) {
+            return capturedOutput;
+        }
+        PyUnitTestRun run = getTestRun();
+        return run != null ? run.getResultsStore().getCapturedOutput(storeIndex) : "";
+    }
+
+    public String getErrorContents() {
+        if (errorContents != null) {
+            return errorContents;
+        }
+        PyUnitTestRun run = getTestRun();
+        return run != null ? run.getResultsStore().getErrorContents(storeIndex) : "";
+    }
+
     public boolean isOk() {
-        return STATUS_OK.equals(this.status);
+        return isOk(this.status);
     }
 
     public boolean isSkip() {
-        return STATUS_SKIP.equals(this.status) || STATUS_OK_SKIPPED.equals(this.status);
+        return isSkip(this.status);
+    }
+
+    public static boolean isOk(String status) {
+        return STATUS_OK.equals(status);
+    }
+
+    public static boolean isSkip(String status) {
+        return STATUS_SKIP.equals(status) || STATUS_OK_SKIPPED.equals(status);
     }
 
     /**
@@ -87,13 +150,15 @@ public class PyUnitTestResult {
     @Override
     public String toString() {
         int fixedContentsLen = 50;
+        String errorContents = this.getErrorContents();
+        String capturedOutput = this.getCapturedOutput();
         FastStringBuffer buf = new FastStringBuffer(this.test.length() + this.status.length() + this.time.length()
-                + this.location.length() + this.errorContents.length() + this.capturedOutput.length()
+                + this.location.length() + errorContents.length() + capturedOutput.length()
                 + fixedContentsLen);
 
         return buf.append(this.test).append(" Status: ").append(this.status).append(" Time: ").append(this.time)
-                .append("\n\n").append("File: ").append(this.location).append("\n\n").append(this.errorContents)
-                .append("\n\n").append(this.capturedOutput).append("\n\n").toString();
+                .append("\n\n").append("File: ").append(this.location).append("\n\n").append(errorContents)
+                .append("\n\n").append(capturedOutput).append("\n\n").toString();
     }
 
     public void open() {
@@ -9,11 +9,13 @@ package org.python.pydev.debug.pyunit;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
@@ -37,12 +39,18 @@ import org.xml.sax.helpers.DefaultHandler;
 
 public class PyUnitTestRun {
 
-    private final ArrayList<PyUnitTestResult> results;
+    private final PyUnitResultsStore results;
     private final Map<Tuple<String, String>, PyUnitTestStarted> testsRunning;
 
     private final Object resultsLock = new Object();
     private final Object testsRunningLock = new Object();
 
+    /**
+     * Results (PyUnitTestResult) and tests started (PyUnitTestStarted) notified but still not processed
+     * (they're only added to the results when processPending() is called -- usually in the UI thread).
+     */
+    private final ConcurrentLinkedQueue<Object> pending = new ConcurrentLinkedQueue<Object>();
+
     public final String name;
 
     private static int currentRun = 0;
@@ -66,7 +74,7 @@ public class PyUnitTestRun {
             currentRun += 1;
         }
         this.pyUnitLaunch = server;
-        this.results = new ArrayList<PyUnitTestResult>();
+        this.results = new PyUnitResultsStore();
         this.testsRunning = new LinkedHashMap<Tuple<String, String>, PyUnitTestStarted>();
     }
 
@@ -98,7 +106,8 @@ public class PyUnitTestRun {
             this.testsRunning.remove(key);//when a result is added, it should be removed from the tests running.
         }
         synchronized (resultsLock) {
-            results.add(result);
+            results.add(result.status, result.location, result.test, result.getCapturedOutput(),
+                    result.getErrorContents(), result.time);
         }
     }
 
@@ -110,17 +119,67 @@ public class PyUnitTestRun {
     }
 
     /**
-     * @return the same instance that's used internally to back up the results (use with care outside of this api
-     * mostly for testing).
+     * Adds a result to be processed later on (never blocks, so, the thread receiving the notifications from the
+     * test runner isn't stopped waiting for the results to be processed).
+     */
+    public void addPendingResult(PyUnitTestResult result) {
+        pending.add(result);
+    }
+
+    /**
+     * Adds a test started to be processed later on (never blocks).
+     */
+    public void addPendingStartTest(PyUnitTestStarted result) {
+        pending.add(result);
+    }
+
+    /**
+     * Adds the pending results and tests started (in the order they were notified).
+     *
+     * @return the items processed (PyUnitTestResult or PyUnitTestStarted).
+     */
+    public List<Object> processPending() {
+        List<Object> processed = new ArrayList<Object>();
+        Object o;
+        while ((o = pending.poll()) != null) {
+            if (o instanceof PyUnitTestResult) {
+                addResult((PyUnitTestResult) o);
+            } else {
+                addStartTest((PyUnitTestStarted) o);
+            }
+            processed.add(o);
+        }
+        return processed;
+    }
+
+    /**
+     * @return a list backed by the results store (the results are created on demand when accessed, so, use with
+     * care outside of this api -- mostly for testing).
      */
     public List<PyUnitTestResult> getSharedResultsList() {
+        return new AbstractList<PyUnitTestResult>() {
+
+            @Override
+            public PyUnitTestResult get(int index) {
+                return results.getResult(PyUnitTestRun.this, index);
+            }
+
+            @Override
+            public int size() {
+                return results.size();
+            }
+        };
+    }
+
+    /**
+     * @return the compact store with the results of this run.
+     */
+    public PyUnitResultsStore getResultsStore() {
         return results;
     }
 
     public int getNumberOfRuns() {
-        synchronized (resultsLock) {
-            return results.size();
-        }
+        return results.size();
     }
 
     public int getNumberOfErrors() {
@@ -172,10 +231,11 @@ public class PyUnitTestRun {
     public void relaunchOnlyErrors() {
         IPyUnitLaunch s = this.pyUnitLaunch;
         if (s != null) {
-            ArrayList<PyUnitTestResult> arrayList = new ArrayList<PyUnitTestResult>(this.results.size());
-            for (PyUnitTestResult pyUnitTestResult : this.results) {
-                if (!pyUnitTestResult.isOk() && !pyUnitTestResult.isSkip()) {
-                    arrayList.add(pyUnitTestResult);
+            ArrayList<PyUnitTestResult> arrayList = new ArrayList<PyUnitTestResult>();
+            int size = this.results.size();
+            for (int i = 0; i < size; i++) {
+                if (this.results.isFailureOrError(i)) {
+                    arrayList.add(this.results.getResult(this, i));
                 }
             }
             s.relaunchTestResults(arrayList);
@@ -245,20 +305,21 @@ public class PyUnitTestRun {
             summary.setAttribute("total_time", String.valueOf(pyUnitTestRun.getTotalTime()));
             root.appendChild(summary);
 
-            for (PyUnitTestResult pyUnitTestResult : pyUnitTestRun.getResults()) {
+            int size = results.size();
+            for (int i = 0; i < size; i++) {
                 Element test = document.createElement("test");
-                test.setAttribute("status", pyUnitTestResult.status);
-                test.setAttribute("location", pyUnitTestResult.location);
-                test.setAttribute("test", pyUnitTestResult.test);
-                test.setAttribute("time", pyUnitTestResult.time);
+                test.setAttribute("status", results.getStatus(i));
+                test.setAttribute("location", results.getLocation(i));
+                test.setAttribute("test", results.getTest(i));
+                test.setAttribute("time", results.getTime(i));
 
                 Element stdout = document.createElement("stdout");
                 test.appendChild(stdout);
-                stdout.appendChild(document.createCDATASection(pyUnitTestResult.capturedOutput));
+                stdout.appendChild(document.createCDATASection(results.getCapturedOutput(i)));
 
                 Element stderr = document.createElement("stderr");
                 test.appendChild(stderr);
-                stderr.appendChild(document.createCDATASection(pyUnitTestResult.errorContents));
+                stderr.appendChild(document.createCDATASection(results.getErrorContents(i)));
                 root.appendChild(test);
             }
 
@@ -287,14 +348,6 @@ public class PyUnitTestRun {
 
     }
 
-    private List<PyUnitTestResult> getResults() {
-        List<PyUnitTestResult> lst;
-        synchronized (resultsLock) {
-            lst = new ArrayList<>(results);
-        }
-        return lst;
-    }
-
     public static class FillTestRunXmlHandler extends DefaultHandler {
 
         private final PyUnitTestRun testRun;
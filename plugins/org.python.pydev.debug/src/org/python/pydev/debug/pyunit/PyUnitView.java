@@ -8,7 +8,10 @@ package org.python.pydev.debug.pyunit;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
 
@@ -46,6 +49,7 @@ import org.eclipse.swt.layout.GridData;
 import org.eclipse.swt.layout.GridLayout;
 import org.eclipse.swt.widgets.Composite;
 import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.Event;
 import org.eclipse.swt.widgets.Label;
 import org.eclipse.swt.widgets.Listener;
 import org.eclipse.swt.widgets.Menu;
@@ -184,6 +188,26 @@ public class PyUnitView extends ViewPartWithOrientation implements IViewWithCont
      */
     private boolean showOnlyErrors;
 
+    /**
+     * Minimum interval between updates of the tree while the results are being received.
+     */
+    public static int REFRESH_INTERVAL_MILLIS = 100;
+
+    /**
+     * Indexes (in the PyUnitResultsStore of the current run) of the results shown in each row of the (virtual)
+     * tree (only the first visibleCount are valid).
+     */
+    private int[] visibleIndexes = new int[64];
+    private int visibleCount;
+
+    /**
+     * Number of results from the current run which were already checked to be added to the tree.
+     */
+    private int resultsProcessed;
+
+    private long lastRefresh;
+    private boolean refreshScheduled;
+
     /*default*/TreeColumn colIndex;
     /*default*/TreeColumn colResult;
     /*default*/TreeColumn colTest;
@@ -304,9 +328,16 @@ public class PyUnitView extends ViewPartWithOrientation implements IViewWithCont
         layoutData.verticalAlignment = GridData.FILL;
         sash.setLayoutData(layoutData);
 
-        tree = new Tree(sash, SWT.FULL_SELECTION | SWT.MULTI);
+        tree = new Tree(sash, SWT.FULL_SELECTION | SWT.MULTI | SWT.VIRTUAL);
         tooltip.install(tree);
         tree.setHeaderVisible(true);
+        tree.addListener(SWT.SetData, new Listener() {
+
+            @Override
+            public void handleEvent(Event event) {
+                fillItem((TreeItem) event.item, event.index);
+            }
+        });
 
         Listener sortListener = new PyUnitSortListener(this);
         colIndex = createColumn(" ", 50, sortListener);
@@ -353,22 +384,8 @@ public class PyUnitView extends ViewPartWithOrientation implements IViewWithCont
                         String property = event.getProperty();
                         if (ColorAndStyleCache.isColorOrStyleProperty(property)) {
                             colorAndStyleCache.reloadProperty(property);
-                            Color errorColor = getErrorColor();
-                            TreeItem[] items = tree.getItems();
-                            for (TreeItem item : items) {
-                                PyUnitTestResult result = (PyUnitTestResult) item.getData(PY_UNIT_TEST_RESULT);
-                                if (result != null) {
-                                    if (result.isOk()) {
-
-                                    } else if (result.isSkip()) {
-
-                                    } else {
-                                        //failure or error.
-                                        item.setForeground(errorColor);
-
-                                    }
-                                }
-                            }
+                            //The items will be filled again with the new color.
+                            tree.clearAll(true);
 
                             if (fProgressBar != null) {
                                 fProgressBar.updateErrorColor(true);
@@ -560,14 +577,18 @@ public class PyUnitView extends ViewPartWithOrientation implements IViewWithCont
     }
 
     /**
-     * Notifies that a test result has been added.
+     * Notifies that a test result has been added (the tree is updated incrementally, at most once in each
+     * REFRESH_INTERVAL_MILLIS).
      */
     /*default*/void notifyTest(PyUnitTestResult result) {
         if (this.disposed) {
             return;
         }
 
-        notifyTest(result, true);
+        if (result.getTestRun() != currentRun) {
+            return;
+        }
+        scheduleRefresh();
     }
 
     /*default*/void notifyTestStarted(PyUnitTestStarted result) {
@@ -609,44 +630,220 @@ public class PyUnitView extends ViewPartWithOrientation implements IViewWithCont
         });
     }
 
+    private void scheduleRefresh() {
+        if (refreshScheduled) {
+            return;
+        }
+        long elapsed = System.currentTimeMillis() - lastRefresh;
+        if (elapsed >= REFRESH_INTERVAL_MILLIS) {
+            refreshNewResults();
+        } else {
+            refreshScheduled = true;
+            Display.getCurrent().timerExec((int) (REFRESH_INTERVAL_MILLIS - elapsed), new Runnable() {
+
+                @Override
+                public void run() {
+                    refreshScheduled = false;
+                    refreshNewResults();
+                }
+            });
+        }
+    }
+
     /**
-     * Called after a test has been run (so that we properly update the tree).
+     * Adds the results of the current run which still weren't checked to the tree (only the number of items is
+     * updated: the actual contents of the items are only filled when they become visible).
      */
-    private void notifyTest(PyUnitTestResult result, boolean updateBar) {
-        if (this.disposed) {
+    private void refreshNewResults() {
+        if (this.disposed || tree == null) {
             return;
         }
+        lastRefresh = System.currentTimeMillis();
+        PyUnitTestRun testRun = currentRun;
+        if (testRun != null) {
+            PyUnitResultsStore store = testRun.getResultsStore();
+            int size = store.size();
+            int initialCount = visibleCount;
+            //null when sorting by index (in which case new results are just added to the end).
+            Comparator<Integer> comparator = createSortComparator(store);
+            int firstChangedRow = visibleCount;
+            for (int i = resultsProcessed; i < size; i++) {
+                if (!showOnlyErrors || store.isFailureOrError(i)) {
+                    if (visibleCount == visibleIndexes.length) {
+                        visibleIndexes = Arrays.copyOf(visibleIndexes, visibleCount * 2);
+                    }
+                    int row = visibleCount;
+                    if (comparator != null) {
+                        row = getInsertionRow(comparator, i);
+                        System.arraycopy(visibleIndexes, row, visibleIndexes, row + 1, visibleCount - row);
+                    }
+                    visibleIndexes[row] = i;
+                    visibleCount++;
+                    firstChangedRow = Math.min(firstChangedRow, row);
+                }
+            }
+            resultsProcessed = size;
 
-        if (result.getTestRun() != currentRun) {
+            if (visibleCount != initialCount) {
+                if (firstChangedRow < initialCount) {
+                    //Rows which were already filled were moved.
+                    tree.clearAll(true);
+                }
+                tree.setItemCount(visibleCount);
+
+                if (tree.getSelectionCount() == 0) {
+                    tree.setSelection(tree.getItem(0));
+                    onSelectResult(getResultAtRow(0));
+                }
+            }
+        }
+        updateCountersAndBar();
+    }
+
+    /**
+     * Fills a tree item which became visible with the result it represents.
+     */
+    private void fillItem(TreeItem treeItem, int row) {
+        PyUnitTestResult result = getResultAtRow(row);
+        if (result == null) {
             return;
         }
-        if (!showOnlyErrors || (showOnlyErrors && !result.isOk() && !result.isSkip())) {
-            TreeItem treeItem = new TreeItem(tree, 0);
-            File file = new File(result.location);
-            treeItem.setText(new String[] { result.index, result.status, result.test, file.getName(), result.time });
-            if (result.isOk()) {
+        File file = new File(result.location);
+        treeItem.setText(new String[] { result.index, result.status, result.test, file.getName(), result.time });
+        if (result.isOk()) {
+            treeItem.setForeground(null);
 
-            } else if (result.isSkip()) {
+        } else if (result.isSkip()) {
+            treeItem.setForeground(null);
 
-            } else {
-                // failure or error
-                Color errorColor = getErrorColor();
-                treeItem.setForeground(errorColor);
-            }
+        } else {
+            // failure or error
+            Color errorColor = getErrorColor();
+            treeItem.setForeground(errorColor);
+        }
 
-            treeItem.setData(ToolTipPresenterHandler.TIP_DATA, result);
-            treeItem.setData(PY_UNIT_TEST_RESULT, result);
+        treeItem.setData(ToolTipPresenterHandler.TIP_DATA, result);
+        treeItem.setData(PY_UNIT_TEST_RESULT, result);
+    }
 
-            int selectionCount = tree.getSelectionCount();
-            if (selectionCount == 0) {
-                tree.setSelection(treeItem);
-                onSelectResult(result);
+    /**
+     * @return the result shown in the given row of the tree (or null if not available).
+     */
+    private PyUnitTestResult getResultAtRow(int row) {
+        PyUnitTestRun testRun = currentRun;
+        if (testRun == null || row < 0 || row >= visibleCount) {
+            return null;
+        }
+        return testRun.getResultsStore().getResult(testRun, visibleIndexes[row]);
+    }
+
+    /**
+     * @return the result for the given item of the tree (or null if not available).
+     */
+    private PyUnitTestResult getResult(TreeItem item) {
+        //Note: the data of the item may not be filled yet (virtual tree) or may be outdated (after a sort).
+        return getResultAtRow(tree.indexOf(item));
+    }
+
+    /**
+     * Sorts the results shown in the tree according to the current sort column and direction of the tree
+     * (the tree must be cleared afterwards for the items to be filled again).
+     */
+    /*default*/void sortVisibleResults() {
+        PyUnitTestRun testRun = currentRun;
+        if (testRun == null || visibleCount == 0) {
+            return;
+        }
+        Comparator<Integer> comparator = createSortComparator(testRun.getResultsStore());
+        if (comparator == null) {
+            Arrays.sort(visibleIndexes, 0, visibleCount);
+            return;
+        }
+
+        Integer[] indexes = new Integer[visibleCount];
+        for (int i = 0; i < visibleCount; i++) {
+            indexes[i] = visibleIndexes[i];
+        }
+        Arrays.sort(indexes, comparator);
+        for (int i = 0; i < visibleCount; i++) {
+            visibleIndexes[i] = indexes[i];
+        }
+    }
+
+    /**
+     * @return the row where the given result should be added so that the visible results are kept sorted
+     * (the visible results must be already sorted with the given comparator).
+     */
+    private int getInsertionRow(Comparator<Integer> comparator, int resultIndex) {
+        int low = 0;
+        int high = visibleCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            //Equal results are added after the existing ones (as a stable sort would do).
+            if (comparator.compare(visibleIndexes[mid], resultIndex) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
             }
         }
+        return low;
+    }
 
-        if (updateBar) {
-            updateCountersAndBar();
+    /**
+     * @return a comparator for the indexes of the results in the store according to the current sort column
+     * and direction of the tree or null if the results should be sorted by their index.
+     */
+    private Comparator<Integer> createSortComparator(final PyUnitResultsStore store) {
+        TreeColumn column = tree.getSortColumn();
+        Comparator<Integer> comparator;
+        if (column == colResult) {
+            comparator = new Comparator<Integer>() {
+                @Override
+                public int compare(Integer o1, Integer o2) {
+                    return store.getStatus(o1).compareTo(store.getStatus(o2));
+                }
+            };
+        } else if (column == colTest) {
+            comparator = new Comparator<Integer>() {
+                @Override
+                public int compare(Integer o1, Integer o2) {
+                    return store.getTest(o1).compareTo(store.getTest(o2));
+                }
+            };
+        } else if (column == colFile) {
+            comparator = new Comparator<Integer>() {
+                @Override
+                public int compare(Integer o1, Integer o2) {
+                    return new File(store.getLocation(o1)).getName().compareTo(
+                            new File(store.getLocation(o2)).getName());
+                }
+            };
+        } else if (column == colTime) {
+            comparator = new Comparator<Integer>() {
+                @Override
+                public int compare(Integer o1, Integer o2) {
+                    double d1 = store.getTimeAsDouble(o1);
+                    double d2 = store.getTimeAsDouble(o2);
+                    if (Double.isNaN(d1) || Double.isNaN(d2)) {
+                        return store.getTime(o1).compareTo(store.getTime(o2));
+                    }
+                    return Double.compare(d1, d2);
+                }
+            };
+        } else if (tree.getSortDirection() == SWT.UP && column != null) {
+            comparator = new Comparator<Integer>() {
+                @Override
+                public int compare(Integer o1, Integer o2) {
+                    return Integer.compare(o1, o2);
+                }
+            };
+        } else {
+            return null;
         }
+        if (tree.getSortDirection() == SWT.UP) {
+            comparator = Collections.reverseOrder(comparator);
+        }
+        return comparator;
     }
 
     /**
@@ -765,8 +962,8 @@ public class PyUnitView extends ViewPartWithOrientation implements IViewWithCont
     private final class SelectResultSelectionListener extends SelectionAdapter {
         @Override
         public void widgetSelected(SelectionEvent e) {
-            if (e.item != null) {
-                PyUnitTestResult result = (PyUnitTestResult) e.item.getData(PY_UNIT_TEST_RESULT);
+            if (e.item instanceof TreeItem) {
+                PyUnitTestResult result = getResult((TreeItem) e.item);
                 onSelectResult(result);
             }
         }
@@ -788,19 +985,22 @@ public class PyUnitView extends ViewPartWithOrientation implements IViewWithCont
         tempOnSelectResult.clear();
 
         boolean addedErrors = false;
+        String errorContents = null;
         if (result != null) {
-            if (result.errorContents != null && result.errorContents.length() > 0) {
+            errorContents = result.getErrorContents();
+            if (errorContents != null && errorContents.length() > 0) {
                 addedErrors = true;
                 tempOnSelectResult.append(ERRORS_HEADER);
-                tempOnSelectResult.append(result.errorContents);
+                tempOnSelectResult.append(errorContents);
             }
 
-            if (result.capturedOutput != null && result.capturedOutput.length() > 0) {
+            String capturedOutput = result.getCapturedOutput();
+            if (capturedOutput != null && capturedOutput.length() > 0) {
                 if (tempOnSelectResult.length() > 0) {
                     tempOnSelectResult.append("\n");
                 }
                 tempOnSelectResult.append(CAPTURED_OUTPUT_HEADER);
-                tempOnSelectResult.append(result.capturedOutput);
+                tempOnSelectResult.append(capturedOutput);
             }
         }
         String string = tempOnSelectResult.toString();
@@ -817,7 +1017,7 @@ public class PyUnitView extends ViewPartWithOrientation implements IViewWithCont
                 range.foreground = errorTextAttribute.getForeground();
             }
             range.start = ERRORS_HEADER.length();
-            range.length = result.errorContents.length();
+            range.length = errorContents.length();
             testOutputText.setStyleRange(range);
         }
 
@@ -879,8 +1079,10 @@ public class PyUnitView extends ViewPartWithOrientation implements IViewWithCont
     public void onTriggerGoToTest() {
         TreeItem[] selection = tree.getSelection();
         if (selection.length >= 1) {
-            PyUnitTestResult result = (PyUnitTestResult) selection[0].getData(PY_UNIT_TEST_RESULT);
-            result.open();
+            PyUnitTestResult result = getResult(selection[0]);
+            if (result != null) {
+                result.open();
+            }
         }
     }
 
@@ -892,7 +1094,10 @@ public class PyUnitView extends ViewPartWithOrientation implements IViewWithCont
         List<PyUnitTestResult> resultsToRelaunch = new ArrayList<PyUnitTestResult>();
         PyUnitTestRun testRun = null;
         for (TreeItem item : selection) {
-            PyUnitTestResult result = (PyUnitTestResult) item.getData(PY_UNIT_TEST_RESULT);
+            PyUnitTestResult result = getResult(item);
+            if (result == null) {
+                continue;
+            }
             if (testRun == null) {
                 testRun = result.getTestRun();
             } else {
@@ -926,14 +1131,10 @@ public class PyUnitView extends ViewPartWithOrientation implements IViewWithCont
         tree.setRedraw(false);
         try {
             tree.removeAll();
+            visibleCount = 0;
+            resultsProcessed = 0;
             testOutputText.setText(""); //Clear initial results (the first added will be selected)
-            if (testRun != null) {
-                List<PyUnitTestResult> sharedResultsList = testRun.getSharedResultsList();
-                for (PyUnitTestResult result : sharedResultsList) {
-                    notifyTest(result, false);
-                }
-            }
-            updateCountersAndBar();
+            refreshNewResults();
         } finally {
             tree.setRedraw(true);
         }
@@ -967,6 +1168,7 @@ public class PyUnitView extends ViewPartWithOrientation implements IViewWithCont
     public void clearAllTerminated() {
         synchronized (PyUnitViewTestsHolder.lockServerListeners) {
             boolean removedCurrent = false;
+            List<PyUnitTestRun> removed = new ArrayList<PyUnitTestRun>();
 
             for (Iterator<PyUnitViewServerListener> it = PyUnitViewTestsHolder.serverListeners.iterator(); it
                     .hasNext();) {
@@ -976,6 +1178,7 @@ public class PyUnitView extends ViewPartWithOrientation implements IViewWithCont
                         removedCurrent = true;
                     }
                     it.remove();
+                    removed.add(next);
                 }
             }
             if (removedCurrent) {
@@ -985,6 +1188,9 @@ public class PyUnitView extends ViewPartWithOrientation implements IViewWithCont
                     this.setCurrentRun(null);
                 }
             }
+            for (PyUnitTestRun testRun : removed) {
+                PyUnitViewTestsHolder.disposeIfUnreferenced(testRun);
+            }
         }
     }
 
@@ -8,6 +8,7 @@ package org.python.pydev.debug.pyunit;
 
 import java.util.ArrayList;
 import java.util.LinkedList;
+import java.util.List;
 
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
@@ -34,6 +35,24 @@ final class PyUnitViewServerListener implements IPyUnitServerListener {
 
         @Override
         public IStatus runInUIThread(IProgressMonitor monitor) {
+            //The results are processed first (the other notifications are only related to the end of the run).
+            List<Object> processed = testRun.processPending();
+            synchronized (lockView) {
+                if (view != null) {
+                    for (Object o : processed) {
+                        try {
+                            if (o instanceof PyUnitTestResult) {
+                                view.notifyTest((PyUnitTestResult) o);
+                            } else {
+                                view.notifyTestStarted((PyUnitTestStarted) o);
+                            }
+                        } catch (Exception e) {
+                            Log.log(e);
+                        }
+                    }
+                }
+            }
+
             ArrayList<ICallback0<Object>> arrayList;
             synchronized (notifications) {
                 arrayList = new ArrayList<ICallback0<Object>>(notifications);
@@ -68,46 +87,17 @@ final class PyUnitViewServerListener implements IPyUnitServerListener {
     private boolean finishedNotified = false;
 
     @Override
-    public void notifyTest(final String status, final String location, final String test, final String capturedOutput,
-            final String errorContents, final String time) {
-        synchronized (notifications) {
-            notifications.add(new ICallback0<Object>() {
-
-                @Override
-                public Object call() {
-                    PyUnitTestResult result = new PyUnitTestResult(testRun, status, location, test, capturedOutput,
-                            errorContents, time);
-                    testRun.addResult(result);
-                    synchronized (lockView) {
-                        if (view != null) {
-                            view.notifyTest(result);
-                        }
-                    }
-                    return null;
-                }
-            });
-        }
+    public void notifyTest(String status, String location, String test, String capturedOutput,
+            String errorContents, String time) {
+        //Note: the result is just buffered in the test run (which is updated along with the view later on).
+        testRun.addPendingResult(new PyUnitTestResult(testRun, status, location, test, capturedOutput, errorContents,
+                time));
         updateJob.schedule(TIMEOUT);
     }
 
     @Override
-    public void notifyStartTest(final String location, final String test) {
-        synchronized (notifications) {
-            notifications.add(new ICallback0<Object>() {
-
-                @Override
-                public Object call() {
-                    PyUnitTestStarted result = new PyUnitTestStarted(testRun, location, test);
-                    testRun.addStartTest(result);
-                    synchronized (lockView) {
-                        if (view != null) {
-                            view.notifyTestStarted(result);
-                        }
-                    }
-                    return null;
-                }
-            });
-        }
+    public void notifyStartTest(String location, String test) {
+        testRun.addPendingStartTest(new PyUnitTestStarted(testRun, location, test));
         updateJob.schedule(TIMEOUT);
     }
 
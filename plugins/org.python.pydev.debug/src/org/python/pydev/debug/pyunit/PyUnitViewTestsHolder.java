@@ -46,15 +46,39 @@ public class PyUnitViewTestsHolder {
     }
 
     public static void setCurrentPinned(PyUnitTestRun pin) {
+        PyUnitTestRun oldLastPinned = lastPinned;
+        PyUnitTestRun oldCurrentPinned = currentPinned;
         if (pin != null) {
             PyUnitViewTestsHolder.lastPinned = pin;
         }
         PyUnitViewTestsHolder.currentPinned = pin;
         onPinSelected.call(pin);
+        disposeIfUnreferenced(oldLastPinned);
+        disposeIfUnreferenced(oldCurrentPinned);
     }
 
     public static void setCurrentTest(PyUnitTestRun result) {
+        PyUnitTestRun oldSelected = currentSelected;
         currentSelected = result;
+        disposeIfUnreferenced(oldSelected);
+    }
+
+    /**
+     * Releases the resources (i.e.: temporary file with the outputs) of the given test run if it's no longer
+     * in the history nor pinned/selected.
+     */
+    /*default*/ static void disposeIfUnreferenced(PyUnitTestRun testRun) {
+        if (testRun == null || testRun == currentPinned || testRun == lastPinned || testRun == currentSelected) {
+            return;
+        }
+        synchronized (lockServerListeners) {
+            for (PyUnitViewServerListener serverListener : serverListeners) {
+                if (serverListener.getTestRun() == testRun) {
+                    return;
+                }
+            }
+        }
+        testRun.getResultsStore().dispose();
     }
 
     public static PyUnitTestRun getCurrentTest() {
@@ -257,7 +281,8 @@ public class PyUnitViewTestsHolder {
         synchronized (lockServerListeners) {
 
             if (serverListeners.size() + 1 > MAX_RUNS_TO_KEEP) {
-                serverListeners.removeFirst();
+                PyUnitViewServerListener removed = serverListeners.removeFirst();
+                disposeIfUnreferenced(removed.getTestRun());
             }
             serverListeners.add(serverListener);
         }
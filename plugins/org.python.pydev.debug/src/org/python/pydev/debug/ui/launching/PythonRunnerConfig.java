@@ -891,6 +891,13 @@ public class PythonRunnerConfig {
                 } else {
                     cmdArgs.add("0");
                 }
+                //The streaming channel is preferred by the python side (the xml-rpc port is kept as a fallback).
+                cmdArgs.add("--stream_port");
+                if (actualRun) {
+                    cmdArgs.add(String.valueOf(getPyUnitServer().getStreamPort()));
+                } else {
+                    cmdArgs.add("0");
+                }
             }
 
             if (coverageRun) {
@@ -0,0 +1,184 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package org.python.pydev.debug.model;
+
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.debug.core.DebugEvent;
+import org.eclipse.debug.core.ILaunch;
+import org.eclipse.debug.core.model.IProcess;
+import org.python.pydev.debug.model.remote.AbstractDebuggerCommand;
+import org.python.pydev.shared_core.string.FastStringBuffer;
+import org.python.pydev.shared_core.string.StringUtils;
+
+/**
+ * A debug target which answers the commands to get variables (synchronously) as pydevd would, without any
+ * connection (the contents of the containers are given by the test).
+ */
+public class FakePydevdDebugTarget extends AbstractDebugTarget {
+
+    /**
+     * If false, CMD_GET_VARIABLE_PAGE is answered with an error (as an older pydevd does).
+     */
+    public boolean pagesSupported = true;
+
+    /**
+     * If > 0, CMD_GET_VARIABLE_PAGE is answered in another thread after this time (see: joinLateAnswers).
+     */
+    public long pageAnswerDelayMillis = 0;
+
+    /**
+     * The payloads of the commands received (in the format: 'cmd_id\tpayload').
+     */
+    public final List<String> received = new ArrayList<String>();
+
+    /**
+     * The events fired (synchronized as they may be fired when a late answer arrives).
+     */
+    public final List<DebugEvent> firedEvents = Collections.synchronizedList(new ArrayList<DebugEvent>());
+
+    private final List<Thread> lateAnswers = new ArrayList<Thread>();
+
+    /**
+     * locator -> number of items in the container (the items are named: 'item_N').
+     */
+    private final Map<String, Integer> containers = new HashMap<String, Integer>();
+
+    public void addContainer(String locator, int size) {
+        containers.put(locator, size);
+    }
+
+    @Override
+    public void postCommand(AbstractDebuggerCommand cmd) {
+        List<String> parts = StringUtils.split(cmd.getOutgoing(), '\t', 3);
+        int cmdId = Integer.parseInt(parts.get(0));
+        String payload = parts.get(2);
+        received.add(cmdId + "\t" + payload);
+
+        switch (cmdId) {
+            case AbstractDebuggerCommand.CMD_GET_VARIABLE:
+                cmd.processResponse(cmdId, makeVariablesXml(payload, 0, Integer.MAX_VALUE, false));
+                break;
+
+            case AbstractDebuggerCommand.CMD_GET_VARIABLE_PAGE:
+                if (!pagesSupported) {
+                    cmd.processResponse(AbstractDebuggerCommand.CMD_ERROR, "unexpected command " + cmdId);
+                    break;
+                }
+                List<String> pageParts = StringUtils.split(payload, '\t', 3);
+                final String xml = makeVariablesXml(pageParts.get(2), Integer.parseInt(pageParts.get(0)),
+                        Integer.parseInt(pageParts.get(1)), true);
+                if (pageAnswerDelayMillis > 0) {
+                    answerLater(cmd, cmdId, xml, pageAnswerDelayMillis);
+                } else {
+                    cmd.processResponse(cmdId, xml);
+                }
+                break;
+
+            default:
+                cmd.processResponse(AbstractDebuggerCommand.CMD_ERROR, "unexpected command " + cmdId);
+        }
+    }
+
+    private void answerLater(final AbstractDebuggerCommand cmd, final int cmdId, final String xml,
+            final long delayMillis) {
+        Thread thread = new Thread() {
+
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(delayMillis);
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+                cmd.processResponse(cmdId, xml);
+            }
+        };
+        lateAnswers.add(thread);
+        thread.start();
+    }
+
+    /**
+     * Waits for the commands answered later on to be answered.
+     */
+    public void joinLateAnswers() throws InterruptedException {
+        for (Thread thread : lateAnswers) {
+            thread.join();
+        }
+        lateAnswers.clear();
+    }
+
+    @Override
+    public void fireEvent(DebugEvent event) {
+        firedEvents.add(event);
+    }
+
+    private String makeVariablesXml(String locator, int offset, int limit, boolean addPage) {
+        Integer size = containers.get(locator);
+        if (size == null) {
+            throw new AssertionError("Unexpected locator: " + locator);
+        }
+        FastStringBuffer buf = new FastStringBuffer();
+        buf.append("<xml>");
+        if (addPage) {
+            buf.append("<page offset=\"").append(offset).append("\" total=\"").append(size).append("\" />");
+        }
+        int end = (int) Math.min((long) offset + limit, size);
+        for (int i = offset; i < end; i++) {
+            try {
+                buf.append("<var name=\"").append(URLEncoder.encode("item_" + i, "UTF-8"))
+                        .append("\" type=\"int\" value=\"").append(URLEncoder.encode("int: " + i, "UTF-8"))
+                        .append("\" />");
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        }
+        buf.append("</xml>");
+        return buf.toString();
+    }
+
+    /**
+     * @return how many of the received commands have the given id.
+     */
+    public int countReceived(int cmdId) {
+        int count = 0;
+        for (String s : received) {
+            if (s.startsWith(cmdId + "\t")) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public void processCommand(String sCmdCode, String sSeqCode, String payload) {
+    }
+
+    @Override
+    public IProcess getProcess() {
+        return null;
+    }
+
+    @Override
+    public void launchRemoved(ILaunch launch) {
+    }
+
+    @Override
+    public boolean canTerminate() {
+        return false;
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return false;
+    }
+}
@@ -0,0 +1,170 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package org.python.pydev.debug.model;
+
+import org.eclipse.debug.core.DebugEvent;
+import org.eclipse.debug.core.DebugException;
+import org.eclipse.debug.core.model.IVariable;
+import org.python.pydev.debug.model.remote.AbstractDebuggerCommand;
+
+import junit.framework.TestCase;
+
+public class PyVariableCollectionPagesTest extends TestCase {
+
+    private static final String FRAME_LOCATION = "thread_1\t22\tFRAME";
+    private static final String CONTAINER_LOCATION = FRAME_LOCATION + "\tlst";
+
+    private FakePydevdDebugTarget target;
+    private PyVariableCollection collection;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        target = new FakePydevdDebugTarget();
+        IVariableLocator frameLocator = new IVariableLocator() {
+
+            @Override
+            public String getThreadId() {
+                return "thread_1";
+            }
+
+            @Override
+            public String getPyDBLocation() {
+                return FRAME_LOCATION;
+            }
+        };
+        collection = new PyVariableCollection(target, "lst", "list", "list: [...]", frameLocator);
+    }
+
+    public void testSmallContainerFetchedInOnePage() throws Exception {
+        target.addContainer(CONTAINER_LOCATION, 10);
+
+        assertEquals(10, collection.getSize());
+        IVariable[] variables = collection.getVariables();
+        assertEquals(10, variables.length);
+        assertEquals("item_0", variables[0].getName());
+        assertEquals("item_9", variables[9].getName());
+
+        assertEquals(1, target.received.size());
+        assertEquals(AbstractDebuggerCommand.CMD_GET_VARIABLE_PAGE + "\t0\t100\t" + CONTAINER_LOCATION,
+                target.received.get(0));
+    }
+
+    public void testBigContainerOnlyFetchesRequestedPages() throws Exception {
+        target.addContainer(CONTAINER_LOCATION, 5000);
+
+        assertEquals(5000, collection.getSize());
+        assertEquals(1, target.countReceived(AbstractDebuggerCommand.CMD_GET_VARIABLE_PAGE));
+
+        IVariable[] variables = collection.getVariables(2050, 100);
+        assertEquals(100, variables.length);
+        assertEquals("item_2050", variables[0].getName());
+        assertEquals("item_2149", variables[99].getName());
+        assertEquals("int: 2149", variables[99].getValue().getValueString());
+        assertEquals(3, target.countReceived(AbstractDebuggerCommand.CMD_GET_VARIABLE_PAGE));
+
+        //Already cached.
+        assertEquals(50, collection.getVariables(2000, 50).length);
+        assertEquals("item_2100", collection.getVariable(2100).getName());
+        assertEquals(3, target.countReceived(AbstractDebuggerCommand.CMD_GET_VARIABLE_PAGE));
+
+        assertEquals("item_4999", collection.getVariable(4999).getName());
+        assertEquals(0, collection.getVariables(5000, 100).length);
+        assertEquals(4, target.countReceived(AbstractDebuggerCommand.CMD_GET_VARIABLE_PAGE));
+        assertEquals(0, target.countReceived(AbstractDebuggerCommand.CMD_GET_VARIABLE));
+    }
+
+    public void testFallbackWhenPagesNotSupported() throws Exception {
+        target.pagesSupported = false;
+        target.addContainer(CONTAINER_LOCATION, 250);
+
+        assertEquals(250, collection.getSize());
+        IVariable[] variables = collection.getVariables(100, 50);
+        assertEquals(50, variables.length);
+        assertEquals("item_100", variables[0].getName());
+        assertEquals(50, collection.getVariables(200, 100).length);
+        assertEquals(250, collection.getVariables().length);
+
+        assertEquals(1, target.countReceived(AbstractDebuggerCommand.CMD_GET_VARIABLE_PAGE));
+        assertEquals(1, target.countReceived(AbstractDebuggerCommand.CMD_GET_VARIABLE));
+    }
+
+    public void testPagesNotSupportedRememberedInTarget() throws Exception {
+        target.pagesSupported = false;
+        target.addContainer(CONTAINER_LOCATION, 250);
+        assertEquals(250, collection.getSize());
+        assertFalse(target.isVariablePagesSupported());
+
+        //After a new suspend, the variables are fetched at once without asking for a page again.
+        collection.forceGetNewVariables();
+        assertEquals(250, collection.getSize());
+        assertEquals(50, collection.getVariables(200, 100).length);
+
+        //Same thing for other containers in the same debug session.
+        PyVariableCollection other = new PyVariableCollection(target, "lst", "list", "list: [...]",
+                new IVariableLocator() {
+
+                    @Override
+                    public String getThreadId() {
+                        return "thread_1";
+                    }
+
+                    @Override
+                    public String getPyDBLocation() {
+                        return FRAME_LOCATION;
+                    }
+                });
+        assertEquals(250, other.getSize());
+
+        assertEquals(1, target.countReceived(AbstractDebuggerCommand.CMD_GET_VARIABLE_PAGE));
+        assertEquals(3, target.countReceived(AbstractDebuggerCommand.CMD_GET_VARIABLE));
+    }
+
+    public void testForceGetNewVariablesDiscardsPages() throws Exception {
+        target.addContainer(CONTAINER_LOCATION, 150);
+        assertEquals(150, collection.getSize());
+        assertEquals("item_120", collection.getVariable(120).getName());
+
+        target.addContainer(CONTAINER_LOCATION, 20);
+        collection.forceGetNewVariables();
+        assertEquals(20, collection.getSize());
+        assertEquals(20, collection.getVariables().length);
+        try {
+            collection.getVariable(120);
+            fail("Expected the variable not to be available anymore.");
+        } catch (DebugException e) {
+            //expected
+        }
+        assertEquals(0, target.countReceived(AbstractDebuggerCommand.CMD_GET_VARIABLE));
+    }
+
+    public void testPageArrivingAfterTimeoutFiresChangeEvent() throws Exception {
+        target.addContainer(CONTAINER_LOCATION, 250);
+        target.pageAnswerDelayMillis = PyVariableCollection.PAGE_TIMEOUT_MILLIS + 500;
+
+        //Shown as empty while the first page is pending (without fetching all the variables nor asking again).
+        assertEquals(0, collection.getSize());
+        assertEquals(0, collection.getVariables(0, 100).length);
+        assertEquals(0, collection.getVariables().length);
+        assertEquals(1, target.countReceived(AbstractDebuggerCommand.CMD_GET_VARIABLE_PAGE));
+        assertEquals(0, target.countReceived(AbstractDebuggerCommand.CMD_GET_VARIABLE));
+        assertEquals(0, target.firedEvents.size());
+
+        target.joinLateAnswers();
+        assertEquals(1, target.firedEvents.size());
+        DebugEvent event = target.firedEvents.get(0);
+        assertSame(collection, event.getSource());
+        assertEquals(DebugEvent.CHANGE, event.getKind());
+        assertEquals(DebugEvent.CONTENT, event.getDetail());
+
+        //The view asks again and gets the page which arrived.
+        assertEquals(250, collection.getSize());
+        assertEquals("item_99", collection.getVariable(99).getName());
+        assertEquals(1, target.countReceived(AbstractDebuggerCommand.CMD_GET_VARIABLE_PAGE));
+        assertEquals(0, target.countReceived(AbstractDebuggerCommand.CMD_GET_VARIABLE));
+    }
+}
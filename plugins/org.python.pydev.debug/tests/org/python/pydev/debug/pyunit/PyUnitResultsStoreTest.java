@@ -0,0 +1,90 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package org.python.pydev.debug.pyunit;
+
+import java.io.File;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+public class PyUnitResultsStoreTest extends TestCase {
+
+    private PyUnitResultsStore store;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        store = new PyUnitResultsStore();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        store.dispose();
+        super.tearDown();
+    }
+
+    public void testAddAndGet() throws Exception {
+        int tests = 1000;
+        for (int i = 0; i < tests; i++) {
+            String status = i % 10 == 0 ? "fail" : "ok";
+            assertEquals(i, store.add(status, "/temp/a.py", "Test.test" + i, "out " + i + " ç中",
+                    i % 10 == 0 ? "error " + i : "", "0.1"));
+        }
+        assertEquals(tests, store.size());
+        assertEquals("fail", store.getStatus(990));
+        assertTrue(store.isFailureOrError(990));
+        assertFalse(store.isFailureOrError(991));
+        assertEquals("/temp/a.py", store.getLocation(991));
+        assertEquals("Test.test991", store.getTest(991));
+        assertEquals("out 991 ç中", store.getCapturedOutput(991));
+        assertEquals("", store.getErrorContents(991));
+        assertEquals("error 990", store.getErrorContents(990));
+        assertEquals("0.1", store.getTime(991));
+        assertEquals(0.1, store.getTimeAsDouble(991));
+    }
+
+    public void testTimes() throws Exception {
+        String[] times = new String[] { "0.0001", "1.0", "12.345", "1e-05", "0.00001", "1", "<no time>", "" };
+        for (String time : times) {
+            store.add("ok", "/temp/a.py", "Test.test", "", "", time);
+        }
+        for (int i = 0; i < times.length; i++) {
+            assertEquals(times[i], store.getTime(i));
+        }
+        assertTrue(Double.isNaN(store.getTimeAsDouble(6)));
+    }
+
+    public void testResultsInTestRun() throws Exception {
+        PyUnitTestRun testRun = new PyUnitTestRun(null);
+        testRun.addResult(new PyUnitTestResult(testRun, "ok", "/temp/a.py", "Test.test1", "out1", "", "0.1"));
+        testRun.addResult(new PyUnitTestResult(testRun, "error", "/temp/a.py", "Test.test2", "out2", "err2", "0.2"));
+
+        List<PyUnitTestResult> results = testRun.getSharedResultsList();
+        assertEquals(2, results.size());
+        PyUnitTestResult result = results.get(1);
+        assertEquals("2", result.index);
+        assertEquals("error", result.status);
+        assertEquals("Test.test2", result.test);
+        assertEquals("0.2", result.time);
+        assertEquals("out2", result.getCapturedOutput());
+        assertEquals("err2", result.getErrorContents());
+        assertEquals(1, testRun.getNumberOfErrors());
+    }
+
+    public void testDisposeDeletesOutputFile() throws Exception {
+        store.add("ok", "/temp/a.py", "Test.test1", "out1", "", "0.1");
+        File file = store.getOutputStore().getFile();
+        assertNotNull(file);
+        assertTrue(file.exists());
+
+        store.dispose();
+        assertFalse(file.exists());
+        assertNull(store.getOutputStore().getFile());
+        assertEquals("", store.getCapturedOutput(0));
+        assertEquals("Test.test1", store.getTest(0));
+    }
+}
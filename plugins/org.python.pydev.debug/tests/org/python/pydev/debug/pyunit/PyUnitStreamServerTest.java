@@ -0,0 +1,124 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package org.python.pydev.debug.pyunit;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.python.pydev.shared_core.callbacks.ICallback;
+import org.python.pydev.shared_core.structure.Tuple;
+
+import junit.framework.TestCase;
+
+public class PyUnitStreamServerTest extends TestCase {
+
+    /**
+     * Stand-in for the python side (_pydev_runfiles/pydev_runfiles_xml_rpc.py: _StreamServer).
+     */
+    private static class RunnerStandIn {
+
+        private final Socket socket;
+        private final DataOutputStream out;
+        private final List<Tuple<String, String[]>> batch = new ArrayList<Tuple<String, String[]>>();
+
+        private RunnerStandIn(int port) throws IOException {
+            socket = new Socket("127.0.0.1", port);
+            out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            out.writeInt(PyUnitStreamProtocol.VERSION);
+        }
+
+        private void notify(String method, String... params) {
+            batch.add(new Tuple<String, String[]>(method, params));
+        }
+
+        private void flush() throws IOException {
+            PyUnitStreamProtocol.writeFrame(out, batch);
+            batch.clear();
+        }
+
+        private void close() throws IOException {
+            socket.close();
+        }
+    }
+
+    private PyUnitStreamServer server;
+    private final List<Tuple<String, String[]>> received = new ArrayList<Tuple<String, String[]>>();
+    private CountDownLatch finished;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        finished = new CountDownLatch(1);
+        server = new PyUnitStreamServer(new ICallback<Object, Tuple<String, String[]>>() {
+
+            @Override
+            public Object call(Tuple<String, String[]> event) {
+                synchronized (received) {
+                    received.add(event);
+                }
+                if ("notifyTestRunFinished".equals(event.o1)) {
+                    finished.countDown();
+                }
+                return null;
+            }
+        });
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        server.dispose();
+        super.tearDown();
+    }
+
+    public void testStreamInBatches() throws Exception {
+        RunnerStandIn runner = new RunnerStandIn(server.getPort());
+        int tests = 1000;
+        runner.notify("notifyTestsCollected", String.valueOf(tests));
+        for (int i = 0; i < tests; i++) {
+            runner.notify("notifyStartTest", "/temp/a.py", "Test.test" + i);
+            runner.notify("notifyTest", "ok", "out ç中", "", "/temp/a.py", "Test.test" + i, "0.1");
+            if (i % 100 == 0) {
+                runner.flush();
+            }
+        }
+        runner.notify("notifyTestRunFinished", "1.5");
+        runner.flush();
+
+        assertTrue(finished.await(10, TimeUnit.SECONDS));
+        runner.close();
+
+        synchronized (received) {
+            assertEquals(2 + tests * 2, received.size());
+            assertEquals("notifyTestsCollected", received.get(0).o1);
+            Tuple<String, String[]> lastTest = received.get(received.size() - 2);
+            assertEquals("notifyTest", lastTest.o1);
+            assertEquals("out ç中", lastTest.o2[1]);
+            assertEquals("Test.test" + (tests - 1), lastTest.o2[4]);
+        }
+    }
+
+    public void testPendingInTestRun() throws Exception {
+        PyUnitTestRun testRun = new PyUnitTestRun(null);
+        testRun.addPendingStartTest(new PyUnitTestStarted(testRun, "/temp/a.py", "Test.test1"));
+        testRun.addPendingResult(new PyUnitTestResult(testRun, "fail", "/temp/a.py", "Test.test1", "", "", "0.1"));
+        testRun.addPendingStartTest(new PyUnitTestStarted(testRun, "/temp/a.py", "Test.test2"));
+        assertEquals(0, testRun.getNumberOfRuns());
+
+        List<Object> processed = testRun.processPending();
+        assertEquals(3, processed.size());
+        assertEquals(1, testRun.getNumberOfRuns());
+        assertEquals(1, testRun.getNumberOfFailures());
+        assertEquals(1, testRun.getTestsRunning().size());
+        assertEquals(0, testRun.processPending().size());
+    }
+}
@@ -17,6 +17,13 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.eclipse.core.internal.resources.ResourceException;
 import org.eclipse.core.resources.IFile;
@@ -73,7 +80,7 @@ import org.python.pydev.shared_core.structure.Tuple3;
  * PyParser uses org.python.parser to parse the document (lexical analysis) It
  * is attached to PyEdit (a view), and it listens to document changes On every
  * document change, the syntax tree is regenerated The reparsing of the document
- * is done on a ParsingThread
+ * is done in the ParserWorkerPool
  *
  * Clients that need to know when new parse tree has been generated should
  * register as parseListeners.
@@ -586,21 +593,22 @@ public class PyParser extends BaseParser implements IPyParser {
             if (returnVar.o2 == null) {
                 AdditionalGrammarVersionsToCheck additionalGrammarVersionsToCheck = info.additionalGrammarVersionsToCheck;
                 if (additionalGrammarVersionsToCheck != null) {
+                    List<Integer> grammarVersions = new ArrayList<>();
                     for (int grammarVersion : additionalGrammarVersionsToCheck.getGrammarVersions()) {
-                        if (parsedVersions.contains(grammarVersion)) {
-                            continue;
+                        if (parsedVersions.add(grammarVersion)) {
+                            grammarVersions.add(grammarVersion);
                         }
-                        parsedVersions.add(grammarVersion);
-                        grammar = createGrammar(false, grammarVersion, charArray);
-                        try {
-                            grammar.file_input();
-                        } catch (OutOfMemoryError e) {
-                            OnExpectedOutOfMemory.clearCacheOnOutOfMemory.call(null);
-                            grammar.file_input(); //retry now with caches cleared...
-                        }
-                        returnVar.o2 = grammar.getErrorOnParsing();
-                        if (returnVar.o2 != null) {
-                            break;
+                    }
+                    if (grammarVersions.size() > 0) {
+                        AdditionalGrammarCheck failedCheck = checkAdditionalGrammars(grammarVersions, charArray);
+                        if (failedCheck != null) {
+                            if (failedCheck.grammar != null) {
+                                grammar = failedCheck.grammar;
+                            }
+                            if (failedCheck.thrown != null) {
+                                throw failedCheck.thrown; //handled just as if it was thrown in this thread.
+                            }
+                            returnVar.o2 = grammar.getErrorOnParsing();
                         }
                     }
                 }
@@ -649,6 +657,137 @@ public class PyParser extends BaseParser implements IPyParser {
         return new ParseOutput(returnVar, modifiedTime);
     }
 
+    /**
+     * Checks the source against some additional grammar version (without generating the tree).
+     */
+    private static final class AdditionalGrammarCheck implements Callable<AdditionalGrammarCheck> {
+
+        private final int index;
+        private final int grammarVersion;
+        private final char[] charArray;
+
+        /**
+         * Index of the first check which found an error (checks after it don't need to run).
+         */
+        private final AtomicInteger firstErrorIndex;
+
+        private IGrammar grammar;
+        private Throwable thrown;
+
+        private AdditionalGrammarCheck(int index, int grammarVersion, char[] charArray,
+                AtomicInteger firstErrorIndex) {
+            this.index = index;
+            this.grammarVersion = grammarVersion;
+            this.charArray = charArray;
+            this.firstErrorIndex = firstErrorIndex;
+        }
+
+        @Override
+        public AdditionalGrammarCheck call() {
+            if (index > firstErrorIndex.get()) {
+                return this; //Some previous check already found an error: no need to check this one.
+            }
+            try {
+                grammar = createGrammar(false, grammarVersion, charArray);
+                try {
+                    grammar.file_input();
+                } catch (OutOfMemoryError e) {
+                    OnExpectedOutOfMemory.clearCacheOnOutOfMemory.call(null);
+                    grammar.file_input(); //retry now with caches cleared...
+                }
+            } catch (Throwable e) {
+                thrown = e;
+            }
+            if (hasError()) {
+                int curr;
+                do {
+                    curr = firstErrorIndex.get();
+                } while (index < curr && !firstErrorIndex.compareAndSet(curr, index));
+            }
+            return this;
+        }
+
+        private boolean hasError() {
+            return thrown != null || (grammar != null && grammar.getErrorOnParsing() != null);
+        }
+    }
+
+    private static final Object additionalGrammarsExecutorLock = new Object();
+
+    /**
+     * Executor used to check additional grammars in parallel (lazily created).
+     */
+    private static volatile ThreadPoolExecutor additionalGrammarsExecutor;
+
+    private static ThreadPoolExecutor getAdditionalGrammarsExecutor() {
+        ThreadPoolExecutor executor = additionalGrammarsExecutor;
+        if (executor == null) {
+            synchronized (additionalGrammarsExecutorLock) {
+                executor = additionalGrammarsExecutor;
+                if (executor == null) {
+                    int nThreads = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() - 1));
+                    executor = new ThreadPoolExecutor(nThreads, nThreads, 60, TimeUnit.SECONDS,
+                            new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+
+                                private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+                                @Override
+                                public Thread newThread(Runnable r) {
+                                    Thread thread = new Thread(r, "PyDev: Additional grammar check - "
+                                            + threadNumber.getAndIncrement());
+                                    thread.setDaemon(true);
+                                    return thread;
+                                }
+                            });
+                    executor.allowCoreThreadTimeOut(true);
+                    additionalGrammarsExecutor = executor;
+                }
+            }
+        }
+        return executor;
+    }
+
+    /**
+     * Checks the given grammar versions in parallel (the first one is checked in the current thread and the others
+     * in a bounded executor -- the char array is shared as it's not changed by the grammars).
+     *
+     * Checks which didn't start yet are cancelled as soon as some check finds an error.
+     *
+     * @return the first check (in the order of the passed grammar versions) which found an error or null if no
+     * errors were found (so, the result is the same as checking each version sequentially).
+     */
+    private static AdditionalGrammarCheck checkAdditionalGrammars(List<Integer> grammarVersions, char[] charArray)
+            throws Exception {
+        AtomicInteger firstErrorIndex = new AtomicInteger(Integer.MAX_VALUE);
+        int size = grammarVersions.size();
+        List<Future<AdditionalGrammarCheck>> futures = new ArrayList<>(size - 1);
+        if (size > 1) {
+            ThreadPoolExecutor executor = getAdditionalGrammarsExecutor();
+            for (int i = 1; i < size; i++) {
+                futures.add(executor.submit(new AdditionalGrammarCheck(i, grammarVersions.get(i), charArray,
+                        firstErrorIndex)));
+            }
+        }
+        try {
+            AdditionalGrammarCheck check = new AdditionalGrammarCheck(0, grammarVersions.get(0), charArray,
+                    firstErrorIndex).call();
+            if (check.hasError()) {
+                return check;
+            }
+            for (Future<AdditionalGrammarCheck> future : futures) {
+                check = future.get();
+                if (check.hasError()) {
+                    return check;
+                }
+            }
+            return null;
+        } finally {
+            for (Future<AdditionalGrammarCheck> future : futures) {
+                future.cancel(false);
+            }
+        }
+    }
+
     public static Tuple<ISimpleNode, Throwable> createCythonAst(IDocument doc) {
         List<stmtType> classesAndFunctions = FastParser.parseCython(doc);
         return new Tuple<ISimpleNode, Throwable>(new Module(
@@ -16,6 +16,7 @@ import java.util.List;
 import org.eclipse.jface.text.BadLocationException;
 import org.eclipse.jface.text.Document;
 import org.python.pydev.core.IGrammarVersionProvider;
+import org.python.pydev.core.IGrammarVersionProvider.AdditionalGrammarVersionsToCheck;
 import org.python.pydev.core.IPythonNature;
 import org.python.pydev.core.TestDependent;
 import org.python.pydev.parser.jython.SimpleNode;
@@ -82,6 +83,27 @@ public class PyParserTest extends PyParserTestBase {
         assertTrue(reparseDocument.error != null);
     }
 
+    public void testAdditionalGrammarVersions() throws BadLocationException {
+        Document doc = new Document("def method(*, a):\n    pass\n");
+
+        AdditionalGrammarVersionsToCheck additionalGrammars = new AdditionalGrammarVersionsToCheck();
+        additionalGrammars.add(IPythonNature.GRAMMAR_PYTHON_VERSION_3_0);
+        ParseOutput reparseDocument = PyParser.reparseDocument(new PyParser.ParserInfo(doc,
+                IPythonNature.GRAMMAR_PYTHON_VERSION_3_6, additionalGrammars));
+        assertTrue(reparseDocument.ast != null);
+        assertTrue(reparseDocument.error == null);
+
+        //Keyword-only arguments are not valid in Python 2: the ast is kept but the error is reported.
+        additionalGrammars.add(IPythonNature.GRAMMAR_PYTHON_VERSION_2_6);
+        additionalGrammars.add(IPythonNature.GRAMMAR_PYTHON_VERSION_2_7);
+        for (int i = 0; i < 5; i++) {
+            reparseDocument = PyParser.reparseDocument(new PyParser.ParserInfo(doc,
+                    IPythonNature.GRAMMAR_PYTHON_VERSION_3_6, additionalGrammars));
+            assertTrue(reparseDocument.ast != null);
+            assertTrue(reparseDocument.error != null);
+        }
+    }
+
     public void testCorrectArgs() throws Throwable {
         checkWithAllGrammars(new ICallback<Boolean, Integer>() {
 
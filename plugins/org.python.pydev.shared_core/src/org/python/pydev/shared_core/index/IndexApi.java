@@ -25,6 +25,7 @@ import java.util.Collection;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.lucene.analysis.Analyzer.TokenStreamComponents;
 import org.apache.lucene.document.Document;
@@ -32,7 +33,6 @@ import org.apache.lucene.document.DocumentStoredFieldVisitor;
 import org.apache.lucene.document.Field;
 import org.apache.lucene.document.StringField;
 import org.apache.lucene.document.TextField;
-import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
@@ -54,7 +54,11 @@ import org.apache.lucene.search.WildcardQuery;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.FSDirectory;
 import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Path;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.jface.text.rules.IToken;
 import org.eclipse.jface.text.rules.ITokenScanner;
 import org.python.pydev.shared_core.callbacks.ICallback;
@@ -80,6 +84,38 @@ public class IndexApi {
     private CodeAnalyzer analyzer;
     private final Object lock = new Object();
 
+    /**
+     * Incremented when something is written to the index (so, the SearcherManager must be refreshed before the
+     * next search).
+     */
+    private final AtomicLong writeGeneration = new AtomicLong();
+
+    /**
+     * The last writeGeneration which a refresh of the SearcherManager is guaranteed to see (only set after the
+     * refresh finishes, so, a search concurrent with a refresh also refreshes -- i.e.: waits for it -- instead of
+     * using a searcher without the latest writes).
+     */
+    private final AtomicLong refreshedGeneration = new AtomicLong();
+
+    /**
+     * Delay for a commit after a write (so, many writes are committed at once -- note that commit() may still be
+     * called explicitly and the searches don't need a commit to see the changes).
+     */
+    public static final long COMMIT_DELAY_MILLIS = 5000;
+
+    private final Job commitJob = new Job("Commit index") {
+
+        @Override
+        protected IStatus run(IProgressMonitor monitor) {
+            try {
+                commit();
+            } catch (Exception e) {
+                Log.log(e);
+            }
+            return Status.OK_STATUS;
+        }
+    };
+
     protected IndexApi(Object /*Directory*/ indexDirObj, boolean applyAllDeletes) throws IOException {
         // Note; indexDirOjb must actually be a org.apache.lucene.store.Directory (but we don't export it
         // in the API so that it's not in the public API -- that way clients don't need to depend on it
@@ -125,7 +161,20 @@ public class IndexApi {
         }
 
         searcherFactory = new SearcherFactory();
-        searchManager = new SearcherManager(writer, applyAllDeletes, false, searcherFactory);
+        // Note: the deletes are always applied when refreshing (searches used to commit before opening
+        // a reader, so, they always saw the deletes -- and applying them is still much cheaper than a commit).
+        searchManager = new SearcherManager(writer, true, false, searcherFactory);
+        commitJob.setSystem(true);
+    }
+
+    /**
+     * Should be called after something is written to the index.
+     */
+    private void onWrite() {
+        writeGeneration.incrementAndGet();
+        if (commitJob.getState() == Job.NONE) {
+            commitJob.schedule(COMMIT_DELAY_MILLIS);
+        }
     }
 
     public void registerTokenizer(String fieldName, TokenStreamComponents tokenStream) {
@@ -133,12 +182,14 @@ public class IndexApi {
     }
 
     public void commit() throws IOException {
-        if (this.writer != null) {
-            this.writer.commit();
+        IndexWriter w = this.writer;
+        if (w != null) {
+            w.commit();
         }
     }
 
     public void dispose() {
+        commitJob.cancel();
         if (this.writer != null) {
             try {
                 this.writer.commit();
@@ -221,6 +272,7 @@ public class IndexApi {
         doc.add(new TextField(fieldName, general, Field.Store.NO));
 
         this.writer.addDocument(doc);
+        onWrite();
     }
 
     public void index(Map<String, String> fieldsToIndex, Reader reader, String fieldName) throws IOException {
@@ -233,6 +285,31 @@ public class IndexApi {
         doc.add(new TextField(fieldName, reader));
 
         this.writer.addDocument(doc);
+        onWrite();
+    }
+
+    /**
+     * Same as index(fieldsToIndex, reader, fieldName), but also indexes the given values for each field in
+     * multiValuedFieldsToIndex (each value is indexed as is -- i.e.: not analyzed and case-sensitive).
+     */
+    public void index(Map<String, String> fieldsToIndex, Map<String, Collection<String>> multiValuedFieldsToIndex,
+            Reader reader, String fieldName) throws IOException {
+        if (this.writer == null) {
+            return;
+        }
+        Document doc = createDocument(fieldsToIndex);
+        for (Entry<String, Collection<String>> entry : multiValuedFieldsToIndex.entrySet()) {
+            String multiValuedFieldName = entry.getKey();
+            for (String value : entry.getValue()) {
+                doc.add(new StringField(multiValuedFieldName, value, Field.Store.NO));
+            }
+        }
+
+        //Note: TextField should be analyzed/normalized in Analyzer.createComponents(String)
+        doc.add(new TextField(fieldName, reader));
+
+        this.writer.addDocument(doc);
+        onWrite();
     }
 
     public void index(IPath filepath, long modifiedTime, Reader reader, String fieldName) throws IOException {
@@ -245,6 +322,7 @@ public class IndexApi {
         doc.add(new TextField(fieldName, reader));
 
         this.writer.addDocument(doc);
+        onWrite();
     }
 
     /**
@@ -283,6 +361,7 @@ public class IndexApi {
         }
 
         this.writer.addDocument(doc);
+        onWrite();
     }
 
     public SearchResult searchExact(String string, String fieldName, boolean applyAllDeletes) throws IOException {
@@ -413,12 +492,46 @@ public class IndexApi {
      */
     public void visitAllDocs(IDocumentsVisitor visitor, String... fields) throws IOException {
         boolean applyAllDeletes = true;
-        try (IndexReader reader = DirectoryReader.open(writer, applyAllDeletes, false);) {
+        search(new MatchAllDocsQuery(), applyAllDeletes, Integer.MAX_VALUE, visitor, fields);
+    }
+
+    /**
+     * Searches using the near-real-time searcher from the SearcherManager (which is only refreshed if
+     * something was written since the last search -- no commit is needed to see the changes).
+     *
+     * Note: the deletes are always applied (regardless of applyAllDeletes).
+     */
+    public SearchResult search(Query query, boolean applyAllDeletes, IDocumentsVisitor visitor, String... fields)
+            throws IOException {
+        return search(query, applyAllDeletes, maxMatches, visitor, fields);
+    }
+
+    private SearchResult search(Query query, boolean applyAllDeletes, int maxMatches, IDocumentsVisitor visitor,
+            String... fields) throws IOException {
+        SearcherManager manager = this.searchManager;
+        long generation = writeGeneration.get();
+        if (refreshedGeneration.get() < generation) {
+            manager.maybeRefreshBlocking();
+            long refreshed = refreshedGeneration.get();
+            while (refreshed < generation && !refreshedGeneration.compareAndSet(refreshed, generation)) {
+                refreshed = refreshedGeneration.get();
+            }
+        }
+        IndexSearcher searcher = manager.acquire();
+        try {
+            return search(searcher, query, maxMatches, visitor, fields);
+        } finally {
+            manager.release(searcher);
+        }
+    }
+
+    private SearchResult search(IndexSearcher searcher, Query query, int maxMatches, IDocumentsVisitor visitor,
+            String... fields) throws IOException {
+        TopDocs search = searcher.search(query, maxMatches);
+        ScoreDoc[] scoreDocs = search.scoreDocs;
 
-            IndexSearcher searcher = searcherFactory.newSearcher(reader, null);
-            Query query = new MatchAllDocsQuery();
-            TopDocs docs = searcher.search(query, Integer.MAX_VALUE);
-            ScoreDoc[] scoreDocs = docs.scoreDocs;
+        if (visitor != null) {
+            IndexReader reader = searcher.getIndexReader();
             int length = scoreDocs.length;
             for (int i = 0; i < length; i++) {
                 ScoreDoc scoreDoc = scoreDocs[i];
@@ -428,34 +541,8 @@ public class IndexApi {
                 visitor.visit(new DocumentInfo(document, scoreDoc.doc));
             }
         }
-    }
 
-    public SearchResult search(Query query, boolean applyAllDeletes, IDocumentsVisitor visitor, String... fields)
-            throws IOException {
-        try {
-            this.writer.commit();
-        } catch (Exception e) {
-            Log.log(e);
-        }
-        try (IndexReader reader = DirectoryReader.open(writer, applyAllDeletes, false);) {
-            IndexSearcher searcher = searcherFactory.newSearcher(reader, null);
-
-            TopDocs search = searcher.search(query, maxMatches);
-            ScoreDoc[] scoreDocs = search.scoreDocs;
-
-            if (visitor != null) {
-                int length = scoreDocs.length;
-                for (int i = 0; i < length; i++) {
-                    ScoreDoc scoreDoc = scoreDocs[i];
-                    DocumentStoredFieldVisitor fieldVisitor = new DocumentStoredFieldVisitor(fields);
-                    reader.document(scoreDoc.doc, fieldVisitor);
-                    Document document = fieldVisitor.getDocument();
-                    visitor.visit(new DocumentInfo(document, scoreDoc.doc));
-                }
-            }
-
-            return new SearchResult(scoreDocs);
-        }
+        return new SearchResult(scoreDocs);
     }
 
     public void removeDocs(Map<String, Collection<String>> fieldToValuesToRemove) throws IOException {
@@ -477,6 +564,7 @@ public class IndexApi {
 
         Term[] queries = lst.toArray(new Term[0]);
         this.writer.deleteDocuments(queries);
+        onWrite();
     }
 
     public void setMaxMatches(int maxMatches) {
@@ -30,7 +30,7 @@ import org.python.pydev.shared_core.structure.Tuple;
  * PyParser uses org.python.parser to parse the document (lexical analysis) It
  * is attached to PyEdit (a view), and it listens to document changes On every
  * document change, the syntax tree is regenerated The reparsing of the document
- * is done on a ParsingThread
+ * is done in the ParserWorkerPool
  * 
  * Clients that need to know when new parse tree has been generated should
  * register as parseListeners.
@@ -109,6 +109,8 @@ public abstract class BaseParser implements IParser {
                     }
                 }
 
+                //the document being changed is the one the user is working on
+                scheduler.setActive();
                 if (!parseNow) {
                     // carriage return in changed text means parse now, anything
                     // else means parse later
@@ -152,6 +154,20 @@ public abstract class BaseParser implements IParser {
         forceReparse();
     }
 
+    @Override
+    public void notifyActivated() {
+        if (!disposed) {
+            scheduler.setActive();
+        }
+    }
+
+    /**
+     * @return the stats for the parses done by this parser.
+     */
+    public ParsingStats getParsingStats() {
+        return scheduler.getStats();
+    }
+
     /**
      * @return false if we asked a reparse and it will not be scheduled because a reparse is already in action.
      */
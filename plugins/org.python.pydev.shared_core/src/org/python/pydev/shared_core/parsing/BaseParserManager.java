@@ -159,6 +159,16 @@ public abstract class BaseParserManager {
         }
     }
 
+    public synchronized void notifyEditorActivated(IBaseEditor edit) {
+        synchronized (lock) {
+            IParser parser = getParser(edit);
+            //External editors may not have a parser...
+            if (parser != null) {
+                parser.notifyActivated();
+            }
+        }
+    }
+
     public synchronized void notifyEditorDisposed(IBaseEditor edit) {
         synchronized (lock) {
             //remove the listener from the parser
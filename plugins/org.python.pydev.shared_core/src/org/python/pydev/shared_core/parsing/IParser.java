@@ -28,6 +28,11 @@ public interface IParser {
      */
     void notifySaved();
 
+    /**
+     * Notifies that an editor using this parser was activated (its parses should have precedence over the others)
+     */
+    void notifyActivated();
+
     /**
      * Removes a listener from the parser
      */
@@ -11,13 +11,12 @@
  */
 package org.python.pydev.shared_core.parsing;
 
+/**
+ * Keeps the state of the parse requests for a given parser (the parses themselves are done in the
+ * ParserWorkerPool, which is shared among all the parsers).
+ */
 public class ParserScheduler {
 
-    /**
-     * used to do parsings in a thread - is null when not doing parsings
-     */
-    public volatile ParsingThread parsingThread;
-
     /**
      * indicates that currently nothing is happening
      */
@@ -29,7 +28,7 @@ public class ParserScheduler {
     public static final int STATE_PARSE_LATER = 1;
 
     /**
-     * indicates if a thread is currently waiting for an elapse cycle to end
+     * indicates if a request is currently waiting for an elapse cycle to end
      */
     public static final int STATE_WAITING_FOR_ELAPSE = 2;
 
@@ -44,23 +43,52 @@ public class ParserScheduler {
     volatile int state = STATE_WAITING;
 
     /**
-     * this is the exact time a parse later was requested
+     * The fields below are the pending request and the request being parsed (guarded by the pool lock).
      */
-    private volatile long timeParseLaterRequested = 0;
+    long pendingDueTime;
+    boolean pendingForce;
+    Object[] pendingArgs;
+    Object[] parsingArgs;
+    boolean running;
 
-    /**
-     * this is the exact time the last parse was requested
-     */
-    private volatile long timeLastParse = 0;
+    final ParsingStats stats = new ParsingStats();
 
     private volatile IParser parser;
 
-    private BaseParserManager parserManager;
+    private final BaseParserManager parserManager;
+
+    private final ParserWorkerPool pool;
 
     public ParserScheduler(IParser parser, BaseParserManager parserManager) {
+        this(parser, parserManager, ParserWorkerPool.getDefault());
+    }
+
+    /*default*/ParserScheduler(IParser parser, BaseParserManager parserManager, ParserWorkerPool pool) {
         super();
         this.parser = parser;
         this.parserManager = parserManager;
+        this.pool = pool;
+    }
+
+    /**
+     * @return the stats for the parses done for the document of this scheduler.
+     */
+    public ParsingStats getStats() {
+        return stats;
+    }
+
+    public int getState() {
+        return state;
+    }
+
+    /**
+     * Marks this scheduler as the one from the active editor (so, its parses have precedence over the
+     * parses of other documents).
+     */
+    public void setActive() {
+        if (parser != null) {
+            pool.setActive(this);
+        }
     }
 
     public void parseNow() {
@@ -70,85 +98,52 @@ public class ParserScheduler {
     /**
      * The arguments passed in argsToReparse will be passed to the reparseDocument, and then on to fireParserChanged / fireParserError
      * 
+     * A non-forced request waits for the elapse time before the parse is done (and new requests keep postponing it
+     * while the user is still changing the document), whereas a forced request is parsed as soon as there's a worker available.
+     * 
      * @return false if we asked a forced reparse and it will not be scheduled because a reparse is already in action.
      */
     public boolean parseNow(boolean force, Object... argsToReparse) {
+        if (parser == null) {
+            return true; //disposed: it won't happen anyways
+        }
         if (!force) {
-            if (state != STATE_WAITING_FOR_ELAPSE && state != STATE_DOING_PARSE) {
-                //waiting or parse later
-                state = STATE_WAITING_FOR_ELAPSE; // the parser will reset it later
-                timeLastParse = System.currentTimeMillis();
-                checkCreateAndStartParsingThread();
-            } else {
-                //another request... we keep waiting until the user stops adding requests
-                boolean created = checkCreateAndStartParsingThread();
-                if (!created) {
-                    parsingThread.okToGo = false;
-                }
+            if (state != STATE_DOING_PARSE) {
+                state = STATE_WAITING_FOR_ELAPSE;
             }
+            pool.schedule(this, parserManager.getElapseMillisBeforeAnalysis(), false, argsToReparse);
         } else {
-            ParsingThread parserThreadLocal = parsingThread; //if it dies suddenly, we don't want to get it as null...
-            if (state == ParserScheduler.STATE_DOING_PARSE) {
+            if (state == STATE_DOING_PARSE) {
                 //a parse is already in action
                 return false;
-            } else {
-                if (parserThreadLocal == null) {
-                    parserThreadLocal = new ParsingThread(parserManager, this, argsToReparse);
-                    parsingThread = parserThreadLocal;
-                    parserThreadLocal.force = true;
-                    parserThreadLocal.setPriority(Thread.NORM_PRIORITY - 1); //parsing is lower than normal priority
-                    parserThreadLocal.start();
-                } else {
-                    //force it to run
-                    if (argsToReparse.length > 0) {
-                        parserThreadLocal.updateArgsToReparse(argsToReparse);
-                    }
-                    parserThreadLocal.force = true;
-                    parserThreadLocal.interrupt();
-                }
             }
+            state = STATE_WAITING_FOR_ELAPSE;
+            pool.schedule(this, 0, true, argsToReparse);
         }
         return true;
     }
 
-    /**
-     * @return whether we really created the thread (returns false if the thread already exists)
-     */
-    private boolean checkCreateAndStartParsingThread() {
-        ParsingThread p = parsingThread;
-        if (p == null) {
-            p = new ParsingThread(parserManager, this);
-            p.setPriority(Thread.MIN_PRIORITY); //parsing is low priority
-            p.start();
-            parsingThread = p;
-            return true;
-        }
-        return false;
-    }
-
     public void parseLater() {
-        if (state != STATE_WAITING_FOR_ELAPSE && state != STATE_PARSE_LATER) {
+        if (parser == null) {
+            return;
+        }
+        if (state == STATE_WAITING) {
             state = STATE_PARSE_LATER;
-            //ok, the time for this request is:
-            timeParseLaterRequested = System.currentTimeMillis();
-            Thread thread = new Thread() {
-                @Override
-                public void run() {
-                    try {
-                        sleep(parserManager.getElapseMillisBeforeAnalysis());
-                    } catch (Exception e) {
-                        //that's ok
-                    }
-                    //ok, no parse happened while we were sleeping
-                    if (state == STATE_PARSE_LATER && timeLastParse < timeParseLaterRequested) {
-                        parseNow();
-                    }
-                }
-            };
-            thread.setName("ParserScheduler");
-            thread.start();
         }
+        pool.schedule(this, parserManager.getElapseMillisBeforeAnalysis(), false, new Object[0]);
+    }
 
+    /**
+     * Called from the pool to actually do the parse.
+     */
+    void doParse() {
+        state = STATE_DOING_PARSE;
+        try {
+            reparseDocument(parsingArgs);
+        } finally {
+            parsingArgs = null;
+            state = STATE_WAITING;
+        }
     }
 
     /**
@@ -164,11 +159,8 @@ public class ParserScheduler {
     }
 
     public void dispose() {
-        ParsingThread p = this.parsingThread;
-        if (p != null) {
-            p.dispose();
-        }
         this.parser = null;
+        pool.remove(this);
     }
 
 }
@@ -0,0 +1,296 @@
+/******************************************************************************
+* Copyright (C) 2015  Fabio Zadrozny
+*
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Eclipse Public License v1.0
+* which accompanies this distribution, and is available at
+* http://www.eclipse.org/legal/epl-v10.html
+*
+* Contributors:
+*     Fabio Zadrozny <fabiofz@gmail.com> - initial API and implementation
+******************************************************************************/
+package org.python.pydev.shared_core.parsing;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.python.pydev.shared_core.log.Log;
+import org.python.pydev.shared_core.string.FastStringBuffer;
+
+/**
+ * Workspace-wide pool which does the parses requested in the ParserSchedulers (i.e.: there's a bounded number
+ * of threads doing parses regardless of the number of editors opened).
+ *
+ * Each ParserScheduler has at most one pending request in the pool (new requests for the same document are
+ * coalesced into the pending one) and a given document is never parsed by more than one thread at the same time.
+ *
+ * When more than one request is ready to be parsed, the one from the active editor is parsed first, then
+ * the forced ones and then the others (by the time they became ready).
+ */
+public final class ParserWorkerPool {
+
+    private static final boolean DEBUG = false;
+
+    /**
+     * Time that an idle worker waits for a new request before finishing.
+     */
+    private static final long IDLE_TIMEOUT_MILLIS = 30 * 1000;
+
+    private static volatile ParserWorkerPool defaultPool;
+
+    private static final Object defaultPoolLock = new Object();
+
+    public static ParserWorkerPool getDefault() {
+        ParserWorkerPool pool = defaultPool;
+        if (pool == null) {
+            synchronized (defaultPoolLock) {
+                pool = defaultPool;
+                if (pool == null) {
+                    int processors = Runtime.getRuntime().availableProcessors();
+                    pool = new ParserWorkerPool(Math.max(1, Math.min(4, processors / 2)));
+                    defaultPool = pool;
+                }
+            }
+        }
+        return pool;
+    }
+
+    private final Object lock = new Object();
+
+    private final int maxWorkers;
+
+    /**
+     * Guarded by lock.
+     */
+    private final List<ParserScheduler> pending = new ArrayList<ParserScheduler>();
+    private int workers;
+    private int idleWorkers;
+    private int busyWorkers;
+    private int createdWorkers;
+
+    private volatile ParserScheduler active;
+
+    private final ParsingStats stats = new ParsingStats();
+
+    /*default*/ParserWorkerPool(int maxWorkers) {
+        this.maxWorkers = maxWorkers;
+    }
+
+    public int getMaxWorkers() {
+        return maxWorkers;
+    }
+
+    /**
+     * @return the number of documents waiting to be parsed (including the ones still waiting for the
+     * elapse time).
+     */
+    public int getQueueDepth() {
+        synchronized (lock) {
+            return pending.size();
+        }
+    }
+
+    /**
+     * @return the number of documents being currently parsed.
+     */
+    public int getBusyWorkers() {
+        synchronized (lock) {
+            return busyWorkers;
+        }
+    }
+
+    /**
+     * @return the stats for all the parses done in this pool (the stats for a single document are available
+     * in its ParserScheduler).
+     */
+    public ParsingStats getStats() {
+        return stats;
+    }
+
+    /**
+     * Marks the given scheduler as the one from the active editor (its requests have precedence over the others).
+     */
+    public void setActive(ParserScheduler scheduler) {
+        this.active = scheduler;
+    }
+
+    /**
+     * Adds (or updates) the pending request of the given scheduler.
+     *
+     * @param delayMillis the time to wait before doing the parse (a new non-forced request for the same scheduler
+     * postpones the pending one -- as the user is still changing the document).
+     */
+    void schedule(ParserScheduler scheduler, long delayMillis, boolean force, Object[] argsToReparse) {
+        synchronized (lock) {
+            long now = System.currentTimeMillis();
+            boolean isPending = pending.contains(scheduler);
+            if (!isPending) {
+                pending.add(scheduler);
+                scheduler.pendingForce = false;
+                scheduler.pendingArgs = new Object[0];
+            }
+
+            if (force) {
+                if (argsToReparse.length > 0 || !scheduler.pendingForce) {
+                    scheduler.pendingArgs = argsToReparse;
+                }
+                scheduler.pendingForce = true;
+                scheduler.pendingDueTime = now;
+
+            } else if (!scheduler.pendingForce) {
+                scheduler.pendingDueTime = now + delayMillis;
+            }
+
+            if (idleWorkers == 0 && workers < maxWorkers) {
+                startWorker();
+            }
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * Removes any pending request from the given scheduler (a parse already in progress is not interrupted).
+     */
+    void remove(ParserScheduler scheduler) {
+        synchronized (lock) {
+            pending.remove(scheduler);
+        }
+        if (active == scheduler) {
+            active = null;
+        }
+    }
+
+    /**
+     * Must be called with the lock held.
+     */
+    private void startWorker() {
+        workers++;
+        createdWorkers++;
+        Thread thread = new Thread() {
+            @Override
+            public void run() {
+                work();
+            }
+        };
+        thread.setName("PyDev: Parser worker - " + createdWorkers);
+        thread.setDaemon(true);
+        thread.setPriority(Thread.NORM_PRIORITY - 1); //parsing is lower than normal priority
+        thread.start();
+    }
+
+    private void work() {
+        while (true) {
+            ParserScheduler scheduler;
+            synchronized (lock) {
+                scheduler = waitForNext();
+                if (scheduler == null) {
+                    workers--;
+                    return;
+                }
+                busyWorkers++;
+            }
+
+            try {
+                long initial = System.nanoTime();
+                scheduler.doParse();
+                long nanos = System.nanoTime() - initial;
+                stats.onParseFinished(nanos);
+                scheduler.stats.onParseFinished(nanos);
+                if (DEBUG) {
+                    System.out.println("Parse done in: " + (nanos / 1000000) + " millis. " + this);
+                }
+            } catch (Throwable e) {
+                Log.log(e);
+            } finally {
+                synchronized (lock) {
+                    busyWorkers--;
+                    scheduler.running = false;
+                    if (pending.contains(scheduler)) {
+                        //a new request arrived while we were parsing it.
+                        scheduler.state = ParserScheduler.STATE_WAITING_FOR_ELAPSE;
+                        lock.notifyAll();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Must be called with the lock held.
+     *
+     * @return the next scheduler to be parsed or null if the worker should finish (idle for too long).
+     */
+    private ParserScheduler waitForNext() {
+        long idleSince = System.currentTimeMillis();
+        while (true) {
+            long now = System.currentTimeMillis();
+            ParserScheduler next = null;
+            long nextDueTime = Long.MAX_VALUE;
+            ParserScheduler currActive = active;
+
+            for (ParserScheduler s : pending) {
+                if (s.running) {
+                    continue; //the same document is never parsed in 2 threads at once
+                }
+                if (s.pendingDueTime <= now) {
+                    if (next == null || hasPrecedence(s, next, currActive)) {
+                        next = s;
+                    }
+                } else if (s.pendingDueTime < nextDueTime) {
+                    nextDueTime = s.pendingDueTime;
+                }
+            }
+
+            if (next != null) {
+                pending.remove(next);
+                next.running = true;
+                next.parsingArgs = next.pendingArgs;
+                return next;
+            }
+
+            long waitTime;
+            if (nextDueTime != Long.MAX_VALUE) {
+                waitTime = Math.max(1, nextDueTime - now);
+                idleSince = now;
+            } else {
+                if (pending.size() == 0 && now - idleSince >= IDLE_TIMEOUT_MILLIS) {
+                    return null;
+                }
+                waitTime = IDLE_TIMEOUT_MILLIS;
+            }
+            idleWorkers++;
+            try {
+                lock.wait(waitTime);
+            } catch (InterruptedException e) {
+                //ignore
+            } finally {
+                idleWorkers--;
+            }
+        }
+    }
+
+    private static boolean hasPrecedence(ParserScheduler s, ParserScheduler current, ParserScheduler active) {
+        if (current == active) {
+            return false;
+        }
+        if (s == active) {
+            return true;
+        }
+        if (s.pendingForce != current.pendingForce) {
+            return s.pendingForce;
+        }
+        return s.pendingDueTime < current.pendingDueTime;
+    }
+
+    @Override
+    public String toString() {
+        FastStringBuffer buf = new FastStringBuffer("ParserWorkerPool[queueDepth=", 120);
+        synchronized (lock) {
+            buf.append(pending.size())
+                    .append(", busyWorkers=").append(busyWorkers)
+                    .append(", workers=").append(workers)
+                    .append(", maxWorkers=").append(maxWorkers);
+        }
+        return buf.append(", ").append(stats.toString()).append("]").toString();
+    }
+}
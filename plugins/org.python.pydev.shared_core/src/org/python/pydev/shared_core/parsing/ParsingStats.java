@@ -0,0 +1,71 @@
+/******************************************************************************
+* Copyright (C) 2015  Fabio Zadrozny
+*
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Eclipse Public License v1.0
+* which accompanies this distribution, and is available at
+* http://www.eclipse.org/legal/epl-v10.html
+*
+* Contributors:
+*     Fabio Zadrozny <fabiofz@gmail.com> - initial API and implementation
+******************************************************************************/
+package org.python.pydev.shared_core.parsing;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.python.pydev.shared_core.string.FastStringBuffer;
+
+/**
+ * Counters for the parses done (used both for a single document in the ParserScheduler and for
+ * all the documents in the ParserWorkerPool).
+ */
+public final class ParsingStats {
+
+    final AtomicLong parses = new AtomicLong();
+    final AtomicLong totalParseNanos = new AtomicLong();
+    final AtomicLong lastParseNanos = new AtomicLong();
+    final AtomicLong maxParseNanos = new AtomicLong();
+
+    void onParseFinished(long nanos) {
+        parses.incrementAndGet();
+        totalParseNanos.addAndGet(nanos);
+        lastParseNanos.set(nanos);
+        long max = maxParseNanos.get();
+        while (nanos > max && !maxParseNanos.compareAndSet(max, nanos)) {
+            max = maxParseNanos.get();
+        }
+    }
+
+    public long getParses() {
+        return parses.get();
+    }
+
+    public long getTotalParseMillis() {
+        return totalParseNanos.get() / 1000000;
+    }
+
+    public long getLastParseMillis() {
+        return lastParseNanos.get() / 1000000;
+    }
+
+    public long getMaxParseMillis() {
+        return maxParseNanos.get() / 1000000;
+    }
+
+    public long getAverageParseMillis() {
+        long parses = getParses();
+        if (parses == 0) {
+            return 0;
+        }
+        return getTotalParseMillis() / parses;
+    }
+
+    @Override
+    public String toString() {
+        return new FastStringBuffer("ParsingStats[parses=", 100).append(getParses())
+                .append(", averageMillis=").append(getAverageParseMillis())
+                .append(", lastMillis=").append(getLastParseMillis())
+                .append(", maxMillis=").append(getMaxParseMillis())
+                .append("]").toString();
+    }
+}
@@ -0,0 +1,86 @@
+/******************************************************************************
+* Copyright (C) 2015  Fabio Zadrozny and others
+*
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Eclipse Public License v1.0
+* which accompanies this distribution, and is available at
+* http://www.eclipse.org/legal/epl-v10.html
+*
+* Contributors:
+*     Fabio Zadrozny <fabiofz@gmail.com>    - initial API and implementation
+******************************************************************************/
+package org.python.pydev.shared_core.index;
+
+import java.io.File;
+import java.io.StringReader;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.python.pydev.shared_core.io.FileUtils;
+
+/**
+ * Measures the latency of queries in the IndexApi (in a file-based index):
+ *
+ * - without pending writes (the searcher is just reused);
+ * - with a pending write before each query (the searcher is refreshed);
+ * - with a commit before each query (which is what was done before each query previously).
+ *
+ * Run it as a java application (it's not a test case).
+ */
+public class IndexApiSearchBenchmark {
+
+    private static final int DOCUMENTS = 5000;
+    private static final int QUERIES = 500;
+
+    public static void main(String[] args) throws Exception {
+        File dir = FileUtils.getTempFileAt(new File(System.getProperty("java.io.tmpdir")), "index_benchmark");
+        dir.mkdirs();
+        IndexApi indexApi = new IndexApi(dir, false);
+        try {
+            for (int i = 0; i < DOCUMENTS; i++) {
+                indexApi.index(createFields(i), new StringReader("token" + i + " common other" + (i % 100)),
+                        IFields.GENERAL_CONTENTS);
+            }
+            indexApi.commit();
+
+            for (int round = 0; round < 2; round++) { //the first round is the warmup
+                long noWrites = 0;
+                long withWrites = 0;
+                long withCommits = 0;
+                for (int i = 0; i < QUERIES; i++) {
+                    long initial = System.nanoTime();
+                    indexApi.searchExact("other" + (i % 100), IFields.GENERAL_CONTENTS, false);
+                    noWrites += System.nanoTime() - initial;
+
+                    indexApi.index(createFields(DOCUMENTS + i), new StringReader("new" + i),
+                            IFields.GENERAL_CONTENTS);
+                    initial = System.nanoTime();
+                    indexApi.searchExact("other" + (i % 100), IFields.GENERAL_CONTENTS, false);
+                    withWrites += System.nanoTime() - initial;
+
+                    indexApi.index(createFields(DOCUMENTS + QUERIES + i), new StringReader("new" + i),
+                            IFields.GENERAL_CONTENTS);
+                    initial = System.nanoTime();
+                    indexApi.commit();
+                    indexApi.searchExact("other" + (i % 100), IFields.GENERAL_CONTENTS, false);
+                    withCommits += System.nanoTime() - initial;
+                }
+                if (round > 0) {
+                    System.out.println("Average query latency (micros): no pending writes: "
+                            + (noWrites / QUERIES / 1000) + ", pending write: " + (withWrites / QUERIES / 1000)
+                            + ", commit + query: " + (withCommits / QUERIES / 1000));
+                }
+            }
+        } finally {
+            indexApi.dispose();
+            FileUtils.deleteDirectoryTree(dir);
+            FileUtils.deleteDirectoryTree(new File(dir.getAbsolutePath() + "L6dot1")); //suffix added by the IndexApi
+        }
+    }
+
+    private static Map<String, String> createFields(int i) {
+        Map<String, String> fields = new HashMap<>();
+        fields.put(IFields.FILENAME, "mod" + i);
+        return fields;
+    }
+}
@@ -13,11 +13,15 @@ package org.python.pydev.shared_core.index;
 
 import java.io.Reader;
 import java.io.StringReader;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.Set;
 
 import org.apache.lucene.analysis.Analyzer.TokenStreamComponents;
@@ -87,6 +91,45 @@ public class IndexingTest extends TestCase {
         assertEquals(1, result.getNumberOfDocumentMatches());
     }
 
+    public void testWritesAreSeenBySearchesConcurrentWithRefresh() throws Exception {
+        final List<String> errors = Collections.synchronizedList(new ArrayList<String>());
+        final AtomicBoolean finished = new AtomicBoolean();
+
+        // Other threads keep searching (and thus refreshing) while the writes are done.
+        Thread[] searchers = new Thread[3];
+        for (int i = 0; i < searchers.length; i++) {
+            searchers[i] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        while (!finished.get()) {
+                            indexApi.searchRegexp("tok*", IFields.PYTHON, true);
+                        }
+                    } catch (Exception e) {
+                        errors.add(e.toString());
+                    }
+                }
+            };
+            searchers[i].start();
+        }
+        try {
+            for (int j = 0; j < 200; j++) {
+                String token = "tok_" + j;
+                indexApi.index(new Path(token + ".py"), 0L, createScanner(token), mapper);
+                // The search must always see a write done before it started.
+                if (indexApi.searchRegexp(token, IFields.PYTHON, true).getNumberOfDocumentMatches() != 1) {
+                    errors.add(token);
+                }
+            }
+        } finally {
+            finished.set(true);
+            for (Thread thread : searchers) {
+                thread.join();
+            }
+        }
+        assertEquals(new ArrayList<String>(), errors);
+    }
+
     private ITokenScanner createScanner(String string) {
         CustomRuleBasedPartitionScanner scanner = new CustomRuleBasedPartitionScanner();
         scanner.setRange(new Document(string), 0, string.length());
@@ -218,4 +261,24 @@ public class IndexingTest extends TestCase {
         result = indexApi.searchWildcard(fieldNameToValues, true, visitor, null, IFields.FILENAME);
         assertEquals(2, result.getNumberOfDocumentMatches());
     }
+
+    public void testSearchSeesChangesWithoutCommit() throws Exception {
+        // Same mode used for the references (deletes not applied on the search): changes must still be seen.
+        IndexApi api = new IndexApi(new RAMDirectory(), false);
+        try {
+            api.registerTokenizer(IFields.PYTHON, CodeAnalyzer.createPythonStreamComponents());
+            api.index(new Path("a.py"), 0L, createScanner("aaaaaaaa"), mapper);
+            assertEquals(1, api.searchExact("aaaaaaaa", IFields.PYTHON, false).getNumberOfDocumentMatches());
+
+            api.index(new Path("b.py"), 0L, createScanner("aaaaaaaa"), mapper);
+            assertEquals(2, api.searchExact("aaaaaaaa", IFields.PYTHON, false).getNumberOfDocumentMatches());
+
+            Map<String, Collection<String>> map = new HashMap<>();
+            map.put(IFields.FILEPATH, Arrays.asList("a.py"));
+            api.removeDocs(map);
+            assertEquals(1, api.searchExact("aaaaaaaa", IFields.PYTHON, false).getNumberOfDocumentMatches());
+        } finally {
+            api.dispose();
+        }
+    }
 }
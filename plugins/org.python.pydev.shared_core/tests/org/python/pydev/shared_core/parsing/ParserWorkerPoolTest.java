@@ -0,0 +1,204 @@
+/******************************************************************************
+* Copyright (C) 2015  Fabio Zadrozny
+*
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Eclipse Public License v1.0
+* which accompanies this distribution, and is available at
+* http://www.eclipse.org/legal/epl-v10.html
+*
+* Contributors:
+*     Fabio Zadrozny <fabiofz@gmail.com> - initial API and implementation
+******************************************************************************/
+package org.python.pydev.shared_core.parsing;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.jface.text.IDocument;
+import org.python.pydev.shared_core.editor.IBaseEditor;
+
+import junit.framework.TestCase;
+
+public class ParserWorkerPoolTest extends TestCase {
+
+    private static class ParserManagerStub extends BaseParserManager {
+
+        public ParserManagerStub(int millisBeforeAnalysis) {
+            this.millisBeforeAnalysis = millisBeforeAnalysis;
+        }
+
+        @Override
+        protected IParser createParser(IBaseEditor edit) {
+            throw new RuntimeException("not expected");
+        }
+    }
+
+    private static class ParserStub implements IParser {
+
+        private final String name;
+        private final List<String> parsed;
+        private final CountDownLatch release;
+        private final AtomicInteger running;
+        private final AtomicInteger maxRunning;
+        private final AtomicInteger parses = new AtomicInteger();
+
+        public ParserStub(String name, List<String> parsed, CountDownLatch release, AtomicInteger running,
+                AtomicInteger maxRunning) {
+            this.name = name;
+            this.parsed = parsed;
+            this.release = release;
+            this.running = running;
+            this.maxRunning = maxRunning;
+        }
+
+        @Override
+        public Object reparseDocument(Object... argsToReparse) {
+            int curr = running.incrementAndGet();
+            synchronized (maxRunning) {
+                if (curr > maxRunning.get()) {
+                    maxRunning.set(curr);
+                }
+            }
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+            parses.incrementAndGet();
+            synchronized (parsed) {
+                parsed.add(name);
+            }
+            running.decrementAndGet();
+            return null;
+        }
+
+        @Override
+        public void setDocument(IDocument document, Object input) {
+        }
+
+        @Override
+        public void notifySaved() {
+        }
+
+        @Override
+        public void notifyActivated() {
+        }
+
+        @Override
+        public void removeParseListener(IParserObserver parserObserver) {
+        }
+
+        @Override
+        public void addParseListener(IParserObserver parserObserver) {
+        }
+
+        @Override
+        public void dispose() {
+        }
+
+        @Override
+        public void resetTimeoutPreferences(boolean useAnalysisOnlyOnDocSave) {
+        }
+
+        @Override
+        public boolean forceReparse(Object... argsToReparse) {
+            return true;
+        }
+    }
+
+    private List<String> parsed;
+    private CountDownLatch release;
+    private AtomicInteger running;
+    private AtomicInteger maxRunning;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        parsed = new ArrayList<String>();
+        release = new CountDownLatch(1);
+        running = new AtomicInteger();
+        maxRunning = new AtomicInteger();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        release.countDown();
+        super.tearDown();
+    }
+
+    private ParserStub createParser(String name) {
+        return new ParserStub(name, parsed, release, running, maxRunning);
+    }
+
+    private void waitForParses(ParserWorkerPool pool, long expected) throws InterruptedException {
+        for (int i = 0; i < 500 && pool.getStats().getParses() < expected; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(expected, pool.getStats().getParses());
+    }
+
+    private void waitForRunning(int expected) throws InterruptedException {
+        for (int i = 0; i < 500 && running.get() < expected; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(expected, running.get());
+    }
+
+    public void testCoalesceRequests() throws Exception {
+        release.countDown();
+        ParserWorkerPool pool = new ParserWorkerPool(2);
+        ParserStub parser = createParser("a");
+        ParserScheduler scheduler = new ParserScheduler(parser, new ParserManagerStub(100), pool);
+        for (int i = 0; i < 20; i++) {
+            scheduler.parseLater();
+            scheduler.parseNow();
+        }
+        assertEquals(1, pool.getQueueDepth());
+        waitForParses(pool, 1);
+        Thread.sleep(200);
+        assertEquals(1, parser.parses.get());
+        assertEquals(1, scheduler.getStats().getParses());
+        assertEquals(0, pool.getQueueDepth());
+    }
+
+    public void testBoundedWorkers() throws Exception {
+        ParserWorkerPool pool = new ParserWorkerPool(2);
+        ParserManagerStub manager = new ParserManagerStub(0);
+        for (int i = 0; i < 6; i++) {
+            new ParserScheduler(createParser("p" + i), manager, pool).parseNow(true);
+        }
+        waitForRunning(2);
+        assertEquals(2, pool.getBusyWorkers());
+        assertEquals(4, pool.getQueueDepth());
+
+        release.countDown();
+        waitForParses(pool, 6);
+        assertEquals(2, maxRunning.get());
+    }
+
+    public void testActiveEditorHasPrecedence() throws Exception {
+        ParserWorkerPool pool = new ParserWorkerPool(1);
+        ParserManagerStub manager = new ParserManagerStub(0);
+        ParserScheduler blocking = new ParserScheduler(createParser("blocking"), manager, pool);
+        ParserScheduler s1 = new ParserScheduler(createParser("s1"), manager, pool);
+        ParserScheduler s2 = new ParserScheduler(createParser("s2"), manager, pool);
+        ParserScheduler s3 = new ParserScheduler(createParser("s3"), manager, pool);
+
+        blocking.parseNow(true);
+        waitForRunning(1);
+        assertFalse(blocking.parseNow(true)); //already parsing
+
+        s1.parseNow(true);
+        s2.parseNow(true);
+        s3.parseNow(true);
+        s3.setActive();
+        s2.dispose();
+
+        release.countDown();
+        waitForParses(pool, 3);
+        assertEquals("[blocking, s3, s1]", parsed.toString());
+    }
+}
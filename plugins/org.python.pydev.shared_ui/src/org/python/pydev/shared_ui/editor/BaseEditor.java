@@ -279,6 +279,17 @@ public abstract class BaseEditor extends TextEditor implements IBaseEditor {
 
     }
 
+    @Override
+    public void setFocus() {
+        super.setFocus();
+        try {
+            //parses for the active editor have precedence over the others
+            getParserManager().notifyEditorActivated(this);
+        } catch (Throwable e) {
+            Log.log(e);
+        }
+    }
+
     @Override
     protected void createNavigationActions() {
         super.createNavigationActions();
@@ -30,12 +30,14 @@ class Configuration:
         exclude_tests=None,
         include_files=None,
         django=False,
+        stream_port=None,
         ):
         self.files_or_dirs = files_or_dirs
         self.verbosity = verbosity
         self.include_tests = include_tests
         self.tests = tests
         self.port = port
+        self.stream_port = stream_port
         self.files_to_tests = files_to_tests
         self.jobs = jobs
         self.split_jobs = split_jobs
@@ -64,6 +66,7 @@ class Configuration:
  - verbosity: %s
  - tests: %s
  - port: %s
+ - stream_port: %s
  - files_to_tests: %s
  - jobs: %s
  - split_jobs: %s
@@ -84,6 +87,7 @@ class Configuration:
         self.verbosity,
         self.tests,
         self.port,
+        self.stream_port,
         self.files_to_tests,
         self.jobs,
         self.split_jobs,
@@ -131,6 +135,7 @@ def parse_cmdline(argv=None):
     include_tests = None
     tests = None
     port = None
+    stream_port = None
     jobs = 1
     split_jobs = 'tests'
     files_to_tests = {}
@@ -149,6 +154,7 @@ def parse_cmdline(argv=None):
             "tests=",
 
             "port=",
+            "stream_port=",
             "config_file=",
 
             "jobs=",
@@ -174,6 +180,9 @@ def parse_cmdline(argv=None):
         elif opt in ("-p", "--port"):
             port = int(value)
 
+        elif opt in ("--stream_port",):
+            stream_port = int(value)
+
         elif opt in ("-j", "--jobs"):
             jobs = int(value)
 
@@ -264,6 +273,7 @@ def parse_cmdline(argv=None):
         exclude_tests=exclude_tests,
         include_files=include_files,
         django=django,
+        stream_port=stream_port,
     )
 
     if verbosity > 5:
@@ -46,7 +46,10 @@ def connect_to_server_for_communication_to_xml_rpc_on_xdist():
             sys.stderr.write(
                 'Error: no PYDEV_PYTEST_SERVER environment variable defined.\n')
         else:
-            pydev_runfiles_xml_rpc.initialize_server(int(port), daemon=True)
+            stream_port = os.environ.get('PYDEV_PYTEST_STREAM_SERVER')
+            if stream_port:
+                stream_port = int(stream_port)
+            pydev_runfiles_xml_rpc.initialize_server(int(port), daemon=True, stream_port=stream_port)
 
 
 PY2 = sys.version_info[0] <= 2
@@ -1,3 +1,4 @@
+import struct
 import threading
 import traceback
 import warnings
@@ -24,6 +25,10 @@ class _ServerHolder:
     '''
     SERVER = None
 
+    # When streaming the notifications, the strings are sent as utf-8 (so, they don't need to be encoded
+    # as xmlrpclib.Binary).
+    ENCODE_ARGS = True
+
 
 #=======================================================================================================================
 # set_server
@@ -90,6 +95,69 @@ class ServerFacade(object):
 
 
 
+#=======================================================================================================================
+# _StreamServer
+#=======================================================================================================================
+class _StreamServer(object):
+    '''
+    Sends the notifications as length-prefixed frames through a socket instead of doing an xml-rpc request for
+    each batch (so, we never wait for a reply from the IDE).
+
+    See: org.python.pydev.debug.pyunit.PyUnitStreamProtocol for the format.
+    '''
+
+    VERSION = 1
+
+    def __init__(self, port):
+        import socket
+        from _pydev_bundle import pydev_localhost
+        self.socket = socket.create_connection((pydev_localhost.get_localhost(), port))
+        self.socket.sendall(struct.pack('>i', self.VERSION))
+
+    def notifyCommands(self, commands):
+        parts = [struct.pack('>i', len(commands))]
+        for method, args in commands:
+            _append_str(parts, method)
+            parts.append(struct.pack('>i', len(args)))
+            for arg in args:
+                _append_str(parts, arg)
+        payload = b''.join(parts)
+        self.socket.sendall(struct.pack('>i', len(payload)) + payload)
+
+    def close(self):
+        try:
+            self.socket.close()
+        except:
+            pass
+
+
+def _append_str(parts, obj):
+    if isinstance(obj, xmlrpclib.Binary):
+        # i.e.: forwarded from a parallel job (already encoded as ISO-8859-1).
+        obj = obj.data.decode('ISO-8859-1')
+
+    if IS_PY3K:
+        if isinstance(obj, bytes):
+            try:
+                obj = obj.decode(sys.stdin.encoding)
+            except:
+                obj = obj.decode('ISO-8859-1')
+        elif not isinstance(obj, str):
+            obj = str(obj)
+    else:
+        if isinstance(obj, str):
+            try:
+                obj = obj.decode(sys.stdin.encoding)
+            except:
+                obj = obj.decode('ISO-8859-1')
+        elif not isinstance(obj, unicode):
+            obj = unicode(obj)
+
+    obj = obj.encode('utf-8')
+    parts.append(struct.pack('>i', len(obj)))
+    parts.append(obj)
+
+
 #=======================================================================================================================
 # ServerComm
 #=======================================================================================================================
@@ -97,12 +165,21 @@ class ServerComm(threading.Thread):
 
 
 
-    def __init__(self, notifications_queue, port, daemon=False):
+    def __init__(self, notifications_queue, port, daemon=False, stream_port=None):
         threading.Thread.__init__(self)
         self.setDaemon(daemon) # If False, wait for all the notifications to be passed before exiting!
         self.finished = False
         self.notifications_queue = notifications_queue
 
+        if stream_port:
+            try:
+                self.server = _StreamServer(stream_port)
+                _ServerHolder.ENCODE_ARGS = False
+                return
+            except:
+                # Fallback to xml-rpc.
+                traceback.print_exc()
+
         from _pydev_bundle import pydev_localhost
 
         # It is necessary to specify an encoding, that matches
@@ -156,6 +233,8 @@ class ServerComm(threading.Thread):
 
             if kill_found:
                 self.finished = True
+                if hasattr(self.server, 'close'):
+                    self.server.close()
                 return
 
 
@@ -163,12 +242,12 @@ class ServerComm(threading.Thread):
 #=======================================================================================================================
 # initialize_server
 #=======================================================================================================================
-def initialize_server(port, daemon=False):
+def initialize_server(port, daemon=False, stream_port=None):
     if _ServerHolder.SERVER is None:
         if port is not None:
             notifications_queue = Queue()
             _ServerHolder.SERVER = ServerFacade(notifications_queue)
-            _ServerHolder.SERVER_COMM = ServerComm(notifications_queue, port, daemon)
+            _ServerHolder.SERVER_COMM = ServerComm(notifications_queue, port, daemon, stream_port)
             _ServerHolder.SERVER_COMM.start()
         else:
             #Create a null server, so that we keep the interface even without any connection.
@@ -212,6 +291,9 @@ def notifyStartTest(file, test):
 
 
 def _encode_if_needed(obj):
+    if not _ServerHolder.ENCODE_ARGS:
+        return obj
+
     # In the java side we expect strings to be ISO-8859-1 (org.python.pydev.debug.pyunit.PyUnitServer.initializeDispatches().new Dispatch() {...}.getAsStr(Object))
     if not IS_PY3K:
         if isinstance(obj, str):
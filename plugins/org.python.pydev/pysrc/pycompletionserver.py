@@ -92,6 +92,10 @@ MSG_CHANGE_PYTHONPATH = '@@CHANGE_PYTHONPATH:'
 MSG_JEDI = '@@MSG_JEDI:'
 MSG_SEARCH = '@@SEARCH'
 
+# Optional prefix of a request (i.e.: @@ID:<request id>:<request>END@@). When available, the response is sent
+# with the same prefix so that many requests may be sent at once (and the responses correlated to them).
+MSG_REQUEST_ID = '@@ID:'
+
 BUFFER_SIZE = 1024
 
 
@@ -184,6 +188,7 @@ class CompletionServer:
         self.socket = None  # socket to send messages.
         self.exit_process_on_kill = True
         self.processor = Processor()
+        self.request_id_prefix = ''
 
 
     def connect_to_server(self):
@@ -227,6 +232,7 @@ class CompletionServer:
 
 
     def send(self, msg):
+        msg = self.request_id_prefix + msg
         if not hasattr(self.socket, 'sendall'):
             #Older versions (jython 2.1)
             self.emulated_sendall(msg)
@@ -250,17 +256,29 @@ class CompletionServer:
             dbg(SERVER_NAME + ' Connected to java server', INFO1)
 
 
+            # Note: many requests may be received at once (so, what's after the first MSG_END is kept for
+            # the next request).
+            buffered = ''
             while not self.ended:
-                data = ''
-
-                while data.find(MSG_END) == -1:
+                while buffered.find(MSG_END) == -1:
                     received = self.socket.recv(BUFFER_SIZE)
                     if len(received) == 0:
                         raise Exit()  # ok, connection ended
                     if IS_PYTHON_3_ONWARDS:
-                        data = data + received.decode('utf-8')
+                        buffered = buffered + received.decode('utf-8')
                     else:
-                        data = data + received
+                        buffered = buffered + received
+
+                i = buffered.find(MSG_END) + len(MSG_END)
+                data = buffered[:i]
+                buffered = buffered[i:]
+
+                self.request_id_prefix = ''
+                if data.startswith(MSG_REQUEST_ID):
+                    i = data.find(':', len(MSG_REQUEST_ID))
+                    if i != -1:
+                        self.request_id_prefix = data[:i + 1]
+                        data = data[i + 1:]
 
                 try:
                     try:
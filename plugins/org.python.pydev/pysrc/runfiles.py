@@ -51,7 +51,8 @@ def main():
     except:
         sys.stderr.write('Command line received: %s\n' % (sys.argv,))
         raise
-    pydev_runfiles_xml_rpc.initialize_server(configuration.port)  # Note that if the port is None, a Null server will be initialized.
+    # Note that if the port is None, a Null server will be initialized.
+    pydev_runfiles_xml_rpc.initialize_server(configuration.port, stream_port=configuration.stream_port)
 
     NOSE_FRAMEWORK = "nose"
     PY_TEST_FRAMEWORK = "py.test"
@@ -238,6 +239,8 @@ def main():
             # main pid to give xml-rpc notifications).
             os.environ['PYDEV_MAIN_PID'] = str(os.getpid())
             os.environ['PYDEV_PYTEST_SERVER'] = str(configuration.port)
+            if configuration.stream_port:
+                os.environ['PYDEV_PYTEST_STREAM_SERVER'] = str(configuration.stream_port)
 
             argv.append('-p')
             argv.append('_pydev_runfiles.pydev_runfiles_pytest2')
@@ -164,6 +164,35 @@ class TestCPython(unittest.TestCase):
             except:
                 pass
 
+    def test_pipelined_requests(self):
+        t, socket = self.create_connections(50003)
+        self.socket = socket
+
+        try:
+            # Many requests sent at once: each response has the id of the related request.
+            msg = quote_plus('%s.list' % BUILTIN_MOD)
+            curdir = quote_plus('.')
+            send(socket, '@@ID:1:@@IMPORTS:%s\nEND@@@@ID:2:@@IMPORTS:%s\nEND@@@@ID:3:@@CHANGE_DIR:%s\nEND@@' % (
+                msg, msg, curdir))
+            received = ''
+            while received.count('END@@') < 3:
+                m = self.socket.recv(1024 * 4)
+                if IS_PYTHON_3_ONWARDS:
+                    m = m.decode('utf-8')
+                received += m
+
+            responses = received.split('END@@')
+            self.assertTrue(responses[0].startswith('@@ID:1:@@COMPLETIONS('), responses[0])
+            self.assertTrue('sort' in responses[0], responses[0])
+            self.assertTrue(responses[1].startswith('@@ID:2:@@COMPLETIONS('), responses[1])
+            self.assertEqual('@@ID:3:@@MSG_OK_', responses[2])
+        finally:
+            try:
+                self.send_kill_msg(socket)
+                socket.close()
+            except:
+                pass
+
     def send_kill_msg(self, socket):
         socket.send(pycompletionserver.MSG_KILL_SERVER)
 
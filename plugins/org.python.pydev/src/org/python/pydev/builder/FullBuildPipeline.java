@@ -0,0 +1,481 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package org.python.pydev.builder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.jface.text.IDocument;
+import org.python.pydev.core.FileUtilsFileBuffer;
+import org.python.pydev.core.IPythonNature;
+import org.python.pydev.core.log.Log;
+import org.python.pydev.editor.codecompletion.revisited.PythonPathHelper;
+import org.python.pydev.plugin.nature.PythonNature;
+import org.python.pydev.shared_core.callbacks.ICallback0;
+import org.python.pydev.shared_core.string.FastStringBuffer;
+
+/**
+ * Visits the resources of a full build with all the builder visitors.
+ *
+ * When more than one worker is used, the resources go through a pipeline: a reader thread loads the documents
+ * (in the order of the resources) into a bounded queue and each worker takes a resource from the queue, parses it
+ * and runs all the visitors for it (with its own list of visitors, as the visitors keep the memo of the resource
+ * being visited -- see: PyDevBuilderVisitor.createParallelVisitor()).
+ *
+ * Only the visitors passed are notified about the start/end of the visiting (once per build): just the visit of
+ * each resource is done in parallel. Visitors which don't support being visited in parallel are shared by all
+ * the workers (and only visit one resource at a time).
+ *
+ * All the visitors of a given resource are always run in the same thread and in the same order of the serial
+ * build (so, the markers of each resource are still created in the same order), and each worker keeps its own
+ * shared project state for the memos (as the serial build).
+ *
+ * The progress monitor is only accessed in the build thread (which reports the progress and the throughput
+ * while the workers are running).
+ */
+/*default*/class FullBuildPipeline {
+
+    private static final boolean DEBUG = false;
+
+    /**
+     * A new worker is only added for each group of this number of resources (no point in creating threads
+     * for small builds).
+     */
+    private static final int MIN_RESOURCES_PER_WORKER = 20;
+
+    /**
+     * Builds slower than this are reported in the log with the throughput achieved.
+     */
+    private static final long SLOW_BUILD_MILLIS = 60 * 1000;
+
+    private static final long PROGRESS_INTERVAL_MILLIS = 300;
+
+    /*default*/static final String WORKER_THREAD_NAME = "PyDev: Full build worker - ";
+    /*default*/static final String READER_THREAD_NAME = "PyDev: Full build reader";
+
+    /**
+     * Helper class to monitor the cancel state of the pipeline (the progress monitor of the build is never
+     * accessed by the workers).
+     */
+    private final class WorkerProgressMonitor extends NullProgressMonitor {
+
+        @Override
+        public boolean isCanceled() {
+            return super.isCanceled() || canceled;
+        }
+    }
+
+    private static final class BuildItem {
+
+        private final IFile resource;
+        private final ICallback0<IDocument> doc;
+
+        private BuildItem(IFile resource, ICallback0<IDocument> doc) {
+            this.resource = resource;
+            this.doc = doc;
+        }
+    }
+
+    private static final BuildItem END = new BuildItem(null, null);
+
+    private final List<IFile> resourcesToParse;
+    private final IProgressMonitor monitor;
+    private final List<PyDevBuilderVisitor> visitors;
+    private final int totalResources;
+
+    private volatile boolean canceled;
+    private volatile boolean loggedMisconfiguration;
+
+    private final Object lock = new Object();
+
+    /**
+     * Visitors which must not visit resources in parallel (they're shared by all the workers).
+     */
+    private final Set<PyDevBuilderVisitor> sharedVisitors = Collections
+            .newSetFromMap(new IdentityHashMap<PyDevBuilderVisitor, Boolean>());
+
+    /**
+     * Lock held while a shared visitor is visiting some resource.
+     */
+    private final Object sharedVisitorsLock = new Object();
+
+    /**
+     * Guarded by lock.
+     */
+    private int finishedResources;
+    private int runningWorkers;
+    private IFile lastResource;
+
+    /**
+     * @param visitors the visitors to be used in the serial build (or by the first worker). They must have been
+     * already notified that the visiting will start.
+     */
+    /*default*/FullBuildPipeline(List<IFile> resourcesToParse, IProgressMonitor monitor,
+            List<PyDevBuilderVisitor> visitors) {
+        this.resourcesToParse = resourcesToParse;
+        this.monitor = monitor;
+        this.visitors = visitors;
+        this.totalResources = resourcesToParse.size();
+    }
+
+    /**
+     * @param threads the number of threads configured (0 means that it should be computed based on the number of
+     * available processors).
+     * @return the number of workers to be used to build the given number of resources.
+     */
+    /*default*/static int getWorkers(int threads, int resources) {
+        if (threads <= 0) {
+            threads = Runtime.getRuntime().availableProcessors() - 1;
+        }
+        return Math.max(1, Math.min(threads, resources / MIN_RESOURCES_PER_WORKER));
+    }
+
+    /**
+     * Visits the resources serially in the current thread.
+     */
+    /*default*/void runSerially() {
+        double inc = (visitors.size() * 100) / (double) totalResources;
+        double total = 0;
+        int i = 0;
+        FastStringBuffer bufferToCreateString = new FastStringBuffer();
+        long lastProgressTime = 0;
+
+        Object memoSharedProjectState = null;
+        for (IFile r : resourcesToParse) {
+            if (monitor.isCanceled()) {
+                break;
+            }
+            i += 1;
+            total += inc;
+
+            long currentTimeMillis = System.currentTimeMillis();
+            if (currentTimeMillis - lastProgressTime > PROGRESS_INTERVAL_MILLIS) {
+                PyDevBuilder.communicateProgress(monitor, totalResources, i, r, null, bufferToCreateString);
+                lastProgressTime = currentTimeMillis;
+            }
+
+            PythonPathHelper.markAsPyDevFileIfDetected(r);
+            memoSharedProjectState = visit(r, FileUtilsFileBuffer.getDocOnCallbackFromResource(r), visitors,
+                    memoSharedProjectState, monitor);
+
+            if (total > 1) {
+                monitor.worked((int) total);
+                total -= (int) total;
+            }
+        }
+    }
+
+    /**
+     * Visits the resources with the given number of workers (the current thread only reports the progress and
+     * returns only after all the threads started finish).
+     */
+    /*default*/void run(final int workers) {
+        final WorkerProgressMonitor workerMonitor = new WorkerProgressMonitor();
+
+        List<List<PyDevBuilderVisitor>> visitorsPerWorker = createVisitorsPerWorker(workers);
+
+        long initialTime = System.currentTimeMillis();
+        final BlockingQueue<BuildItem> queue = new ArrayBlockingQueue<BuildItem>(workers * 2);
+        synchronized (lock) {
+            runningWorkers = workers;
+        }
+        List<Thread> threads = new ArrayList<Thread>(workers + 1);
+        for (int i = 0; i < workers; i++) {
+            final List<PyDevBuilderVisitor> workerVisitors = visitorsPerWorker.get(i);
+            Thread thread = new Thread() {
+                @Override
+                public void run() {
+                    work(queue, workerVisitors, workerMonitor);
+                }
+            };
+            thread.setName(WORKER_THREAD_NAME + (i + 1));
+            thread.setDaemon(true);
+            thread.start();
+            threads.add(thread);
+        }
+
+        Thread reader = new Thread() {
+            @Override
+            public void run() {
+                read(queue, workers);
+            }
+        };
+        reader.setName(READER_THREAD_NAME);
+        reader.setDaemon(true);
+        reader.start();
+        threads.add(reader);
+
+        waitForWorkers(workers);
+        for (Thread thread : threads) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Log.log(e);
+            }
+        }
+
+        long elapsed = System.currentTimeMillis() - initialTime;
+        if (DEBUG || elapsed > SLOW_BUILD_MILLIS) {
+            int finished;
+            synchronized (lock) {
+                finished = finishedResources;
+            }
+            String msg = new FastStringBuffer("PyDev: Full build visited ", 120).append(finished)
+                    .append(" of ").append(totalResources).append(" resources in ").append(elapsed)
+                    .append(" millis (").append(getResourcesPerSecond(finished, elapsed))
+                    .append(" resources/second with ").append(workers).append(" workers).").toString();
+            if (DEBUG) {
+                System.out.println(msg);
+            } else {
+                Log.logInfo(msg);
+            }
+        }
+    }
+
+    /**
+     * @return the visitors to be used by each worker (the first worker uses the visitors passed in the
+     * constructor and the others use a new visitor for the ones which may be visited in parallel or the
+     * same instance otherwise).
+     */
+    /*default*/List<List<PyDevBuilderVisitor>> createVisitorsPerWorker(int workers) {
+        List<List<PyDevBuilderVisitor>> visitorsPerWorker = new ArrayList<List<PyDevBuilderVisitor>>(workers);
+        visitorsPerWorker.add(visitors);
+        for (int i = 1; i < workers; i++) {
+            List<PyDevBuilderVisitor> workerVisitors = new ArrayList<PyDevBuilderVisitor>(visitors.size());
+            for (PyDevBuilderVisitor visitor : visitors) {
+                PyDevBuilderVisitor parallelVisitor = null;
+                if (!sharedVisitors.contains(visitor)) {
+                    try {
+                        parallelVisitor = visitor.createParallelVisitor();
+                    } catch (Throwable e) {
+                        Log.log(e);
+                    }
+                }
+                if (parallelVisitor == null) {
+                    sharedVisitors.add(visitor);
+                    workerVisitors.add(visitor);
+                } else {
+                    workerVisitors.add(parallelVisitor);
+                }
+            }
+            visitorsPerWorker.add(workerVisitors);
+        }
+        return visitorsPerWorker;
+    }
+
+    private static long getResourcesPerSecond(int finished, long elapsedMillis) {
+        return (finished * 1000L) / Math.max(1, elapsedMillis);
+    }
+
+    /**
+     * Reports the progress (and checks the cancel state of the monitor) until all the workers finish.
+     */
+    private void waitForWorkers(int workers) {
+        FastStringBuffer bufferToCreateString = new FastStringBuffer();
+        long initialTime = System.currentTimeMillis();
+        int totalWork = visitors.size() * 100;
+        int reportedWork = 0;
+        while (true) {
+            int finished;
+            IFile last;
+            boolean done;
+            synchronized (lock) {
+                if (runningWorkers > 0) {
+                    try {
+                        lock.wait(PROGRESS_INTERVAL_MILLIS);
+                    } catch (InterruptedException e) {
+                        //ignore
+                    }
+                }
+                finished = finishedResources;
+                last = lastResource;
+                done = runningWorkers == 0;
+            }
+            if (!canceled && monitor.isCanceled()) {
+                canceled = true;
+            }
+
+            int work = (int) (((long) totalWork * finished) / Math.max(1, totalResources));
+            if (work > reportedWork) {
+                monitor.worked(work - reportedWork);
+                reportedWork = work;
+            }
+            if (last != null) {
+                long elapsed = System.currentTimeMillis() - initialTime;
+                bufferToCreateString.clear();
+                bufferToCreateString.append("PyDev: Analyzing ").append(finished).append(" of ")
+                        .append(totalResources).append(" (").append(last.getName()).append(") - ")
+                        .append(getResourcesPerSecond(finished, elapsed)).append(" files/s, ").append(workers)
+                        .append(" workers");
+                monitor.subTask(bufferToCreateString.toString());
+            }
+            if (done) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Loads the documents to be visited (in order) and adds them to the queue. The workers are stopped when all
+     * the resources are read (or the build is cancelled).
+     */
+    private void read(BlockingQueue<BuildItem> queue, int workers) {
+        try {
+            for (IFile r : resourcesToParse) {
+                if (canceled) {
+                    break;
+                }
+                try {
+                    queue.put(new BuildItem(r, loadDocument(r)));
+                } catch (InterruptedException e) {
+                    break;
+                } catch (Throwable e) {
+                    Log.log(e);
+                }
+            }
+        } finally {
+            for (int i = 0; i < workers; i++) {
+                try {
+                    queue.put(END);
+                } catch (InterruptedException e) {
+                    Log.log(e);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the callback with the document of the given resource (already loaded).
+     */
+    /*default*/ICallback0<IDocument> loadDocument(IFile r) {
+        PythonPathHelper.markAsPyDevFileIfDetected(r);
+        ICallback0<IDocument> doc = FileUtilsFileBuffer.getDocOnCallbackFromResource(r);
+        doc.call(); //load it now (it's cached in the callback).
+        return doc;
+    }
+
+    private void work(BlockingQueue<BuildItem> queue, List<PyDevBuilderVisitor> workerVisitors,
+            IProgressMonitor workerMonitor) {
+        Object memoSharedProjectState = null;
+        try {
+            while (true) {
+                BuildItem item;
+                try {
+                    item = queue.take();
+                } catch (InterruptedException e) {
+                    Log.log(e);
+                    return;
+                }
+                if (item == END) {
+                    return;
+                }
+                if (canceled) {
+                    continue; //keep on consuming so that the reader is not blocked.
+                }
+                try {
+                    memoSharedProjectState = visit(item.resource, item.doc, workerVisitors,
+                            memoSharedProjectState, workerMonitor);
+                } catch (Throwable e) {
+                    Log.log(e);
+                }
+                synchronized (lock) {
+                    finishedResources++;
+                    lastResource = item.resource;
+                }
+            }
+        } finally {
+            synchronized (lock) {
+                runningWorkers--;
+                lock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Visits the given resource with all the visitors passed.
+     *
+     * @return the shared project state to be used in the next visit.
+     */
+    /*default*/Object visit(IFile r, ICallback0<IDocument> doc, List<PyDevBuilderVisitor> visitorsToUse,
+            Object memoSharedProjectState, IProgressMonitor visitMonitor) {
+        IPythonNature nature = PythonNature.getPythonNature(r);
+        if (nature == null) {
+            return memoSharedProjectState;
+        }
+        if (!nature.startRequests()) {
+            return memoSharedProjectState;
+        }
+        try {
+            String moduleName;
+            try {
+                //we visit external because we must index them
+                moduleName = nature.resolveModuleOnlyInProjectSources(r, true);
+                if (moduleName == null) {
+                    return memoSharedProjectState; // we only analyze resources that are in the pythonpath
+                }
+            } catch (Exception e1) {
+                if (!loggedMisconfiguration) {
+                    loggedMisconfiguration = true; //No point in logging it over and over again.
+                    Log.log(e1);
+                }
+                return memoSharedProjectState;
+            }
+
+            //create new memo for each resource
+            VisitorMemo memo = new VisitorMemo();
+            memo.setSharedProjectState(memoSharedProjectState);
+            memo.put(PyDevBuilderVisitor.IS_FULL_BUILD, true); //mark it as full build
+            memo.put(PyDevBuilderVisitor.DOCUMENT_TIME, System.currentTimeMillis());
+
+            PyDevBuilderVisitor.setModuleNameInCache(memo, r, moduleName);
+
+            visit(r, doc, memo, visitorsToUse, visitMonitor);
+            return memo.getSharedProjectState();
+        } finally {
+            nature.endRequests();
+        }
+    }
+
+    /**
+     * Runs all the visitors passed for the given resource (in order).
+     */
+    /*default*/void visit(IFile r, ICallback0<IDocument> doc, VisitorMemo memo,
+            List<PyDevBuilderVisitor> visitorsToUse, IProgressMonitor visitMonitor) {
+        for (PyDevBuilderVisitor visitor : visitorsToUse) {
+            if (visitMonitor.isCanceled()) {
+                break;
+            }
+            if (sharedVisitors.contains(visitor)) {
+                synchronized (sharedVisitorsLock) {
+                    visit(r, doc, memo, visitor, visitMonitor);
+                }
+            } else {
+                visit(r, doc, memo, visitor, visitMonitor);
+            }
+        }
+    }
+
+    private void visit(IFile r, ICallback0<IDocument> doc, VisitorMemo memo, PyDevBuilderVisitor visitor,
+            IProgressMonitor visitMonitor) {
+        try {
+            visitor.memo = memo; //setting the memo must be the first thing.
+
+            //on a full build, all visits are as some add...
+            visitor.visitAddedResource(r, doc, visitMonitor);
+        } catch (Exception e) {
+            Log.log(e);
+        }
+    }
+}
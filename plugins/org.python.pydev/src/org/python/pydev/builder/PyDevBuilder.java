@@ -13,7 +13,6 @@ package org.python.pydev.builder;
 
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
@@ -26,19 +25,16 @@ import org.eclipse.core.resources.IncrementalProjectBuilder;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.jobs.ISchedulingRule;
-import org.eclipse.jface.text.IDocument;
 import org.python.pydev.builder.pycremover.PycHandlerBuilderVisitor;
 import org.python.pydev.builder.syntaxchecker.PySyntaxChecker;
 import org.python.pydev.builder.todo.PyTodoVisitor;
 import org.python.pydev.core.ExtensionHelper;
-import org.python.pydev.core.FileUtilsFileBuffer;
 import org.python.pydev.core.IPythonNature;
 import org.python.pydev.core.IPythonPathNature;
 import org.python.pydev.core.log.Log;
 import org.python.pydev.editor.codecompletion.revisited.PyCodeCompletionVisitor;
 import org.python.pydev.editor.codecompletion.revisited.PythonPathHelper;
 import org.python.pydev.plugin.nature.PythonNature;
-import org.python.pydev.shared_core.callbacks.ICallback0;
 import org.python.pydev.shared_core.string.FastStringBuffer;
 import org.python.pydev.utils.PyFileListing;
 
@@ -219,7 +215,7 @@ public class PyDevBuilder extends IncrementalProjectBuilder {
 
     }
 
-    private AutoCloseable withStartEndVisitingNotifications(final List<PyDevBuilderVisitor> visitors,
+    /*default*/static AutoCloseable withStartEndVisitingNotifications(final List<PyDevBuilderVisitor> visitors,
             final IProgressMonitor monitor,
             boolean isFullBuild, IPythonNature nature) {
         for (PyDevBuilderVisitor visitor : visitors) {
@@ -266,7 +262,8 @@ public class PyDevBuilder extends IncrementalProjectBuilder {
     }
 
     /**
-     * Default implementation. Visits each resource once at a time. May be overridden if a better implementation is needed.
+     * Default implementation. Visits the resources in a pipeline with a bounded number of workers (or one at a
+     * time if only one worker should be used). May be overridden if a better implementation is needed.
      *
      * @param resourcesToParse list of resources from project that are python files.
      * @param monitor
@@ -275,87 +272,13 @@ public class PyDevBuilder extends IncrementalProjectBuilder {
     public void buildResources(List<IFile> resourcesToParse, IProgressMonitor monitor,
             List<PyDevBuilderVisitor> visitors) {
 
-        // we have 100 units here
-        double inc = (visitors.size() * 100) / (double) resourcesToParse.size();
-
-        double total = 0;
-        int totalResources = resourcesToParse.size();
-        int i = 0;
-
-        FastStringBuffer bufferToCreateString = new FastStringBuffer();
-
-        boolean loggedMisconfiguration = false;
-        long lastProgressTime = 0;
-
-        Object memoSharedProjectState = null;
-        for (Iterator<IFile> iter = resourcesToParse.iterator(); iter.hasNext() && monitor.isCanceled() == false;) {
-            i += 1;
-            total += inc;
-            IFile r = iter.next();
-
-            PythonPathHelper.markAsPyDevFileIfDetected(r);
-
-            IPythonNature nature = PythonNature.getPythonNature(r);
-            if (nature == null) {
-                continue;
-            }
-            if (!nature.startRequests()) {
-                continue;
-            }
-            try {
-                String moduleName;
-                try {
-                    //we visit external because we must index them
-                    moduleName = nature.resolveModuleOnlyInProjectSources(r, true);
-                    if (moduleName == null) {
-                        continue; // we only analyze resources that are in the pythonpath
-                    }
-                } catch (Exception e1) {
-                    if (!loggedMisconfiguration) {
-                        loggedMisconfiguration = true; //No point in logging it over and over again.
-                        Log.log(e1);
-                    }
-                    continue;
-                }
-
-                //create new memo for each resource
-                VisitorMemo memo = new VisitorMemo();
-                memo.setSharedProjectState(memoSharedProjectState);
-                memo.put(PyDevBuilderVisitor.IS_FULL_BUILD, true); //mark it as full build
-
-                ICallback0<IDocument> doc = FileUtilsFileBuffer.getDocOnCallbackFromResource(r);
-                memo.put(PyDevBuilderVisitor.DOCUMENT_TIME, System.currentTimeMillis());
-
-                PyDevBuilderVisitor.setModuleNameInCache(memo, r, moduleName);
-
-                for (Iterator<PyDevBuilderVisitor> it = visitors.iterator(); it.hasNext()
-                        && monitor.isCanceled() == false;) {
-
-                    try {
-                        PyDevBuilderVisitor visitor = it.next();
-                        visitor.memo = memo; //setting the memo must be the first thing.
-
-                        long currentTimeMillis = System.currentTimeMillis();
-                        if (currentTimeMillis - lastProgressTime > 300) {
-                            communicateProgress(monitor, totalResources, i, r, visitor, bufferToCreateString);
-                            lastProgressTime = currentTimeMillis;
-                        }
-
-                        //on a full build, all visits are as some add...
-                        visitor.visitAddedResource(r, doc, monitor);
-                    } catch (Exception e) {
-                        Log.log(e);
-                    }
-                }
-
-                if (total > 1) {
-                    monitor.worked((int) total);
-                    total -= (int) total;
-                }
-                memoSharedProjectState = memo.getSharedProjectState();
-            } finally {
-                nature.endRequests();
-            }
+        FullBuildPipeline pipeline = new FullBuildPipeline(resourcesToParse, monitor, visitors);
+        int workers = FullBuildPipeline.getWorkers(PyDevBuilderPrefPage.getFullBuildThreads(),
+                resourcesToParse.size());
+        if (workers > 1) {
+            pipeline.run(workers);
+        } else {
+            pipeline.runSerially();
         }
     }
 
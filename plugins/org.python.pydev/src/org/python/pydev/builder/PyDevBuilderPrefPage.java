@@ -68,6 +68,13 @@ public class PyDevBuilderPrefPage extends FieldEditorPreferencePage implements I
 
     public static final int DEFAULT_PYC_DELETE_HANDLING = PYC_ALWAYS_DELETE;
 
+    /**
+     * Number of threads used to visit the resources in a full build (0 means that it's computed based on the number
+     * of available processors).
+     */
+    public static final String FULL_BUILD_THREADS = "FULL_BUILD_THREADS";
+    public static final int DEFAULT_FULL_BUILD_THREADS = 0;
+
     private static final String[][] ENTRIES_AND_VALUES = new String[][] {
             { "Delete any orphaned .pyc file.", Integer.toString(PYC_ALWAYS_DELETE) },
             { "Only delete .pyc when .py delete is detected.", Integer.toString(PYC_DELETE_WHEN_PY_IS_DELETED) },
@@ -140,6 +147,9 @@ public class PyDevBuilderPrefPage extends FieldEditorPreferencePage implements I
         addField(new ComboFieldEditor(PYC_DELETE_HANDLING, "How to handle .pyc/$py.class deletion?",
                 ENTRIES_AND_VALUES, p));
 
+        addField(new IntegerFieldEditor(FULL_BUILD_THREADS,
+                "Threads used in a full build (0 = based on the available processors)", p));
+
     }
 
     /* (non-Javadoc)
@@ -204,4 +214,8 @@ public class PyDevBuilderPrefPage extends FieldEditorPreferencePage implements I
         return PydevPrefs.getPreferences().getInt(PYC_DELETE_HANDLING);
     }
 
+    public static int getFullBuildThreads() {
+        return PydevPrefs.getPreferences().getInt(FULL_BUILD_THREADS);
+    }
+
 }
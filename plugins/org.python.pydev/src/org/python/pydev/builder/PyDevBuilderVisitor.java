@@ -336,4 +336,18 @@ public abstract class PyDevBuilderVisitor implements Comparable<PyDevBuilderVisi
     public void visitingEnded(IProgressMonitor monitor) {
 
     }
+
+    /**
+     * A full build may visit the resources with more than one worker. As the memo is kept in the visitor, each
+     * additional worker needs its own visitor (which is not notified about the start/end of the visiting: only the
+     * visitor used to create it is notified).
+     *
+     * Visitors which return null (the default, so, the builder participants contributed through extensions aren't
+     * visited in parallel unless they opt in) are used by all the workers, one resource at a time.
+     *
+     * @return a new visitor which can visit resources at the same time as this one (or null if not supported).
+     */
+    public PyDevBuilderVisitor createParallelVisitor() {
+        return null;
+    }
 }
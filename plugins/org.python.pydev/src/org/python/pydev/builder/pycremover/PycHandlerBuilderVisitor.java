@@ -96,6 +96,13 @@ public class PycHandlerBuilderVisitor extends PyDevBuilderVisitor {
         pycDeleteHandling = PyDevBuilderPrefPage.getPycDeleteHandling();
     }
 
+    @Override
+    public PyDevBuilderVisitor createParallelVisitor() {
+        PycHandlerBuilderVisitor visitor = new PycHandlerBuilderVisitor();
+        visitor.pycDeleteHandling = pycDeleteHandling;
+        return visitor;
+    }
+
     @Override
     public void visitChangedResource(IResource resource, ICallback0<IDocument> document, IProgressMonitor monitor) {
         //Ignore: for pyc files we only care about their addition.
@@ -8,6 +8,7 @@ package org.python.pydev.builder.pylint;
 
 import java.util.List;
 
+import org.python.pydev.shared_core.callbacks.ICallback0;
 import org.python.pydev.shared_ui.utils.PyMarkerUtils.MarkerInfo;
 
 /**
@@ -32,10 +33,24 @@ public interface IPyLintVisitor {
      */
     void join();
 
+    /**
+     * Calls the given callback when the PyLint visitor finishes its execution (in the thread which finished it
+     * or right away if it's not running). May be used instead of {@link #join()} when the markers don't need to
+     * be available right away (as the visitor may wait for other resources to be analyzed in the same PyLint
+     * process).
+     */
+    void onFinished(ICallback0<Object> callback);
+
     /**
      * The list of markers that the visitor generated (must be gotten only after {@link #join()}).
      * @return the list of markers or null if no markers were generated.
      */
     List<MarkerInfo> getMarkers();
 
+    /**
+     * @return true if PyLint couldn't analyze the resource (i.e.: it crashed or timed out), in which case the
+     * markers of a previous analysis should be kept (must be gotten only after {@link #join()}).
+     */
+    boolean hasFailed();
+
 }
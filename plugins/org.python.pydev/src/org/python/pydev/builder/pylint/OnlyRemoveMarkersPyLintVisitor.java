@@ -12,6 +12,7 @@ import org.eclipse.core.resources.IResource;
 import org.eclipse.core.runtime.CoreException;
 import org.python.pydev.core.IMiscConstants;
 import org.python.pydev.core.log.Log;
+import org.python.pydev.shared_core.callbacks.ICallback0;
 import org.python.pydev.shared_ui.utils.PyMarkerUtils.MarkerInfo;
 
 public class OnlyRemoveMarkersPyLintVisitor implements IPyLintVisitor {
@@ -48,9 +49,19 @@ public class OnlyRemoveMarkersPyLintVisitor implements IPyLintVisitor {
         //no-op
     }
 
+    @Override
+    public void onFinished(ICallback0<Object> callback) {
+        callback.call();
+    }
+
     @Override
     public List<MarkerInfo> getMarkers() {
         return null;
     }
 
+    @Override
+    public boolean hasFailed() {
+        return false;
+    }
+
 }
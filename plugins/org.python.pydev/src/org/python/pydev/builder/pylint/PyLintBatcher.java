@@ -0,0 +1,535 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package org.python.pydev.builder.pylint;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.StringTokenizer;
+
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.ui.console.IOConsoleOutputStream;
+import org.python.pydev.builder.pylint.PyLintVisitor.PyLintAnalysis;
+import org.python.pydev.core.log.Log;
+import org.python.pydev.plugin.nature.PythonNature;
+import org.python.pydev.runners.SimplePythonRunner;
+import org.python.pydev.runners.SimpleRunner;
+import org.python.pydev.shared_core.callbacks.ICallback;
+import org.python.pydev.shared_core.io.FileUtils;
+import org.python.pydev.shared_core.io.ThreadStreamReader;
+import org.python.pydev.shared_core.string.StringUtils;
+import org.python.pydev.shared_core.structure.Tuple;
+import org.python.pydev.shared_core.utils.PlatformUtils;
+
+/**
+ * Collects the resources to be analyzed by PyLint and analyzes them in batches (i.e.: many files are passed
+ * to the same PyLint process, so, PyLint startup is paid once per batch and not once per file).
+ *
+ * Resources are grouped by project and PyLint location (which determine the command line), and a batch is
+ * started when it has {@link #MAX_FILES_PER_BATCH} files, when its first file waited more than
+ * {@link #LINGER_MILLIS} or when some client is waiting for the results of a file in it (i.e.: an editor
+ * save/delta build waits for the result while a full build just adds the resources and gets the results
+ * later on).
+ *
+ * At most {@link #maxProcesses} PyLint processes run at the same time.
+ */
+/*default*/ final class PyLintBatcher {
+
+    private static final boolean DEBUG = false;
+
+    /*default*/ static final int MAX_FILES_PER_BATCH = 32;
+
+    /**
+     * Time that a resource may wait for other resources to be added to its batch.
+     */
+    /*default*/ static final long LINGER_MILLIS = 1000;
+
+    /**
+     * Time that the dispatcher waits for new resources before finishing.
+     */
+    private static final long IDLE_TIMEOUT_MILLIS = 30 * 1000;
+
+    /**
+     * Time after which a PyLint process is killed (its files are then kept with the markers of a previous analysis).
+     */
+    /*default*/ static final long PROCESS_TIMEOUT_MILLIS = 5 * 60 * 1000;
+
+    /**
+     * Separates the path of the file from the message in the PyLint output.
+     */
+    /*default*/ static final String PATH_SEPARATOR = "|";
+
+    private static final PyLintBatcher batcher = new PyLintBatcher(Math.max(1, Math.min(4,
+            Runtime.getRuntime().availableProcessors() / 2)));
+
+    public static PyLintBatcher getDefault() {
+        return batcher;
+    }
+
+    /**
+     * The resources in the same project and with the same PyLint location are run with the same command line.
+     */
+    private static final class BatchKey {
+
+        private final IProject project;
+        private final File pyLintLocation;
+
+        private BatchKey(IProject project, File pyLintLocation) {
+            this.project = project;
+            this.pyLintLocation = pyLintLocation;
+        }
+
+        @Override
+        public int hashCode() {
+            return project.hashCode() * 31 + pyLintLocation.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof BatchKey)) {
+                return false;
+            }
+            BatchKey other = (BatchKey) obj;
+            return project.equals(other.project) && pyLintLocation.equals(other.pyLintLocation);
+        }
+    }
+
+    /*default*/ static enum BatchResult {
+        /**
+         * The PyLint output was processed.
+         */
+        OK,
+        /**
+         * PyLint crashed (i.e.: printed a traceback), so, there's no result for the files in the batch.
+         */
+        FAILED,
+        /**
+         * The process couldn't be created, was canceled or timed out.
+         */
+        NOT_FINISHED
+    }
+
+    private static final class PendingBatch {
+
+        private final List<PyLintAnalysis> analyses = new ArrayList<PyLintAnalysis>();
+        private long firstAddTime;
+        private boolean urgent;
+    }
+
+    private final int maxProcesses;
+
+    private final Object lock = new Object();
+
+    /**
+     * Guarded by lock.
+     */
+    private final Map<BatchKey, PendingBatch> pending = new LinkedHashMap<BatchKey, PendingBatch>();
+    private int runningProcesses;
+    private boolean dispatcherRunning;
+
+    private PyLintBatcher(int maxProcesses) {
+        this.maxProcesses = maxProcesses;
+    }
+
+    /**
+     * Adds the given analysis to be done in a batch.
+     */
+    public void add(PyLintAnalysis analysis) {
+        BatchKey key = new BatchKey(analysis.resource.getProject(), analysis.pyLintLocation);
+        synchronized (lock) {
+            PendingBatch batch = pending.get(key);
+            if (batch == null) {
+                batch = new PendingBatch();
+                batch.firstAddTime = System.currentTimeMillis();
+                pending.put(key, batch);
+            }
+            batch.analyses.add(analysis);
+
+            if (!dispatcherRunning) {
+                dispatcherRunning = true;
+                Thread thread = new Thread() {
+                    @Override
+                    public void run() {
+                        dispatch();
+                    }
+                };
+                thread.setName("PyDev: PyLint batcher");
+                thread.setDaemon(true);
+                thread.start();
+            }
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * Someone is waiting for the given analysis: start its batch as soon as possible.
+     */
+    public void flush(PyLintAnalysis analysis) {
+        synchronized (lock) {
+            for (PendingBatch batch : pending.values()) {
+                if (batch.analyses.contains(analysis)) {
+                    batch.urgent = true;
+                    lock.notifyAll();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void dispatch() {
+        while (true) {
+            final BatchKey key;
+            final List<PyLintAnalysis> analyses;
+            synchronized (lock) {
+                Tuple<BatchKey, List<PyLintAnalysis>> next = waitForNextBatch();
+                if (next == null) {
+                    dispatcherRunning = false;
+                    return;
+                }
+                key = next.o1;
+                analyses = next.o2;
+                runningProcesses++;
+            }
+
+            Thread thread = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        runRetryingFailures(analyses, new ICallback<BatchResult, List<PyLintAnalysis>>() {
+
+                            @Override
+                            public BatchResult call(List<PyLintAnalysis> arg) {
+                                try {
+                                    return runBatch(key, arg);
+                                } catch (Exception e) {
+                                    Log.log(e);
+                                    return BatchResult.NOT_FINISHED;
+                                }
+                            }
+                        });
+                    } catch (Throwable e) {
+                        Log.log(e);
+                    } finally {
+                        for (PyLintAnalysis analysis : analyses) {
+                            analysis.setFinished();
+                        }
+                        synchronized (lock) {
+                            runningProcesses--;
+                            lock.notifyAll();
+                        }
+                    }
+                }
+            };
+            thread.setName("PyDev: PyLint batch (" + analyses.size() + " files)");
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    /**
+     * Must be called with the lock held.
+     *
+     * @return the next batch to be run or null if the dispatcher should finish (idle for too long).
+     */
+    private Tuple<BatchKey, List<PyLintAnalysis>> waitForNextBatch() {
+        long idleSince = System.currentTimeMillis();
+        while (true) {
+            long now = System.currentTimeMillis();
+            long waitTime = IDLE_TIMEOUT_MILLIS;
+
+            for (Iterator<Map.Entry<BatchKey, PendingBatch>> it = pending.entrySet().iterator(); it.hasNext();) {
+                Map.Entry<BatchKey, PendingBatch> entry = it.next();
+                PendingBatch batch = entry.getValue();
+
+                //Cancelled analyses are finished right away.
+                for (Iterator<PyLintAnalysis> it2 = batch.analyses.iterator(); it2.hasNext();) {
+                    PyLintAnalysis analysis = it2.next();
+                    if (analysis.monitor.isCanceled()) {
+                        it2.remove();
+                        analysis.setFinished();
+                    }
+                }
+                if (batch.analyses.size() == 0) {
+                    it.remove();
+                    continue;
+                }
+
+                long dueTime = batch.firstAddTime + LINGER_MILLIS;
+                if (runningProcesses < maxProcesses) {
+                    if (batch.urgent || batch.analyses.size() >= MAX_FILES_PER_BATCH || dueTime <= now) {
+                        List<PyLintAnalysis> analyses;
+                        if (batch.analyses.size() <= MAX_FILES_PER_BATCH) {
+                            it.remove();
+                            analyses = batch.analyses;
+                        } else {
+                            List<PyLintAnalysis> sub = batch.analyses.subList(0, MAX_FILES_PER_BATCH);
+                            analyses = new ArrayList<PyLintAnalysis>(sub);
+                            sub.clear();
+                        }
+                        return new Tuple<BatchKey, List<PyLintAnalysis>>(entry.getKey(), analyses);
+                    }
+                    waitTime = Math.min(waitTime, Math.max(1, dueTime - now));
+                }
+            }
+
+            if (pending.size() > 0) {
+                idleSince = now;
+            } else if (now - idleSince >= IDLE_TIMEOUT_MILLIS) {
+                return null;
+            }
+            try {
+                lock.wait(waitTime);
+            } catch (InterruptedException e) {
+                //ignore
+            }
+        }
+    }
+
+    /**
+     * Runs the given analyses in a batch. If PyLint fails for the batch (which may happen because of a single
+     * file), each file is run on its own so that the failure doesn't affect the others. The analyses which
+     * still don't have a result are marked as failed (so that their previous markers are kept).
+     */
+    /*default*/ static void runRetryingFailures(List<PyLintAnalysis> analyses,
+            ICallback<BatchResult, List<PyLintAnalysis>> runBatch) {
+        BatchResult result = runBatch.call(analyses);
+        if (result == BatchResult.OK) {
+            return;
+        }
+        if (result == BatchResult.FAILED && analyses.size() > 1) {
+            for (PyLintAnalysis analysis : analyses) {
+                if (analysis.monitor.isCanceled()) {
+                    continue;
+                }
+                List<PyLintAnalysis> single = new ArrayList<PyLintAnalysis>(1);
+                single.add(analysis);
+                if (runBatch.call(single) != BatchResult.OK) {
+                    analysis.setFailed();
+                }
+            }
+            return;
+        }
+        for (PyLintAnalysis analysis : analyses) {
+            analysis.setFailed();
+        }
+    }
+
+    /**
+     * Runs PyLint for the given analyses and creates the markers for each one of them.
+     */
+    private BatchResult runBatch(BatchKey key, final List<PyLintAnalysis> analyses) throws Exception {
+        IOConsoleOutputStream out = PyLintVisitor.getConsoleOutputStream();
+        String script = FileUtils.getFileAbsolutePath(key.pyLintLocation);
+
+        // check whether lint.py module or pylint executable has been specified
+        boolean isPyScript = script.endsWith(".py") || script.endsWith(".pyw");
+
+        ArrayList<String> cmdList = new ArrayList<String>();
+        // pylint executable
+        if (!isPyScript) {
+            cmdList.add(script);
+        }
+        //user args
+        String userArgs = StringUtils.replaceNewLines(
+                PyLintPrefPage.getPyLintArgs(), " ");
+        StringTokenizer tokenizer2 = new StringTokenizer(userArgs);
+        while (tokenizer2.hasMoreTokens()) {
+            String token = tokenizer2.nextToken();
+            if (token.equals("--output-format=parseable")) {
+                continue;
+            }
+            if (token.startsWith("--msg-template=")) {
+                continue;
+            }
+            if (token.startsWith("--output-format=")) {
+                continue;
+            }
+            cmdList.add(token);
+        }
+        cmdList.add("--output-format=text");
+        cmdList.add("--msg-template='{abspath}" + PATH_SEPARATOR
+                + "{C}:{line:3d},{column:2d}: {msg} ({symbol})'");
+        // target files to be linted
+        List<String> targets = new ArrayList<String>(analyses.size());
+        for (PyLintAnalysis analysis : analyses) {
+            cmdList.add(analysis.target);
+            targets.add(analysis.target);
+        }
+        String[] args = cmdList.toArray(new String[0]);
+
+        // run pylint in project location
+        IProject project = key.project;
+        File workingDir = project.getLocation().toFile();
+        PythonNature nature = PythonNature.getPythonNature(project);
+
+        // The batch is canceled only when all the related analyses are canceled.
+        NullProgressMonitor monitor = new NullProgressMonitor() {
+            @Override
+            public boolean isCanceled() {
+                return super.isCanceled() || allCanceled(analyses);
+            }
+        };
+
+        final Process process;
+        if (isPyScript) {
+            // run Python script (lint.py) with the interpreter of current project
+            if (nature == null) {
+                Throwable e = new RuntimeException("PyLint ERROR: Nature not configured for: " + project);
+                Log.log(e);
+                return BatchResult.NOT_FINISHED;
+            }
+            String interpreter = nature.getProjectInterpreter().getExecutableOrJar();
+            PyLintVisitor.write("PyLint: Executing command line:", out, script, args);
+            SimplePythonRunner runner = new SimplePythonRunner();
+            String[] parameters = SimplePythonRunner.preparePythonCallParameters(interpreter, script, args);
+
+            Tuple<Process, String> r = runner.run(parameters, workingDir, nature, monitor);
+            process = r.o1;
+        } else {
+            // run executable command (pylint or pylint.bat or pylint.exe)
+            PyLintVisitor.write("PyLint: Executing command line:", out, (Object) args);
+            SimpleRunner simpleRunner = new SimpleRunner();
+            Tuple<Process, String> r = simpleRunner.run(args, workingDir, nature, monitor);
+            process = r.o1;
+        }
+        if (process == null) {
+            return BatchResult.NOT_FINISHED;
+        }
+        long initialTime = System.currentTimeMillis();
+
+        ThreadStreamReader std = new ThreadStreamReader(process.getInputStream(), false, null);
+        ThreadStreamReader err = new ThreadStreamReader(process.getErrorStream(), false, null);
+        std.start();
+        err.start();
+
+        while (process.isAlive()) {
+            boolean timedOut = System.currentTimeMillis() - initialTime > PROCESS_TIMEOUT_MILLIS;
+            if (monitor.isCanceled() || timedOut) {
+                std.stopGettingOutput();
+                err.stopGettingOutput();
+                process.destroy();
+                if (timedOut) {
+                    Log.log("PyLint process timed out (killed after " + PROCESS_TIMEOUT_MILLIS + " millis) for: "
+                            + targets);
+                }
+                return BatchResult.NOT_FINISHED;
+            }
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                // Just proceed to another check.
+            }
+        }
+
+        // Wait for the other threads to finish getting the output
+        try {
+            std.join();
+        } catch (InterruptedException e) {
+        }
+        try {
+            err.join();
+        } catch (InterruptedException e) {
+        }
+
+        String output = std.getAndClearContents();
+        String errors = err.getAndClearContents();
+        if (DEBUG) {
+            System.out.println("PyLint batch with " + analyses.size() + " files finished in: "
+                    + (System.currentTimeMillis() - initialTime) + " millis.");
+        }
+        PyLintVisitor.write("PyLint: The stdout of the command line is:", out, output);
+        PyLintVisitor.write("PyLint: The stderr of the command line is:", out, errors);
+
+        if (output.indexOf("Traceback (most recent call last):") != -1) {
+            Throwable e = new RuntimeException("PyLint ERROR: \n" + output);
+            Log.log(e);
+            return BatchResult.FAILED;
+        }
+        if (errors.indexOf("Traceback (most recent call last):") != -1) {
+            Throwable e = new RuntimeException("PyLint ERROR: \n" + errors);
+            Log.log(e);
+            return BatchResult.FAILED;
+        }
+
+        Map<String, List<String>> targetToLines = splitOutputPerTarget(output, targets,
+                PlatformUtils.isWindowsPlatform());
+        for (PyLintAnalysis analysis : analyses) {
+            if (analysis.monitor.isCanceled()) {
+                continue;
+            }
+            List<String> lines = targetToLines.get(analysis.target);
+            if (lines != null) {
+                analysis.afterRunProcess(lines);
+            }
+        }
+        return BatchResult.OK;
+    }
+
+    private static boolean allCanceled(List<PyLintAnalysis> analyses) {
+        for (PyLintAnalysis analysis : analyses) {
+            if (!analysis.monitor.isCanceled()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Splits the PyLint output (where each message is in the format "{abspath}|{C}:...") among the given targets.
+     *
+     * @return a map with the target to the messages related to it (without the path).
+     */
+    /*default*/ static Map<String, List<String>> splitOutputPerTarget(String output, List<String> targets,
+            boolean ignoreCase) {
+        Map<String, String> normalizedToTarget = new HashMap<String, String>();
+        for (String target : targets) {
+            normalizedToTarget.put(normalizePath(target, ignoreCase), target);
+        }
+
+        Map<String, List<String>> ret = new HashMap<String, List<String>>();
+        StringTokenizer tokenizer = new StringTokenizer(output, "\r\n");
+        while (tokenizer.hasMoreTokens()) {
+            String tok = tokenizer.nextToken();
+            if (tok.startsWith("'")) {
+                //the quotes in the template may be kept in the output depending on how the args are passed.
+                tok = tok.substring(1);
+                if (tok.endsWith("'")) {
+                    tok = tok.substring(0, tok.length() - 1);
+                }
+            }
+            // Note: the path may contain the separator, so, check each possible position.
+            int i = tok.indexOf(PATH_SEPARATOR);
+            while (i != -1) {
+                String target = normalizedToTarget.get(normalizePath(tok.substring(0, i), ignoreCase));
+                if (target != null) {
+                    List<String> lines = ret.get(target);
+                    if (lines == null) {
+                        lines = new ArrayList<String>();
+                        ret.put(target, lines);
+                    }
+                    lines.add(tok.substring(i + PATH_SEPARATOR.length()));
+                    break;
+                }
+                i = tok.indexOf(PATH_SEPARATOR, i + 1);
+            }
+        }
+        return ret;
+    }
+
+    private static String normalizePath(String path, boolean ignoreCase) {
+        path = new File(path.trim()).getAbsolutePath();
+        if (ignoreCase) {
+            path = path.toLowerCase();
+        }
+        return path;
+    }
+}
@@ -18,14 +18,14 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.StringTokenizer;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.resources.IResource;
-import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.NullProgressMonitor;
@@ -35,18 +35,12 @@ import org.eclipse.ui.console.IOConsoleOutputStream;
 import org.python.pydev.consoles.MessageConsoles;
 import org.python.pydev.core.IInterpreterManager;
 import org.python.pydev.core.IModule;
-import org.python.pydev.core.MisconfigurationException;
-import org.python.pydev.core.PythonNatureWithoutProjectException;
 import org.python.pydev.core.log.Log;
 import org.python.pydev.editor.correctionassist.CheckAnalysisErrors;
 import org.python.pydev.plugin.nature.PythonNature;
-import org.python.pydev.runners.SimplePythonRunner;
-import org.python.pydev.runners.SimpleRunner;
 import org.python.pydev.shared_core.callbacks.ICallback;
+import org.python.pydev.shared_core.callbacks.ICallback0;
 import org.python.pydev.shared_core.io.FileUtils;
-import org.python.pydev.shared_core.io.ThreadStreamReader;
-import org.python.pydev.shared_core.string.StringUtils;
-import org.python.pydev.shared_core.structure.Tuple;
 import org.python.pydev.shared_ui.UIConstants;
 import org.python.pydev.shared_ui.utils.PyMarkerUtils;
 import org.python.pydev.shared_ui.utils.PyMarkerUtils.MarkerInfo;
@@ -70,157 +64,44 @@ import org.python.pydev.shared_ui.utils.PyMarkerUtils.MarkerInfo;
     }
 
     /**
-     * Helper class which will start a process to collect PyLint information and process it.
+     * Helper class which keeps the information on a resource analyzed by PyLint (the process is created
+     * by the PyLintBatcher, which may analyze many resources in the same process) and creates the markers
+     * from the PyLint output related to it.
      */
-    private static final class PyLintAnalysis {
+    /*default*/ static final class PyLintAnalysis {
 
-        private IResource resource;
-        private IDocument document;
-        private IPath location;
+        /*default*/ final IResource resource;
+        /*default*/ final IDocument document;
+        /*default*/ final String target;
+        /*default*/ final File pyLintLocation;
+        /*default*/ final IProgressMonitor monitor;
 
         List<PyMarkerUtils.MarkerInfo> markers = new ArrayList<PyMarkerUtils.MarkerInfo>();
-        private IProgressMonitor monitor;
-        private Process process;
-        private Thread processWatchDoc;
-        private File pyLintLocation;
+
+        private final CountDownLatch finished = new CountDownLatch(1);
+
+        /**
+         * Guarded by this.
+         */
+        private List<ICallback0<Object>> onFinished;
+        private boolean callbacksCalled;
+
+        private volatile boolean failed;
 
         public PyLintAnalysis(IResource resource, IDocument document, IPath location,
                 IProgressMonitor monitor, File pyLintLocation) {
             this.resource = resource;
             this.document = document;
-            this.location = location;
+            this.target = FileUtils.getFileAbsolutePath(new File(location.toOSString()));
             this.monitor = monitor;
             this.pyLintLocation = pyLintLocation;
         }
 
         /**
-         * Creates the pylint process and starts getting its output.
+         * Creates the markers from the lines of the PyLint output related to this resource (in the format:
+         * "{C}:{line:3d},{column:2d}: {msg} ({symbol})").
          */
-        private void createPyLintProcess(IOConsoleOutputStream out)
-                throws CoreException,
-                MisconfigurationException, PythonNatureWithoutProjectException {
-            String script = FileUtils.getFileAbsolutePath(pyLintLocation);
-            String target = FileUtils.getFileAbsolutePath(new File(location.toOSString()));
-
-            // check whether lint.py module or pylint executable has been specified
-            boolean isPyScript = script.endsWith(".py") || script.endsWith(".pyw");
-
-            ArrayList<String> cmdList = new ArrayList<String>();
-            // pylint executable
-            if (!isPyScript) {
-                cmdList.add(script);
-            }
-            //user args
-            String userArgs = StringUtils.replaceNewLines(
-                    PyLintPrefPage.getPyLintArgs(), " ");
-            StringTokenizer tokenizer2 = new StringTokenizer(userArgs);
-            while (tokenizer2.hasMoreTokens()) {
-                String token = tokenizer2.nextToken();
-                if (token.equals("--output-format=parseable")) {
-                    continue;
-                }
-                if (token.startsWith("--msg-template=")) {
-                    continue;
-                }
-                if (token.startsWith("--output-format=")) {
-                    continue;
-                }
-                cmdList.add(token);
-            }
-            cmdList.add("--output-format=text");
-            cmdList.add("--msg-template='{C}:{line:3d},{column:2d}: {msg} ({symbol})'");
-            // target file to be linted
-            cmdList.add(target);
-            String[] args = cmdList.toArray(new String[0]);
-
-            // run pylint in project location
-            IProject project = resource.getProject();
-            File workingDir = project.getLocation().toFile();
-
-            if (isPyScript) {
-                // run Python script (lint.py) with the interpreter of current project
-                PythonNature nature = PythonNature.getPythonNature(project);
-                if (nature == null) {
-                    Throwable e = new RuntimeException("PyLint ERROR: Nature not configured for: " + project);
-                    Log.log(e);
-                    return;
-                }
-                String interpreter = nature.getProjectInterpreter().getExecutableOrJar();
-                write("PyLint: Executing command line:", out, script, args);
-                SimplePythonRunner runner = new SimplePythonRunner();
-                String[] parameters = SimplePythonRunner.preparePythonCallParameters(interpreter, script, args);
-
-                Tuple<Process, String> r = runner.run(parameters, workingDir, nature, monitor);
-                this.process = r.o1;
-            } else {
-                // run executable command (pylint or pylint.bat or pylint.exe)
-                write("PyLint: Executing command line:", out, (Object) args);
-                SimpleRunner simpleRunner = new SimpleRunner();
-                Tuple<Process, String> r = simpleRunner.run(args, workingDir, PythonNature.getPythonNature(project),
-                        null);
-                this.process = r.o1;
-            }
-            this.processWatchDoc = new Thread() {
-                @Override
-                public void run() {
-                    //No need to synchronize as we'll waitFor() the process before getting the contents.
-                    ThreadStreamReader std = new ThreadStreamReader(process.getInputStream(), false, null);
-                    ThreadStreamReader err = new ThreadStreamReader(process.getErrorStream(), false, null);
-
-                    std.start();
-                    err.start();
-
-                    while (process.isAlive()) {
-                        if (monitor.isCanceled()) {
-                            std.stopGettingOutput();
-                            err.stopGettingOutput();
-                            return;
-                        }
-                        synchronized (this) {
-                            try {
-                                this.wait(20);
-                            } catch (InterruptedException e) {
-                                // Just proceed to another check.
-                            }
-                        }
-                    }
-
-                    if (monitor.isCanceled()) {
-                        std.stopGettingOutput();
-                        err.stopGettingOutput();
-                        return;
-                    }
-
-                    // Wait for the other threads to finish getting the output
-                    try {
-                        std.join();
-                    } catch (InterruptedException e) {
-                    }
-                    try {
-                        err.join();
-                    } catch (InterruptedException e) {
-                    }
-
-                    if (monitor.isCanceled()) {
-                        std.stopGettingOutput();
-                        err.stopGettingOutput();
-                        return;
-                    }
-
-                    String output = std.getAndClearContents();
-                    String errors = err.getAndClearContents();
-                    afterRunProcess(output, errors, out);
-                }
-            };
-            this.processWatchDoc.start();
-        }
-
-        public void afterRunProcess(String output, String errors, IOConsoleOutputStream out) {
-            write("PyLint: The stdout of the command line is:", out, output);
-            write("PyLint: The stderr of the command line is:", out, errors);
-
-            StringTokenizer tokenizer = new StringTokenizer(output, "\r\n");
-
+        public void afterRunProcess(List<String> lines) {
             //Set up local values for severity
             int wSeverity = PyLintPrefPage.wSeverity();
             int eSeverity = PyLintPrefPage.eSeverity();
@@ -228,22 +109,7 @@ import org.python.pydev.shared_ui.utils.PyMarkerUtils.MarkerInfo;
             int cSeverity = PyLintPrefPage.cSeverity();
             int rSeverity = PyLintPrefPage.rSeverity();
 
-            if (monitor.isCanceled()) {
-                return;
-            }
-
-            if (output.indexOf("Traceback (most recent call last):") != -1) {
-                Throwable e = new RuntimeException("PyLint ERROR: \n" + output);
-                Log.log(e);
-                return;
-            }
-            if (errors.indexOf("Traceback (most recent call last):") != -1) {
-                Throwable e = new RuntimeException("PyLint ERROR: \n" + errors);
-                Log.log(e);
-                return;
-            }
-            while (tokenizer.hasMoreTokens()) {
-                String tok = tokenizer.nextToken();
+            for (String tok : lines) {
                 if (monitor.isCanceled()) {
                     return;
                 }
@@ -322,23 +188,80 @@ import org.python.pydev.shared_ui.utils.PyMarkerUtils.MarkerInfo;
                     additionalInfo));
         }
 
+        /**
+         * Marks the analysis as finished (called by the batcher after the markers are created, or if the
+         * analysis couldn't be done).
+         */
+        /*default*/ void setFinished() {
+            List<ICallback0<Object>> callbacks;
+            synchronized (this) {
+                if (callbacksCalled) {
+                    return;
+                }
+                callbacksCalled = true;
+                callbacks = onFinished;
+                onFinished = null;
+            }
+            finished.countDown();
+            if (callbacks != null) {
+                for (ICallback0<Object> callback : callbacks) {
+                    try {
+                        callback.call();
+                    } catch (Exception e) {
+                        Log.log(e);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Marks that PyLint couldn't analyze the resource (must be called before {@link #setFinished()}).
+         */
+        /*default*/ void setFailed() {
+            failed = true;
+        }
+
+        /*default*/ boolean isFailed() {
+            return failed;
+        }
+
+        /*default*/ boolean isFinished() {
+            return finished.getCount() == 0;
+        }
+
+        /*default*/ void onFinished(ICallback0<Object> callback) {
+            synchronized (this) {
+                if (!callbacksCalled) {
+                    if (onFinished == null) {
+                        onFinished = new ArrayList<ICallback0<Object>>(1);
+                    }
+                    onFinished.add(callback);
+                    return;
+                }
+            }
+            callback.call();
+        }
+
         /**
          * Waits for the PyLint processing to finish (note that canceling the monitor should also
          * stop the analysis/kill the related process).
          */
         public void join() {
-            if (processWatchDoc != null) {
-                try {
-                    processWatchDoc.join();
-                } catch (InterruptedException e) {
-                    // If interrrupted, log and got through with it.
-                    Log.log(e);
+            PyLintBatcher.getDefault().flush(this);
+            try {
+                while (!finished.await(20, TimeUnit.MILLISECONDS)) {
+                    if (monitor.isCanceled()) {
+                        return;
+                    }
                 }
+            } catch (InterruptedException e) {
+                // If interrrupted, log and got through with it.
+                Log.log(e);
             }
         }
     }
 
-    private static void write(String cmdLineToExe, IOConsoleOutputStream out, Object... args) {
+    /*default*/ static void write(String cmdLineToExe, IOConsoleOutputStream out, Object... args) {
         try {
             if (out != null) {
                 synchronized (lock) {
@@ -383,7 +306,8 @@ import org.python.pydev.shared_ui.utils.PyMarkerUtils.MarkerInfo;
     private PyLintAnalysis pyLintRunnable;
 
     /**
-     * When we start visiting some resource, we create the process which will do the PyLint analysis.
+     * When we start visiting some resource, we add it to the PyLint batcher (which will create the process
+     * to do the PyLint analysis).
      */
     @Override
     public void startVisit() {
@@ -421,13 +345,7 @@ import org.python.pydev.shared_ui.utils.PyMarkerUtils.MarkerInfo;
             if (location != null) {
                 pyLintRunnable = new PyLintAnalysis(resource, document, location,
                         new NullProgressMonitorWrapper(monitor), pyLintLocation);
-
-                try {
-                    IOConsoleOutputStream out = getConsoleOutputStream();
-                    pyLintRunnable.createPyLintProcess(out);
-                } catch (final Exception e) {
-                    Log.log(e);
-                }
+                PyLintBatcher.getDefault().add(pyLintRunnable);
             }
         }
     }
@@ -439,6 +357,15 @@ import org.python.pydev.shared_ui.utils.PyMarkerUtils.MarkerInfo;
         }
     }
 
+    @Override
+    public void onFinished(ICallback0<Object> callback) {
+        if (pyLintRunnable != null) {
+            pyLintRunnable.onFinished(callback);
+        } else {
+            callback.call();
+        }
+    }
+
     @Override
     public List<MarkerInfo> getMarkers() {
         if (pyLintRunnable == null) {
@@ -447,7 +374,12 @@ import org.python.pydev.shared_ui.utils.PyMarkerUtils.MarkerInfo;
         return pyLintRunnable.markers;
     }
 
-    private static IOConsoleOutputStream getConsoleOutputStream() throws MalformedURLException {
+    @Override
+    public boolean hasFailed() {
+        return pyLintRunnable != null && pyLintRunnable.isFailed();
+    }
+
+    /*default*/ static IOConsoleOutputStream getConsoleOutputStream() throws MalformedURLException {
         if (PyLintPrefPage.useConsole()) {
             return MessageConsoles.getConsoleOutputStream("PyLint", UIConstants.PY_LINT_ICON);
         } else {
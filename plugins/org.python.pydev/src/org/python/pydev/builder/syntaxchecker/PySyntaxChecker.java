@@ -27,6 +27,14 @@ import org.python.pydev.shared_core.callbacks.ICallback0;
  */
 public class PySyntaxChecker extends PyDevBuilderVisitor {
 
+    /**
+     * Only creates the markers of the resource visited.
+     */
+    @Override
+    public PyDevBuilderVisitor createParallelVisitor() {
+        return new PySyntaxChecker();
+    }
+
     @Override
     public void visitChangedResource(IResource resource, ICallback0<IDocument> document, IProgressMonitor monitor) {
         PythonNature nature = getPythonNature(resource);
@@ -35,6 +35,14 @@ import org.python.pydev.shared_ui.utils.PyMarkerUtils.MarkerInfo;
  */
 public class PyTodoVisitor extends PyDevBuilderVisitor {
 
+    /**
+     * Only creates the markers of the resource visited.
+     */
+    @Override
+    public PyDevBuilderVisitor createParallelVisitor() {
+        return new PyTodoVisitor();
+    }
+
     /*
      * (non-Javadoc)
      *
@@ -50,6 +50,12 @@ public class RefactoringRequest extends DecoratableObject {
      */
     public static final String SIMPLE_RESOURCE_RENAME = "simpleResourceRename";
 
+    /**
+     * Integer with the number of modules which weren't current in the references index when the possible
+     * references were searched (those were checked without the index -- i.e.: the index is still being updated).
+     */
+    public static final String MODULES_NOT_CURRENT_IN_INDEX = "modulesNotCurrentInIndex";
+
     /**
      * The file associated with the editor where the refactoring is being requested
      */
@@ -52,6 +52,8 @@ public class PyCodeCompletionInitializer extends AbstractPreferenceInitializer {
         //others
         node.putInt(PyCodeCompletionPreferencesPage.ATTEMPTS_CODECOMPLETION,
                 PyCodeCompletionPreferencesPage.DEFAULT_ATTEMPTS_CODECOMPLETION);
+        node.putInt(PyCodeCompletionPreferencesPage.MAX_SHELLS_PER_INTERPRETER,
+                PyCodeCompletionPreferencesPage.DEFAULT_MAX_SHELLS_PER_INTERPRETER);
         node.putInt(PyCodeCompletionPreferencesPage.AUTOCOMPLETE_DELAY,
                 PyCodeCompletionPreferencesPage.DEFAULT_AUTOCOMPLETE_DELAY);
         node.putInt(PyCodeCompletionPreferencesPage.ARGUMENTS_DEEP_ANALYSIS_N_CHARS,
@@ -38,6 +38,9 @@ public class PyCodeCompletionPreferencesPage extends FieldEditorPreferencePage i
     public static final String ATTEMPTS_CODECOMPLETION = "ATTEMPTS_CODECOMPLETION";
     public static final int DEFAULT_ATTEMPTS_CODECOMPLETION = 5;
 
+    public static final String MAX_SHELLS_PER_INTERPRETER = "MAX_SHELLS_PER_INTERPRETER";
+    public static final int DEFAULT_MAX_SHELLS_PER_INTERPRETER = 3;
+
     public static final String AUTOCOMPLETE_ON_DOT = "AUTOCOMPLETE_ON_DOT";
     public static final boolean DEFAULT_AUTOCOMPLETE_ON_DOT = true;
 
@@ -96,6 +99,9 @@ public class PyCodeCompletionPreferencesPage extends FieldEditorPreferencePage i
         addField(new IntegerFieldEditor(ATTEMPTS_CODECOMPLETION,
                 "Maximum attempts to connect to shell (5 secs each):", p));
 
+        addField(new IntegerFieldEditor(MAX_SHELLS_PER_INTERPRETER,
+                "Maximum number of shells per interpreter\n(for requests out of the UI thread):", p));
+
         addField(new IntegerFieldEditor(AUTOCOMPLETE_DELAY, "Autocompletion delay: ", p));
 
         String tooltip = WrapAndCaseUtils
@@ -200,6 +206,22 @@ public class PyCodeCompletionPreferencesPage extends FieldEditorPreferencePage i
         return ret;
     }
 
+    /**
+     * @return the maximum number of shells used for requests which are not done in the UI thread (the UI thread
+     * always has a dedicated shell).
+     */
+    public static int getMaximumNumberOfShellsPerInterpreter() {
+        if (SharedCorePlugin.inTestMode()) {
+            return 1;
+        }
+
+        int ret = getPreferences().getInt(PyCodeCompletionPreferencesPage.MAX_SHELLS_PER_INTERPRETER);
+        if (ret < 1) {
+            ret = 1;
+        }
+        return ret;
+    }
+
     public static int getMaximumNumberOfMillisToCompleteCodeCompletionRequest() {
         int val = getPreferences().getInt(PyCodeCompletionPreferencesPage.MAX_MILLIS_FOR_COMPLETION);
         if (val <= 200) {
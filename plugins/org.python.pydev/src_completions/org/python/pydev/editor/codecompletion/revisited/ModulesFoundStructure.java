@@ -10,6 +10,7 @@ import java.io.File;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -146,4 +147,10 @@ public class ModulesFoundStructure {
      */
     public List<ZipContents> zipContents = new ArrayList<ZipContents>();
 
+    /**
+     * Contains: pythonpath root -> time (in millis) it took to find the modules in it (may be used to
+     * discover which entries of the pythonpath are slow to be traversed).
+     */
+    public Map<String, Long> millisToFindModulesPerRoot = new LinkedHashMap<String, Long>();
+
 }
@@ -199,6 +199,24 @@ public abstract class ModulesManager implements IModulesManager {
 
     protected static final ModulesManagerCache cache = new ModulesManagerCache();
 
+    /**
+     * Counters for the modules of this manager in the global cache.
+     */
+    final ModulesManagerCacheStats cacheStats = new ModulesManagerCacheStats();
+
+    /**
+     * @return the hits/misses/evictions of this manager in the global modules cache.
+     */
+    public ModulesManagerCacheStats getCacheStats() {
+        return cacheStats;
+    }
+
+    /**
+     * Size of the modules keys in the disk (from the last save/load). Used to decide when the deltas
+     * should be compacted.
+     */
+    protected volatile long persistedModulesKeysBytes;
+
     /**
      * Helper for using the pythonpath. Also persisted.
      */
@@ -274,6 +292,7 @@ public abstract class ModulesManager implements IModulesManager {
             buf = header;
         }
         FileUtils.writeStrToFile(buf.toString(), modulesKeysFile);
+        this.persistedModulesKeysBytes = buf.length();
 
         this.pythonPathHelper.saveToFile(pythonpatHelperFile);
     }
@@ -297,6 +316,7 @@ public abstract class ModulesManager implements IModulesManager {
         }
 
         String fileContents = FileUtils.getFileContents(modulesKeysFile);
+        modulesManager.persistedModulesKeysBytes = fileContents.length();
         if (!fileContents.startsWith(MODULES_MANAGER_V2)) {
             throw new RuntimeException(
                     "Could not load modules manager from " + modulesKeysFile + " (version changed).");
@@ -707,6 +727,13 @@ public abstract class ModulesManager implements IModulesManager {
         }
     }
 
+    @Override
+    public ModulesKey getModulesKey(String moduleName) {
+        synchronized (modulesKeysLock) {
+            return this.modulesKeys.get(new ModulesKey(moduleName, null));
+        }
+    }
+
     /**
      * This is the only method that should add / update a module.
      * No other method should add it directly (unless it is loading or rebuilding it).
@@ -6,71 +6,230 @@
  */
 package org.python.pydev.editor.codecompletion.revisited;
 
+import java.io.File;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 import org.python.pydev.core.ModulesKey;
 import org.python.pydev.editor.codecompletion.revisited.modules.AbstractModule;
-import org.python.pydev.shared_core.cache.LRUCache;
+import org.python.pydev.editor.codecompletion.revisited.modules.EmptyModule;
+import org.python.pydev.editor.codecompletion.revisited.modules.SourceModule;
 import org.python.pydev.shared_core.structure.Tuple;
 
 /**
- * This is a 'global' cache implementation, that can have at most n objects in
- * the memory at any time.
+ * This is a 'global' cache implementation (shared by all the managers) which keeps modules in memory up to a
+ * budget expressed in estimated bytes (instead of a fixed number of modules).
+ *
+ * The cache is split in shards, each with its own lock and its own LRU ordering, so that threads accessing
+ * different modules don't contend on a single monitor. The modules manager lock is only needed when a module
+ * is not in the cache and we have to check whether the manager actually has it.
  */
 final class ModulesManagerCache {
+
     /**
-     * Defines the maximum amount of modules that can be in the memory at any time (for all the managers)
+     * Defines the default budget (in estimated bytes) for the modules in the memory at any time (for all the managers).
+     *
+     * May be overridden with -Dpydev.modules.cache.max.bytes=xxx
      */
-    private static final int MAX_NUMBER_OF_MODULES = 400;
+    private static final long DEFAULT_MAX_ESTIMATED_BYTES = 192L * 1024L * 1024L;
 
     /**
-     * The access to the cache is synchronized
+     * Number of shards (must be a power of 2).
      */
-    private LRUCache<Tuple<ModulesKey, ModulesManager>, AbstractModule> internalCache;
-    private final Object lock = new Object();
+    private static final int NUMBER_OF_SHARDS = 16;
 
-    ModulesManagerCache() {
-        internalCache = new LRUCache<Tuple<ModulesKey, ModulesManager>, AbstractModule>(MAX_NUMBER_OF_MODULES);
+    /**
+     * Estimate for modules which are only placeholders (i.e.: EmptyModule).
+     */
+    private static final long EMPTY_MODULE_ESTIMATED_BYTES = 256;
+
+    /**
+     * Estimate for modules which we can't measure (compiled modules, modules from zips, etc).
+     */
+    private static final long DEFAULT_MODULE_ESTIMATED_BYTES = 64 * 1024;
+
+    /**
+     * Roughly how many bytes of AST (and related caches) we have for each byte of source code.
+     */
+    private static final int AST_BYTES_PER_SOURCE_BYTE = 12;
+
+    private static final class CacheEntry {
+
+        private final AbstractModule module;
+        private final long estimatedBytes;
+
+        private CacheEntry(AbstractModule module, long estimatedBytes) {
+            this.module = module;
+            this.estimatedBytes = estimatedBytes;
+        }
     }
 
     /**
-     * Overridden so that if we do not find the key, we have the chance to create it.
+     * Each shard is an LRU (access-ordered) map whose access is synchronized on the shard itself.
      */
-    public AbstractModule getObj(ModulesKey key, ModulesManager modulesManager) {
-        synchronized (modulesManager.modulesKeysLock) {
-            Tuple<ModulesKey, ModulesManager> keyTuple = new Tuple<ModulesKey, ModulesManager>(key, modulesManager);
-
-            synchronized (lock) {
-                AbstractModule obj = internalCache.getObj(keyTuple);
-                if (obj == null && modulesManager.modulesKeys.containsKey(key)) {
-                    key = modulesManager.modulesKeys.get(key); //get the 'real' key
-                    obj = AbstractModule.createEmptyModule(key);
-                    internalCache.add(keyTuple, obj);
+    private static final class Shard {
+
+        private final LinkedHashMap<Tuple<ModulesKey, ModulesManager>, CacheEntry> map = new LinkedHashMap<Tuple<ModulesKey, ModulesManager>, CacheEntry>(
+                64, 0.75f, true);
+
+        private final long maxEstimatedBytes;
+
+        private long estimatedBytes;
+
+        private Shard(long maxEstimatedBytes) {
+            this.maxEstimatedBytes = maxEstimatedBytes;
+        }
+
+        private synchronized AbstractModule get(Tuple<ModulesKey, ModulesManager> keyTuple) {
+            CacheEntry entry = map.get(keyTuple);
+            return entry != null ? entry.module : null;
+        }
+
+        /**
+         * @return the module which is in the cache after the operation (if onlyIfAbsent is true and there was
+         * already a module there, the previous one is kept and returned).
+         */
+        private synchronized AbstractModule put(Tuple<ModulesKey, ModulesManager> keyTuple, AbstractModule module,
+                boolean onlyIfAbsent) {
+            if (onlyIfAbsent) {
+                CacheEntry existing = map.get(keyTuple);
+                if (existing != null) {
+                    return existing.module;
                 }
-                return obj;
             }
+            CacheEntry entry = new CacheEntry(module, estimateSize(module));
+            CacheEntry old = map.put(keyTuple, entry);
+            if (old != null) {
+                onRemoved(keyTuple, old);
+            }
+            estimatedBytes += entry.estimatedBytes;
+            keyTuple.o2.cacheStats.estimatedBytes.addAndGet(entry.estimatedBytes);
+            evictIfNeeded();
+            return module;
+        }
+
+        private synchronized void remove(Tuple<ModulesKey, ModulesManager> keyTuple) {
+            CacheEntry old = map.remove(keyTuple);
+            if (old != null) {
+                onRemoved(keyTuple, old);
+            }
+        }
+
+        private synchronized void clear() {
+            for (Map.Entry<Tuple<ModulesKey, ModulesManager>, CacheEntry> entry : map.entrySet()) {
+                onRemoved(entry.getKey(), entry.getValue());
+            }
+            map.clear();
+        }
+
+        /**
+         * Removes the least recently used entries until we're in the budget (note that the entry
+         * just added is always kept, even if it's bigger than the whole budget).
+         */
+        private void evictIfNeeded() {
+            if (estimatedBytes <= maxEstimatedBytes) {
+                return;
+            }
+            Iterator<Map.Entry<Tuple<ModulesKey, ModulesManager>, CacheEntry>> it = map.entrySet().iterator();
+            while (estimatedBytes > maxEstimatedBytes && map.size() > 1 && it.hasNext()) {
+                Map.Entry<Tuple<ModulesKey, ModulesManager>, CacheEntry> eldest = it.next();
+                it.remove();
+                onRemoved(eldest.getKey(), eldest.getValue());
+                eldest.getKey().o2.cacheStats.evictions.incrementAndGet();
+            }
+        }
+
+        private void onRemoved(Tuple<ModulesKey, ModulesManager> keyTuple, CacheEntry entry) {
+            estimatedBytes -= entry.estimatedBytes;
+            keyTuple.o2.cacheStats.estimatedBytes.addAndGet(-entry.estimatedBytes);
         }
     }
 
-    public void remove(ModulesKey key, ModulesManager modulesManager) {
-        synchronized (modulesManager.modulesKeysLock) {
-            Tuple<ModulesKey, ModulesManager> keyTuple = new Tuple<ModulesKey, ModulesManager>(key, modulesManager);
-            synchronized (lock) {
-                internalCache.remove(keyTuple);
+    private final Shard[] shards;
+
+    ModulesManagerCache() {
+        this(Long.getLong("pydev.modules.cache.max.bytes", DEFAULT_MAX_ESTIMATED_BYTES));
+    }
+
+    ModulesManagerCache(long maxEstimatedBytes) {
+        shards = new Shard[NUMBER_OF_SHARDS];
+        long maxPerShard = Math.max(1, maxEstimatedBytes / NUMBER_OF_SHARDS);
+        for (int i = 0; i < NUMBER_OF_SHARDS; i++) {
+            shards[i] = new Shard(maxPerShard);
+        }
+    }
+
+    private Shard getShard(ModulesKey key, ModulesManager modulesManager) {
+        int h = key.hashCode() * 31 + System.identityHashCode(modulesManager);
+        h ^= (h >>> 16);
+        return shards[h & (NUMBER_OF_SHARDS - 1)];
+    }
+
+    /**
+     * Provides a rough estimate of the memory used by the given module.
+     *
+     * Note: it's computed only once (when the module is added to the cache).
+     */
+    static long estimateSize(AbstractModule module) {
+        if (module instanceof EmptyModule) {
+            return EMPTY_MODULE_ESTIMATED_BYTES;
+        }
+        if (module instanceof SourceModule) {
+            SourceModule sourceModule = (SourceModule) module;
+            File file = sourceModule.getFile();
+            if (file != null && sourceModule.zipFilePath == null) {
+                long length = file.length(); //0 if it doesn't exist.
+                if (length > 0) {
+                    return EMPTY_MODULE_ESTIMATED_BYTES + length * AST_BYTES_PER_SOURCE_BYTE;
+                }
             }
         }
+        return DEFAULT_MODULE_ESTIMATED_BYTES;
     }
 
-    public void add(ModulesKey key, AbstractModule n, ModulesManager modulesManager) {
+    /**
+     * Overridden so that if we do not find the key, we have the chance to create it.
+     */
+    public AbstractModule getObj(ModulesKey key, ModulesManager modulesManager) {
+        Tuple<ModulesKey, ModulesManager> keyTuple = new Tuple<ModulesKey, ModulesManager>(key, modulesManager);
+        Shard shard = getShard(key, modulesManager);
+
+        AbstractModule obj = shard.get(keyTuple);
+        if (obj != null) {
+            modulesManager.cacheStats.hits.incrementAndGet();
+            return obj;
+        }
+        modulesManager.cacheStats.misses.incrementAndGet();
+
         synchronized (modulesManager.modulesKeysLock) {
-            Tuple<ModulesKey, ModulesManager> keyTuple = new Tuple<ModulesKey, ModulesManager>(key, modulesManager);
-            synchronized (lock) {
-                internalCache.add(keyTuple, n);
+            ModulesKey realKey = modulesManager.modulesKeys.get(key); //get the 'real' key
+            if (realKey == null) {
+                return null;
             }
+            //Note: use the real key in the cache (the one passed may be reused by the caller).
+            return shard.put(new Tuple<ModulesKey, ModulesManager>(realKey, modulesManager),
+                    AbstractModule.createEmptyModule(realKey), true);
         }
     }
 
+    /**
+     * Note: callers should hold the modulesManager.modulesKeysLock.
+     */
+    public void remove(ModulesKey key, ModulesManager modulesManager) {
+        getShard(key, modulesManager).remove(new Tuple<ModulesKey, ModulesManager>(key, modulesManager));
+    }
+
+    /**
+     * Note: callers should hold the modulesManager.modulesKeysLock.
+     */
+    public void add(ModulesKey key, AbstractModule n, ModulesManager modulesManager) {
+        getShard(key, modulesManager).put(new Tuple<ModulesKey, ModulesManager>(key, modulesManager), n, false);
+    }
+
     public void clear() {
-        synchronized (lock) {
-            internalCache.clear();
+        for (Shard shard : shards) {
+            shard.clear();
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,53 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package org.python.pydev.editor.codecompletion.revisited;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.python.pydev.shared_core.string.FastStringBuffer;
+
+/**
+ * Counters for the modules of a given modules manager in the (global) modules cache.
+ *
+ * Can be used to check how well the cache is sized (i.e.: many evictions and misses mean that the
+ * cache budget is too small for the modules being used).
+ */
+public final class ModulesManagerCacheStats {
+
+    final AtomicLong hits = new AtomicLong();
+    final AtomicLong misses = new AtomicLong();
+    final AtomicLong evictions = new AtomicLong();
+    final AtomicLong estimatedBytes = new AtomicLong();
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    /**
+     * @return the estimated bytes used by the modules of the manager which are currently in the cache.
+     */
+    public long getEstimatedBytes() {
+        return estimatedBytes.get();
+    }
+
+    @Override
+    public String toString() {
+        return new FastStringBuffer("ModulesManagerCacheStats[hits=", 80).append(getHits())
+                .append(", misses=").append(getMisses())
+                .append(", evictions=").append(getEvictions())
+                .append(", estimatedBytes=").append(getEstimatedBytes())
+                .append("]").toString();
+    }
+}
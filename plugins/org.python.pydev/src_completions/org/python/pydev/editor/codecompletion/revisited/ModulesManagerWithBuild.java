@@ -161,11 +161,12 @@ public abstract class ModulesManagerWithBuild extends ModulesManager implements
     }
 
     /**
-     * If the delta size is big enough, save the current state and discard the deltas.
+     * If the delta size is big enough (when compared to the last saved modules keys), save the current state
+     * and discard the deltas.
      */
     private void checkDeltaSize() {
         DeltaSaver<ModulesKey> d = deltaSaver;
-        if (d != null && d.availableDeltas() > MAXIMUN_NUMBER_OF_DELTAS) {
+        if (d != null && d.needsCompaction(MAXIMUN_NUMBER_OF_DELTAS, persistedModulesKeysBytes)) {
             endProcessing();
             d.clearAll();
         }
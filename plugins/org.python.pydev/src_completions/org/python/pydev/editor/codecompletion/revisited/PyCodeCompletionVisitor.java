@@ -72,6 +72,15 @@ public class PyCodeCompletionVisitor extends PyDevBuilderVisitor {
         }
     }
 
+    /**
+     * The modules manager is already accessed concurrently (i.e.: by the editors), so, the modules may be
+     * rebuilt in parallel (the deltas are still disabled by this visitor until the visiting ends).
+     */
+    @Override
+    public PyDevBuilderVisitor createParallelVisitor() {
+        return new PyCodeCompletionVisitor();
+    }
+
     /**
      * The code completion visitor is responsible for checking the changed resources in order to
      * update the code completion cache for the project. 
@@ -0,0 +1,491 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package org.python.pydev.editor.codecompletion.revisited;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.core.runtime.Assert;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.python.pydev.core.FullRepIterable;
+import org.python.pydev.core.ModulesKey;
+import org.python.pydev.core.ModulesKeyForZip;
+import org.python.pydev.core.log.Log;
+import org.python.pydev.shared_core.io.FileUtils;
+import org.python.pydev.shared_core.string.FastStringBuffer;
+import org.python.pydev.utils.PyFileListing.PyFileInfo;
+
+/**
+ * Keeps a fingerprint (last modified time + number of entries + hash of the listing + hash of the modification
+ * time and size of the files) for each directory in the pythonpath which may contribute modules (the roots, the
+ * packages and their direct sub-folders) along with the builtins of the interpreter, so that it's possible to check
+ * whether the modules in the pythonpath changed without traversing it again.
+ *
+ * When checking, only the relevant entries -- python files, .pth files and folders -- are considered (so, the
+ * check is just a stat of those, without creating the modules keys nor diffing them with the current modules).
+ * The fingerprints are updated in the same pass and the folders which changed are reported, so that only the
+ * modules in those folders have to be found again (see {@link Changes}).
+ *
+ * Note that the modification time and size of the files is also fingerprinted because a change in the contents of
+ * a file doesn't change the modification time of its folder (i.e.: an upgrade which keeps the same file names).
+ */
+public final class PythonPathFingerprints {
+
+    private static final int VERSION = 3;
+
+    /**
+     * Fingerprint for a zip file in the pythonpath (which isn't traversed).
+     */
+    private static final int ZIP_ENTRIES = -1;
+
+    /**
+     * Fingerprint for a path which doesn't exist (or can't be listed).
+     */
+    private static final int MISSING_ENTRIES = -2;
+
+    private static final String[] EMPTY = new String[0];
+
+    /*default*/static final class DirFingerprint {
+
+        long lastModified;
+        int entries;
+        long listingHash;
+        long filesHash;
+        boolean isPackage;
+        String[] childDirs = EMPTY;
+
+        private boolean sameListing(DirFingerprint other) {
+            return entries == other.entries && listingHash == other.listingHash && isPackage == other.isPackage;
+        }
+
+        private boolean sameContents(DirFingerprint other) {
+            return sameListing(other) && filesHash == other.filesHash && Arrays.equals(childDirs, other.childDirs);
+        }
+    }
+
+    /**
+     * The changes found when updating the fingerprints.
+     *
+     * Unless a full scan is required (i.e.: the roots or the builtins changed, a zip changed or the roots are
+     * nested), only the modules directly inside the changed folders have to be found again: the modules in the
+     * other folders which may still contribute modules are kept from the current keys.
+     */
+    public static final class Changes {
+
+        private boolean changed;
+
+        private boolean fullScanRequired;
+
+        /**
+         * The folders which may contribute modules (roots and packages).
+         */
+        private final Set<File> dirsWithModules = new HashSet<File>();
+
+        /**
+         * The folders whose modules must be found again (mapping to the package name of the folder).
+         */
+        private final Map<File, String> dirsToRescan = new LinkedHashMap<File, String>();
+
+        /**
+         * @return true if nothing changed in the modules of the pythonpath nor in the builtins.
+         */
+        public boolean isEmpty() {
+            return !changed && !fullScanRequired;
+        }
+
+        /**
+         * @return true if the changes can't be applied incrementally (so, the whole pythonpath must be traversed).
+         */
+        public boolean isFullScanRequired() {
+            return fullScanRequired;
+        }
+
+        /*default*/Map<File, String> getDirsToRescan() {
+            return dirsToRescan;
+        }
+
+        /**
+         * Builds the keys for the pythonpath reusing the current keys for the folders which didn't change and
+         * finding the modules only in the folders which changed (may only be called if a full scan isn't required).
+         *
+         * Note: the builtins (keys without a file) are not added (as in a full scan, they're added later on).
+         *
+         * @param currentKeys the keys currently in the modules manager.
+         * @return the keys for the modules in the pythonpath or null if the monitor was cancelled.
+         */
+        public PyPublicTreeMap<ModulesKey, ModulesKey> buildKeys(ModulesKey[] currentKeys,
+                IProgressMonitor monitor) {
+            Assert.isTrue(!fullScanRequired);
+            ModulesFoundStructure modulesFound = new ModulesFoundStructure();
+            List<ModulesKey> zipKeys = new ArrayList<ModulesKey>();
+            for (ModulesKey key : currentKeys) {
+                if (key instanceof ModulesKeyForZip) {
+                    //The zips didn't change (otherwise a full scan would be required).
+                    zipKeys.add(key);
+
+                } else if (key.file != null) {
+                    File parent = key.file.getParentFile();
+                    if (dirsWithModules.contains(parent) && !dirsToRescan.containsKey(parent)) {
+                        modulesFound.regularModules.put(key.file, key.name);
+                    }
+                }
+            }
+
+            FastStringBuffer tempBuf = new FastStringBuffer();
+            for (Map.Entry<File, String> entry : dirsToRescan.entrySet()) {
+                if (monitor.isCanceled()) {
+                    return null;
+                }
+                File[] files = entry.getKey().listFiles();
+                if (files == null) {
+                    continue;
+                }
+                //Same as a full scan, but only for the files directly inside the folder.
+                for (File file : files) {
+                    if (file.isFile() && PythonPathHelper.isValidFileMod(FileUtils.getFileAbsolutePath(file))) {
+                        String modName = new PyFileInfo(file, entry.getValue()).getModuleName(tempBuf);
+                        if (PythonPathHelper.isValidModuleLastPart(FullRepIterable.getLastPart(modName))) {
+                            modulesFound.regularModules.put(file, modName);
+                        }
+                    }
+                }
+            }
+
+            PyPublicTreeMap<ModulesKey, ModulesKey> keys = new PyPublicTreeMap<ModulesKey, ModulesKey>();
+            ModulesManager.buildKeysForRegularEntries(monitor, modulesFound, keys, false);
+            for (ModulesKey key : zipKeys) {
+                keys.put(key, key);
+            }
+            return keys;
+        }
+    }
+
+    private List<String> roots;
+
+    private String[] builtins;
+
+    private Map<String, DirFingerprint> pathToFingerprint = new HashMap<String, DirFingerprint>();
+
+    /**
+     * Whether some information was updated during a check.
+     */
+    private boolean dirty;
+
+    private PythonPathFingerprints(List<String> roots, String[] builtins) {
+        this.roots = new ArrayList<String>(roots);
+        this.builtins = sortedCopy(builtins);
+    }
+
+    private static String[] sortedCopy(String[] strings) {
+        if (strings == null) {
+            return EMPTY;
+        }
+        String[] ret = Arrays.copyOf(strings, strings.length);
+        Arrays.sort(ret);
+        return ret;
+    }
+
+    /**
+     * @return whether some information was updated when checking it (so, it should be saved again).
+     */
+    public boolean isDirty() {
+        return dirty;
+    }
+
+    /*default*/int getFingerprintsSize() {
+        return pathToFingerprint.size();
+    }
+
+    /**
+     * Computes the fingerprints for the passed pythonpath and builtins (which may be null).
+     *
+     * @return the fingerprints or null if the monitor was cancelled.
+     */
+    public static PythonPathFingerprints compute(List<String> pythonpath, String[] builtins,
+            IProgressMonitor monitor) {
+        PythonPathFingerprints ret = new PythonPathFingerprints(pythonpath, builtins);
+        if (ret.update(pythonpath, builtins, monitor) == null) {
+            return null;
+        }
+        return ret;
+    }
+
+    /**
+     * Updates the fingerprints to match the passed pythonpath and builtins (which may be null), checking each
+     * folder only once.
+     *
+     * Note that the fingerprints are updated in place (so, they should only be saved after the changes are
+     * applied).
+     *
+     * @return the changes found or null if the monitor was cancelled.
+     */
+    public Changes update(List<String> pythonpath, String[] builtins, IProgressMonitor monitor) {
+        Changes changes = new Changes();
+        Map<String, DirFingerprint> previous = pathToFingerprint;
+        String[] sortedBuiltins = sortedCopy(builtins);
+        if (!roots.equals(pythonpath) || !Arrays.equals(this.builtins, sortedBuiltins)) {
+            //Note: a builtin overrides a source module with the same name, so, a full scan is needed.
+            changes.fullScanRequired = true;
+            roots = new ArrayList<String>(pythonpath);
+            this.builtins = sortedBuiltins;
+        }
+
+        Map<String, DirFingerprint> current = new HashMap<String, DirFingerprint>();
+        for (String root : pythonpath) {
+            if (monitor.isCanceled()) {
+                return null;
+            }
+            File f = new File(root);
+            if (f.isDirectory()) {
+                Set<File> canonicalFolders = new HashSet<File>();
+                DirFingerprint stored = previous.get(f.getAbsolutePath());
+                if (stored != null && stored.entries == ZIP_ENTRIES) {
+                    changes.fullScanRequired = true;
+                }
+                updateDir(f, "", true, previous, current, changes, canonicalFolders, monitor);
+            } else {
+                DirFingerprint stored = previous.get(root);
+                DirFingerprint fingerprint = createFileFingerprint(f);
+                if (stored == null || stored.lastModified != fingerprint.lastModified
+                        || !stored.sameListing(fingerprint)) {
+                    changes.fullScanRequired = true;
+                }
+                current.put(root, fingerprint);
+            }
+        }
+        if (monitor.isCanceled()) {
+            return null;
+        }
+
+        if (!current.keySet().equals(previous.keySet())) {
+            //Some folder was removed.
+            changes.changed = true;
+        }
+        if (changes.changed && hasNestedRoots(pythonpath)) {
+            //The same folder may map to different module names (the last root wins in a full scan).
+            changes.fullScanRequired = true;
+        }
+        if (!changes.isEmpty()) {
+            dirty = true;
+        }
+        pathToFingerprint = current;
+        return changes;
+    }
+
+    private void updateDir(File dir, String packageName, boolean isRoot, Map<String, DirFingerprint> previous,
+            Map<String, DirFingerprint> current, Changes changes, Set<File> canonicalFolders,
+            IProgressMonitor monitor) {
+        //Check if it is a symlink loop (as done when finding the modules).
+        try {
+            File canonicalizedDir = dir.getCanonicalFile();
+            if (!canonicalizedDir.equals(dir) && canonicalFolders.contains(canonicalizedDir)) {
+                return;
+            }
+            canonicalFolders.add(canonicalizedDir);
+        } catch (IOException e) {
+            Log.log(e);
+        }
+
+        String path = dir.getAbsolutePath();
+        //Always list it again: a change in the contents of a file doesn't change the modification time of the dir.
+        DirFingerprint fingerprint = createDirFingerprint(dir);
+        current.put(path, fingerprint);
+
+        boolean hasModules = isRoot || fingerprint.isPackage;
+        DirFingerprint stored = previous.get(path);
+        if (stored == null || !stored.sameContents(fingerprint)) {
+            changes.changed = true;
+            if (hasModules) {
+                changes.dirsToRescan.put(dir, packageName);
+            }
+        } else if (stored.lastModified != fingerprint.lastModified) {
+            //Some irrelevant entry changed.
+            dirty = true;
+        }
+
+        if (hasModules) {
+            changes.dirsWithModules.add(dir);
+            for (String child : fingerprint.childDirs) {
+                if (monitor.isCanceled()) {
+                    return;
+                }
+                updateDir(new File(dir, child), isRoot ? child : packageName + "." + child, false, previous,
+                        current, changes, canonicalFolders, monitor);
+            }
+        }
+    }
+
+    private static boolean hasNestedRoots(List<String> pythonpath) {
+        List<String> dirs = new ArrayList<String>(pythonpath.size());
+        for (String root : pythonpath) {
+            String path = new File(root).getAbsolutePath();
+            dirs.add(path.endsWith(File.separator) ? path : path + File.separator);
+        }
+        for (String dir : dirs) {
+            for (String other : dirs) {
+                if (dir != other && other.startsWith(dir)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static DirFingerprint createFileFingerprint(File f) {
+        DirFingerprint fingerprint = new DirFingerprint();
+        if (f.exists()) {
+            fingerprint.lastModified = f.lastModified();
+            fingerprint.entries = ZIP_ENTRIES;
+            fingerprint.listingHash = f.length();
+        } else {
+            fingerprint.entries = MISSING_ENTRIES;
+        }
+        return fingerprint;
+    }
+
+    /**
+     * Creates the fingerprint considering only the entries which may be relevant for finding modules.
+     */
+    private static DirFingerprint createDirFingerprint(File dir) {
+        DirFingerprint fingerprint = new DirFingerprint();
+        fingerprint.lastModified = dir.lastModified();
+
+        File[] files = dir.listFiles();
+        if (files == null) {
+            fingerprint.entries = MISSING_ENTRIES;
+            return fingerprint;
+        }
+        List<String> names = new ArrayList<String>(files.length);
+        List<String> childDirs = new ArrayList<String>();
+        long filesHash = 0;
+        for (File file : files) {
+            String name = file.getName();
+            if (file.isDirectory()) {
+                //Folders with an invalid name are only relevant if they're packages (as the modules are still found
+                //in those when traversing the pythonpath).
+                if (PythonPathHelper.isValidModuleLastPart(name) ? !name.equals("__pycache__")
+                        : PythonPathHelper.isFolderWithInit(file)) {
+                    childDirs.add(name);
+                    names.add(name + "/");
+                }
+            } else if (PythonPathHelper.isValidFileMod(name) || name.endsWith(".pth")) {
+                names.add(name);
+                //Order independent (the files are not sorted).
+                filesHash += (name.hashCode() * 31L + file.lastModified()) * 31L + file.length();
+                if (PythonPathHelper.isValidInitFile(name)) {
+                    fingerprint.isPackage = true;
+                }
+            }
+        }
+        String[] sortedNames = names.toArray(new String[names.size()]);
+        Arrays.sort(sortedNames);
+        long hash = 17;
+        for (String name : sortedNames) {
+            hash = hash * 31 + name.hashCode();
+        }
+        fingerprint.entries = sortedNames.length;
+        fingerprint.listingHash = hash;
+        fingerprint.filesHash = filesHash;
+
+        String[] sortedChildDirs = childDirs.toArray(new String[childDirs.size()]);
+        Arrays.sort(sortedChildDirs);
+        fingerprint.childDirs = sortedChildDirs;
+        return fingerprint;
+    }
+
+    /**
+     * @return the fingerprints saved in the given file or null if it's not available.
+     */
+    public static PythonPathFingerprints load(File file) {
+        if (file == null || !file.exists()) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != VERSION) {
+                return null;
+            }
+            int rootsSize = in.readInt();
+            List<String> roots = new ArrayList<String>(rootsSize);
+            for (int i = 0; i < rootsSize; i++) {
+                roots.add(in.readUTF());
+            }
+            int builtinsSize = in.readInt();
+            String[] builtins = new String[builtinsSize];
+            for (int i = 0; i < builtinsSize; i++) {
+                builtins[i] = in.readUTF();
+            }
+            PythonPathFingerprints ret = new PythonPathFingerprints(roots, builtins);
+            int size = in.readInt();
+            for (int i = 0; i < size; i++) {
+                String path = in.readUTF();
+                DirFingerprint fingerprint = new DirFingerprint();
+                fingerprint.lastModified = in.readLong();
+                fingerprint.entries = in.readInt();
+                fingerprint.listingHash = in.readLong();
+                fingerprint.filesHash = in.readLong();
+                fingerprint.isPackage = in.readBoolean();
+                int childDirsSize = in.readInt();
+                if (childDirsSize > 0) {
+                    fingerprint.childDirs = new String[childDirsSize];
+                    for (int j = 0; j < childDirsSize; j++) {
+                        fingerprint.childDirs[j] = in.readUTF();
+                    }
+                }
+                ret.pathToFingerprint.put(path, fingerprint);
+            }
+            return ret;
+        } catch (IOException e) {
+            Log.log(e);
+            return null;
+        }
+    }
+
+    public void save(File file) {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            out.writeInt(VERSION);
+            out.writeInt(roots.size());
+            for (String root : roots) {
+                out.writeUTF(root);
+            }
+            out.writeInt(builtins.length);
+            for (String builtin : builtins) {
+                out.writeUTF(builtin);
+            }
+            out.writeInt(pathToFingerprint.size());
+            for (Map.Entry<String, DirFingerprint> entry : pathToFingerprint.entrySet()) {
+                DirFingerprint fingerprint = entry.getValue();
+                out.writeUTF(entry.getKey());
+                out.writeLong(fingerprint.lastModified);
+                out.writeInt(fingerprint.entries);
+                out.writeLong(fingerprint.listingHash);
+                out.writeLong(fingerprint.filesHash);
+                out.writeBoolean(fingerprint.isPackage);
+                out.writeInt(fingerprint.childDirs.length);
+                for (String child : fingerprint.childDirs) {
+                    out.writeUTF(child);
+                }
+            }
+            dirty = false;
+        } catch (IOException e) {
+            Log.log(e);
+        }
+    }
+}
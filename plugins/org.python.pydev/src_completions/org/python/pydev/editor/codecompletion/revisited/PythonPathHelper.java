@@ -29,6 +29,8 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 
@@ -43,6 +45,7 @@ import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.NullProgressMonitor;
 import org.eclipse.core.runtime.Path;
+import org.eclipse.core.runtime.ProgressMonitorWrapper;
 import org.eclipse.ui.ide.IDE;
 import org.python.pydev.core.ExtensionHelper;
 import org.python.pydev.core.FullRepIterable;
@@ -677,22 +680,94 @@ public final class PythonPathHelper implements IPythonPathHelper {
         }
 
         // The default behavior is to recursively traverse the directories in the PYTHONPATH to
-        // collect all encountered Python modules.
+        // collect all encountered Python modules (each entry in the PYTHONPATH is traversed in parallel).
         ModulesFoundStructure ret = new ModulesFoundStructure();
 
         List<String> pythonpathList = getPythonpath();
-        FastStringBuffer tempBuf = new FastStringBuffer();
-        for (Iterator<String> iter = pythonpathList.iterator(); iter.hasNext();) {
-            String element = iter.next();
+        IProgressMonitor syncMonitor = new SynchronizedProgressMonitor(monitor);
+        final List<RootModulesFinder> finders = new ArrayList<RootModulesFinder>(pythonpathList.size());
+        for (String element : pythonpathList) {
+            finders.add(new RootModulesFinder(element, syncMonitor));
+        }
+
+        if (finders.size() == 1) {
+            finders.get(0).invoke();
+
+        } else if (finders.size() > 1) {
+            int parallelism = Math.min(finders.size(), Math.max(2, Runtime.getRuntime().availableProcessors()));
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                pool.invoke(new RecursiveAction() {
+
+                    private static final long serialVersionUID = 1L;
+
+                    @Override
+                    protected void compute() {
+                        invokeAll(finders);
+                    }
+                });
+            } finally {
+                pool.shutdown();
+            }
+        }
+
+        //merge in the pythonpath order (so, if a file is found in more than one root, the last one wins).
+        for (RootModulesFinder finder : finders) {
+            if (finder.regularModules != null) {
+                ret.regularModules.putAll(finder.regularModules);
+            }
+            if (finder.zipContents != null) {
+                ret.zipContents.add(finder.zipContents);
+            }
+            if (finder.finished) {
+                ret.millisToFindModulesPerRoot.put(finder.element, finder.millis);
+                if (finder.millis > SLOW_ROOT_MILLIS) {
+                    Log.logInfo("Finding modules in: " + finder.element + " took: " + finder.millis + " millis ("
+                            + (finder.regularModules != null ? finder.regularModules.size() : 0) + " modules found).");
+                }
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * If finding the modules in a given pythonpath root takes longer than this, it's reported in the log.
+     */
+    private static final long SLOW_ROOT_MILLIS = 10 * 1000;
+
+    /**
+     * Finds the modules for a single root of the pythonpath (folder or zip).
+     */
+    private static final class RootModulesFinder extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String element;
+        private final IProgressMonitor monitor;
+
+        private Map<File, String> regularModules;
+        private ModulesFoundStructure.ZipContents zipContents;
+        private long millis;
+        private boolean finished;
+
+        private RootModulesFinder(String element, IProgressMonitor monitor) {
+            this.element = element;
+            this.monitor = monitor;
+        }
 
+        @Override
+        protected void compute() {
             if (monitor.isCanceled()) {
-                break;
+                return;
             }
+            long initial = System.currentTimeMillis();
 
-            //the slow part is getting the files... not much we can do (I think).
+            //the slow part is getting the files... not much we can do (besides doing each root in parallel).
             File root = new File(element);
             PyFileListing below = getModulesBelow(root, monitor);
             if (below != null) {
+                FastStringBuffer tempBuf = new FastStringBuffer();
+                Map<File, String> found = new HashMap<File, String>();
 
                 Iterator<PyFileInfo> e1 = below.getFoundPyFileInfos().iterator();
                 while (e1.hasNext()) {
@@ -700,18 +775,47 @@ public final class PythonPathHelper implements IPythonPathHelper {
                     File file = pyFileInfo.getFile();
                     String modName = pyFileInfo.getModuleName(tempBuf);
                     if (isValidModuleLastPart(FullRepIterable.getLastPart(modName))) {
-                        ret.regularModules.put(file, modName);
+                        found.put(file, modName);
                     }
                 }
+                regularModules = found;
 
             } else { //ok, it was null, so, maybe this is not a folder, but zip file with java classes...
-                ModulesFoundStructure.ZipContents zipContents = getFromZip(root, monitor);
-                if (zipContents != null) {
-                    ret.zipContents.add(zipContents);
-                }
+                zipContents = getFromZip(root, monitor);
             }
+            millis = System.currentTimeMillis() - initial;
+            finished = true;
+        }
+    }
+
+    /**
+     * Progress monitor which may be used from multiple threads (used when finding the modules in parallel).
+     */
+    private static final class SynchronizedProgressMonitor extends ProgressMonitorWrapper {
+
+        private SynchronizedProgressMonitor(IProgressMonitor monitor) {
+            super(monitor);
+        }
+
+        @Override
+        public synchronized void setTaskName(String name) {
+            super.setTaskName(name);
+        }
+
+        @Override
+        public synchronized void subTask(String name) {
+            super.subTask(name);
+        }
+
+        @Override
+        public synchronized void worked(int work) {
+            super.worked(work);
+        }
+
+        @Override
+        public synchronized void internalWorked(double work) {
+            super.internalWorked(work);
         }
-        return ret;
     }
 
     /**
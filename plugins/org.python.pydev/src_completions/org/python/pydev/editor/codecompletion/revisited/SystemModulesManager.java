@@ -491,4 +491,15 @@ public final class SystemModulesManager extends ModulesManagerWithBuild implemen
         return null;
     }
 
+    /**
+     * The stamp is based on the executable (so, if the interpreter is updated in-place, the compiled modules cache
+     * is invalidated).
+     */
+    @Override
+    public String getCompiledModuleCacheStamp() {
+        String executableOrJar = info.getExecutableOrJar();
+        File file = new File(executableOrJar);
+        return StringUtils.join("|", executableOrJar, info.getVersion(), file.lastModified(), file.length());
+    }
+
 }
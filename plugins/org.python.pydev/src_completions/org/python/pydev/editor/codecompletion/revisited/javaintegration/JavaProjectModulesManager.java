@@ -253,6 +253,11 @@ public class JavaProjectModulesManager implements IModulesManager, IProjectModul
         return false;
     }
 
+    @Override
+    public ModulesKey getModulesKey(String moduleName) {
+        return null;
+    }
+
     @Override
     public ModulesKey[] getOnlyDirectModules() {
         return new ModulesKey[0];
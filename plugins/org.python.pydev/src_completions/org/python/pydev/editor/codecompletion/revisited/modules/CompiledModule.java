@@ -27,6 +27,7 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.WeakHashMap;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
 
@@ -56,6 +57,7 @@ import org.python.pydev.editor.codecompletion.revisited.visitors.Definition;
 import org.python.pydev.editor.codecompletion.shell.AbstractShell;
 import org.python.pydev.shared_core.cache.LRUCache;
 import org.python.pydev.shared_core.io.FileUtils;
+import org.python.pydev.shared_core.string.StringUtils;
 import org.python.pydev.shared_core.structure.Tuple;
 
 /**
@@ -154,7 +156,7 @@ public class CompiledModule extends AbstractModule {
 
         isPythonBuiltin = ("__builtin__".equals(name) || "builtins".equals(name));
 
-        Tuple<File, IToken[]> info = getCached(name, manager);
+        Tuple<File, IToken[]> info = getCached(name, manager, null);
         if (info != null) {
             this.file = info.o1;
             this.tokens = asMap(info.o2);
@@ -164,7 +166,7 @@ public class CompiledModule extends AbstractModule {
         Object lock = manager.getCompiledModuleCreationLock(name);
         synchronized (lock) {
             //Try to get from the cache again (in case someone has gotten the info in the meantime).
-            info = getCached(name, manager);
+            info = getCached(name, manager, null);
             if (info != null) {
                 this.file = info.o1;
                 this.tokens = asMap(info.o2);
@@ -173,12 +175,15 @@ public class CompiledModule extends AbstractModule {
             if (COMPILED_MODULES_ENABLED) {
 
                 try {
-                    info = createTokensFromServer(name, manager);
+                    info = takePrefetched(name, manager);
+                    if (info == null) {
+                        info = createTokensFromServer(name, manager);
+                    }
                     this.file = info.o1;
                     this.tokens = asMap(info.o2);
 
                     if (info != null) {
-                        updateCache(name, manager, info);
+                        updateCache(name, manager, info, null);
                     }
                 } catch (Exception e) {
                     tokens = new HashMap<String, IToken>();
@@ -210,17 +215,35 @@ public class CompiledModule extends AbstractModule {
         return null;
     }
 
+    /**
+     * Identifies the format of the cache files (files in a different format are just ignored).
+     */
+    private static final String CACHE_FORMAT_VERSION = "compiled_module_cache_v2";
+
+    /**
+     * @return a stamp for the given file (used to know if the cached information for a module is still valid).
+     */
+    /*default*/static String getFileStamp(File file) {
+        if (file == null) {
+            return "";
+        }
+        return StringUtils.join("|", FileUtils.getFileAbsolutePath(file), file.lastModified(), file.length());
+    }
+
     /**
      * Updates the file with the cache to have the given information.
+     *
+     * @param stampFile the file whose stamp is used to invalidate the cache (if null, the file in the info is used).
      */
-    private static void updateCache(final String name, IModulesManager manager, final Tuple<File, IToken[]> info) {
+    private static void updateCache(final String name, IModulesManager manager, final Tuple<File, IToken[]> info,
+            File stampFile) {
         try {
             if (info != null && info.o2 != null && info.o2.length > 10) { //Don't cache anything less than 10 tokens.
                 File f = getCacheFile(name, manager);
+                ISystemModulesManager systemModulesManager = manager.getSystemModulesManager();
 
                 //Only cache modules that are in the system modules manager.
                 if (f == null && !(manager instanceof ISystemModulesManager)) {
-                    ISystemModulesManager systemModulesManager = manager.getSystemModulesManager();
                     manager = null; //i.e.: just making sure it won't be used later on...
 
                     //Only cache it if we discover it as being a part of the modules manager (i.e.: if it's a part of
@@ -242,40 +265,13 @@ public class CompiledModule extends AbstractModule {
 
                 if (f != null) {
                     final File cacheFile = f;
+                    final String interpreterStamp = systemModulesManager.getCompiledModuleCacheStamp();
+                    final String moduleStamp = getFileStamp(stampFile != null ? stampFile : info.o1);
                     IRunnableWithMonitor runnable = new IRunnableWithMonitor() {
 
                         @Override
                         public void run() {
-                            try (OutputStream out = new FileOutputStream(cacheFile)) {
-                                try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
-                                    try (BufferedOutputStream buf = new BufferedOutputStream(gzip)) {
-                                        try (ObjectOutputStream stream = new ObjectOutputStream(buf)) {
-                                            stream.writeObject(name);
-                                            stream.writeObject(info.o1);
-
-                                            IToken[] toks = info.o2;
-                                            int size = toks.length;
-                                            stream.writeInt(size);
-
-                                            //Write in 2 batches (leave the docstring in a separate batch as it's usually
-                                            //the big part of the info -- that way we can partially read it without reading
-                                            //the docstrings later on).
-                                            for (int i = 0; i < size; i++) {
-                                                IToken tok = toks[i];
-                                                stream.writeObject(tok.getRepresentation());
-                                                stream.writeInt(tok.getType());
-                                                stream.writeObject(tok.getArgs());
-                                                stream.writeObject(tok.getParentPackage());
-                                            }
-                                            for (int i = 0; i < size; i++) {
-                                                stream.writeObject(toks[i].getDocStr());
-                                            }
-                                        }
-                                    }
-                                }
-                            } catch (Exception e) {
-                                Log.log(e);
-                            }
+                            writeCacheFile(cacheFile, name, info, interpreterStamp, moduleStamp);
                         }
 
                         @Override
@@ -290,46 +286,108 @@ public class CompiledModule extends AbstractModule {
         }
     }
 
+    /*default*/static void writeCacheFile(File cacheFile, String name, Tuple<File, IToken[]> info,
+            String interpreterStamp, String moduleStamp) {
+        try (OutputStream out = new FileOutputStream(cacheFile)) {
+            try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+                try (BufferedOutputStream buf = new BufferedOutputStream(gzip)) {
+                    try (ObjectOutputStream stream = new ObjectOutputStream(buf)) {
+                        stream.writeObject(CACHE_FORMAT_VERSION);
+                        stream.writeObject(name);
+                        stream.writeObject(info.o1);
+                        stream.writeObject(interpreterStamp);
+                        stream.writeObject(moduleStamp);
+
+                        IToken[] toks = info.o2;
+                        int size = toks.length;
+                        stream.writeInt(size);
+
+                        //Write in 2 batches (leave the docstring in a separate batch as it's usually
+                        //the big part of the info -- that way we can partially read it without reading
+                        //the docstrings later on).
+                        for (int i = 0; i < size; i++) {
+                            IToken tok = toks[i];
+                            stream.writeObject(tok.getRepresentation());
+                            stream.writeInt(tok.getType());
+                            stream.writeObject(tok.getArgs());
+                            stream.writeObject(tok.getParentPackage());
+                        }
+                        for (int i = 0; i < size; i++) {
+                            stream.writeObject(toks[i].getDocStr());
+                        }
+                    }
+                }
+            }
+        } catch (Exception e) {
+            Log.log(e);
+        }
+    }
+
     /**
      * Gets cached information for the given name. Could be a dotted or non-dotted name.
+     *
+     * @param stampFile the file whose stamp is used to invalidate the cache (if null, the file in the cache is used).
      */
-    private static Tuple<File, IToken[]> getCached(String name, IModulesManager manager) {
+    private static Tuple<File, IToken[]> getCached(String name, IModulesManager manager, File stampFile) {
         ISystemModulesManager systemModulesManager = manager.getSystemModulesManager();
         File f = getCacheFile(name, systemModulesManager);
 
         if (f != null && f.exists()) {
-            try {
-                IToken[] toks = null;
-                File file = null;
-                try (FileInputStream fin = new FileInputStream(f)) {
-                    try (InputStream in = new BufferedInputStream(new GZIPInputStream(fin))) {
-                        try (ObjectInputStream stream = new ObjectInputStream(in)) {
-                            ObjectsInternPool.ObjectsPoolMap map = new ObjectsInternPool.ObjectsPoolMap();
-                            @SuppressWarnings("unused")
-                            Object _name = stream.readObject(); //we already have the name set (so, it's only there for completeness). 
-                            file = (File) stream.readObject();
-                            int size = stream.readInt();
-
-                            toks = new IToken[size];
-                            IPythonNature nature = systemModulesManager.getNature();
-                            for (int i = 0; i < size; i++) {
-                                //Note intern (we probably have many empty strings -- or the same for parentPackage)
-                                String rep = ObjectsInternPool.internLocal(map, (String) stream.readObject());
-                                int type = stream.readInt();
-                                String args = ObjectsInternPool.internLocal(map, (String) stream.readObject());
-                                String parentPackage = ObjectsInternPool.internLocal(map, (String) stream.readObject());
-                                toks[i] = new CompiledToken(rep, "", args, parentPackage, type, nature);
-                            }
-                            for (int i = 0; i < size; i++) {
-                                toks[i].setDocStr(ObjectsInternPool.internLocal(map, (String) stream.readObject()));
-                            }
+            Tuple<File, IToken[]> cached = readCacheFile(f, systemModulesManager.getCompiledModuleCacheStamp(),
+                    stampFile, systemModulesManager.getNature());
+            if (cached == null) {
+                //Invalid (the interpreter or the module changed or it's in an old format): remove it.
+                f.delete();
+            }
+            return cached;
+        }
+        return null;
+    }
+
+    /**
+     * @return the information in the cache file or null if it's not valid for the given stamps.
+     */
+    /*default*/static Tuple<File, IToken[]> readCacheFile(File f, String interpreterStamp, File stampFile,
+            IPythonNature nature) {
+        try {
+            IToken[] toks = null;
+            File file = null;
+            try (FileInputStream fin = new FileInputStream(f)) {
+                try (InputStream in = new BufferedInputStream(new GZIPInputStream(fin))) {
+                    try (ObjectInputStream stream = new ObjectInputStream(in)) {
+                        if (!CACHE_FORMAT_VERSION.equals(stream.readObject())) {
+                            return null;
+                        }
+                        ObjectsInternPool.ObjectsPoolMap map = new ObjectsInternPool.ObjectsPoolMap();
+                        @SuppressWarnings("unused")
+                        Object _name = stream.readObject(); //we already have the name set (so, it's only there for completeness).
+                        file = (File) stream.readObject();
+                        if (!interpreterStamp.equals(stream.readObject())) {
+                            return null;
+                        }
+                        if (!getFileStamp(stampFile != null ? stampFile : file).equals(stream.readObject())) {
+                            return null;
+                        }
+                        int size = stream.readInt();
+
+                        toks = new IToken[size];
+                        for (int i = 0; i < size; i++) {
+                            //Note intern (we probably have many empty strings -- or the same for parentPackage)
+                            String rep = ObjectsInternPool.internLocal(map, (String) stream.readObject());
+                            int type = stream.readInt();
+                            String args = ObjectsInternPool.internLocal(map, (String) stream.readObject());
+                            String parentPackage = ObjectsInternPool.internLocal(map, (String) stream.readObject());
+                            toks[i] = new CompiledToken(rep, "", args, parentPackage, type, nature);
+                        }
+                        for (int i = 0; i < size; i++) {
+                            toks[i].setDocStr(ObjectsInternPool.internLocal(map, (String) stream.readObject()));
                         }
                     }
                 }
-                return new Tuple<File, IToken[]>(file, toks);
-            } catch (Exception e) {
-                Log.log("Unable to read contents from: " + f, e); //Unable to read: just log it
             }
+            return new Tuple<File, IToken[]>(file, toks);
+        } catch (Exception e) {
+            Log.log("Unable to read contents from: " + f, e); //Unable to read: just log it
         }
         return null;
     }
@@ -361,6 +419,68 @@ public class CompiledModule extends AbstractModule {
         return manager.getCompletePythonPath(nature.getProjectInterpreter(), nature.getRelatedInterpreterManager());
     }
 
+    /**
+     * Tokens for modules gotten from the server in a batch (see: prefetchFromServer) which weren't used to
+     * create a module yet (only the last batch of each modules manager is kept).
+     */
+    private static final Map<IModulesManager, Map<String, Tuple<File, IToken[]>>> prefetched = new WeakHashMap<IModulesManager, Map<String, Tuple<File, IToken[]>>>();
+
+    /**
+     * Gets the tokens for the given modules from the server in a single round trip (so that creating a
+     * CompiledModule for those afterwards doesn't need to go to the server for each one of those).
+     *
+     * Modules which already have the info in the disk cache aren't requested.
+     */
+    public static void prefetchFromServer(List<String> names, IModulesManager manager) {
+        if (!COMPILED_MODULES_ENABLED) {
+            return;
+        }
+        ISystemModulesManager systemModulesManager = manager.getSystemModulesManager();
+        List<String> toFetch = new ArrayList<String>(names.size());
+        for (String name : names) {
+            File f = getCacheFile(name, systemModulesManager);
+            if (f == null || !f.exists()) {
+                toFetch.add(name);
+            }
+        }
+        if (toFetch.size() <= 1) {
+            return; //Nothing to gain here.
+        }
+        if (TRACE_COMPILED_MODULES) {
+            Log.log(IStatus.INFO, ("Compiled modules: prefetching info for:" + toFetch), null);
+        }
+        try {
+            final IPythonNature nature = manager.getNature();
+            AbstractShell shell = AbstractShell.getServerShell(nature, AbstractShell.getShellId());
+            List<Tuple<String, List<String[]>>> completions = shell.getImportCompletions(toFetch,
+                    getCompletePythonpath(manager, nature));
+
+            Map<String, Tuple<File, IToken[]>> map = new HashMap<String, Tuple<File, IToken[]>>();
+            for (int i = 0; i < toFetch.size(); i++) {
+                String name = toFetch.get(i);
+                map.put(name, createTokens(name, completions.get(i), nature));
+            }
+            synchronized (prefetched) {
+                prefetched.put(manager, map);
+            }
+        } catch (Exception e) {
+            Log.log(e);
+        }
+    }
+
+    /**
+     * @return the tokens prefetched for the given module (or null if it wasn't prefetched).
+     */
+    private static Tuple<File, IToken[]> takePrefetched(String name, IModulesManager manager) {
+        synchronized (prefetched) {
+            Map<String, Tuple<File, IToken[]>> map = prefetched.get(manager);
+            if (map != null) {
+                return map.remove(name);
+            }
+        }
+        return null;
+    }
+
     private static Tuple<File, IToken[]> createTokensFromServer(String name, IModulesManager manager)
             throws IOException,
             Exception,
@@ -373,6 +493,11 @@ public class CompiledModule extends AbstractModule {
         Tuple<String, List<String[]>> completions = shell.getImportCompletions(name,
                 getCompletePythonpath(manager, nature)); //default
 
+        return createTokens(name, completions, nature);
+    }
+
+    private static Tuple<File, IToken[]> createTokens(String name, Tuple<String, List<String[]>> completions,
+            final IPythonNature nature) {
         if (TRACE_COMPILED_MODULES) {
             Log.log(IStatus.INFO, ("Compiled modules: " + name + " file: " + completions.o1 + " found: "
                     + completions.o2.size() + " completions."), null);
@@ -529,7 +654,7 @@ public class CompiledModule extends AbstractModule {
                     }
                 }
 
-                Tuple<File, IToken[]> cached = getCached(tokenToCompletion, manager.getModulesManager());
+                Tuple<File, IToken[]> cached = getCached(tokenToCompletion, manager.getModulesManager(), this.file);
                 if (cached != null) {
                     HashMap<String, IToken> map = new HashMap<String, IToken>();
                     for (IToken token : cached.o2) {
@@ -542,7 +667,8 @@ public class CompiledModule extends AbstractModule {
                 toks = createInnerFromServer(manager, nature, act, tokenToCompletion);
 
                 //Put it in the cache for the next time.
-                updateCache(tokenToCompletion, manager.getModulesManager(), new Tuple<File, IToken[]>(null, toks));
+                updateCache(tokenToCompletion, manager.getModulesManager(), new Tuple<File, IToken[]>(null, toks),
+                        this.file);
                 Map<String, IToken> map = asMap(toks);
                 cache.put(activationToken, map);
             } catch (Exception e) {
@@ -20,10 +20,11 @@ import java.net.URLEncoder;
 import java.nio.channels.ServerSocketChannel;
 import java.nio.channels.SocketChannel;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.eclipse.core.runtime.CoreException;
-import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.swt.widgets.Display;
 import org.python.copiedfromeclipsesrc.JDTNotAvailableException;
@@ -51,6 +52,10 @@ import org.python.pydev.shared_core.utils.Timer;
  *
  * Its methods are synched to prevent concurrent access.
  *
+ * Each request is sent with an id (@@ID:<id>:) which the server sends back in the related response, so, many
+ * requests may be written at once and their responses are correlated to them when read (i.e.: requests are
+ * pipelined and a batch of requests is done in a single round trip).
+ *
  * @author fabioz
  *
  */
@@ -60,7 +65,7 @@ public abstract class AbstractShell {
 
     private static final int MAIN_THREAD_SHELL = 1;
 
-    private static final int OTHER_THREADS_SHELL = 2;
+    /*default*/static final int OTHER_THREADS_SHELL = 2;
 
     public static int[] getAllShellIds() {
         return new int[] { MAIN_THREAD_SHELL, OTHER_THREADS_SHELL };
@@ -102,6 +107,27 @@ public abstract class AbstractShell {
 
     private final Object ioLock = new Object();
 
+    /**
+     * Id of the last request sent (guarded by ioLock).
+     */
+    private int lastRequestId = 0;
+
+    /**
+     * Contents already read from the socket which are still not consumed (guarded by ioLock).
+     */
+    private final FastStringBuffer readBuffer = new FastStringBuffer(AbstractShell.BUFFER_SIZE);
+
+    private final ShellRequestMetrics metrics = new ShellRequestMetrics();
+
+    /**
+     * Number of operations using or waiting to use this shell (used to dispatch to the least busy shell).
+     */
+    private final AtomicInteger pendingOperations = new AtomicInteger();
+
+    private volatile long lastUsedMillis = System.currentTimeMillis();
+
+    private static final String REQUEST_ID_PREFIX = "@@ID:";
+
     private static void dbg(String string, int priority) {
         if (priority <= DEBUG_SHELL) {
             System.out.println(string);
@@ -415,11 +441,12 @@ public abstract class AbstractShell {
             throws IOException, JDTNotAvailableException, MisconfigurationException;
 
     /**
-     * @param operation
-     * @return
-     * @throws IOException
+     * Reads the next response.
+     *
+     * @return a tuple with the id of the request (-1 if the response had no id) and the response contents.
+     * @throws IOException if the connection was closed before a complete response was received.
      */
-    private FastStringBuffer read(IProgressMonitor monitor) throws IOException {
+    private Tuple<Integer, FastStringBuffer> read() throws IOException {
         synchronized (ioLock) {
 
             if (finishedForGood) {
@@ -446,68 +473,69 @@ public abstract class AbstractShell {
             isInRead = true;
 
             try {
-                FastStringBuffer strBuf = new FastStringBuffer(AbstractShell.BUFFER_SIZE);
-                byte[] b = new byte[AbstractShell.BUFFER_SIZE];
+                //Note: the buffer may already have contents (when many responses are received at once).
                 int searchFrom = 0;
-                while (true) {
+                int endIndex = readBuffer.indexOf("END@@", searchFrom);
+                if (endIndex == -1) {
+                    byte[] b = new byte[AbstractShell.BUFFER_SIZE];
+                    while (true) {
+                        int len = this.socket.getInputStream().read(b);
+                        if (len <= 0) {
+                            break;
+                        }
 
-                    int len = this.socket.getInputStream().read(b);
-                    if (len <= 0) {
-                        break;
-                    }
+                        String s = new String(b, 0, len);
+                        searchFrom = readBuffer.length() - 5; //-5 because that's the len of END@@
+                        if (searchFrom < 0) {
+                            searchFrom = 0;
+                        }
+                        readBuffer.append(s);
 
-                    String s = new String(b, 0, len);
-                    searchFrom = strBuf.length() - 5; //-5 because that's the len of END@@
-                    if (searchFrom < 0) {
-                        searchFrom = 0;
+                        endIndex = readBuffer.indexOf("END@@", searchFrom);
+                        if (endIndex != -1) {
+                            break;
+                        }
                     }
-                    strBuf.append(s);
+                }
 
-                    if (strBuf.indexOf("END@@", searchFrom) != -1) {
-                        break;
-                    } else {
-                        sleepALittle(10);
+                if (endIndex == -1) {
+                    //The connection was closed before the response was completely received.
+                    if (readBuffer.length() > 500) {
+                        readBuffer.setCount(499).append("...(continued)...");//if the string gets too big, it can crash Eclipse...
                     }
+                    String received = readBuffer.toString();
+                    readBuffer.clear();
+                    throw new IOException("Couldn't find END@@ on received string: " + received);
                 }
 
-                strBuf.replaceFirst("@@COMPLETIONS", "");
-                searchFrom -= "@@COMPLETIONS".length();
-                if (searchFrom < 0) {
-                    searchFrom = 0;
-                }
+                //remove END@@ (and keep what's after it for the next read)
+                FastStringBuffer strBuf = new FastStringBuffer(endIndex);
+                strBuf.append(readBuffer.getInternalCharsArray(), 0, endIndex);
+                readBuffer.delete(0, endIndex + 5);
 
-                //remove END@@
-                try {
-                    int endIndex = strBuf.indexOf("END@@", searchFrom);
-                    if (endIndex != -1) {
-                        strBuf.setCount(endIndex);
-                        return strBuf;
-                    } else {
-                        throw new RuntimeException("Couldn't find END@@ on received string.");
-                    }
-                } catch (RuntimeException e) {
-                    if (strBuf.length() > 500) {
-                        strBuf.setCount(499).append("...(continued)...");//if the string gets too big, it can crash Eclipse...
+                int requestId = -1;
+                if (strBuf.startsWith(REQUEST_ID_PREFIX)) {
+                    int i = strBuf.indexOf(':', REQUEST_ID_PREFIX.length());
+                    if (i != -1) {
+                        try {
+                            requestId = Integer.parseInt(strBuf.subSequence(REQUEST_ID_PREFIX.length(), i)
+                                    .toString());
+                        } catch (NumberFormatException e) {
+                            Log.log(e);
+                        }
+                        strBuf.delete(0, i + 1);
                     }
-                    Log.log(IStatus.ERROR, ("ERROR WITH STRING:" + strBuf), e);
-                    return new FastStringBuffer();
                 }
+                if (strBuf.startsWith("@@COMPLETIONS")) {
+                    strBuf.delete(0, "@@COMPLETIONS".length());
+                }
+                return new Tuple<Integer, FastStringBuffer>(requestId, strBuf);
             } finally {
                 isInRead = false;
             }
         }
     }
 
-    /**
-     * @return s string with the contents read.
-     * @throws IOException
-     */
-    private FastStringBuffer read() throws IOException {
-        FastStringBuffer r = read(null);
-        //System.out.println("RETURNING:"+URLDecoder.decode(URLDecoder.decode(r,ENCODING_UTF_8),ENCODING_UTF_8));
-        return r;
-    }
-
     /**
      * @param str
      * @throws IOException
@@ -566,6 +594,7 @@ public abstract class AbstractShell {
             } catch (Exception e) {
             }
             socket = null;
+            readBuffer.clear();
 
             try {
                 if (serverSocketChannel != null) {
@@ -595,6 +624,7 @@ public abstract class AbstractShell {
     /*default*/void shutdown() {
         synchronized (ioLock) {
             socket = null;
+            readBuffer.clear();
             serverSocket = null;
             serverSocketChannel = null;
             if (process != null) {
@@ -663,8 +693,9 @@ public abstract class AbstractShell {
     }
 
     @SuppressWarnings("unused")
-    private AutoCloseable acquire(String msg) {
+    /*default*/AutoCloseable acquire(String msg) {
         final Timer timer = new Timer();
+        pendingOperations.incrementAndGet();
         semaphore.acquire();
         if (DEBUG_SHELL >= 1) {
             String name = Thread.currentThread().getName();
@@ -679,22 +710,63 @@ public abstract class AbstractShell {
                 if (DEBUG_SHELL >= 1) {
                     timer.printDiff("-- Time to execute: " + s);
                 }
+                lastUsedMillis = System.currentTimeMillis();
+                pendingOperations.decrementAndGet();
                 semaphore.release();
             }
         };
     }
 
     private FastStringBuffer writeAndGetResults(String... str) throws CoreException {
+        FastStringBuffer[] results = writeAndGetResults(Arrays.asList(StringUtils.join("", str)));
+        return results == null ? null : results[0];
+    }
 
+    /**
+     * Writes all the requests at once and reads the responses (correlated to the requests by their ids).
+     *
+     * @return the responses (in the same order as the requests) or null if there was some error communicating
+     * with the shell (in which case it's restarted).
+     */
+    private FastStringBuffer[] writeAndGetResults(List<String> requests) throws CoreException {
+        int size = requests.size();
+        FastStringBuffer[] results = new FastStringBuffer[size];
+        boolean ok = false;
         try {
             synchronized (ioLock) {
-                this.write(StringUtils.join("", str));
-                FastStringBuffer read = this.read();
-                return read;
+                int firstRequestId = lastRequestId + 1;
+                FastStringBuffer buf = new FastStringBuffer();
+                for (String request : requests) {
+                    lastRequestId++;
+                    buf.append(REQUEST_ID_PREFIX).append(lastRequestId).append(':').append(request);
+                }
+                long initial = System.nanoTime();
+                this.write(buf.toString());
+                buf = null;
+
+                int received = 0;
+                while (received < size) {
+                    Tuple<Integer, FastStringBuffer> response = this.read();
+                    int i = response.o1 - firstRequestId;
+                    if (response.o1 >= 0 && i < 0) {
+                        //i.e.: a response which wasn't read when some previous request failed.
+                        Log.log("Ignoring unexpected response from shell with request id: " + response.o1);
+                        continue;
+                    }
+                    if (i < 0 || i >= size || results[i] != null) {
+                        //The responses can't be correlated to the requests anymore (so, the shell is restarted).
+                        throw new IOException("Unexpected response from shell with request id: " + response.o1);
+                    }
+                    metrics.onResponse(System.nanoTime() - initial);
+                    results[i] = response.o2;
+                    received++;
+                }
+                ok = true;
+                return results;
             }
 
         } catch (Exception e) {
-            String message = "ERROR reading shell. Message sent: " + str + "\n";
+            String message = "ERROR reading shell. Message sent: " + StringUtils.join("", requests) + "\n";
             if (process != null) {
                 message += "\n" + process.getProcessLog();
             }
@@ -703,6 +775,10 @@ public abstract class AbstractShell {
             restartShell();
             return null;
         } finally {
+            metrics.onRoundTripFinished(ok);
+            if (DebugSettings.DEBUG_CODE_COMPLETION) {
+                dbg(metrics.toString(), 1);
+            }
             if (process != null) {
                 //Clear the contents from the output from time to time
                 //Note: it's important having a thread reading the stdout and stderr, otherwise the
@@ -712,6 +788,27 @@ public abstract class AbstractShell {
         }
     }
 
+    /**
+     * @return the number of operations using or waiting to use this shell.
+     */
+    public int getPendingOperations() {
+        return pendingOperations.get();
+    }
+
+    /**
+     * @return the time when this shell was last used (System.currentTimeMillis()).
+     */
+    public long getLastUsedMillis() {
+        return lastUsedMillis;
+    }
+
+    /**
+     * @return the metrics on the requests done to this shell.
+     */
+    public ShellRequestMetrics getMetrics() {
+        return metrics;
+    }
+
     private final Object lockLastPythonPath = new Object();
     private String lastPythonPath = null;
 
@@ -758,6 +855,36 @@ public abstract class AbstractShell {
         return ShellConvert.convertStringToCompletions(read);
     }
 
+    /**
+     * Same as getImportCompletions(String, List), but gets the completions for many modules in a single
+     * round trip to the shell.
+     *
+     * @return a list with the completions for each of the passed modules (in the same order).
+     */
+    public List<Tuple<String, List<String[]>>> getImportCompletions(List<String> strs, List<String> pythonpath)
+            throws Exception {
+        FastStringBuffer[] read = null;
+
+        List<String> requests = new ArrayList<String>(strs.size());
+        for (String str : strs) {
+            requests.add(StringUtils.join("", "@@IMPORTS:", URLEncoder.encode(str, ENCODING_UTF_8), "\nEND@@"));
+        }
+
+        try (AutoCloseable permit = acquire(StringUtils.join("", "getImportCompletions: ", strs.size(),
+                " modules"))) {
+            internalChangePythonPath(pythonpath);
+            if (requests.size() > 0) {
+                read = this.writeAndGetResults(requests);
+            }
+        }
+
+        List<Tuple<String, List<String[]>>> ret = new ArrayList<Tuple<String, List<String[]>>>(strs.size());
+        for (int i = 0; i < strs.size(); i++) {
+            ret.add(ShellConvert.convertStringToCompletions(read != null ? read[i] : null));
+        }
+        return ret;
+    }
+
     /**
      * @param moduleName the name of the module where the token is defined
      * @param token the token we are looking for
@@ -0,0 +1,83 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package org.python.pydev.editor.codecompletion.shell;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.python.pydev.shared_core.string.FastStringBuffer;
+
+/**
+ * Keeps the metrics on the requests done to a shell.
+ *
+ * The latency of a request is the time from writing it until its response is read (so, when many requests are
+ * pipelined in a single round trip, the latency of the last ones also includes the time to process the first ones).
+ */
+public final class ShellRequestMetrics {
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong roundTrips = new AtomicLong();
+    private final AtomicLong failedRoundTrips = new AtomicLong();
+    private final AtomicLong nanosLatency = new AtomicLong();
+    private final AtomicLong maxNanosLatency = new AtomicLong();
+
+    /*default*/void onResponse(long nanos) {
+        requests.incrementAndGet();
+        nanosLatency.addAndGet(nanos);
+        long max;
+        do {
+            max = maxNanosLatency.get();
+        } while (nanos > max && !maxNanosLatency.compareAndSet(max, nanos));
+    }
+
+    /*default*/void onRoundTripFinished(boolean ok) {
+        roundTrips.incrementAndGet();
+        if (!ok) {
+            failedRoundTrips.incrementAndGet();
+        }
+    }
+
+    public long getRequests() {
+        return requests.get();
+    }
+
+    public long getRoundTrips() {
+        return roundTrips.get();
+    }
+
+    public long getFailedRoundTrips() {
+        return failedRoundTrips.get();
+    }
+
+    /**
+     * @return the average latency of a request (in millis).
+     */
+    public double getAverageLatencyMillis() {
+        long count = requests.get();
+        if (count == 0) {
+            return 0;
+        }
+        return (nanosLatency.get() / 1000000.0) / count;
+    }
+
+    /**
+     * @return the max latency of a request (in millis).
+     */
+    public double getMaxLatencyMillis() {
+        return maxNanosLatency.get() / 1000000.0;
+    }
+
+    @Override
+    public String toString() {
+        return new FastStringBuffer("ShellRequestMetrics[", 150)
+                .append("requests=").append(getRequests())
+                .append(", roundTrips=").append(getRoundTrips())
+                .append(", failedRoundTrips=").append(getFailedRoundTrips())
+                .append(", avgLatencyMillis=").append(getAverageLatencyMillis())
+                .append(", maxLatencyMillis=").append(getMaxLatencyMillis())
+                .append("]").toString();
+    }
+}
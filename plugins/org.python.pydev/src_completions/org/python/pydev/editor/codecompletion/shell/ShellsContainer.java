@@ -1,11 +1,19 @@
 package org.python.pydev.editor.codecompletion.shell;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
 import org.python.copiedfromeclipsesrc.JDTNotAvailableException;
 import org.python.pydev.core.IInterpreterInfo;
 import org.python.pydev.core.IInterpreterManager;
@@ -13,6 +21,7 @@ import org.python.pydev.core.IPythonNature;
 import org.python.pydev.core.MisconfigurationException;
 import org.python.pydev.core.PythonNatureWithoutProjectException;
 import org.python.pydev.core.log.Log;
+import org.python.pydev.editor.codecompletion.PyCodeCompletionPreferencesPage;
 import org.python.pydev.editor.codecompletion.revisited.ModulesManager;
 import org.python.pydev.logging.DebugSettings;
 import org.python.pydev.plugin.PydevPlugin;
@@ -32,10 +41,118 @@ public class ShellsContainer {
      */
     private static Map<String, Map<Integer, AbstractShell>> shells = new HashMap<String, Map<Integer, AbstractShell>>();
 
+    /**
+     * Additional shells (besides the one in 'shells') for requests which are not done in the UI thread
+     * (OTHER_THREADS_SHELL): when all the shells of an interpreter are busy (i.e.: importing some heavy module), a new
+     * shell is started (up to PyCodeCompletionPreferencesPage.getMaximumNumberOfShellsPerInterpreter() and
+     * MAX_TOTAL_SHELLS) and the requests are dispatched to the least busy one.
+     *
+     * Guarded by 'shells'.
+     */
+    private static Map<String, List<AbstractShell>> pooledShells = new HashMap<String, List<AbstractShell>>();
+
+    /**
+     * Interpreters for which a pooled shell is being started (guarded by 'shells').
+     */
+    private static Set<String> startingPooledShell = new HashSet<String>();
+
+    /**
+     * Maximum number of shell processes (considering all the interpreters).
+     */
+    public static int MAX_TOTAL_SHELLS = 8;
+
+    /**
+     * Pooled shells which are not used for this time are stopped.
+     */
+    public static long IDLE_POOLED_SHELL_TIMEOUT_MILLIS = 5 * 60 * 1000;
+
+    /**
+     * Stops the pooled shells which are idle (scheduled while there are pooled shells).
+     */
+    private static final Job idlePooledShellsReaper = new Job("Stop idle code-completion shells") {
+
+        {
+            setSystem(true);
+            setPriority(Job.DECORATE);
+        }
+
+        @Override
+        protected IStatus run(IProgressMonitor monitor) {
+            if (stopIdlePooledShells(System.currentTimeMillis()) && !AbstractShell.finishedForGood) {
+                this.schedule(IDLE_POOLED_SHELL_TIMEOUT_MILLIS);
+            }
+            return Status.OK_STATUS;
+        }
+    };
+
+    /**
+     * Stops the pooled shells which weren't used for IDLE_POOLED_SHELL_TIMEOUT_MILLIS (the shells are stopped
+     * after releasing the lock).
+     *
+     * @return whether there are still pooled shells.
+     */
+    /*default*/static boolean stopIdlePooledShells(long currentTimeMillis) {
+        List<AbstractShell> idle = new ArrayList<AbstractShell>();
+        boolean hasPooled = false;
+        synchronized (shells) {
+            for (List<AbstractShell> pooled : pooledShells.values()) {
+                idle.addAll(removeIdleShells(pooled, currentTimeMillis, IDLE_POOLED_SHELL_TIMEOUT_MILLIS));
+                hasPooled |= pooled.size() > 0;
+            }
+        }
+        if (DebugSettings.DEBUG_CODE_COMPLETION && idle.size() > 0) {
+            Log.toLogFile("Stopping " + idle.size() + " idle pooled shell(s).", AbstractShell.class);
+        }
+        endShells(idle);
+        return hasPooled;
+    }
+
+    /**
+     * Adds a shell which was just started to the pool of the given interpreter.
+     *
+     * @return false if the shell wasn't added (i.e.: shells of the interpreter stopped in the meanwhile) and should
+     * be stopped.
+     */
+    /*default*/static boolean addToPool(String key, AbstractShell shell) {
+        synchronized (shells) {
+            List<AbstractShell> pooled = pooledShells.get(key);
+            if (pooled == null || AbstractShell.finishedForGood) {
+                return false;
+            }
+            pooled.add(shell);
+        }
+        idlePooledShellsReaper.schedule(IDLE_POOLED_SHELL_TIMEOUT_MILLIS);
+        return true;
+    }
+
+    /**
+     * @return the number of pooled shells for the given interpreter.
+     */
+    /*default*/static int getPooledShellsCount(String key) {
+        synchronized (shells) {
+            List<AbstractShell> pooled = pooledShells.get(key);
+            return pooled != null ? pooled.size() : 0;
+        }
+    }
+
+    /**
+     * Stops the given shells (should be called without holding the 'shells' lock).
+     */
+    private static void endShells(List<AbstractShell> toEnd) {
+        for (AbstractShell shell : toEnd) {
+            try {
+                shell.endIt();
+            } catch (Exception e) {
+                // ignore... we are ending it anyway...
+            }
+        }
+    }
+
     /**
      * simple stop of a shell (it may be later restarted)
      */
     public static void stopServerShell(IInterpreterInfo interpreter, int id) {
+        List<AbstractShell> pooled = null;
         synchronized (shells) {
             Map<Integer, AbstractShell> typeToShell = getTypeToShellFromId(interpreter);
             AbstractShell pythonShell = typeToShell.get(id);
@@ -48,6 +165,13 @@ public class ShellsContainer {
                 }
             }
             typeToShell.remove(id); //there's no exception if it was not there in the 1st place...
+
+            if (id == AbstractShell.OTHER_THREADS_SHELL) {
+                pooled = pooledShells.remove(interpreter.getExecutableOrJar());
+            }
+        }
+        if (pooled != null) {
+            endShells(pooled);
         }
     }
 
@@ -78,7 +202,19 @@ public class ShellsContainer {
                 }
             }
             shells.clear();
+
+            for (List<AbstractShell> pooled : pooledShells.values()) {
+                for (AbstractShell element : pooled) {
+                    try {
+                        element.shutdown(); //shutdown
+                    } catch (Exception e) {
+                        Log.log(e); //let's log it... this should not happen
+                    }
+                }
+            }
+            pooledShells.clear();
         }
+        idlePooledShellsReaper.cancel();
     }
 
     /**
@@ -88,12 +224,19 @@ public class ShellsContainer {
      */
     public static String restartAllShells() {
         String ret = "";
+        List<AbstractShell> pooledToEnd = new ArrayList<AbstractShell>();
         synchronized (shells) {
             try {
                 if (DebugSettings.DEBUG_CODE_COMPLETION) {
                     Log.toLogFile("Restarting all shells and clearing caches...", AbstractShell.class);
                 }
 
+                //The pooled shells are just stopped (new ones are started on demand).
+                for (List<AbstractShell> pooled : pooledShells.values()) {
+                    pooledToEnd.addAll(pooled);
+                }
+                pooledShells.clear();
+
                 for (Map<Integer, AbstractShell> val : shells.values()) {
                     for (AbstractShell val2 : val.values()) {
                         if (val2 != null) {
@@ -120,6 +263,7 @@ public class ShellsContainer {
                 ret += e.getMessage() + "\n";
             }
         }
+        endShells(pooledToEnd);
         return ret;
     }
 
@@ -213,18 +357,7 @@ public class ShellsContainer {
                 if (DebugSettings.DEBUG_CODE_COMPLETION) {
                     Log.toLogFile("pythonShell == null", AbstractShell.class);
                 }
-                if (relatedTo == IPythonNature.INTERPRETER_TYPE_PYTHON) {
-                    pythonShell = new PythonShell();
-
-                } else if (relatedTo == IPythonNature.INTERPRETER_TYPE_JYTHON) {
-                    pythonShell = new JythonShell();
-
-                } else if (relatedTo == IPythonNature.INTERPRETER_TYPE_IRONPYTHON) {
-                    pythonShell = new IronpythonShell();
-
-                } else {
-                    throw new RuntimeException("unknown related id");
-                }
+                pythonShell = createShell(relatedTo);
                 if (DebugSettings.DEBUG_CODE_COMPLETION) {
                     Log.toLogFile("pythonShell.startIt()", AbstractShell.class);
                     Log.addLogLevel();
@@ -239,8 +372,141 @@ public class ShellsContainer {
                 typeToShell.put(id, pythonShell);
             }
 
+            if (id == AbstractShell.OTHER_THREADS_SHELL) {
+                pythonShell = getFromPool(interpreter, relatedTo, pythonShell);
+            }
+
         }
         return pythonShell;
     }
 
+    private static AbstractShell createShell(int relatedTo) throws IOException, CoreException {
+        if (relatedTo == IPythonNature.INTERPRETER_TYPE_PYTHON) {
+            return new PythonShell();
+
+        } else if (relatedTo == IPythonNature.INTERPRETER_TYPE_JYTHON) {
+            return new JythonShell();
+
+        } else if (relatedTo == IPythonNature.INTERPRETER_TYPE_IRONPYTHON) {
+            return new IronpythonShell();
+
+        } else {
+            throw new RuntimeException("unknown related id");
+        }
+    }
+
+    /**
+     * @return the least busy shell among the main shell and the pooled shells of the interpreter (if all are busy,
+     * a new pooled shell is started in the background).
+     */
+    private static AbstractShell getFromPool(final IInterpreterInfo interpreter, final int relatedTo,
+            AbstractShell mainShell) {
+        final String key = interpreter.getExecutableOrJar();
+        List<AbstractShell> pooled = getPool(key);
+        AbstractShell shell = getLeastBusy(mainShell, pooled);
+        if (shell.getPendingOperations() > 0 && !startingPooledShell.contains(key)
+                && 1 + pooled.size() < PyCodeCompletionPreferencesPage.getMaximumNumberOfShellsPerInterpreter()
+                && getTotalShells() < MAX_TOTAL_SHELLS) {
+            //All busy: start a new one (out of the lock as starting it may take a while).
+            startingPooledShell.add(key);
+            Job job = new Job("Start code-completion shell") {
+
+                @Override
+                protected IStatus run(IProgressMonitor monitor) {
+                    AbstractShell newShell = null;
+                    try {
+                        newShell = createShell(relatedTo);
+                        newShell.startIt(interpreter);
+                    } catch (Exception e) {
+                        Log.log(e);
+                        newShell = null;
+                    } finally {
+                        boolean added;
+                        synchronized (shells) {
+                            startingPooledShell.remove(key);
+                            added = newShell != null && addToPool(key, newShell);
+                        }
+                        if (newShell != null && !added) {
+                            //Stopped in the meanwhile.
+                            newShell.endIt();
+                        }
+                    }
+                    return Status.OK_STATUS;
+                }
+            };
+            job.setSystem(true);
+            job.schedule();
+        }
+        return shell;
+    }
+
+    /**
+     * @return the pooled shells of the given interpreter (created if still not there).
+     */
+    /*default*/static List<AbstractShell> getPool(String key) {
+        synchronized (shells) {
+            List<AbstractShell> pooled = pooledShells.get(key);
+            if (pooled == null) {
+                pooled = new ArrayList<AbstractShell>();
+                pooledShells.put(key, pooled);
+            }
+            return pooled;
+        }
+    }
+
+    /**
+     * @return the number of shells currently started (or being started).
+     */
+    private static int getTotalShells() {
+        int total = startingPooledShell.size();
+        for (Map<Integer, AbstractShell> typeToShell : shells.values()) {
+            for (AbstractShell shell : typeToShell.values()) {
+                if (shell != null) {
+                    total++;
+                }
+            }
+        }
+        for (List<AbstractShell> pooled : pooledShells.values()) {
+            total += pooled.size();
+        }
+        return total;
+    }
+
+    /**
+     * @return the shell with less pending operations (the main shell is preferred if there's a draw).
+     */
+    /*default*/static AbstractShell getLeastBusy(AbstractShell mainShell, List<AbstractShell> pooled) {
+        AbstractShell leastBusy = mainShell;
+        int leastPending = mainShell.getPendingOperations();
+        for (AbstractShell shell : pooled) {
+            if (leastPending == 0) {
+                break;
+            }
+            int pending = shell.getPendingOperations();
+            if (pending < leastPending) {
+                leastBusy = shell;
+                leastPending = pending;
+            }
+        }
+        return leastBusy;
+    }
+
+    /**
+     * Removes the shells which weren't used in the given timeout from the passed list.
+     *
+     * @return the removed shells (which should be stopped).
+     */
+    /*default*/static List<AbstractShell> removeIdleShells(List<AbstractShell> pooled, long currentTimeMillis,
+            long timeoutMillis) {
+        List<AbstractShell> removed = new ArrayList<AbstractShell>();
+        for (Iterator<AbstractShell> it = pooled.iterator(); it.hasNext();) {
+            AbstractShell shell = it.next();
+            if (shell.getPendingOperations() == 0 && currentTimeMillis - shell.getLastUsedMillis() > timeoutMillis) {
+                it.remove();
+                removed.add(shell);
+            }
+        }
+        return removed;
+    }
+
 }
@@ -0,0 +1,195 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package org.python.pydev.builder;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.jface.text.Document;
+import org.eclipse.jface.text.IDocument;
+import org.python.pydev.shared_core.callbacks.ICallback0;
+import org.python.pydev.shared_core.resource_stubs.FileMock;
+
+import junit.framework.TestCase;
+
+public class FullBuildPipelineTest extends TestCase {
+
+    /**
+     * resource name -> visits done (visitor index + thread name).
+     */
+    private final Map<String, List<String>> visits = new HashMap<String, List<String>>();
+
+    private final NullProgressMonitor monitor = new NullProgressMonitor();
+
+    private String cancelAt;
+
+    private class RecordingVisitor extends PyDevBuilderVisitor {
+
+        private final int index;
+        private final boolean parallel;
+        private final AtomicInteger instances;
+        private final AtomicInteger active;
+        private final AtomicInteger maxActive;
+
+        private RecordingVisitor(int index, boolean parallel) {
+            this(index, parallel, new AtomicInteger(), new AtomicInteger(), new AtomicInteger());
+        }
+
+        private RecordingVisitor(int index, boolean parallel, AtomicInteger instances, AtomicInteger active,
+                AtomicInteger maxActive) {
+            this.index = index;
+            this.parallel = parallel;
+            this.instances = instances;
+            this.active = active;
+            this.maxActive = maxActive;
+            instances.incrementAndGet();
+        }
+
+        @Override
+        public PyDevBuilderVisitor createParallelVisitor() {
+            if (!parallel) {
+                return null;
+            }
+            return new RecordingVisitor(index, parallel, instances, active, maxActive);
+        }
+
+        @Override
+        public void visitChangedResource(IResource resource, ICallback0<IDocument> document,
+                IProgressMonitor monitor) {
+            int current = active.incrementAndGet();
+            synchronized (maxActive) {
+                maxActive.set(Math.max(maxActive.get(), current));
+            }
+            try {
+                assertTrue(isFullBuild());
+                assertEquals("contents of " + resource.getName(), document.call().get());
+                synchronized (visits) {
+                    List<String> lst = visits.get(resource.getName());
+                    if (lst == null) {
+                        lst = new ArrayList<String>();
+                        visits.put(resource.getName(), lst);
+                    }
+                    lst.add(index + ":" + Thread.currentThread().getName());
+                }
+                if (resource.getName().equals(cancelAt)) {
+                    monitor.setCanceled(true);
+                }
+                Thread.sleep(1);
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            } finally {
+                active.decrementAndGet();
+            }
+        }
+
+        @Override
+        public void visitRemovedResource(IResource resource, ICallback0<IDocument> document,
+                IProgressMonitor monitor) {
+        }
+    }
+
+    private FullBuildPipeline createPipeline(int resources, List<PyDevBuilderVisitor> visitors) {
+        List<IFile> files = new ArrayList<IFile>();
+        for (int i = 0; i < resources; i++) {
+            files.add(new FileMock("f" + i));
+        }
+        return new FullBuildPipeline(files, monitor, visitors) {
+
+            @Override
+            ICallback0<IDocument> loadDocument(IFile r) {
+                final Document doc = new Document("contents of " + r.getName());
+                return new ICallback0<IDocument>() {
+
+                    @Override
+                    public IDocument call() {
+                        return doc;
+                    }
+                };
+            }
+
+            @Override
+            Object visit(IFile r, ICallback0<IDocument> doc, List<PyDevBuilderVisitor> visitorsToUse,
+                    Object memoSharedProjectState, IProgressMonitor visitMonitor) {
+                VisitorMemo memo = new VisitorMemo();
+                memo.put(PyDevBuilderVisitor.IS_FULL_BUILD, true);
+                visit(r, doc, memo, visitorsToUse, visitMonitor);
+                return null;
+            }
+        };
+    }
+
+    private void assertNoPipelineThreadsAlive() {
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            String name = thread.getName();
+            if (thread.isAlive()
+                    && (name.startsWith(FullBuildPipeline.WORKER_THREAD_NAME) || name
+                            .equals(FullBuildPipeline.READER_THREAD_NAME))) {
+                fail("Thread still alive: " + name);
+            }
+        }
+    }
+
+    public void testGetWorkers() throws Exception {
+        assertEquals(4, FullBuildPipeline.getWorkers(4, 1000));
+        assertEquals(2, FullBuildPipeline.getWorkers(4, 45));
+        assertEquals(1, FullBuildPipeline.getWorkers(4, 30));
+        assertEquals(1, FullBuildPipeline.getWorkers(0, 10));
+        assertEquals(Math.max(1, Runtime.getRuntime().availableProcessors() - 1),
+                FullBuildPipeline.getWorkers(0, 100000));
+    }
+
+    public void testParallelVisitKeepsOrderOfVisitors() throws Exception {
+        RecordingVisitor parallel0 = new RecordingVisitor(0, true);
+        RecordingVisitor shared1 = new RecordingVisitor(1, false);
+        RecordingVisitor parallel2 = new RecordingVisitor(2, true);
+        List<PyDevBuilderVisitor> visitors = new ArrayList<PyDevBuilderVisitor>();
+        visitors.add(parallel0);
+        visitors.add(shared1);
+        visitors.add(parallel2);
+
+        createPipeline(200, visitors).run(4);
+        assertNoPipelineThreadsAlive();
+
+        //A new visitor for each additional worker (only for the ones which may be visited in parallel).
+        assertEquals(4, parallel0.instances.get());
+        assertEquals(1, shared1.instances.get());
+        assertEquals(4, parallel2.instances.get());
+        assertEquals(1, shared1.maxActive.get());
+
+        assertEquals(200, visits.size());
+        for (int i = 0; i < 200; i++) {
+            List<String> lst = visits.get("f" + i);
+            assertEquals(3, lst.size());
+            String thread = lst.get(0).substring(2);
+            assertTrue(thread, thread.startsWith(FullBuildPipeline.WORKER_THREAD_NAME));
+            assertEquals("0:" + thread, lst.get(0));
+            assertEquals("1:" + thread, lst.get(1));
+            assertEquals("2:" + thread, lst.get(2));
+        }
+    }
+
+    public void testCancel() throws Exception {
+        List<PyDevBuilderVisitor> visitors = new ArrayList<PyDevBuilderVisitor>();
+        visitors.add(new RecordingVisitor(0, true));
+        cancelAt = "f20";
+
+        long initial = System.currentTimeMillis();
+        createPipeline(2000, visitors).run(3);
+        assertTrue(System.currentTimeMillis() - initial < 10000);
+        assertNoPipelineThreadsAlive();
+
+        assertTrue(visits.containsKey("f20"));
+        assertTrue("Visited: " + visits.size(), visits.size() < 2000);
+    }
+}
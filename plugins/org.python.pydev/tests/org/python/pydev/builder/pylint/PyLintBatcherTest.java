@@ -0,0 +1,103 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package org.python.pydev.builder.pylint;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.Path;
+import org.python.pydev.builder.pylint.PyLintBatcher.BatchResult;
+import org.python.pydev.builder.pylint.PyLintVisitor.PyLintAnalysis;
+import org.python.pydev.shared_core.callbacks.ICallback;
+
+import junit.framework.TestCase;
+
+public class PyLintBatcherTest extends TestCase {
+
+    public void testSplitOutputPerTarget() throws Exception {
+        String mod1 = new File("/tmp/project/mod1.py").getAbsolutePath();
+        String mod2 = new File("/tmp/project/my|dir/mod2.py").getAbsolutePath();
+        List<String> targets = Arrays.asList(mod1, mod2);
+
+        String output = "************* Module mod1\n"
+                + mod1 + "|C:  1, 0: Missing module docstring (missing-docstring)\n"
+                + "'" + mod2 + "|W:  3, 4: Unused variable 'a' (unused-variable)'\r\n"
+                + mod1 + "|E: 10, 0: Undefined variable 'b' (undefined-variable)\n"
+                + new File("/tmp/project/other.py").getAbsolutePath() + "|E:  1, 0: Error (error)\n"
+                + "\n"
+                + "Your code has been rated at 5.00/10\n";
+
+        Map<String, List<String>> split = PyLintBatcher.splitOutputPerTarget(output, targets, false);
+        assertEquals(2, split.size());
+        assertEquals(Arrays.asList("C:  1, 0: Missing module docstring (missing-docstring)",
+                "E: 10, 0: Undefined variable 'b' (undefined-variable)"), split.get(mod1));
+        assertEquals(Arrays.asList("W:  3, 4: Unused variable 'a' (unused-variable)"), split.get(mod2));
+    }
+
+    public void testSplitOutputPerTargetIgnoreCase() throws Exception {
+        String mod1 = new File("/tmp/Project/Mod1.py").getAbsolutePath();
+        String output = mod1.toLowerCase() + "|C:  1, 0: Missing module docstring (missing-docstring)\n";
+
+        assertEquals(0, PyLintBatcher.splitOutputPerTarget(output, Arrays.asList(mod1), false).size());
+        Map<String, List<String>> split = PyLintBatcher.splitOutputPerTarget(output, Arrays.asList(mod1), true);
+        assertEquals(Arrays.asList("C:  1, 0: Missing module docstring (missing-docstring)"), split.get(mod1));
+    }
+
+    private static PyLintAnalysis createAnalysis(String name) {
+        return new PyLintAnalysis(null, null, Path.fromOSString(new File("/tmp/project/" + name).getAbsolutePath()),
+                new NullProgressMonitor(), new File("/tmp/pylint"));
+    }
+
+    public void testRunRetryingFailures() throws Exception {
+        final PyLintAnalysis ok1 = createAnalysis("ok1.py");
+        final PyLintAnalysis crash = createAnalysis("crash.py");
+        final PyLintAnalysis ok2 = createAnalysis("ok2.py");
+        final List<List<PyLintAnalysis>> runs = new ArrayList<List<PyLintAnalysis>>();
+
+        PyLintBatcher.runRetryingFailures(Arrays.asList(ok1, crash, ok2),
+                new ICallback<BatchResult, List<PyLintAnalysis>>() {
+
+                    @Override
+                    public BatchResult call(List<PyLintAnalysis> arg) {
+                        runs.add(new ArrayList<PyLintAnalysis>(arg));
+                        return arg.contains(crash) ? BatchResult.FAILED : BatchResult.OK;
+                    }
+                });
+
+        assertEquals(4, runs.size());
+        assertEquals(Arrays.asList(ok1, crash, ok2), runs.get(0));
+        assertEquals(Arrays.asList(ok1), runs.get(1));
+        assertEquals(Arrays.asList(crash), runs.get(2));
+        assertEquals(Arrays.asList(ok2), runs.get(3));
+        assertFalse(ok1.isFailed());
+        assertTrue(crash.isFailed());
+        assertFalse(ok2.isFailed());
+    }
+
+    public void testRunRetryingFailuresNotFinished() throws Exception {
+        PyLintAnalysis a1 = createAnalysis("a1.py");
+        PyLintAnalysis a2 = createAnalysis("a2.py");
+        final int[] calls = new int[1];
+
+        // I.e.: a timeout is not retried per file (it'd take too long).
+        PyLintBatcher.runRetryingFailures(Arrays.asList(a1, a2), new ICallback<BatchResult, List<PyLintAnalysis>>() {
+
+            @Override
+            public BatchResult call(List<PyLintAnalysis> arg) {
+                calls[0]++;
+                return BatchResult.NOT_FINISHED;
+            }
+        });
+        assertEquals(1, calls[0]);
+        assertTrue(a1.isFailed());
+        assertTrue(a2.isFailed());
+    }
+}
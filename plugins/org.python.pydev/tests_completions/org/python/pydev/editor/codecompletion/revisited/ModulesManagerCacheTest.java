@@ -0,0 +1,52 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package org.python.pydev.editor.codecompletion.revisited;
+
+import junit.framework.TestCase;
+
+import org.python.pydev.core.ModulesKey;
+import org.python.pydev.editor.codecompletion.revisited.modules.AbstractModule;
+import org.python.pydev.editor.codecompletion.revisited.modules.EmptyModule;
+
+public class ModulesManagerCacheTest extends TestCase {
+
+    public void testHitsAndMisses() throws Exception {
+        ModulesManagerCache cache = new ModulesManagerCache(1024 * 1024);
+        ProjectModulesManager manager = new ProjectModulesManager();
+        ModulesKey key = new ModulesKey("mod1", null);
+
+        assertNull(cache.getObj(key, manager));
+        assertEquals(1, manager.getCacheStats().getMisses());
+
+        manager.addModule(key);
+        long misses = manager.getCacheStats().getMisses();
+        AbstractModule created = cache.getObj(new ModulesKey("mod1", null), manager);
+        assertTrue(created instanceof EmptyModule);
+        assertEquals(misses + 1, manager.getCacheStats().getMisses());
+
+        long hits = manager.getCacheStats().getHits();
+        assertSame(created, cache.getObj(new ModulesKey("mod1", null), manager));
+        assertEquals(hits + 1, manager.getCacheStats().getHits());
+    }
+
+    public void testEvictionBySize() throws Exception {
+        ProjectModulesManager manager = new ProjectModulesManager();
+        long budget = ModulesManagerCache.estimateSize(new EmptyModule("a", null)) * 32;
+        ModulesManagerCache cache = new ModulesManagerCache(budget);
+
+        long initialBytes = manager.getCacheStats().getEstimatedBytes();
+        for (int i = 0; i < 200; i++) {
+            ModulesKey key = new ModulesKey("mod" + i, null);
+            cache.add(key, AbstractModule.createEmptyModule(key), manager);
+        }
+        assertTrue(manager.getCacheStats().getEvictions() > 0);
+        assertTrue(manager.getCacheStats().getEstimatedBytes() - initialBytes <= budget);
+
+        cache.clear();
+        assertEquals(initialBytes, manager.getCacheStats().getEstimatedBytes());
+    }
+}
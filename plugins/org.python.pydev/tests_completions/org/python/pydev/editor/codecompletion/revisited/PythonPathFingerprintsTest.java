@@ -0,0 +1,209 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package org.python.pydev.editor.codecompletion.revisited;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.python.pydev.core.ModulesKey;
+import org.python.pydev.core.TestDependent;
+import org.python.pydev.shared_core.io.FileUtils;
+
+import junit.framework.TestCase;
+
+public class PythonPathFingerprintsTest extends TestCase {
+
+    private static final String[] BUILTINS = new String[] { "sys", "__builtin__" };
+
+    private File baseDir;
+    private List<String> pythonpath;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        baseDir = new File(TestDependent.TEST_PYDEV_PLUGIN_LOC, "data_temporary_for_testing/fingerprints");
+        FileUtils.deleteDirectoryTree(baseDir);
+        baseDir.mkdirs();
+
+        File root = new File(baseDir, "site-packages");
+        new File(root, "pack/sub").mkdirs();
+        new File(root, "notpack").mkdirs();
+        FileUtils.writeStrToFile("", new File(root, "mod.py"));
+        FileUtils.writeStrToFile("", new File(root, "pack/__init__.py"));
+        FileUtils.writeStrToFile("", new File(root, "pack/sub/__init__.py"));
+
+        pythonpath = new ArrayList<String>();
+        pythonpath.add(root.getAbsolutePath());
+        pythonpath.add(new File(baseDir, "missing.zip").getAbsolutePath());
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        FileUtils.deleteDirectoryTree(baseDir);
+        super.tearDown();
+    }
+
+    private PythonPathFingerprints computeSaveAndLoad() {
+        File file = new File(baseDir, "fingerprints");
+        PythonPathFingerprints.compute(pythonpath, BUILTINS, new NullProgressMonitor()).save(file);
+        return PythonPathFingerprints.load(file);
+    }
+
+    private static boolean isUpToDate(PythonPathFingerprints fingerprints, List<String> pythonpath,
+            String[] builtins, NullProgressMonitor monitor) {
+        return fingerprints.update(pythonpath, builtins, monitor).isEmpty();
+    }
+
+    private PyPublicTreeMap<ModulesKey, ModulesKey> buildKeysWithFullScan() {
+        PythonPathHelper pythonPathHelper = new PythonPathHelper();
+        pythonPathHelper.setPythonPath(pythonpath);
+        NullProgressMonitor monitor = new NullProgressMonitor();
+        return ModulesManager.buildKeysFromModulesFound(monitor,
+                pythonPathHelper.getModulesFoundStructure(null, monitor));
+    }
+
+    /**
+     * Checks that the keys built only from the changed folders are the same ones found in a full scan.
+     */
+    private void checkIncrementalKeys(PythonPathFingerprints fingerprints, ModulesKey[] previousKeys,
+            String... expectedDirsToRescan) {
+        PythonPathFingerprints.Changes changes = fingerprints.update(pythonpath, BUILTINS,
+                new NullProgressMonitor());
+        assertFalse(changes.isFullScanRequired());
+
+        List<String> dirsToRescan = new ArrayList<String>();
+        for (File dir : changes.getDirsToRescan().keySet()) {
+            dirsToRescan.add(FileUtils.getFileAbsolutePath(dir).substring(
+                    FileUtils.getFileAbsolutePath(baseDir).length() + 1).replace('\\', '/'));
+        }
+        assertEquals(Arrays.asList(expectedDirsToRescan), dirsToRescan);
+
+        PyPublicTreeMap<ModulesKey, ModulesKey> keys = changes.buildKeys(previousKeys, new NullProgressMonitor());
+        assertEquals(buildKeysWithFullScan().keySet(), keys.keySet());
+        assertTrue(isUpToDate(fingerprints, pythonpath, BUILTINS, new NullProgressMonitor()));
+    }
+
+    private ModulesKey[] getCurrentKeys() {
+        return buildKeysWithFullScan().keySet().toArray(new ModulesKey[0]);
+    }
+
+    public void testUnchanged() throws Exception {
+        PythonPathFingerprints fingerprints = computeSaveAndLoad();
+        assertEquals(5, fingerprints.getFingerprintsSize()); //root, pack, pack/sub, notpack, missing.zip
+        assertTrue(isUpToDate(fingerprints, pythonpath, BUILTINS, new NullProgressMonitor()));
+
+        List<String> otherPythonpath = new ArrayList<String>(pythonpath);
+        otherPythonpath.remove(1);
+        assertFalse(isUpToDate(fingerprints, otherPythonpath, BUILTINS, new NullProgressMonitor()));
+    }
+
+    public void testModuleAddedInPackage() throws Exception {
+        PythonPathFingerprints fingerprints = computeSaveAndLoad();
+        File sub = new File(baseDir, "site-packages/pack/sub");
+        FileUtils.writeStrToFile("", new File(sub, "new_mod.py"));
+        sub.setLastModified(sub.lastModified() + 2000);
+        assertFalse(isUpToDate(fingerprints, pythonpath, BUILTINS, new NullProgressMonitor()));
+    }
+
+    public void testFolderBecomesPackage() throws Exception {
+        PythonPathFingerprints fingerprints = computeSaveAndLoad();
+        File notpack = new File(baseDir, "site-packages/notpack");
+        FileUtils.writeStrToFile("", new File(notpack, "__init__.py"));
+        notpack.setLastModified(notpack.lastModified() + 2000);
+        assertFalse(isUpToDate(fingerprints, pythonpath, BUILTINS, new NullProgressMonitor()));
+    }
+
+    public void testIrrelevantChange() throws Exception {
+        PythonPathFingerprints fingerprints = computeSaveAndLoad();
+        File pack = new File(baseDir, "site-packages/pack");
+        FileUtils.writeStrToFile("", new File(pack, "readme.txt"));
+        pack.setLastModified(pack.lastModified() + 2000);
+        assertTrue(isUpToDate(fingerprints, pythonpath, BUILTINS, new NullProgressMonitor()));
+        assertTrue(fingerprints.isDirty());
+    }
+
+    public void testModuleContentsChanged() throws Exception {
+        PythonPathFingerprints fingerprints = computeSaveAndLoad();
+        File root = new File(baseDir, "site-packages");
+        long rootModified = root.lastModified();
+        File mod = new File(root, "pack/sub/__init__.py");
+        long modModified = mod.lastModified();
+        FileUtils.writeStrToFile("def new_api():\n    pass\n", mod);
+        mod.setLastModified(modModified + 2000);
+        root.setLastModified(rootModified);
+
+        //The listing is still the same (only the contents changed).
+        assertFalse(isUpToDate(fingerprints, pythonpath, BUILTINS, new NullProgressMonitor()));
+    }
+
+    public void testBuiltinsChanged() throws Exception {
+        PythonPathFingerprints fingerprints = computeSaveAndLoad();
+        assertTrue(isUpToDate(fingerprints, pythonpath, new String[] { "__builtin__", "sys" },
+                new NullProgressMonitor()));
+        assertFalse(isUpToDate(fingerprints, pythonpath, new String[] { "sys" }, new NullProgressMonitor()));
+        assertFalse(isUpToDate(fingerprints, pythonpath, null, new NullProgressMonitor()));
+    }
+
+    public void testIncrementalModuleAddedInPackage() throws Exception {
+        PythonPathFingerprints fingerprints = computeSaveAndLoad();
+        ModulesKey[] previousKeys = getCurrentKeys();
+        File sub = new File(baseDir, "site-packages/pack/sub");
+        FileUtils.writeStrToFile("", new File(sub, "new_mod.py"));
+        sub.setLastModified(sub.lastModified() + 2000);
+
+        checkIncrementalKeys(fingerprints, previousKeys, "site-packages/pack/sub");
+        assertTrue(buildKeysWithFullScan().containsKey(new ModulesKey("pack.sub.new_mod", null)));
+    }
+
+    public void testIncrementalFolderBecomesPackage() throws Exception {
+        PythonPathFingerprints fingerprints = computeSaveAndLoad();
+        ModulesKey[] previousKeys = getCurrentKeys();
+        File notpack = new File(baseDir, "site-packages/notpack");
+        new File(notpack, "inner").mkdirs();
+        FileUtils.writeStrToFile("", new File(notpack, "mod2.py"));
+        FileUtils.writeStrToFile("", new File(notpack, "inner/__init__.py"));
+        FileUtils.writeStrToFile("", new File(notpack, "__init__.py"));
+        notpack.setLastModified(notpack.lastModified() + 2000);
+
+        checkIncrementalKeys(fingerprints, previousKeys, "site-packages/notpack", "site-packages/notpack/inner");
+    }
+
+    public void testIncrementalPackageRemoved() throws Exception {
+        PythonPathFingerprints fingerprints = computeSaveAndLoad();
+        ModulesKey[] previousKeys = getCurrentKeys();
+        File root = new File(baseDir, "site-packages");
+        FileUtils.deleteDirectoryTree(new File(root, "pack"));
+        root.setLastModified(root.lastModified() + 2000);
+
+        checkIncrementalKeys(fingerprints, previousKeys, "site-packages");
+        assertFalse(buildKeysWithFullScan().containsKey(new ModulesKey("pack.sub", null)));
+    }
+
+    public void testIncrementalPackageInitRemoved() throws Exception {
+        PythonPathFingerprints fingerprints = computeSaveAndLoad();
+        ModulesKey[] previousKeys = getCurrentKeys();
+        File pack = new File(baseDir, "site-packages/pack");
+        new File(pack, "__init__.py").delete();
+        pack.setLastModified(pack.lastModified() + 2000);
+
+        //pack and pack.sub are no longer found (and there's nothing to find again).
+        checkIncrementalKeys(fingerprints, previousKeys);
+    }
+
+    public void testNestedRootsRequireFullScan() throws Exception {
+        pythonpath.add(new File(baseDir, "site-packages/pack").getAbsolutePath());
+        PythonPathFingerprints fingerprints = computeSaveAndLoad();
+        File sub = new File(baseDir, "site-packages/pack/sub");
+        FileUtils.writeStrToFile("", new File(sub, "new_mod.py"));
+        sub.setLastModified(sub.lastModified() + 2000);
+
+        assertTrue(fingerprints.update(pythonpath, BUILTINS, new NullProgressMonitor()).isFullScanRequired());
+    }
+}
@@ -12,6 +12,7 @@
 package org.python.pydev.editor.codecompletion.revisited;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Map;
 
@@ -120,6 +121,10 @@ public class PythonPathHelperTest extends CodeCompletionTestsBase {
         assertTrue(moduleNames.contains("testlib.unittest.__init__"));
         assertTrue(moduleNames.contains("testlib.unittest.testcase"));
         assertTrue(moduleNames.contains("testlib.unittest.relative.testrelative"));
+
+        //each root of the pythonpath has its timing reported
+        assertEquals(helper.getPythonpath(),
+                new ArrayList<String>(modulesFoundStructure.millisToFindModulesPerRoot.keySet()));
     }
 
     public void testModuleCompletion() {
@@ -0,0 +1,81 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package org.python.pydev.editor.codecompletion.revisited.modules;
+
+import java.io.File;
+
+import org.python.pydev.core.IToken;
+import org.python.pydev.shared_core.io.FileUtils;
+import org.python.pydev.shared_core.structure.Tuple;
+
+import junit.framework.TestCase;
+
+public class CompiledModuleCacheTest extends TestCase {
+
+    private File baseDir;
+    private File cacheFile;
+    private File moduleFile;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        baseDir = FileUtils.getTempFileAt(new File(System.getProperty("java.io.tmpdir")), "compiled_module_cache");
+        baseDir.mkdirs();
+        cacheFile = new File(baseDir, "cache.inn");
+        moduleFile = new File(baseDir, "mod.so");
+        FileUtils.writeStrToFile("contents", moduleFile);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        FileUtils.deleteDirectoryTree(baseDir);
+        super.tearDown();
+    }
+
+    private Tuple<File, IToken[]> createInfo() {
+        IToken[] toks = new IToken[20];
+        for (int i = 0; i < toks.length; i++) {
+            toks[i] = new CompiledToken("tok" + i, "doc" + i, "(a, b)", "mod", IToken.TYPE_FUNCTION, null);
+        }
+        return new Tuple<File, IToken[]>(moduleFile, toks);
+    }
+
+    public void testReadWrite() throws Exception {
+        CompiledModule.writeCacheFile(cacheFile, "mod", createInfo(), "interpreter1",
+                CompiledModule.getFileStamp(moduleFile));
+
+        Tuple<File, IToken[]> cached = CompiledModule.readCacheFile(cacheFile, "interpreter1", null, null);
+        assertNotNull(cached);
+        assertEquals(moduleFile, cached.o1);
+        assertEquals(20, cached.o2.length);
+        assertEquals("tok19", cached.o2[19].getRepresentation());
+        assertEquals("doc19", cached.o2[19].getDocStr());
+        assertEquals("(a, b)", cached.o2[19].getArgs());
+        assertEquals(IToken.TYPE_FUNCTION, cached.o2[19].getType());
+    }
+
+    public void testInvalidatedOnInterpreterChange() throws Exception {
+        CompiledModule.writeCacheFile(cacheFile, "mod", createInfo(), "interpreter1",
+                CompiledModule.getFileStamp(moduleFile));
+        assertNull(CompiledModule.readCacheFile(cacheFile, "interpreter2", null, null));
+    }
+
+    public void testInvalidatedOnModuleChange() throws Exception {
+        CompiledModule.writeCacheFile(cacheFile, "mod", createInfo(), "interpreter1",
+                CompiledModule.getFileStamp(moduleFile));
+        FileUtils.writeStrToFile("changed contents", moduleFile);
+        assertNull(CompiledModule.readCacheFile(cacheFile, "interpreter1", null, null));
+    }
+
+    public void testInnerTokensStampedWithModuleFile() throws Exception {
+        Tuple<File, IToken[]> info = createInfo();
+        CompiledModule.writeCacheFile(cacheFile, "mod.Class", new Tuple<File, IToken[]>(null, info.o2),
+                "interpreter1", CompiledModule.getFileStamp(moduleFile));
+        assertNotNull(CompiledModule.readCacheFile(cacheFile, "interpreter1", moduleFile, null));
+        assertNull(CompiledModule.readCacheFile(cacheFile, "interpreter1", null, null));
+    }
+}
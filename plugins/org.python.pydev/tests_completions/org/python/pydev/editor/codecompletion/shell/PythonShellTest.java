@@ -12,6 +12,7 @@
 package org.python.pydev.editor.codecompletion.shell;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.List;
 
 import org.eclipse.core.runtime.CoreException;
@@ -22,6 +23,7 @@ import org.python.pydev.core.TestDependent;
 import org.python.pydev.editor.codecompletion.revisited.CodeCompletionTestsBase;
 import org.python.pydev.shared_core.SharedCorePlugin;
 import org.python.pydev.shared_core.string.StringUtils;
+import org.python.pydev.shared_core.structure.Tuple;
 
 /**
  * These tests should run, however the directory where the tests are run must be correct.
@@ -104,6 +106,20 @@ public class PythonShellTest extends CodeCompletionTestsBase {
         //don't show completion errors!
     }
 
+    public void testGetCompletionsInBatch() throws Exception {
+        List<Tuple<String, List<String[]>>> completions = shell.getImportCompletions(
+                Arrays.asList("math", "dfjslkfjds\n\n", "os"), getPythonpath());
+        assertEquals(3, completions.size());
+        assertEquals("__doc__", completions.get(0).o2.get(0)[0]);
+        assertEquals(0, completions.get(1).o2.size());
+        assertIsIn(completions.get(2).o2, "path");
+
+        //The responses must still be in sync afterwards.
+        assertEquals("__doc__", shell.getImportCompletions("math", getPythonpath()).o2.get(0)[0]);
+        assertEquals(4, shell.getMetrics().getRequests() - 1); //-1: the pythonpath change
+        assertEquals(0, shell.getMetrics().getFailedRoundTrips());
+    }
+
     /**
      * @return
      */
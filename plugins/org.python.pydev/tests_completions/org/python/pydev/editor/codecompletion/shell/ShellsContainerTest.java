@@ -0,0 +1,124 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package org.python.pydev.editor.codecompletion.shell;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.core.runtime.CoreException;
+import org.python.pydev.core.IInterpreterInfo;
+
+import junit.framework.TestCase;
+
+public class ShellsContainerTest extends TestCase {
+
+    private File serverFile;
+
+    private static class ShellStub extends AbstractShell {
+
+        public ShellStub(File f) throws IOException, CoreException {
+            super(f);
+        }
+
+        @Override
+        protected ProcessCreationInfo createServerProcess(IInterpreterInfo interpreter, int port) throws IOException {
+            throw new RuntimeException("Not expected to be started in this test.");
+        }
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        serverFile = File.createTempFile("shells_container_test", ".py");
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        serverFile.delete();
+        super.tearDown();
+    }
+
+    public void testGetLeastBusy() throws Exception {
+        AbstractShell main = new ShellStub(serverFile);
+        AbstractShell pooled1 = new ShellStub(serverFile);
+        AbstractShell pooled2 = new ShellStub(serverFile);
+        List<AbstractShell> pooled = new ArrayList<AbstractShell>();
+        pooled.add(pooled1);
+        pooled.add(pooled2);
+
+        //No one busy: keep with the main one.
+        assertSame(main, ShellsContainer.getLeastBusy(main, pooled));
+
+        AutoCloseable mainOp = main.acquire("main");
+        assertEquals(1, main.getPendingOperations());
+        assertSame(pooled1, ShellsContainer.getLeastBusy(main, pooled));
+
+        AutoCloseable pooled1Op = pooled1.acquire("pooled1");
+        assertSame(pooled2, ShellsContainer.getLeastBusy(main, pooled));
+
+        pooled1Op.close();
+        assertEquals(0, pooled1.getPendingOperations());
+        assertSame(pooled1, ShellsContainer.getLeastBusy(main, pooled));
+
+        mainOp.close();
+        assertSame(main, ShellsContainer.getLeastBusy(main, pooled));
+    }
+
+    public void testRemoveIdleShells() throws Exception {
+        AbstractShell idle = new ShellStub(serverFile);
+        AbstractShell busy = new ShellStub(serverFile);
+        List<AbstractShell> pooled = new ArrayList<AbstractShell>();
+        pooled.add(idle);
+        pooled.add(busy);
+
+        AutoCloseable busyOp = busy.acquire("busy");
+        try {
+            long now = System.currentTimeMillis();
+            assertEquals(0, ShellsContainer.removeIdleShells(pooled, now, 1000).size());
+
+            List<AbstractShell> removed = ShellsContainer.removeIdleShells(pooled, now + 2000, 1000);
+            assertEquals(1, removed.size());
+            assertSame(idle, removed.get(0));
+            assertEquals(1, pooled.size());
+            assertSame(busy, pooled.get(0));
+        } finally {
+            busyOp.close();
+        }
+    }
+
+    public void testStopIdlePooledShells() throws Exception {
+        String key = "shells_container_test_interpreter";
+        AbstractShell idle = new ShellStub(serverFile);
+        AbstractShell busy = new ShellStub(serverFile);
+        ShellsContainer.getPool(key);
+        try {
+            assertTrue(ShellsContainer.addToPool(key, idle));
+            assertTrue(ShellsContainer.addToPool(key, busy));
+            assertEquals(2, ShellsContainer.getPooledShellsCount(key));
+
+            AutoCloseable busyOp = busy.acquire("busy");
+            try {
+                long now = System.currentTimeMillis();
+                assertTrue(ShellsContainer.stopIdlePooledShells(now));
+                assertEquals(2, ShellsContainer.getPooledShellsCount(key));
+
+                assertTrue(ShellsContainer.stopIdlePooledShells(
+                        now + ShellsContainer.IDLE_POOLED_SHELL_TIMEOUT_MILLIS + 1));
+                assertEquals(1, ShellsContainer.getPooledShellsCount(key));
+            } finally {
+                busyOp.close();
+            }
+            assertFalse(ShellsContainer.stopIdlePooledShells(
+                    System.currentTimeMillis() + ShellsContainer.IDLE_POOLED_SHELL_TIMEOUT_MILLIS + 1));
+            assertEquals(0, ShellsContainer.getPooledShellsCount(key));
+        } finally {
+            ShellsContainer.getPool(key).clear();
+        }
+    }
+}